@@ -124,6 +124,11 @@ public class MessageSender {
             extraJson.put(ApplicationConstants.WIDGETSET_VERSION_ID,
                     Version.getFullVersion());
             connection.getConfiguration().setWidgetsetVersionSent();
+        } else {
+            // Always present so that the server can handle the invocations
+            // while reading them
+            extraJson.put(ApplicationConstants.WIDGETSET_VERSION_ID,
+                    Json.createNull());
         }
         if (resynchronizeRequested) {
             getLogger().info("Resynchronizing from server");
@@ -154,11 +159,8 @@ public class MessageSender {
         startRequest();
 
         JsonObject payload = Json.createObject();
-        String csrfToken = getMessageHandler().getCsrfToken();
-        if (!csrfToken.equals(ApplicationConstants.CSRF_TOKEN_DEFAULT_VALUE)) {
-            payload.put(ApplicationConstants.CSRF_TOKEN, csrfToken);
-        }
-        payload.put(ApplicationConstants.RPC_INVOCATIONS, reqInvocations);
+        payload.put(ApplicationConstants.CSRF_TOKEN,
+                getMessageHandler().getCsrfToken());
         payload.put(ApplicationConstants.SERVER_SYNC_ID,
                 getMessageHandler().getLastSeenServerSyncId());
         payload.put(ApplicationConstants.CLIENT_TO_SERVER_ID,
@@ -170,6 +172,9 @@ public class MessageSender {
                 payload.put(key, value);
             }
         }
+        // Last so that the server can check the message before reading the
+        // invocations
+        payload.put(ApplicationConstants.RPC_INVOCATIONS, reqInvocations);
 
         send(payload);
 
@@ -36,6 +36,7 @@ import com.vaadin.shared.ui.Connect;
 import elemental.json.Json;
 import elemental.json.JsonArray;
 import elemental.json.JsonObject;
+import elemental.json.JsonValue;
 
 /**
  * A connector for DataCommunicator class.
@@ -81,6 +82,13 @@ public class DataCommunicatorConnector extends AbstractExtensionConnector {
                             }
                         }
 
+                        @Override
+                        public void updateRowDiffs(JsonArray diffs) {
+                            for (int i = 0; i < diffs.length(); ++i) {
+                                updateRowDiff(diffs.getObject(i));
+                            }
+                        }
+
                         @Override
                         public void insertRows(int firstRowIndex, int count) {
                             insertRowData(firstRowIndex, count);
@@ -136,6 +144,61 @@ public class DataCommunicatorConnector extends AbstractExtensionConnector {
             }
         }
 
+        /**
+         * Applies a row diff to the cached row with the same key and updates
+         * the row with the result through {@link #updateRowData(JsonObject)}.
+         * Diffs of rows that are not cached are ignored.
+         *
+         * @param diff
+         *            the diff sent by the server
+         */
+        private void updateRowDiff(JsonObject diff) {
+            int index = indexOfKey(getRowKey(diff));
+            if (index >= 0) {
+                updateRowData(applyDiff(getRow(index), diff));
+            }
+        }
+
+        /**
+         * Creates a copy of the given object with the given diff applied. The
+         * given object is not modified.
+         *
+         * @param object
+         *            the object to apply the diff to
+         * @param diff
+         *            the diff sent by the server
+         * @return the updated copy of the object
+         */
+        private JsonObject applyDiff(JsonObject object, JsonObject diff) {
+            JsonObject result = Json.createObject();
+            for (String name : object.keys()) {
+                result.put(name, (JsonValue) object.get(name));
+            }
+            if (diff.hasKey(DataCommunicatorConstants.DIFF_UPDATED)) {
+                JsonObject updated = diff
+                        .getObject(DataCommunicatorConstants.DIFF_UPDATED);
+                for (String name : updated.keys()) {
+                    result.put(name, (JsonValue) updated.get(name));
+                }
+            }
+            if (diff.hasKey(DataCommunicatorConstants.DIFF_REMOVED)) {
+                JsonArray removed = diff
+                        .getArray(DataCommunicatorConstants.DIFF_REMOVED);
+                for (int i = 0; i < removed.length(); ++i) {
+                    result.remove(removed.getString(i));
+                }
+            }
+            if (diff.hasKey(DataCommunicatorConstants.DIFF_NESTED)) {
+                JsonObject nested = diff
+                        .getObject(DataCommunicatorConstants.DIFF_NESTED);
+                for (String name : nested.keys()) {
+                    result.put(name, applyDiff(result.getObject(name),
+                            nested.getObject(name)));
+                }
+            }
+            return result;
+        }
+
         /**
          * Inform the server of any dropped rows.
          */
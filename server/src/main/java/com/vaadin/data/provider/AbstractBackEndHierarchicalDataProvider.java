@@ -46,19 +46,30 @@ public abstract class AbstractBackEndHierarchicalDataProvider<T, F>
             return query;
         }
 
-        Set<String> sortedPropertyNames = query.getSortOrders().stream()
+        return new HierarchicalQuery<>(query.getOffset(), query.getLimit(),
+                mixInSortOrders(query.getSortOrders()),
+                query.getInMemorySorting(), query.getFilter().orElse(null),
+                query.getParent());
+    }
+
+    /**
+     * Combines the given sort orders with the default sort orders set with
+     * {@link #setSortOrders(List)}, the given ones taking precedence.
+     */
+    List<QuerySortOrder> mixInSortOrders(List<QuerySortOrder> querySortOrders) {
+        if (sortOrders.isEmpty()) {
+            return querySortOrders;
+        }
+
+        Set<String> sortedPropertyNames = querySortOrders.stream()
                 .map(SortOrder::getSorted).collect(Collectors.toSet());
 
-        List<QuerySortOrder> combinedSortOrders = Stream
-                .concat(query.getSortOrders().stream(),
+        return Stream
+                .concat(querySortOrders.stream(),
                         sortOrders.stream()
                                 .filter(order -> !sortedPropertyNames
                                         .contains(order.getSorted())))
                 .collect(Collectors.toList());
-
-        return new HierarchicalQuery<>(query.getOffset(), query.getLimit(),
-                combinedSortOrders, query.getInMemorySorting(),
-                query.getFilter().orElse(null), query.getParent());
     }
 
     @Override
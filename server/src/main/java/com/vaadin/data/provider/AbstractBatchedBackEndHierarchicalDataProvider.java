@@ -0,0 +1,121 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Abstract base class for back end hierarchical data providers that can fetch
+ * the children of several parents with a single query, e.g. with an SQL
+ * {@code IN} condition on the parent column. Components such as TreeGrid use
+ * {@link #fetchChildrenOfMany(List, Query)} and
+ * {@link #hasChildrenOfMany(List)} when they need the children of several
+ * expanded items or the child information of several rows, so implementing
+ * the batch methods of this class avoids one back end round trip per item.
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ *
+ * @param <T>
+ *            data type
+ * @param <F>
+ *            filter type
+ */
+public abstract class AbstractBatchedBackEndHierarchicalDataProvider<T, F>
+        extends AbstractBackEndHierarchicalDataProvider<T, F> {
+
+    @Override
+    public List<List<T>> fetchChildrenOfMany(List<T> parents,
+            Query<T, F> query) {
+        Query<T, F> combined = new Query<>(0, Integer.MAX_VALUE,
+                mixInSortOrders(query.getSortOrders()),
+                query.getInMemorySorting(), query.getFilter().orElse(null));
+
+        Map<Object, List<T>> childrenByParentId = new HashMap<>();
+        try (Stream<T> children = fetchChildrenOfManyFromBackEnd(parents,
+                combined)) {
+            children.forEach(child -> childrenByParentId
+                    .computeIfAbsent(getParentId(child),
+                            parentId -> new ArrayList<>())
+                    .add(child));
+        }
+
+        List<List<T>> result = new ArrayList<>(parents.size());
+        for (T parent : parents) {
+            List<T> children = childrenByParentId
+                    .get(parent == null ? null : getId(parent));
+            result.add(children == null ? new ArrayList<>() : children);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Boolean> hasChildrenOfMany(List<T> items) {
+        Set<Object> parentIds = new HashSet<>(
+                fetchParentIdsFromBackEnd(items));
+        return items.stream().map(item -> parentIds.contains(getId(item)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Fetches the immediate children of all the given parents from the back
+     * end using a single query. The children of each parent must be in the
+     * order defined by the sort orders of the query, but children of
+     * different parents may be mixed.
+     *
+     * @param parents
+     *            the parent items, may contain <code>null</code> for the root
+     *            level
+     * @param query
+     *            the query that defines filtering and sorting, the offset and
+     *            limit should be ignored
+     * @return a stream of the children of all the parents
+     */
+    protected abstract Stream<T> fetchChildrenOfManyFromBackEnd(
+            List<T> parents, Query<T, F> query);
+
+    /**
+     * Gets the id of the parent of an item fetched from the back end, as
+     * returned by {@link #getId(Object)} for the parent.
+     *
+     * @param item
+     *            the item
+     * @return the id of the parent of the item, or <code>null</code> for root
+     *         level items
+     */
+    protected abstract Object getParentId(T item);
+
+    /**
+     * Fetches the ids of those of the given items that have children from the
+     * back end using a single query, e.g. by selecting the distinct parent ids
+     * of rows whose parent is one of the items.
+     *
+     * @param items
+     *            the items to check for children
+     * @return the ids of the items that have children, as returned by
+     *         {@link #getId(Object)}
+     */
+    protected abstract Collection<Object> fetchParentIdsFromBackEnd(
+            List<T> items);
+}
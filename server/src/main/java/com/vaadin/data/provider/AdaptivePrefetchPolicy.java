@@ -0,0 +1,186 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import com.vaadin.shared.Range;
+
+/**
+ * A prefetch policy that fetches ahead in the direction the user is
+ * scrolling. The scroll speed is measured as the distance between the starts
+ * of consecutive requests. The faster the user scrolls, the more rows are
+ * fetched ahead, up to the maximum lookahead. While the direction is not
+ * known, rows are fetched ahead in both directions.
+ * <p>
+ * The policy also keeps statistics of how many requests were served from the
+ * lookahead buffer and how many data provider queries were saved.
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ */
+public class AdaptivePrefetchPolicy implements PrefetchPolicy {
+
+    /*
+     * Weight of the latest distance in the average distance between
+     * requests.
+     */
+    private static final double SPEED_SMOOTHING = 0.5;
+
+    private static final int LOOKAHEAD_REQUESTS = 4;
+
+    private int maximumLookahead;
+
+    private int lastStart = -1;
+    private int direction = 0;
+    private double averageDistance = 0;
+
+    private long requestCount = 0;
+    private long bufferHitCount = 0;
+
+    /**
+     * Creates a new adaptive prefetch policy with a maximum lookahead of 200
+     * rows.
+     */
+    public AdaptivePrefetchPolicy() {
+        this(200);
+    }
+
+    /**
+     * Creates a new adaptive prefetch policy.
+     *
+     * @param maximumLookahead
+     *            the maximum number of rows to fetch in addition to the
+     *            requested rows, not negative
+     */
+    public AdaptivePrefetchPolicy(int maximumLookahead) {
+        setMaximumLookahead(maximumLookahead);
+    }
+
+    /**
+     * Sets the maximum number of rows to fetch in addition to the requested
+     * rows. This also bounds the size of the lookahead buffer.
+     *
+     * @param maximumLookahead
+     *            the maximum lookahead, not negative
+     */
+    public void setMaximumLookahead(int maximumLookahead) {
+        if (maximumLookahead < 0) {
+            throw new IllegalArgumentException(
+                    "Maximum lookahead cannot be negative");
+        }
+        this.maximumLookahead = maximumLookahead;
+    }
+
+    /**
+     * Gets the maximum number of rows to fetch in addition to the requested
+     * rows.
+     *
+     * @return the maximum lookahead
+     */
+    public int getMaximumLookahead() {
+        return maximumLookahead;
+    }
+
+    @Override
+    public void rowsRequested(Range requestedRows, boolean fromBuffer) {
+        requestCount++;
+        if (fromBuffer) {
+            bufferHitCount++;
+        }
+
+        int start = requestedRows.getStart();
+        if (lastStart >= 0 && start != lastStart) {
+            int distance = start - lastStart;
+            int newDirection = Integer.signum(distance);
+            if (newDirection != direction) {
+                // Speed in the old direction says nothing about the new one
+                averageDistance = Math.abs(distance);
+            } else {
+                averageDistance = SPEED_SMOOTHING * Math.abs(distance)
+                        + (1 - SPEED_SMOOTHING) * averageDistance;
+            }
+            direction = newDirection;
+        }
+        lastStart = start;
+    }
+
+    @Override
+    public Range getFetchRange(Range requestedRows) {
+        // Enough for the next few requests at the current speed
+        int lookahead = (int) Math.min(maximumLookahead,
+                Math.max(2 * requestedRows.length(),
+                        LOOKAHEAD_REQUESTS * averageDistance));
+        int start = requestedRows.getStart();
+        int end = requestedRows.getEnd();
+        if (direction > 0) {
+            end += lookahead;
+        } else if (direction < 0) {
+            start -= lookahead;
+        } else {
+            start -= lookahead / 2;
+            end += lookahead / 2;
+        }
+        return Range.between(Math.max(0, start), end);
+    }
+
+    /**
+     * Gets the number of requests of rows handled since the statistics were
+     * last reset.
+     *
+     * @return the number of requests
+     */
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Gets the number of requests served from the lookahead buffer since the
+     * statistics were last reset. Each of these saved a data provider query.
+     *
+     * @return the number of requests served from the buffer
+     */
+    public long getBufferHitCount() {
+        return bufferHitCount;
+    }
+
+    /**
+     * Gets the share of requests served from the lookahead buffer since the
+     * statistics were last reset.
+     *
+     * @return the hit rate between 0 and 1, or 0 if there have been no
+     *         requests
+     */
+    public double getHitRate() {
+        return requestCount == 0 ? 0 : (double) bufferHitCount / requestCount;
+    }
+
+    /**
+     * Gets the number of data provider queries made for requests of rows since
+     * the statistics were last reset.
+     *
+     * @return the number of data provider queries
+     */
+    public long getFetchCount() {
+        return requestCount - bufferHitCount;
+    }
+
+    /**
+     * Resets the request statistics.
+     */
+    public void resetStatistics() {
+        requestCount = 0;
+        bufferHitCount = 0;
+    }
+}
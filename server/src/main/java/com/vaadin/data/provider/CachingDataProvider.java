@@ -0,0 +1,370 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.vaadin.shared.Registration;
+
+/**
+ * A data provider wrapper that caches the results of {@link #size(Query)} and
+ * {@link #fetch(Query)} of the wrapped data provider. Results are cached by
+ * the filter, sorting, offset and limit of the query, so repeated queries, e.g.
+ * from several components showing the same data or from components
+ * re-fetching their data after a change event, only reach the wrapped data
+ * provider once.
+ * <p>
+ * The cache holds a bounded number of query results and evicts the least
+ * recently used ones first. Optionally, results also expire after a time to
+ * live. The whole cache is invalidated when {@link #refreshAll()} or
+ * {@link #refreshItem(Object)} is called on this or the wrapped data provider,
+ * and can be invalidated explicitly with {@link #invalidate()}.
+ * <p>
+ * This data provider only listens to the wrapped data provider while it is in
+ * use. When the last listener of this data provider is removed, e.g. when the
+ * last component using it is detached, the cache is cleared and this data
+ * provider no longer stays reachable from the wrapped data provider.
+ * <p>
+ * This data provider is thread safe, as long as the wrapped data provider is,
+ * and can thus be shared by components in different UIs. Note that the
+ * filters of the queries are compared with {@link Object#equals(Object)}. For
+ * results to be shared by different components, the filters must implement
+ * it.
+ * <p>
+ * The cached results contain the item instances returned by the wrapped data
+ * provider. When this data provider is shared by UIs of different sessions,
+ * those UIs thus share the same item instances. If the items are mutable, e.g.
+ * edited through a {@link com.vaadin.data.Binder Binder}, a change made in
+ * one session is visible in the others without any locking. Either share
+ * only immutable items, or use a separate caching data provider for each
+ * session.
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ *
+ * @param <T>
+ *            the data type
+ * @param <F>
+ *            the filter type
+ */
+public class CachingDataProvider<T, F> extends DataProviderWrapper<T, F, F> {
+
+    private int maximumEntries = 100;
+    private Duration timeToLive;
+
+    /*
+     * Query results in access order. Not serialized, the cache is simply
+     * empty after deserialization.
+     */
+    private transient LinkedHashMap<CacheKey, CacheEntry> cache;
+
+    /*
+     * Incremented on invalidation, so that results fetched before it are not
+     * cached after it.
+     */
+    private long generation = 0;
+
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    private final WrappedDataProviderListener<T> cacheInvalidator;
+
+    /**
+     * Creates a new caching data provider for the given data provider.
+     *
+     * @param dataProvider
+     *            the data provider to cache the results of, not
+     *            <code>null</code>
+     */
+    public CachingDataProvider(DataProvider<T, F> dataProvider) {
+        super(dataProvider);
+        cacheInvalidator = new WrappedDataProviderListener<>(dataProvider,
+                event -> invalidate());
+    }
+
+    @Override
+    public Registration addDataProviderListener(
+            DataProviderListener<T> listener) {
+        return cacheInvalidator.addWrapperListener(
+                () -> super.addDataProviderListener(listener));
+    }
+
+    /**
+     * Sets the maximum number of query results to cache. When the cache is
+     * full, the least recently used result is evicted. The default is 100.
+     *
+     * @param maximumEntries
+     *            the maximum number of cached results, not negative
+     */
+    public synchronized void setMaximumEntries(int maximumEntries) {
+        if (maximumEntries < 0) {
+            throw new IllegalArgumentException(
+                    "Maximum entries cannot be negative");
+        }
+        this.maximumEntries = maximumEntries;
+        while (getCache().size() > maximumEntries) {
+            getCache().remove(getCache().keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Gets the maximum number of query results to cache.
+     *
+     * @return the maximum number of cached results
+     */
+    public synchronized int getMaximumEntries() {
+        return maximumEntries;
+    }
+
+    /**
+     * Sets the time after which a cached result expires. By default, results
+     * do not expire and are only evicted when the cache is full or
+     * invalidated.
+     *
+     * @param timeToLive
+     *            the time to live of cached results, or <code>null</code> for
+     *            no expiry
+     */
+    public synchronized void setTimeToLive(Duration timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Gets the time after which a cached result expires.
+     *
+     * @return the time to live of cached results, or <code>null</code> if
+     *         they do not expire
+     */
+    public synchronized Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        getCache().clear();
+    }
+
+    @Override
+    public void refreshAll() {
+        invalidate();
+        super.refreshAll();
+    }
+
+    @Override
+    public void refreshItem(T item) {
+        invalidate();
+        super.refreshItem(item);
+    }
+
+    @Override
+    public int size(Query<T, F> query) {
+        CacheKey key = new CacheKey(query, true);
+        cacheInvalidator.ensureListening();
+        long fetchGeneration = getGeneration();
+        Object cached = getCached(key);
+        if (cached != null) {
+            return (Integer) cached;
+        }
+        int size = super.size(query);
+        putCached(key, size, fetchGeneration);
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<T> fetch(Query<T, F> query) {
+        CacheKey key = new CacheKey(query, false);
+        cacheInvalidator.ensureListening();
+        long fetchGeneration = getGeneration();
+        Object cached = getCached(key);
+        if (cached != null) {
+            return ((List<T>) cached).stream();
+        }
+        List<T> items = Collections.unmodifiableList(
+                super.fetch(query).collect(Collectors.toList()));
+        putCached(key, items, fetchGeneration);
+        return items.stream();
+    }
+
+    @Override
+    protected F getFilter(Query<T, F> query) {
+        return query.getFilter().orElse(null);
+    }
+
+    /**
+     * Gets the number of queries answered from the cache since the statistics
+     * were last reset.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Gets the number of queries passed to the wrapped data provider since the
+     * statistics were last reset.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Gets the share of queries answered from the cache since the statistics
+     * were last reset.
+     *
+     * @return the hit rate between 0 and 1, or 0 if there have been no
+     *         queries
+     */
+    public synchronized double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Gets the number of currently cached results.
+     *
+     * @return the number of cached results
+     */
+    public synchronized int getEntryCount() {
+        return getCache().size();
+    }
+
+    /**
+     * Resets the hit and miss statistics.
+     */
+    public synchronized void resetStatistics() {
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    private synchronized Object getCached(CacheKey key) {
+        CacheEntry entry = getCache().get(key);
+        if (entry != null && timeToLive != null && System.nanoTime()
+                - entry.created > timeToLive.toNanos()) {
+            getCache().remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.value;
+    }
+
+    private synchronized long getGeneration() {
+        return generation;
+    }
+
+    /*
+     * The wrapped data provider is queried without holding the lock, so the
+     * same result might be put twice by concurrent queries. The later one
+     * wins, which does no harm.
+     */
+    private synchronized void putCached(CacheKey key, Object value,
+            long fetchGeneration) {
+        if (maximumEntries > 0 && fetchGeneration == generation) {
+            getCache().put(key, new CacheEntry(value, System.nanoTime()));
+        }
+    }
+
+    private LinkedHashMap<CacheKey, CacheEntry> getCache() {
+        if (cache == null) {
+            cache = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<CacheKey, CacheEntry> eldest) {
+                    return size() > maximumEntries;
+                }
+            };
+        }
+        return cache;
+    }
+
+    private static class CacheEntry implements Serializable {
+        private final Object value;
+        private final long created;
+
+        private CacheEntry(Object value, long created) {
+            this.value = value;
+            this.created = created;
+        }
+    }
+
+    /**
+     * Identifies the result of a query. Sort orders are compared by their
+     * properties and directions, in-memory sorting by identity.
+     */
+    private static class CacheKey implements Serializable {
+        private final boolean size;
+        private final int offset;
+        private final int limit;
+        private final Object filter;
+        private final List<Object> sortOrders;
+        private final Comparator<?> inMemorySorting;
+
+        private CacheKey(Query<?, ?> query, boolean size) {
+            this.size = size;
+            // The size does not depend on paging or sorting
+            offset = size ? 0 : query.getOffset();
+            limit = size ? 0 : query.getLimit();
+            filter = query.getFilter().orElse(null);
+            sortOrders = new ArrayList<>();
+            if (!size && query.getSortOrders() != null) {
+                for (QuerySortOrder order : query.getSortOrders()) {
+                    sortOrders.add(order.getSorted());
+                    sortOrders.add(order.getDirection());
+                }
+            }
+            inMemorySorting = size ? null : query.getInMemorySorting();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return size == other.size && offset == other.offset
+                    && limit == other.limit
+                    && Objects.equals(filter, other.filter)
+                    && sortOrders.equals(other.sortOrders)
+                    && inMemorySorting == other.inMemorySorting;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, offset, limit, filter, sortOrders,
+                    System.identityHashCode(inMemorySorting));
+        }
+    }
+}
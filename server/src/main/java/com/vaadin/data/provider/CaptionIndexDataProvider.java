@@ -0,0 +1,343 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import com.vaadin.server.SerializableFunction;
+import com.vaadin.server.SerializablePredicate;
+import com.vaadin.server.SerializableSupplier;
+import com.vaadin.shared.Registration;
+
+/**
+ * A data provider wrapper for a {@link ListDataProvider} that is filtered by
+ * text, showing the items whose caption contains the filter text, ignoring
+ * case. Instead of converting and scanning the caption of every item for each
+ * query, the lower case captions are indexed by all their substrings of up to
+ * three characters. A query then only needs to look at the items that contain
+ * all three character substrings of the filter text, which makes filtering
+ * large lists on every keystroke cheap.
+ * <p>
+ * The index is built when first needed and built again after the wrapped data
+ * provider reports a change, i.e. when {@link #refreshAll()} or
+ * {@link #refreshItem(Object)} is called, or when the locale used for case
+ * conversion changes. Call {@link #invalidateIndex()} if the captions change
+ * in some other way. The filter and sorting of the wrapped data provider are
+ * applied to the matching items.
+ * <p>
+ * This data provider only listens to the wrapped data provider while it is in
+ * use. When the last listener of this data provider is removed, e.g. when the
+ * last component using it is detached, the index is discarded and this data
+ * provider no longer stays reachable from the wrapped data provider.
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ *
+ * @param <T>
+ *            the data type
+ */
+public class CaptionIndexDataProvider<T>
+        extends DataProviderWrapper<T, String, SerializablePredicate<T>> {
+
+    /*
+     * Length of the longest indexed substrings. Filter texts up to this length
+     * are answered directly from the index, longer ones by intersecting the
+     * items of their substrings of this length and checking the result.
+     */
+    private static final int GRAM_LENGTH = 3;
+
+    private final ListDataProvider<T> listDataProvider;
+    private final SerializableFunction<T, String> captionGenerator;
+    private final SerializableSupplier<Locale> localeSupplier;
+
+    private final WrappedDataProviderListener<T> indexInvalidator;
+
+    private transient volatile Index<T> index;
+
+    /**
+     * Creates a new caption index data provider for the given list data
+     * provider.
+     *
+     * @param listDataProvider
+     *            the list data provider to wrap, not <code>null</code>
+     * @param captionGenerator
+     *            the function that gives the caption of an item, not
+     *            <code>null</code>
+     * @param localeSupplier
+     *            the supplier for the locale used for converting the captions
+     *            and filter texts to lower case, not <code>null</code>. If
+     *            the supplier returns <code>null</code>, the default locale is
+     *            used
+     */
+    public CaptionIndexDataProvider(ListDataProvider<T> listDataProvider,
+            SerializableFunction<T, String> captionGenerator,
+            SerializableSupplier<Locale> localeSupplier) {
+        super(listDataProvider);
+        this.listDataProvider = listDataProvider;
+        this.captionGenerator = Objects.requireNonNull(captionGenerator,
+                "The caption generator cannot be null");
+        this.localeSupplier = Objects.requireNonNull(localeSupplier,
+                "The locale supplier cannot be null");
+        indexInvalidator = new WrappedDataProviderListener<>(
+                listDataProvider, event -> invalidateIndex());
+    }
+
+    @Override
+    public Registration addDataProviderListener(
+            DataProviderListener<T> listener) {
+        return indexInvalidator.addWrapperListener(
+                () -> super.addDataProviderListener(listener));
+    }
+
+    /**
+     * Discards the index so that it is built again from the current items and
+     * captions on the next query.
+     */
+    public void invalidateIndex() {
+        index = null;
+    }
+
+    @Override
+    public Stream<T> fetch(Query<T, String> query) {
+        Optional<String> filterText = getFilterText(query);
+        if (!filterText.isPresent()) {
+            return super.fetch(query);
+        }
+        Stream<T> stream = getMatches(filterText.get()).stream();
+
+        // Same order of filtering and sorting as in ListDataProvider
+        SerializablePredicate<T> filter = listDataProvider.getFilter();
+        if (filter != null) {
+            stream = stream.filter(filter);
+        }
+        Optional<Comparator<T>> comparing = Stream
+                .of(query.getInMemorySorting(),
+                        listDataProvider.getSortComparator())
+                .filter(c -> c != null)
+                .reduce((c1, c2) -> c1.thenComparing(c2));
+        if (comparing.isPresent()) {
+            stream = stream.sorted(comparing.get());
+        }
+        return stream.skip(query.getOffset()).limit(query.getLimit());
+    }
+
+    @Override
+    public int size(Query<T, String> query) {
+        Optional<String> filterText = getFilterText(query);
+        if (!filterText.isPresent()) {
+            return super.size(query);
+        }
+        List<T> matches = getMatches(filterText.get());
+        SerializablePredicate<T> filter = listDataProvider.getFilter();
+        if (filter == null) {
+            return matches.size();
+        }
+        return (int) matches.stream().filter(filter).count();
+    }
+
+    @Override
+    protected SerializablePredicate<T> getFilter(Query<T, String> query) {
+        return getFilterText(query).map(filterText -> {
+            Locale locale = getLocale();
+            String normalized = filterText.toLowerCase(locale);
+            return (SerializablePredicate<T>) item -> getCaption(item)
+                    .toLowerCase(locale).contains(normalized);
+        }).orElse(null);
+    }
+
+    private Optional<String> getFilterText(Query<T, String> query) {
+        return query.getFilter().filter(text -> !text.isEmpty());
+    }
+
+    private List<T> getMatches(String filterText) {
+        Locale locale = getLocale();
+        Index<T> current = index;
+        if (current == null || !current.locale.equals(locale)) {
+            // Before reading the items, so that no change goes unnoticed
+            indexInvalidator.ensureListening();
+            current = new Index<>(listDataProvider.getItems(),
+                    item -> getCaption(item).toLowerCase(locale), locale);
+            index = current;
+        }
+        return current.find(filterText.toLowerCase(locale));
+    }
+
+    private String getCaption(T item) {
+        String caption = captionGenerator.apply(item);
+        return caption == null ? "" : caption;
+    }
+
+    private Locale getLocale() {
+        Locale locale = localeSupplier.get();
+        return locale == null ? Locale.getDefault() : locale;
+    }
+
+    /**
+     * An immutable index from the substrings of up to {@link #GRAM_LENGTH}
+     * characters of the lower case captions to the positions of the items
+     * containing them.
+     */
+    private static class Index<T> implements Serializable {
+        private final List<T> items;
+        private final String[] captions;
+        private final Map<String, Postings> postings = new HashMap<>();
+        private final Locale locale;
+
+        private Index(Iterable<T> source,
+                SerializableFunction<T, String> normalizedCaption,
+                Locale locale) {
+            this.locale = locale;
+            items = new ArrayList<>();
+            source.forEach(items::add);
+            captions = new String[items.size()];
+            for (int i = 0; i < captions.length; i++) {
+                String caption = normalizedCaption.apply(items.get(i));
+                captions[i] = caption;
+                for (int start = 0; start < caption.length(); start++) {
+                    int maxEnd = Math.min(caption.length(),
+                            start + GRAM_LENGTH);
+                    for (int end = start + 1; end <= maxEnd; end++) {
+                        postings.computeIfAbsent(
+                                caption.substring(start, end),
+                                gram -> new Postings()).add(i);
+                    }
+                }
+            }
+        }
+
+        private List<T> find(String filterText) {
+            if (filterText.length() <= GRAM_LENGTH) {
+                Postings matches = postings.get(filterText);
+                return matches == null ? new ArrayList<>()
+                        : matches.toItems(items);
+            }
+
+            Postings[] grams = new Postings[filterText.length() - GRAM_LENGTH
+                    + 1];
+            for (int i = 0; i < grams.length; i++) {
+                grams[i] = postings
+                        .get(filterText.substring(i, i + GRAM_LENGTH));
+                if (grams[i] == null) {
+                    return new ArrayList<>();
+                }
+            }
+            Arrays.sort(grams, Comparator.comparingInt(p -> p.size));
+
+            int[] candidates = Arrays.copyOf(grams[0].positions,
+                    grams[0].size);
+            int count = candidates.length;
+            for (int i = 1; i < grams.length && count > 0; i++) {
+                count = grams[i].retainIn(candidates, count);
+            }
+
+            List<T> result = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                // All substrings present does not yet imply a match
+                if (captions[candidates[i]].contains(filterText)) {
+                    result.add(items.get(candidates[i]));
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Ascending positions of the items that contain a substring.
+     */
+    private static class Postings implements Serializable {
+        private int[] positions = new int[2];
+        private int size = 0;
+
+        private void add(int position) {
+            if (size > 0 && positions[size - 1] == position) {
+                // Substring occurs several times in the same caption
+                return;
+            }
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+
+        /*
+         * Removes the positions not in this from the first count entries of
+         * the given sorted array and returns the number of remaining entries.
+         */
+        private int retainIn(int[] candidates, int count) {
+            int retained = 0;
+            int j = 0;
+            for (int i = 0; i < count; i++) {
+                int candidate = candidates[i];
+                while (j < size && positions[j] < candidate) {
+                    j++;
+                }
+                if (j < size && positions[j] == candidate) {
+                    candidates[retained++] = candidate;
+                }
+            }
+            return retained;
+        }
+
+        /*
+         * Returns a view of the items at the positions, without copying. The
+         * postings are not modified after the index has been built.
+         */
+        private <E> List<E> toItems(List<E> items) {
+            return new PostingsView<>(items, positions, size);
+        }
+    }
+
+    /**
+     * Read-only list of the items at given positions of another list.
+     */
+    private static class PostingsView<E> extends AbstractList<E>
+            implements Serializable {
+        private final List<E> items;
+        private final int[] positions;
+        private final int size;
+
+        private PostingsView(List<E> items, int[] positions, int size) {
+            this.items = items;
+            this.positions = positions;
+            this.size = size;
+        }
+
+        @Override
+        public E get(int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException(
+                        "Index: " + index + ", size: " + size);
+            }
+            return items.get(positions[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
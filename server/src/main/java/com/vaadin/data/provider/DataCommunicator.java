@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -26,13 +27,13 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.vaadin.data.ValueProvider;
 import com.vaadin.data.provider.DataChangeEvent.DataRefreshEvent;
 import com.vaadin.server.AbstractExtension;
-import com.vaadin.server.KeyMapper;
 import com.vaadin.server.SerializableConsumer;
 import com.vaadin.shared.Range;
 import com.vaadin.shared.Registration;
@@ -45,6 +46,8 @@ import com.vaadin.ui.ComboBox;
 import elemental.json.Json;
 import elemental.json.JsonArray;
 import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
 
 /**
  * DataProvider base class. This class is the base for all DataProvider
@@ -98,13 +101,13 @@ public class DataCommunicator<T> extends AbstractExtension {
         /**
          * Set of key strings for currently active data objects
          */
-        private final Set<String> activeData = new HashSet<>();
+        private final KeySet activeData = new KeySet();
 
         /**
          * Set of key strings for data objects dropped on the client. This set
          * is used to clean up old data when it's no longer needed.
          */
-        private final Set<String> droppedData = new HashSet<>();
+        private final KeySet droppedData = new KeySet();
 
         /**
          * Adds given objects as currently active objects.
@@ -113,9 +116,7 @@ public class DataCommunicator<T> extends AbstractExtension {
          *            collection of new active data objects
          */
         public void addActiveData(Stream<T> dataObjects) {
-            dataObjects.map(getKeyMapper()::key)
-                    .filter(key -> !activeData.contains(key))
-                    .forEach(activeData::add);
+            dataObjects.forEach(data -> addKey(activeData, data));
         }
 
         /**
@@ -131,11 +132,8 @@ public class DataCommunicator<T> extends AbstractExtension {
          *            collection of most recently sent data to the client
          */
         public void cleanUp(Stream<T> dataObjects) {
-            Collection<String> keys = dataObjects.map(getKeyMapper()::key)
-                    .collect(Collectors.toSet());
-
             // Remove still active rows that were dropped by the client
-            droppedData.removeAll(keys);
+            dataObjects.forEach(data -> removeKey(droppedData, data));
             // Do data clean up for object no longer needed.
             dropData(droppedData);
             droppedData.clear();
@@ -200,16 +198,51 @@ public class DataCommunicator<T> extends AbstractExtension {
         @Override
         public void destroyData(T data) {
             // Remove from active data set
-            activeData.remove(getKeyMapper().key(data));
+            removeKey(activeData, data);
+            if (!sentRows.isEmpty()) {
+                sentRows.remove(getKeyMapper().key(data));
+            }
             // Drop the registered key
             getKeyMapper().remove(data);
         }
 
+        /*
+         * Keys of data objects are tracked as integers when the key mapper is
+         * an IntKeyMapper, so that no key strings are created for them.
+         */
+
+        private void addKey(KeySet keys, T data) {
+            IntKeyMapper<T> intKeyMapper = getIntKeyMapper();
+            if (intKeyMapper != null && data != null) {
+                keys.addInt(intKeyMapper.intKey(data));
+            } else {
+                keys.add(getKeyMapper().key(data));
+            }
+        }
+
+        private void removeKey(KeySet keys, T data) {
+            IntKeyMapper<T> intKeyMapper = getIntKeyMapper();
+            if (intKeyMapper != null && data != null) {
+                keys.removeInt(intKeyMapper.intKey(data));
+            } else {
+                keys.remove(getKeyMapper().key(data));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private IntKeyMapper<T> getIntKeyMapper() {
+            DataKeyMapper<T> keyMapper = getKeyMapper();
+            return keyMapper instanceof IntKeyMapper
+                    ? (IntKeyMapper<T>) keyMapper
+                    : null;
+        }
+
         @Override
         public void destroyAllData() {
             droppedData.clear();
             activeData.clear();
             updatedData.clear();
+            sentRows.clear();
             getKeyMapper().removeAll();
         }
     }
@@ -233,6 +266,22 @@ public class DataCommunicator<T> extends AbstractExtension {
     private final List<QuerySortOrder> backEndSorting = new ArrayList<>();
     private final DataCommunicatorClientRpc rpc;
 
+    private boolean rowDiffsEnabled = false;
+    /*
+     * The last data sent to the client for each key, used for computing row
+     * diffs. Only kept when row diffs are enabled.
+     */
+    private final Map<String, JsonObject> sentRows = new HashMap<>();
+
+    private PrefetchPolicy prefetchPolicy;
+    /*
+     * Rows fetched from the data provider beyond the ones sent to the client,
+     * starting from prefetchedStart. Only used with a prefetch policy.
+     */
+    private transient List<T> prefetchedRows;
+    private int prefetchedStart;
+    private boolean prefetchedToEnd;
+
     public DataCommunicator() {
         addDataGenerator(handler);
         rpc = getRpcProxy(DataCommunicatorClientRpc.class);
@@ -243,12 +292,14 @@ public class DataCommunicator<T> extends AbstractExtension {
     @Override
     public void attach() {
         super.attach();
+        dropPrefetchedRows();
         attachDataProviderListener();
     }
 
     @Override
     public void detach() {
         super.detach();
+        dropPrefetchedRows();
         detachDataProviderListener();
     }
 
@@ -377,6 +428,7 @@ public class DataCommunicator<T> extends AbstractExtension {
         }
 
         if (initial || reset) {
+            dropPrefetchedRows();
             if (reset) {
                 handler.dropAllActiveData();
             }
@@ -386,11 +438,23 @@ public class DataCommunicator<T> extends AbstractExtension {
 
         if (!updatedData.isEmpty()) {
             JsonArray dataArray = Json.createArray();
-            int i = 0;
+            JsonArray diffArray = Json.createArray();
             for (T data : updatedData) {
-                dataArray.set(i++, getDataObject(data));
+                JsonObject dataObject = getDataObject(data);
+                JsonObject diff = rowDiffsEnabled ? createRowDiff(dataObject)
+                        : null;
+                if (diff != null) {
+                    diffArray.set(diffArray.length(), diff);
+                } else {
+                    dataArray.set(dataArray.length(), dataObject);
+                }
+            }
+            if (dataArray.length() > 0) {
+                rpc.updateData(dataArray);
+            }
+            if (diffArray.length() > 0) {
+                rpc.updateRowDiffs(diffArray);
             }
-            rpc.updateData(dataArray);
         }
 
         Range requestedRows = getPushRows();
@@ -399,7 +463,7 @@ public class DataCommunicator<T> extends AbstractExtension {
             int offset = requestedRows.getStart();
             int limit = requestedRows.length();
 
-            List<T> rowsToPush = fetchItemsWithRange(offset, limit);
+            List<T> rowsToPush = fetchPushRows(offset, limit);
 
             if (!initial && !reset && rowsToPush.isEmpty()) {
                 triggerReset = true;
@@ -413,6 +477,46 @@ public class DataCommunicator<T> extends AbstractExtension {
         updatedData.clear();
     }
 
+    private List<T> fetchPushRows(int offset, int limit) {
+        if (prefetchPolicy == null) {
+            return fetchItemsWithRange(offset, limit);
+        }
+
+        Range requested = Range.withLength(offset, limit);
+        boolean fromBuffer = prefetchedRows != null
+                && offset >= prefetchedStart
+                && (prefetchedToEnd || requested.getEnd() <= prefetchedStart
+                        + prefetchedRows.size());
+        prefetchPolicy.rowsRequested(requested, fromBuffer);
+
+        if (!fromBuffer) {
+            Range fetch = prefetchPolicy.getFetchRange(requested);
+            if (!requested.isSubsetOf(fetch)) {
+                fetch = requested;
+            }
+            prefetchedRows = fetchItemsWithRange(fetch.getStart(),
+                    fetch.length());
+            prefetchedStart = fetch.getStart();
+            prefetchedToEnd = prefetchedRows.size() < fetch.length();
+        }
+
+        int from = Math.min(offset - prefetchedStart, prefetchedRows.size());
+        int to = Math.min(from + limit, prefetchedRows.size());
+        return new ArrayList<>(prefetchedRows.subList(from, to));
+    }
+
+    /**
+     * Drops the rows prefetched from the data provider, so that the rows for
+     * the next client request are fetched again from the data provider. This
+     * needs to be called whenever the rows or their order may have changed.
+     *
+     * @see #setPrefetchPolicy(PrefetchPolicy)
+     * @since 8.14
+     */
+    protected void dropPrefetchedRows() {
+        prefetchedRows = null;
+    }
+
     /**
      * Fetches a list of items from the DataProvider.
      *
@@ -483,7 +587,13 @@ public class DataCommunicator<T> extends AbstractExtension {
 
         int i = 0;
         for (T item : data) {
-            dataArray.set(i++, getDataObject(item));
+            JsonObject dataObject = getDataObject(item);
+            if (rowDiffsEnabled) {
+                sentRows.put(
+                        dataObject.getString(DataCommunicatorConstants.KEY),
+                        dataObject);
+            }
+            dataArray.set(i++, dataObject);
         }
 
         rpc.setData(firstIndex, dataArray);
@@ -509,6 +619,96 @@ public class DataCommunicator<T> extends AbstractExtension {
         return dataObject;
     }
 
+    /**
+     * Creates a diff between the data last sent to the client for the same key
+     * and the given data, and remembers the given data as the last sent data.
+     *
+     * @param dataObject
+     *            the new data of a row
+     * @return the diff to send, or <code>null</code> if the whole row should
+     *         be sent
+     */
+    private JsonObject createRowDiff(JsonObject dataObject) {
+        String key = dataObject.getString(DataCommunicatorConstants.KEY);
+        JsonObject previous = sentRows.put(key, dataObject);
+        if (previous == null) {
+            return null;
+        }
+        JsonObject diff = diff(previous, dataObject);
+        if (diff == null) {
+            diff = Json.createObject();
+        }
+        diff.put(DataCommunicatorConstants.KEY, key);
+
+        /*
+         * The client updates the selection of a row locally before the
+         * server has handled it, so always send the selection state.
+         */
+        if (dataObject.hasKey(DataCommunicatorConstants.SELECTED)) {
+            getDiffPart(diff, DataCommunicatorConstants.DIFF_UPDATED,
+                    Json::createObject).put(DataCommunicatorConstants.SELECTED,
+                            (JsonValue) dataObject
+                                    .get(DataCommunicatorConstants.SELECTED));
+        } else if (!previous.hasKey(DataCommunicatorConstants.SELECTED)) {
+            // Otherwise already removed by the diff
+            JsonArray removed = getDiffPart(diff,
+                    DataCommunicatorConstants.DIFF_REMOVED, Json::createArray);
+            removed.set(removed.length(), DataCommunicatorConstants.SELECTED);
+        }
+        return diff;
+    }
+
+    /**
+     * Computes the diff that turns the old object into the new one. Nested
+     * objects present in both are diffed recursively, any other changed value
+     * is replaced as a whole.
+     *
+     * @return the diff, or <code>null</code> if the objects are equal
+     */
+    private static JsonObject diff(JsonObject oldObject,
+            JsonObject newObject) {
+        JsonObject diff = Json.createObject();
+        for (String name : newObject.keys()) {
+            JsonValue newValue = newObject.get(name);
+            if (!oldObject.hasKey(name)) {
+                getDiffPart(diff, DataCommunicatorConstants.DIFF_UPDATED,
+                        Json::createObject).put(name, newValue);
+                continue;
+            }
+            JsonValue oldValue = oldObject.get(name);
+            if (oldValue.getType() == JsonType.OBJECT
+                    && newValue.getType() == JsonType.OBJECT) {
+                JsonObject nested = diff((JsonObject) oldValue,
+                        (JsonObject) newValue);
+                if (nested != null) {
+                    getDiffPart(diff, DataCommunicatorConstants.DIFF_NESTED,
+                            Json::createObject).put(name, nested);
+                }
+            } else if (oldValue.getType() != newValue.getType()
+                    || !oldValue.toJson().equals(newValue.toJson())) {
+                getDiffPart(diff, DataCommunicatorConstants.DIFF_UPDATED,
+                        Json::createObject).put(name, newValue);
+            }
+        }
+        for (String name : oldObject.keys()) {
+            if (!newObject.hasKey(name)) {
+                JsonArray removed = getDiffPart(diff,
+                        DataCommunicatorConstants.DIFF_REMOVED,
+                        Json::createArray);
+                removed.set(removed.length(), name);
+            }
+        }
+        return diff.keys().length == 0 ? null : diff;
+    }
+
+    private static <V extends JsonValue> V getDiffPart(JsonObject diff,
+            String name, Supplier<V> factory) {
+        if (!diff.hasKey(name)) {
+            diff.put(name, factory.get());
+        }
+        return diff.get(name);
+    }
+
     /**
      * Returns the active data handler.
      *
@@ -554,6 +754,7 @@ public class DataCommunicator<T> extends AbstractExtension {
      * full data update.
      */
     public void reset() {
+        dropPrefetchedRows();
         // Only needed if a full reset is not pending.
         if (!reset) {
             if (getParent() instanceof ComboBox) {
@@ -573,6 +774,8 @@ public class DataCommunicator<T> extends AbstractExtension {
     public void refresh(T data) {
         Objects.requireNonNull(data,
                 "DataCommunicator can not refresh null object");
+        // The prefetched instance would be stale
+        dropPrefetchedRows();
         Object id = getDataProvider().getId(data);
 
         // ActiveDataHandler has always the latest data through KeyMapper.
@@ -611,6 +814,7 @@ public class DataCommunicator<T> extends AbstractExtension {
     public void setInMemorySorting(Comparator<T> comparator,
             boolean immediateReset) {
         inMemorySorting = comparator;
+        dropPrefetchedRows();
         if (immediateReset) {
             reset();
         }
@@ -651,6 +855,7 @@ public class DataCommunicator<T> extends AbstractExtension {
             boolean immediateReset) {
         backEndSorting.clear();
         backEndSorting.addAll(sortOrder);
+        dropPrefetchedRows();
         if (immediateReset) {
             reset();
         }
@@ -693,7 +898,7 @@ public class DataCommunicator<T> extends AbstractExtension {
      */
     protected DataKeyMapper<T> createKeyMapper(
             ValueProvider<T, Object> identifierGetter) {
-        return new KeyMapper<T>(identifierGetter);
+        return new IntKeyMapper<T>(identifierGetter);
     }
 
     /**
@@ -790,6 +995,7 @@ public class DataCommunicator<T> extends AbstractExtension {
      */
     protected <F> void setFilter(F filter) {
         this.filter = filter;
+        dropPrefetchedRows();
     }
 
     /**
@@ -816,6 +1022,43 @@ public class DataCommunicator<T> extends AbstractExtension {
         minPushSize = size;
     }
 
+    /**
+     * Sets the policy for fetching rows ahead of the ones requested by the
+     * client. The rows fetched ahead are kept in a lookahead buffer and later
+     * requests for them are served without querying the data provider. This
+     * reduces the number of data provider queries when the user scrolls
+     * through the data, at the cost of keeping the buffered rows in memory.
+     * <p>
+     * The lookahead buffer is dropped whenever the data, its filtering or its
+     * sorting changes. By default there is no prefetch policy and exactly the
+     * requested rows are fetched.
+     *
+     * @see AdaptivePrefetchPolicy
+     *
+     * @param prefetchPolicy
+     *            the prefetch policy to use, or <code>null</code> to only
+     *            fetch the requested rows
+     * @since 8.14
+     */
+    public void setPrefetchPolicy(PrefetchPolicy prefetchPolicy) {
+        this.prefetchPolicy = prefetchPolicy;
+        dropPrefetchedRows();
+    }
+
+    /**
+     * Gets the policy for fetching rows ahead of the ones requested by the
+     * client.
+     *
+     * @see #setPrefetchPolicy(PrefetchPolicy)
+     *
+     * @return the prefetch policy, or <code>null</code> if only the requested
+     *         rows are fetched
+     * @since 8.14
+     */
+    public PrefetchPolicy getPrefetchPolicy() {
+        return prefetchPolicy;
+    }
+
     /**
      * Get minimum size of data which will be sent to the client when data
      * source is set.
@@ -829,6 +1072,39 @@ public class DataCommunicator<T> extends AbstractExtension {
         return minPushSize;
     }
 
+    /**
+     * Sets whether updates of single rows, e.g. after {@link #refresh(Object)},
+     * are sent to the client as diffs against the data last sent for the same
+     * rows instead of as whole rows. When only a few values of wide rows
+     * change, this considerably reduces the amount of data sent, at the cost
+     * of keeping a copy of the data of the rows that are currently at the
+     * client in memory. The default is <code>false</code>.
+     *
+     * @param rowDiffsEnabled
+     *            <code>true</code> to send row diffs, <code>false</code> to
+     *            always send whole rows
+     * @since 8.14
+     */
+    public void setRowDiffsEnabled(boolean rowDiffsEnabled) {
+        this.rowDiffsEnabled = rowDiffsEnabled;
+        if (!rowDiffsEnabled) {
+            sentRows.clear();
+        }
+    }
+
+    /**
+     * Returns whether updates of single rows are sent to the client as diffs.
+     *
+     * @see #setRowDiffsEnabled(boolean)
+     *
+     * @return <code>true</code> if row diffs are sent, <code>false</code> if
+     *         whole rows are always sent
+     * @since 8.14
+     */
+    public boolean isRowDiffsEnabled() {
+        return rowDiffsEnabled;
+    }
+
     /**
      * Getter method for finding the size of DataProvider. Can be overridden by
      * a subclass that uses a specific type of DataProvider and/or query.
@@ -853,6 +1129,7 @@ public class DataCommunicator<T> extends AbstractExtension {
     private void attachDataProviderListener() {
         dataProviderUpdateRegistration = getDataProvider()
                 .addDataProviderListener(event -> {
+                    dropPrefetchedRows();
                     if (event instanceof DataRefreshEvent) {
                         T item = ((DataRefreshEvent<T>) event).getItem();
                         getKeyMapper().refresh(item);
@@ -882,6 +1159,7 @@ public class DataCommunicator<T> extends AbstractExtension {
     protected void setDataProvider(DataProvider<T, ?> dataProvider) {
         detachDataProviderListener();
         dropAllData();
+        dropPrefetchedRows();
         this.dataProvider = dataProvider;
         getKeyMapper().setIdentifierGetter(dataProvider::getId);
     }
@@ -23,8 +23,10 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.vaadin.data.TreeData;
+import com.vaadin.data.provider.DataChangeEvent.DataRefreshEvent;
 import com.vaadin.server.SerializableConsumer;
 import com.vaadin.shared.Range;
+import com.vaadin.shared.Registration;
 import com.vaadin.shared.extension.datacommunicator.HierarchicalDataCommunicatorState;
 import com.vaadin.ui.ItemCollapseAllowedProvider;
 
@@ -41,6 +43,12 @@ public class HierarchicalDataCommunicator<T> extends DataCommunicator<T> {
 
     private HierarchyMapper<T, ?> mapper;
 
+    /**
+     * Registration of the listener discarding the hierarchy index of the
+     * mapper when the data provider reports a change.
+     */
+    private Registration hierarchyInvalidationRegistration;
+
     /**
      * Collapse allowed provider used to allow/disallow collapsing nodes.
      */
@@ -73,6 +81,62 @@ public class HierarchicalDataCommunicator<T> extends DataCommunicator<T> {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    protected void pushData(int firstIndex, List<T> data) {
+        if (mapper == null) {
+            super.pushData(firstIndex, data);
+            return;
+        }
+        mapper.cacheHasChildren(data);
+        try {
+            super.pushData(firstIndex, data);
+        } finally {
+            mapper.clearHasChildrenCache();
+        }
+    }
+
+    @Override
+    public void reset() {
+        if (mapper != null) {
+            // Fetch the hierarchy again before the new size is sent
+            mapper.invalidateHierarchy();
+        }
+        super.reset();
+    }
+
+    @Override
+    public void attach() {
+        super.attach();
+        // Changes made while detached were not listened to
+        mapper.invalidateHierarchy();
+        attachHierarchyInvalidationListener();
+    }
+
+    @Override
+    public void detach() {
+        super.detach();
+        detachHierarchyInvalidationListener();
+    }
+
+    private void attachHierarchyInvalidationListener() {
+        detachHierarchyInvalidationListener();
+        hierarchyInvalidationRegistration = getDataProvider()
+                .addDataProviderListener(event -> {
+                    // Single item refreshes are handled in refreshData
+                    if (!(event instanceof DataRefreshEvent)) {
+                        // Data provider has changed, fetch the hierarchy again
+                        mapper.invalidateHierarchy();
+                    }
+                });
+    }
+
+    private void detachHierarchyInvalidationListener() {
+        if (hierarchyInvalidationRegistration != null) {
+            hierarchyInvalidationRegistration.remove();
+            hierarchyInvalidationRegistration = null;
+        }
+    }
+
     @Override
     public HierarchicalDataProvider<T, ?> getDataProvider() {
         return (HierarchicalDataProvider<T, ?>) super.getDataProvider();
@@ -112,6 +176,10 @@ public class HierarchicalDataCommunicator<T> extends DataCommunicator<T> {
         // Provide hierarchy data to json
         addDataGenerator(mapper);
 
+        if (isAttached()) {
+            attachHierarchyInvalidationListener();
+        }
+
         return consumer;
     }
 
@@ -236,6 +304,9 @@ public class HierarchicalDataCommunicator<T> extends DataCommunicator<T> {
      */
     private void doCollapse(T item, Integer index, boolean syncAndRefresh) {
         Range removedRows = mapper.collapse(item, index);
+        if (!removedRows.isEmpty()) {
+            dropPrefetchedRows();
+        }
         if (syncAndRefresh) {
             if (!reset && !removedRows.isEmpty()) {
                 getClientRpc().removeRows(removedRows.getStart(),
@@ -307,6 +378,9 @@ public class HierarchicalDataCommunicator<T> extends DataCommunicator<T> {
      */
     private void doExpand(T item, Integer index, boolean syncAndRefresh) {
         Range addedRows = mapper.expand(item, index);
+        if (!addedRows.isEmpty()) {
+            dropPrefetchedRows();
+        }
         if (syncAndRefresh) {
             if (!reset && !addedRows.isEmpty()) {
                 getClientRpc().insertRows(addedRows.getStart(),
@@ -15,6 +15,9 @@
  */
 package com.vaadin.data.provider;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -104,4 +107,55 @@ public interface HierarchicalDataProvider<T, F> extends DataProvider<T, F> {
      */
     public boolean hasChildren(T item);
 
+    /**
+     * Fetches all immediate children of each of the given parent items,
+     * filtered and sorted as defined by the given query. The offset and limit
+     * of the query are ignored. Used instead of separate
+     * {@link #getChildCount(HierarchicalQuery)} and
+     * {@link #fetchChildren(HierarchicalQuery)} calls for every parent when
+     * the children of several items are needed at once, e.g. when building
+     * the visible hierarchy of expanded items.
+     * <p>
+     * The default implementation queries the children of each parent
+     * separately. Implementations backed by a database should override it to
+     * fetch the children of all the parents with a single query, see
+     * {@link AbstractBatchedBackEndHierarchicalDataProvider}.
+     *
+     * @param parents
+     *            the parent items, <code>null</code> for the root level
+     * @param query
+     *            the query that defines filtering and sorting
+     * @return the lists of children, in the same order as the parents
+     * @since 8.14
+     */
+    public default List<List<T>> fetchChildrenOfMany(List<T> parents,
+            Query<T, F> query) {
+        F filter = query.getFilter().orElse(null);
+        List<List<T>> children = new ArrayList<>(parents.size());
+        for (T parent : parents) {
+            int count = getChildCount(new HierarchicalQuery<>(filter, parent));
+            children.add(fetchChildren(new HierarchicalQuery<>(0, count,
+                    query.getSortOrders(), query.getInMemorySorting(), filter,
+                    parent)).collect(Collectors.toList()));
+        }
+        return children;
+    }
+
+    /**
+     * Checks for each of the given items whether it has any children. Used
+     * instead of separate {@link #hasChildren(Object)} calls for every item
+     * when the information is needed for several items at once, e.g. when
+     * sending rows to the client.
+     * <p>
+     * The default implementation checks each item separately.
+     *
+     * @param items
+     *            the items to check for children
+     * @return whether each item has children, in the same order as the items
+     * @since 8.14
+     */
+    public default List<Boolean> hasChildrenOfMany(List<T> items) {
+        return items.stream().map(this::hasChildren)
+                .collect(Collectors.toList());
+    }
 }
@@ -15,6 +15,8 @@
  */
 package com.vaadin.data.provider;
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -69,6 +71,21 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
 
     private Set<Object> expandedItemIds = new HashSet<>();
 
+    /*
+     * Index of the currently visible hierarchy. Built lazily from the data
+     * provider and kept up to date on expand and collapse, so that range
+     * fetches, size queries and index lookups don't need to walk the whole
+     * hierarchy. null if it needs to be built again.
+     */
+    private TreeNode rootNode;
+    // Expanded nodes in the index by item id
+    private Map<Object, TreeNode> expandedNodes = new HashMap<>();
+    // Node containing the item in its children by item id
+    private Map<Object, TreeNode> containingNodes = new HashMap<>();
+
+    // Only set while rows are being sent to the client
+    private Map<Object, Boolean> hasChildrenCache;
+
     /**
      * Constructs a new HierarchyMapper.
      *
@@ -85,7 +102,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return the amount of available data
      */
     public int getTreeSize() {
-        return (int) getHierarchy(null).count();
+        return getRootNode().getSize();
     }
 
     /**
@@ -97,9 +114,11 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      *
      */
     public Integer getParentIndex(T item) {
-        // TODO: This can be optimized.
-        List<T> flatHierarchy = getHierarchy(null).collect(Collectors.toList());
-        return flatHierarchy.indexOf(getParentOfItem(item));
+        T parent = getParentOfItem(item);
+        if (parent == null) {
+            return -1;
+        }
+        return getIndexOf(parent).orElse(-1);
     }
 
     /**
@@ -127,9 +146,15 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return range of rows added by expanding the item
      */
     public Range expand(T item, Integer position) {
-        if (doExpand(item) && position != null) {
-            return Range.withLength(position + 1,
-                    (int) getHierarchy(item, false).count());
+        if (doExpand(item)) {
+            int size = addExpandedNode(item);
+            if (position != null) {
+                if (size < 0) {
+                    // Not visible in the index
+                    size = (int) getHierarchy(item, false).count();
+                }
+                return Range.withLength(position + 1, size);
+            }
         }
 
         return Range.emptyRange();
@@ -181,11 +206,16 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
     public Range collapse(T item, Integer position) {
         Range removedRows = Range.emptyRange();
         if (isExpanded(item)) {
+            Object id = getDataProvider().getId(item);
             if (position != null) {
-                removedRows = Range.withLength(position + 1,
-                        (int) getHierarchy(item, false).count());
+                getRootNode();
+                TreeNode node = expandedNodes.get(id);
+                int size = node != null ? node.getSize()
+                        : (int) getHierarchy(item, false).count();
+                removedRows = Range.withLength(position + 1, size);
             }
-            expandedItemIds.remove(getDataProvider().getId(item));
+            expandedItemIds.remove(id);
+            removeExpandedNode(id);
         }
         return removedRows;
     }
@@ -216,7 +246,10 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
                     depth);
         }
 
-        boolean isLeaf = !getDataProvider().hasChildren(item);
+        Boolean hasChildren = hasChildrenCache == null ? null
+                : hasChildrenCache.get(getDataProvider().getId(item));
+        boolean isLeaf = hasChildren != null ? !hasChildren
+                : !getDataProvider().hasChildren(item);
         if (isLeaf) {
             hierarchyData.put(HierarchicalDataCommunicatorConstants.ROW_LEAF,
                     true);
@@ -275,6 +308,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     public void setInMemorySorting(Comparator<T> inMemorySorting) {
         this.inMemorySorting = inMemorySorting;
+        invalidateHierarchy();
     }
 
     /**
@@ -295,6 +329,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     public void setBackEndSorting(List<QuerySortOrder> backEndSorting) {
         this.backEndSorting = backEndSorting;
+        invalidateHierarchy();
     }
 
     /**
@@ -315,6 +350,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     public void setFilter(Object filter) {
         this.filter = (F) filter;
+        invalidateHierarchy();
     }
 
     /**
@@ -338,6 +374,33 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
         return getDataProvider().hasChildren(item);
     }
 
+    /**
+     * Checks at once whether the given items have children, for the
+     * following {@link #generateData(Object, JsonObject)} calls, until
+     * {@link #clearHasChildrenCache()} is called.
+     *
+     * @param items
+     *            the items that data is about to be generated for
+     */
+    void cacheHasChildren(List<T> items) {
+        if (items.size() < 2) {
+            return;
+        }
+        List<Boolean> hasChildren = getDataProvider().hasChildrenOfMany(items);
+        hasChildrenCache = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            hasChildrenCache.put(getDataProvider().getId(items.get(i)),
+                    hasChildren.get(i));
+        }
+    }
+
+    /**
+     * Clears the information cached by {@link #cacheHasChildren(List)}.
+     */
+    void clearHasChildrenCache() {
+        hasChildrenCache = null;
+    }
+
     /* Fetch methods. These are used to calculate what to request. */
 
     /**
@@ -349,7 +412,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return the stream of items
      */
     public Stream<T> fetchItems(Range range) {
-        return getHierarchy(null).skip(range.getStart()).limit(range.length());
+        return fetchFromIndex(getRootNode(), range).stream();
     }
 
     /**
@@ -363,8 +426,14 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return the stream of items
      */
     public Stream<T> fetchItems(T parent, Range range) {
-        return getHierarchy(parent, false).skip(range.getStart())
-                .limit(range.length());
+        TreeNode node = parent == null ? getRootNode()
+                : expandedNodes.get(getDataProvider().getId(parent));
+        if (node == null) {
+            // Not visible in the index
+            return getHierarchy(parent, false).skip(range.getStart())
+                    .limit(range.length());
+        }
+        return fetchFromIndex(node, range).stream();
     }
 
     /* Methods for providing information on the hierarchy. */
@@ -450,10 +519,13 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
             return Optional.empty();
         }
 
-        final List<Object> collect = getHierarchy(null).map(provider::getId)
-                .collect(Collectors.toList());
-        int index = collect.indexOf(getDataProvider().getId(target));
-        return Optional.ofNullable(index < 0 ? null : index);
+        getRootNode();
+        Object id = getDataProvider().getId(target);
+        TreeNode node = containingNodes.get(id);
+        if (node == null) {
+            return Optional.empty();
+        }
+        return Optional.of(node.getIndexOfChild(id));
     }
 
     /**
@@ -572,9 +644,335 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
         return Stream.concat(parentStream, children);
     }
 
+    @Override
+    public void refreshData(T item) {
+        Object id = getDataProvider().getId(item);
+        if (expandedNodes.containsKey(id)) {
+            // Children of the item might have changed
+            invalidateHierarchy();
+            return;
+        }
+        // Fetches from the index must return the refreshed instance
+        TreeNode node = containingNodes.get(id);
+        if (node != null) {
+            node.children.set(node.getChildIndex(id), item);
+        }
+    }
+
     @Override
     public void destroyAllData() {
         childMap.clear();
         parentIdMap.clear();
+        invalidateHierarchy();
+    }
+
+    /**
+     * Discards the index of the visible hierarchy, causing it to be fetched
+     * again from the data provider when it is needed next time. Should be
+     * called when the data in the data provider has changed.
+     *
+     * @since 8.14
+     */
+    public void invalidateHierarchy() {
+        rootNode = null;
+        expandedNodes.clear();
+        containingNodes.clear();
+    }
+
+    /* Methods for maintaining the index of the visible hierarchy. */
+
+    private TreeNode getRootNode() {
+        if (rootNode == null) {
+            rootNode = createNode(null, null, -1);
+        }
+        return rootNode;
+    }
+
+    /**
+     * Fetches the children of an expanded item and creates an index node for
+     * them, recursively creating nodes for expanded children.
+     *
+     * @return the created node, or {@code null} if the item has no children
+     */
+    private TreeNode createNode(T item, TreeNode parent, int indexInParent) {
+        return createNodes(Collections.singletonList(item),
+                Collections.singletonList(parent),
+                Collections.singletonList(indexInParent)).get(0);
+    }
+
+    /**
+     * Creates index nodes for several expanded items, fetching the children
+     * of all of them at once. The expanded children of all the created nodes
+     * are then handled with one recursive call, so the data provider is
+     * queried once per level of the hierarchy.
+     *
+     * @return the created nodes in the order of the items, {@code null} for
+     *         items that have no children
+     */
+    private List<TreeNode> createNodes(List<T> items, List<TreeNode> parents,
+            List<Integer> indexesInParents) {
+        List<List<T>> childLists = fetchDirectChildren(items);
+
+        List<TreeNode> nodes = new ArrayList<>(items.size());
+        List<T> expandedChildren = new ArrayList<>();
+        List<TreeNode> expandedChildParents = new ArrayList<>();
+        List<Integer> expandedChildIndexes = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            List<T> children = childLists.get(i);
+            if (children.isEmpty()) {
+                removeChildren(
+                        item == null ? null : getDataProvider().getId(item));
+                if (item != null) {
+                    nodes.add(null);
+                    continue;
+                }
+            } else {
+                registerChildren(item, children);
+            }
+
+            TreeNode node = new TreeNode(item, parents.get(i),
+                    indexesInParents.get(i), children);
+            for (int j = 0; j < children.size(); j++) {
+                T child = children.get(j);
+                Object childId = getDataProvider().getId(child);
+                containingNodes.put(childId, node);
+                if (expandedItemIds.contains(childId)) {
+                    expandedChildren.add(child);
+                    expandedChildParents.add(node);
+                    expandedChildIndexes.add(j);
+                }
+            }
+            if (item != null) {
+                expandedNodes.put(getDataProvider().getId(item), node);
+            }
+            nodes.add(node);
+        }
+
+        if (!expandedChildren.isEmpty()) {
+            List<TreeNode> childNodes = createNodes(expandedChildren,
+                    expandedChildParents, expandedChildIndexes);
+            for (int k = 0; k < childNodes.size(); k++) {
+                TreeNode childNode = childNodes.get(k);
+                if (childNode != null) {
+                    expandedChildParents.get(k).expandedChildren
+                            .put(expandedChildIndexes.get(k), childNode);
+                }
+            }
+        }
+
+        // Child nodes are complete now, so their sizes are known
+        for (TreeNode node : nodes) {
+            if (node != null) {
+                int[] weights = new int[node.children.size()];
+                for (int i = 0; i < weights.length; i++) {
+                    TreeNode childNode = node.expandedChildren.get(i);
+                    weights[i] = 1
+                            + (childNode == null ? 0 : childNode.getSize());
+                }
+                node.initWeights(weights);
+            }
+        }
+        return nodes;
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private List<List<T>> fetchDirectChildren(List<T> parents) {
+        return getDataProvider().fetchChildrenOfMany(parents,
+                new Query(0, Integer.MAX_VALUE, getBackEndSorting(),
+                        getInMemorySorting(), getFilter()));
+    }
+
+    /**
+     * Adds a newly expanded item to the index if it is currently visible.
+     *
+     * @return the size of the added subtree, or -1 if the item is not visible
+     *         in the index
+     */
+    private int addExpandedNode(T item) {
+        if (rootNode == null) {
+            // Will be built with the item expanded when needed
+            return -1;
+        }
+        Object id = getDataProvider().getId(item);
+        TreeNode parent = containingNodes.get(id);
+        if (parent == null) {
+            return -1;
+        }
+        int index = parent.getChildIndex(id);
+        TreeNode node = createNode(item, parent, index);
+        if (node == null) {
+            return 0;
+        }
+        parent.expandedChildren.put(index, node);
+        parent.updateWeight(index, node.getSize());
+        return node.getSize();
+    }
+
+    private void removeExpandedNode(Object id) {
+        TreeNode node = expandedNodes.get(id);
+        if (node == null) {
+            return;
+        }
+        node.parent.expandedChildren.remove(node.indexInParent);
+        node.parent.updateWeight(node.indexInParent, -node.getSize());
+        forgetNode(node);
+    }
+
+    private void forgetNode(TreeNode node) {
+        if (node.item != null) {
+            expandedNodes.remove(getDataProvider().getId(node.item));
+        }
+        for (T child : node.children) {
+            containingNodes.remove(getDataProvider().getId(child));
+        }
+        node.expandedChildren.values().forEach(this::forgetNode);
+    }
+
+    private List<T> fetchFromIndex(TreeNode node, Range range) {
+        List<T> result = new ArrayList<>(
+                Math.max(0, Math.min(range.length(), node.getSize())));
+        if (range.getStart() < node.getSize()) {
+            collectItems(node, range.getStart(), range.length(), result);
+        }
+        return result;
+    }
+
+    /*
+     * Adds items from the flattened subtree of node to result, starting from
+     * offset, until result contains limit items.
+     */
+    private void collectItems(TreeNode node, int offset, int limit,
+            List<T> result) {
+        int index = node.findChild(offset);
+        int skip = offset - node.prefixSum(index);
+        for (; index < node.children.size() && result.size() < limit; index++) {
+            if (skip == 0) {
+                result.add(node.children.get(index));
+            }
+            TreeNode expanded = node.expandedChildren.get(index);
+            if (expanded != null && result.size() < limit) {
+                collectItems(expanded, skip == 0 ? 0 : skip - 1, limit,
+                        result);
+            }
+            skip = 0;
+        }
+    }
+
+    /**
+     * Node in the index of the visible hierarchy, representing an expanded
+     * item (or the root level) and its direct children. The flattened size of
+     * each child's subtree is kept in a Fenwick tree, making offset lookups
+     * and size updates logarithmic in the number of children.
+     */
+    private class TreeNode implements Serializable {
+        private final T item;
+        private final TreeNode parent;
+        private final int indexInParent;
+        private final List<T> children;
+        private final Map<Integer, TreeNode> expandedChildren = new HashMap<>();
+        // Child indexes by id, created when first needed
+        private Map<Object, Integer> childIndexes;
+        // Fenwick tree of the weights (1 + expanded subtree size) of children
+        private int[] tree;
+        private int size;
+
+        private TreeNode(T item, TreeNode parent, int indexInParent,
+                List<T> children) {
+            this.item = item;
+            this.parent = parent;
+            this.indexInParent = indexInParent;
+            // Copied, as refreshed items are replaced in the list
+            this.children = new ArrayList<>(children);
+        }
+
+        private void initWeights(int[] weights) {
+            int n = weights.length;
+            tree = new int[n + 1];
+            size = 0;
+            for (int i = 1; i <= n; i++) {
+                tree[i] += weights[i - 1];
+                size += weights[i - 1];
+                int j = i + (i & -i);
+                if (j <= n) {
+                    tree[j] += tree[i];
+                }
+            }
+        }
+
+        /**
+         * Gets the flattened size of this subtree, excluding the item itself.
+         */
+        private int getSize() {
+            return size;
+        }
+
+        /**
+         * Gets the sum of the weights of the children before the given index.
+         */
+        private int prefixSum(int index) {
+            int sum = 0;
+            for (int i = index; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        /**
+         * Finds the index of the child whose flattened subtree contains the
+         * given offset, or the child count if the offset is out of range.
+         */
+        private int findChild(int offset) {
+            int index = 0;
+            int remaining = offset;
+            int step = Integer.highestOneBit(children.size());
+            for (; step > 0; step >>= 1) {
+                int next = index + step;
+                if (next <= children.size() && tree[next] <= remaining) {
+                    index = next;
+                    remaining -= tree[next];
+                }
+            }
+            return index;
+        }
+
+        private void updateWeight(int index, int delta) {
+            for (int i = index + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+            size += delta;
+            if (parent != null) {
+                parent.updateWeight(indexInParent, delta);
+            }
+        }
+
+        private int getChildIndex(Object id) {
+            if (childIndexes == null) {
+                childIndexes = new HashMap<>();
+                for (int i = 0; i < children.size(); i++) {
+                    childIndexes.put(getDataProvider().getId(children.get(i)),
+                            i);
+                }
+            }
+            return childIndexes.get(id);
+        }
+
+        /**
+         * Gets the index of the given child in the flattened hierarchy.
+         */
+        private int getIndexOfChild(Object id) {
+            return getIndex() + 1 + prefixSum(getChildIndex(id));
+        }
+
+        /**
+         * Gets the index of the item of this node in the flattened hierarchy,
+         * -1 for the root node.
+         */
+        private int getIndex() {
+            if (parent == null) {
+                return -1;
+            }
+            return parent.getIndex() + 1 + parent.prefixSum(indexInParent);
+        }
     }
 }
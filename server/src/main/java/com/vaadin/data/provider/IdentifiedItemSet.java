@@ -0,0 +1,179 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+import com.vaadin.server.SerializableSupplier;
+
+/**
+ * An insertion ordered collection of items in which items are identified by
+ * their {@link DataProvider#getId(Object) data provider ids} instead of by
+ * {@link Object#equals(Object)}. Checking whether an item is contained, adding
+ * an item and removing an item all take constant time. Used for storing the
+ * selection of multi selection components.
+ * <p>
+ * The ids are given by the data provider returned by the supplier given in the
+ * constructor. If that data provider changes, the items are indexed again by
+ * the ids given by the new data provider the next time ids are needed.
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ *
+ * @param <T>
+ *            the item type
+ */
+public class IdentifiedItemSet<T> extends AbstractCollection<T>
+        implements Serializable {
+
+    private final SerializableSupplier<DataProvider<T, ?>> dataProviderSupplier;
+
+    private LinkedHashMap<Object, T> items = new LinkedHashMap<>();
+
+    private DataProvider<T, ?> indexedWith;
+
+    /**
+     * Creates a new empty set that identifies items using the data provider
+     * given by the supplier.
+     *
+     * @param dataProviderSupplier
+     *            the supplier for the data provider used for getting the ids
+     *            of items, not <code>null</code>
+     */
+    public IdentifiedItemSet(
+            SerializableSupplier<DataProvider<T, ?>> dataProviderSupplier) {
+        Objects.requireNonNull(dataProviderSupplier,
+                "The data provider supplier cannot be null");
+        this.dataProviderSupplier = dataProviderSupplier;
+    }
+
+    /**
+     * Returns whether an item with the given id is in this set.
+     *
+     * @param id
+     *            the data provider id of the item to check, not
+     *            <code>null</code>
+     * @return <code>true</code> if an item with the id is in this set,
+     *         <code>false</code> otherwise
+     */
+    public boolean containsId(Object id) {
+        ensureIndexed();
+        return items.containsKey(id);
+    }
+
+    /**
+     * Replaces the item that has the same id as the given item with the given
+     * item, keeping its position. Does nothing if there is no item with the
+     * same id in this set.
+     *
+     * @param item
+     *            the new instance of the item, not <code>null</code>
+     * @return <code>true</code> if an item was replaced, <code>false</code>
+     *         otherwise
+     */
+    public boolean replace(T item) {
+        Object id = getId(item);
+        if (!items.containsKey(id)) {
+            return false;
+        }
+        items.put(id, item);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+        Object id = getId((T) o);
+        return items.containsKey(id);
+    }
+
+    /**
+     * Adds the given item unless an item with the same id is already in this
+     * set.
+     *
+     * @param item
+     *            the item to add, not <code>null</code>
+     * @return <code>true</code> if the item was added, <code>false</code> if
+     *         an item with the same id was already in this set
+     */
+    @Override
+    public boolean add(T item) {
+        Object id = getId(item);
+        return items.putIfAbsent(id, item) == null;
+    }
+
+    /**
+     * Removes the item with the same id as the given item.
+     *
+     * @param o
+     *            the item to remove
+     * @return <code>true</code> if an item was removed, <code>false</code>
+     *         otherwise
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        Object id = getId((T) o);
+        return items.remove(id) != null;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return items.values().iterator();
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public void clear() {
+        items.clear();
+    }
+
+    /*
+     * Might replace the items map, so it must be called before the map is
+     * dereferenced.
+     */
+    private Object getId(T item) {
+        ensureIndexed();
+        return indexedWith.getId(item);
+    }
+
+    private void ensureIndexed() {
+        DataProvider<T, ?> dataProvider = dataProviderSupplier.get();
+        if (dataProvider == indexedWith) {
+            return;
+        }
+        LinkedHashMap<Object, T> reindexed = new LinkedHashMap<>();
+        for (T item : items.values()) {
+            reindexed.putIfAbsent(dataProvider.getId(item), item);
+        }
+        items = reindexed;
+        indexedWith = dataProvider;
+    }
+}
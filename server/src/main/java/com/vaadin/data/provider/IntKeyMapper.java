@@ -0,0 +1,373 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.vaadin.data.ValueProvider;
+import com.vaadin.server.KeyMapper;
+
+/**
+ * A {@link DataKeyMapper} that uses positive integers as keys. The keys are
+ * the same as the ones generated by {@link KeyMapper}, but they are stored as
+ * primitive values in open addressing hash tables instead of as strings in
+ * hash maps. This avoids keeping a key string, boxed entries and map entry
+ * objects in memory for every mapped data object. Key strings are only
+ * created when requested through {@link #key(Object)}.
+ * <p>
+ * This is the default key mapper used by {@link DataCommunicator}.
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ *
+ * @param <V>
+ *            the data object type
+ */
+public class IntKeyMapper<V> implements DataKeyMapper<V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /*
+     * Stands in for a null identifier, as null marks an empty slot. An enum
+     * so that it stays the same instance when deserialized. Its hash code
+     * still changes, like those of other identifiers without an own
+     * hashCode(), which is why the tables are rebuilt in readObject.
+     */
+    private enum NullId {
+        INSTANCE
+    }
+
+    private int lastKey = 0;
+
+    private ValueProvider<V, Object> identifierGetter;
+
+    /*
+     * Two hash tables with linear probing and the same capacity, holding the
+     * same mappings: identifiers to keys and keys to data objects. Empty
+     * slots have a null identifier and a zero key respectively.
+     */
+    private Object[] ids = new Object[INITIAL_CAPACITY];
+    private int[] idKeys = new int[INITIAL_CAPACITY];
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Constructs a new mapper.
+     *
+     * @param identifierGetter
+     *            has to return a unique key for every bean, and the returned
+     *            key has to follow general {@code hashCode()} and
+     *            {@code equals()} contract, see {@link Object#hashCode()} for
+     *            details.
+     */
+    public IntKeyMapper(ValueProvider<V, Object> identifierGetter) {
+        this.identifierGetter = identifierGetter;
+    }
+
+    /**
+     * Constructs a new mapper with trivial {@code identifierGetter}.
+     */
+    public IntKeyMapper() {
+        this(v -> v);
+    }
+
+    @Override
+    public String key(V dataObject) {
+        if (dataObject == null) {
+            return "null";
+        }
+        return Integer.toString(intKey(dataObject));
+    }
+
+    /**
+     * Gets the key of a data object as an integer. If no key exists
+     * beforehand, a new key is created. Keys are always positive.
+     *
+     * @param dataObject
+     *            data object for key mapping, not <code>null</code>
+     * @return key for given data object
+     */
+    public int intKey(V dataObject) {
+        Objects.requireNonNull(dataObject, "The data object cannot be null");
+        Object id = getId(dataObject);
+        int slot = findId(id);
+        if (slot >= 0) {
+            return idKeys[slot];
+        }
+
+        if (2 * (size + 1) > ids.length) {
+            resize(ids.length * 2);
+            slot = findId(id);
+        }
+        int key = ++lastKey;
+        slot = -slot - 1;
+        ids[slot] = id;
+        idKeys[slot] = key;
+        slot = -findKey(key) - 1;
+        keys[slot] = key;
+        values[slot] = dataObject;
+        size++;
+        return key;
+    }
+
+    @Override
+    public boolean has(V dataObject) {
+        return findId(getId(dataObject)) >= 0;
+    }
+
+    @Override
+    public V get(String key) {
+        int intKey = parseKey(key);
+        return intKey == 0 ? null : get(intKey);
+    }
+
+    /**
+     * Gets the data object identified by given integer key.
+     *
+     * @param key
+     *            key of a data object
+     * @return identified data object; <code>null</code> if invalid key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key <= 0) {
+            return null;
+        }
+        int slot = findKey(key);
+        return slot >= 0 ? (V) values[slot] : null;
+    }
+
+    /**
+     * Checks if the given key is mapped to a data object.
+     *
+     * @param key
+     *            the key to check
+     * @return <code>true</code> if the key is currently mapped,
+     *         <code>false</code> otherwise
+     */
+    public boolean containsKey(int key) {
+        return key > 0 && findKey(key) >= 0;
+    }
+
+    /**
+     * Gets the number of data objects currently mapped.
+     *
+     * @return the number of mapped data objects
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void remove(V dataObject) {
+        int slot = findId(getId(dataObject));
+        if (slot < 0) {
+            return;
+        }
+        int key = idKeys[slot];
+        removeIdAt(slot);
+        removeKeyAt(findKey(key));
+        size--;
+    }
+
+    @Override
+    public void removeAll() {
+        ids = new Object[INITIAL_CAPACITY];
+        idKeys = new int[INITIAL_CAPACITY];
+        keys = new int[INITIAL_CAPACITY];
+        values = new Object[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    @Override
+    public void refresh(V dataObject) {
+        int slot = findId(getId(dataObject));
+        if (slot >= 0) {
+            values[findKey(idKeys[slot])] = dataObject;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setIdentifierGetter(ValueProvider<V, Object> identifierGetter) {
+        if (this.identifierGetter != identifierGetter) {
+            this.identifierGetter = identifierGetter;
+            Arrays.fill(ids, null);
+            Arrays.fill(idKeys, 0);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    Object id = getId((V) values[i]);
+                    int slot = findId(id);
+                    if (slot < 0) {
+                        slot = -slot - 1;
+                        ids[slot] = id;
+                    }
+                    idKeys[slot] = keys[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a key string created by this mapper.
+     *
+     * @param key
+     *            the key string
+     * @return the positive key, or 0 if the string is not a key created by
+     *         this mapper
+     */
+    static int parseKey(String key) {
+        if (key == null || key.isEmpty() || key.length() > 10
+                || key.charAt(0) == '0') {
+            return 0;
+        }
+        long value = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value > Integer.MAX_VALUE ? 0 : (int) value;
+    }
+
+    static int hash(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Object getId(V dataObject) {
+        Object id = identifierGetter.apply(dataObject);
+        return id == null ? NullId.INSTANCE : id;
+    }
+
+    /*
+     * Returns the slot of the identifier, or -(insertion slot) - 1 if it is
+     * not in the table.
+     */
+    private int findId(Object id) {
+        int mask = ids.length - 1;
+        int slot = hash(id.hashCode()) & mask;
+        while (ids[slot] != null) {
+            if (ids[slot].equals(id)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -slot - 1;
+    }
+
+    private int findKey(int key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -slot - 1;
+    }
+
+    /*
+     * Removal without tombstones: entries after the removed one in the same
+     * probe sequence are moved back so that they can still be found.
+     */
+    private void removeIdAt(int slot) {
+        int mask = ids.length - 1;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (ids[next] == null) {
+                break;
+            }
+            int home = hash(ids[next].hashCode()) & mask;
+            if (isOutsideProbeRange(home, slot, next)) {
+                ids[slot] = ids[next];
+                idKeys[slot] = idKeys[next];
+                slot = next;
+            }
+        }
+        ids[slot] = null;
+        idKeys[slot] = 0;
+    }
+
+    private void removeKeyAt(int slot) {
+        int mask = keys.length - 1;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (keys[next] == 0) {
+                break;
+            }
+            int home = hash(keys[next]) & mask;
+            if (isOutsideProbeRange(home, slot, next)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+        }
+        keys[slot] = 0;
+        values[slot] = null;
+    }
+
+    /*
+     * Whether an entry with the given home slot found at next can be moved to
+     * the empty slot, i.e. its home is not cyclically within (empty, next].
+     */
+    static boolean isOutsideProbeRange(int home, int empty, int next) {
+        if (empty <= next) {
+            return home <= empty || home > next;
+        }
+        return home <= empty && home > next;
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // The slots of the identifiers depend on their hash codes, which may
+        // be different after deserialization
+        resize(ids.length);
+    }
+
+    private void resize(int capacity) {
+        Object[] oldIds = ids;
+        int[] oldIdKeys = idKeys;
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        ids = new Object[capacity];
+        idKeys = new int[capacity];
+        keys = new int[capacity];
+        values = new Object[capacity];
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != null) {
+                int slot = -findId(oldIds[i]) - 1;
+                ids[slot] = oldIds[i];
+                idKeys[slot] = oldIdKeys[i];
+            }
+            if (oldKeys[i] != 0) {
+                int slot = -findKey(oldKeys[i]) - 1;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
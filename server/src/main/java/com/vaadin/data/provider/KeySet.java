@@ -0,0 +1,233 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of data keys that stores the integer keys created by
+ * {@link IntKeyMapper} and {@link com.vaadin.server.KeyMapper} as primitive
+ * values in an open addressing hash table. Any other keys are kept in a
+ * regular hash set.
+ * <p>
+ * The iterator does not support removal.
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ */
+class KeySet extends AbstractSet<String> implements Serializable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] table = new int[INITIAL_CAPACITY];
+    private int intKeyCount = 0;
+
+    private HashSet<String> otherKeys;
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        int key = IntKeyMapper.parseKey((String) o);
+        if (key == 0) {
+            return otherKeys != null && otherKeys.contains(o);
+        }
+        return containsInt(key);
+    }
+
+    /**
+     * Checks whether the set contains the given integer key, without creating
+     * its key string.
+     *
+     * @param key
+     *            the positive key to check
+     * @return <code>true</code> if the key is in the set
+     */
+    boolean containsInt(int key) {
+        return find(key) >= 0;
+    }
+
+    @Override
+    public boolean add(String o) {
+        int key = IntKeyMapper.parseKey(o);
+        if (key == 0) {
+            if (otherKeys == null) {
+                otherKeys = new HashSet<>();
+            }
+            return otherKeys.add(o);
+        }
+        return addInt(key);
+    }
+
+    /**
+     * Adds the given integer key, without creating its key string.
+     *
+     * @param key
+     *            the positive key to add
+     * @return <code>true</code> if the key was not already in the set
+     */
+    boolean addInt(int key) {
+        int slot = find(key);
+        if (slot >= 0) {
+            return false;
+        }
+        if (2 * (intKeyCount + 1) > table.length) {
+            resize(table.length * 2);
+            slot = find(key);
+        }
+        table[-slot - 1] = key;
+        intKeyCount++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        int key = IntKeyMapper.parseKey((String) o);
+        if (key == 0) {
+            return otherKeys != null && otherKeys.remove(o);
+        }
+        return removeInt(key);
+    }
+
+    /**
+     * Removes the given integer key, without creating its key string.
+     *
+     * @param key
+     *            the positive key to remove
+     * @return <code>true</code> if the key was in the set
+     */
+    boolean removeInt(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return false;
+        }
+        removeAt(slot);
+        intKeyCount--;
+        return true;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        // AbstractSet might remove through the iterator
+        boolean modified = false;
+        for (Object o : c) {
+            modified |= remove(o);
+        }
+        return modified;
+    }
+
+    @Override
+    public void clear() {
+        if (table.length > INITIAL_CAPACITY) {
+            table = new int[INITIAL_CAPACITY];
+        } else {
+            table = new int[table.length];
+        }
+        intKeyCount = 0;
+        otherKeys = null;
+    }
+
+    @Override
+    public int size() {
+        return intKeyCount + (otherKeys == null ? 0 : otherKeys.size());
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new KeyIterator();
+    }
+
+    private class KeyIterator implements Iterator<String>, Serializable {
+        private final Iterator<String> others = otherKeys == null ? null
+                : otherKeys.iterator();
+        private int slot = nextSlot(0);
+
+        @Override
+        public boolean hasNext() {
+            return slot < table.length
+                    || (others != null && others.hasNext());
+        }
+
+        @Override
+        public String next() {
+            if (slot < table.length) {
+                String key = Integer.toString(table[slot]);
+                slot = nextSlot(slot + 1);
+                return key;
+            }
+            if (others == null) {
+                throw new NoSuchElementException();
+            }
+            return others.next();
+        }
+    }
+
+    private int nextSlot(int from) {
+        int slot = from;
+        while (slot < table.length && table[slot] == 0) {
+            slot++;
+        }
+        return slot;
+    }
+
+    private int find(int key) {
+        int mask = table.length - 1;
+        int slot = IntKeyMapper.hash(key) & mask;
+        while (table[slot] != 0) {
+            if (table[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -slot - 1;
+    }
+
+    private void removeAt(int slot) {
+        int mask = table.length - 1;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (table[next] == 0) {
+                break;
+            }
+            int home = IntKeyMapper.hash(table[next]) & mask;
+            if (IntKeyMapper.isOutsideProbeRange(home, slot, next)) {
+                table[slot] = table[next];
+                slot = next;
+            }
+        }
+        table[slot] = 0;
+    }
+
+    private void resize(int capacity) {
+        int[] oldTable = table;
+        table = new int[capacity];
+        for (int key : oldTable) {
+            if (key != 0) {
+                table[-find(key) - 1] = key;
+            }
+        }
+    }
+}
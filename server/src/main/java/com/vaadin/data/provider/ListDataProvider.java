@@ -15,10 +15,16 @@
  */
 package com.vaadin.data.provider;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.vaadin.server.SerializableComparator;
@@ -41,6 +47,12 @@ public class ListDataProvider<T>
 
     private final Collection<T> backend;
 
+    private boolean viewCachingEnabled = false;
+
+    private int parallelSortThreshold = 0;
+
+    private transient volatile CachedView<T> cachedView;
+
     /**
      * Constructs a new ListDataProvider.
      * <p>
@@ -68,6 +80,14 @@ public class ListDataProvider<T>
 
     @Override
     public Stream<T> fetch(Query<T, SerializablePredicate<T>> query) {
+        if (viewCachingEnabled) {
+            List<T> view = getView(query);
+            int from = (int) Math.min(query.getOffset(), view.size());
+            int to = (int) Math.min((long) from + query.getLimit(),
+                    view.size());
+            return view.subList(from, to).stream();
+        }
+
         Stream<T> stream = getFilteredStream(query);
 
         Optional<Comparator<T>> comparing = Stream
@@ -84,9 +104,48 @@ public class ListDataProvider<T>
 
     @Override
     public int size(Query<T, SerializablePredicate<T>> query) {
+        if (viewCachingEnabled) {
+            return getView(query).size();
+        }
         return (int) getFilteredStream(query).count();
     }
 
+    /**
+     * Gets the filtered and sorted items for the given query, reusing the
+     * previously built view if the query has the same filter and sorting.
+     */
+    private List<T> getView(Query<T, SerializablePredicate<T>> query) {
+        CachedView<T> view = cachedView;
+        SerializablePredicate<T> queryFilter = query.getFilter().orElse(null);
+        Comparator<T> inMemorySorting = query.getInMemorySorting();
+        if (view != null && view.matches(filter, queryFilter, sortOrder,
+                inMemorySorting)) {
+            return view.items;
+        }
+
+        List<T> items = getFilteredStream(query)
+                .collect(Collectors.toCollection(ArrayList::new));
+        Optional<Comparator<T>> comparing = Stream
+                .of(inMemorySorting, sortOrder).filter(c -> c != null)
+                .reduce((c1, c2) -> c1.thenComparing(c2));
+        if (comparing.isPresent()) {
+            if (parallelSortThreshold > 0
+                    && items.size() >= parallelSortThreshold) {
+                @SuppressWarnings("unchecked")
+                T[] array = (T[]) items.toArray();
+                Arrays.parallelSort(array, comparing.get());
+                items = Arrays.asList(array);
+            } else {
+                items.sort(comparing.get());
+            }
+        }
+
+        items = Collections.unmodifiableList(items);
+        cachedView = new CachedView<>(filter, queryFilter, sortOrder,
+                inMemorySorting, items);
+        return items;
+    }
+
     private Stream<T> getFilteredStream(
             Query<T, SerializablePredicate<T>> query) {
         Stream<T> stream = backend.stream();
@@ -123,4 +182,116 @@ public class ListDataProvider<T>
         this.filter = filter;
         refreshAll();
     }
+
+    @Override
+    public void refreshAll() {
+        cachedView = null;
+        super.refreshAll();
+    }
+
+    @Override
+    public void refreshItem(T item) {
+        cachedView = null;
+        super.refreshItem(item);
+    }
+
+    /**
+     * Sets whether this data provider keeps the filtered and sorted items of
+     * the latest query in memory. When enabled, fetching consecutive pages and
+     * querying the size with the same filter and sorting reuses the cached
+     * view instead of filtering and sorting all the items again for every
+     * query, which makes scrolling through large collections much cheaper.
+     * <p>
+     * The view is discarded when the filter or sorting changes and when
+     * {@link #refreshAll()} or {@link #refreshItem(Object)} is called. When
+     * caching is enabled, any changes to the backing collection or to the
+     * items in it must therefore be followed by a refresh call for them to be
+     * visible. Caching is disabled by default.
+     *
+     * @param viewCachingEnabled
+     *            <code>true</code> to cache the filtered and sorted view,
+     *            <code>false</code> to filter and sort on every query
+     * @since 8.14
+     */
+    public void setViewCachingEnabled(boolean viewCachingEnabled) {
+        this.viewCachingEnabled = viewCachingEnabled;
+        cachedView = null;
+    }
+
+    /**
+     * Returns whether this data provider caches the filtered and sorted view
+     * of the latest query.
+     *
+     * @return <code>true</code> if the view is cached, <code>false</code>
+     *         otherwise
+     * @see #setViewCachingEnabled(boolean)
+     * @since 8.14
+     */
+    public boolean isViewCachingEnabled() {
+        return viewCachingEnabled;
+    }
+
+    /**
+     * Sets the number of items from which a cached view is sorted in parallel
+     * using {@link Arrays#parallelSort(Object[], Comparator)}. Only used when
+     * {@link #setViewCachingEnabled(boolean) view caching} is enabled. The
+     * comparators must be safe to use from several threads when parallel
+     * sorting is used.
+     *
+     * @param parallelSortThreshold
+     *            the minimum number of items to sort in parallel, or 0 to
+     *            always sort sequentially
+     * @since 8.14
+     */
+    public void setParallelSortThreshold(int parallelSortThreshold) {
+        if (parallelSortThreshold < 0) {
+            throw new IllegalArgumentException(
+                    "Parallel sort threshold cannot be negative");
+        }
+        this.parallelSortThreshold = parallelSortThreshold;
+    }
+
+    /**
+     * Returns the number of items from which a cached view is sorted in
+     * parallel.
+     *
+     * @return the minimum number of items to sort in parallel, or 0 if views
+     *         are always sorted sequentially
+     * @see #setParallelSortThreshold(int)
+     * @since 8.14
+     */
+    public int getParallelSortThreshold() {
+        return parallelSortThreshold;
+    }
+
+    /**
+     * The filtered and sorted items for one combination of filters and
+     * comparators.
+     */
+    private static class CachedView<T> implements Serializable {
+        private final SerializablePredicate<T> filter;
+        private final SerializablePredicate<T> queryFilter;
+        private final Comparator<T> sortOrder;
+        private final Comparator<T> inMemorySorting;
+        private final List<T> items;
+
+        private CachedView(SerializablePredicate<T> filter,
+                SerializablePredicate<T> queryFilter, Comparator<T> sortOrder,
+                Comparator<T> inMemorySorting, List<T> items) {
+            this.filter = filter;
+            this.queryFilter = queryFilter;
+            this.sortOrder = sortOrder;
+            this.inMemorySorting = inMemorySorting;
+            this.items = items;
+        }
+
+        private boolean matches(SerializablePredicate<T> filter,
+                SerializablePredicate<T> queryFilter, Comparator<T> sortOrder,
+                Comparator<T> inMemorySorting) {
+            return Objects.equals(this.filter, filter)
+                    && Objects.equals(this.queryFilter, queryFilter)
+                    && Objects.equals(this.sortOrder, sortOrder)
+                    && Objects.equals(this.inMemorySorting, inMemorySorting);
+        }
+    }
 }
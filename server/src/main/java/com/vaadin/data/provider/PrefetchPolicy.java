@@ -0,0 +1,64 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+
+import com.vaadin.shared.Range;
+
+/**
+ * Decides which rows a {@link DataCommunicator} fetches from its data provider
+ * when the client requests rows. The fetched rows that are not sent to the
+ * client right away are kept in a lookahead buffer, from which later requests
+ * are served without querying the data provider again.
+ *
+ * @see DataCommunicator#setPrefetchPolicy(PrefetchPolicy)
+ * @see AdaptivePrefetchPolicy
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ */
+public interface PrefetchPolicy extends Serializable {
+
+    /**
+     * Gets the range of rows to fetch from the data provider when the
+     * requested rows are not in the lookahead buffer. The returned range must
+     * contain the requested range, otherwise only the requested rows are
+     * fetched. The rows outside the requested range replace the current
+     * contents of the lookahead buffer.
+     *
+     * @param requestedRows
+     *            the rows requested by the client, not empty
+     * @return the rows to fetch, not <code>null</code>
+     */
+    Range getFetchRange(Range requestedRows);
+
+    /**
+     * Called for every request of rows from the client, before
+     * {@link #getFetchRange(Range)} is called for requests that are not served
+     * from the lookahead buffer. The default implementation does nothing.
+     *
+     * @param requestedRows
+     *            the rows requested by the client, not empty
+     * @param fromBuffer
+     *            <code>true</code> if the rows are served from the lookahead
+     *            buffer, <code>false</code> if they are fetched from the data
+     *            provider
+     */
+    default void rowsRequested(Range requestedRows, boolean fromBuffer) {
+        // NOOP
+    }
+}
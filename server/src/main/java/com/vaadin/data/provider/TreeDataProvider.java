@@ -15,9 +15,20 @@
  */
 package com.vaadin.data.provider;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.vaadin.data.TreeData;
@@ -45,6 +56,20 @@ public class TreeDataProvider<T>
 
     private SerializableComparator<T> sortOrder = null;
 
+    private boolean filterCachingEnabled = false;
+
+    private int parallelFilterThreshold = 0;
+
+    /*
+     * Number of filter combinations whose filtered trees are cached, so that
+     * e.g. components using different query filters do not keep discarding
+     * each other's results.
+     */
+    private static final int MAX_CACHED_FILTERED_TREES = 4;
+
+    // Most recently used first, replaced instead of modified
+    private transient volatile List<FilteredTree<T>> filteredTrees;
+
     /**
      * Constructs a new TreeDataProvider.
      * <p>
@@ -81,6 +106,11 @@ public class TreeDataProvider<T>
     @Override
     public int getChildCount(
             HierarchicalQuery<T, SerializablePredicate<T>> query) {
+        if (filterCachingEnabled && treeData.contains(query.getParent())) {
+            List<T> children = getFilteredChildren(query);
+            int from = Math.min(query.getOffset(), children.size());
+            return (int) Math.min(query.getLimit(), children.size() - from);
+        }
         return (int) fetchChildren(query).count();
     }
 
@@ -94,9 +124,14 @@ public class TreeDataProvider<T>
                     + "Did you forget to refresh this data provider after item removal?");
         }
 
-        Stream<T> childStream = getFilteredStream(
-                treeData.getChildren(query.getParent()).stream(),
-                query.getFilter());
+        Stream<T> childStream;
+        if (filterCachingEnabled) {
+            childStream = getFilteredChildren(query).stream();
+        } else {
+            childStream = getFilteredStream(
+                    treeData.getChildren(query.getParent()).stream(),
+                    query.getFilter());
+        }
 
         Optional<Comparator<T>> comparing = Stream
                 .of(query.getInMemorySorting(), sortOrder)
@@ -132,6 +167,92 @@ public class TreeDataProvider<T>
         refreshAll();
     }
 
+    @Override
+    public void refreshAll() {
+        filteredTrees = null;
+        super.refreshAll();
+    }
+
+    @Override
+    public void refreshItem(T item) {
+        filteredTrees = null;
+        super.refreshItem(item);
+    }
+
+    /**
+     * Sets whether this data provider evaluates the filters once for the
+     * whole tree and keeps the result in memory. When enabled, the items
+     * that match the filters and their ancestors are collected in one pass
+     * over the tree, and the filtered children of each parent are then
+     * looked up from the result instead of evaluating the filters against
+     * every descendant of every child for each query. This makes expanding
+     * and scrolling through large filtered trees much cheaper.
+     * <p>
+     * The results for the four most recently used combinations of the filter
+     * of this data provider and the query filter are kept, so that components
+     * with different query filters can share this data provider. The results
+     * are discarded when {@link #refreshAll()} or
+     * {@link #refreshItem(Object)} is called, which also happens when the
+     * filter of this data provider is changed. When
+     * caching is enabled, any changes to the backing {@link TreeData} or to
+     * the items in it must therefore be followed by a refresh call for them
+     * to be visible. Caching is disabled by default.
+     *
+     * @param filterCachingEnabled
+     *            <code>true</code> to cache the filtered tree,
+     *            <code>false</code> to filter on every query
+     * @since 8.14
+     */
+    public void setFilterCachingEnabled(boolean filterCachingEnabled) {
+        this.filterCachingEnabled = filterCachingEnabled;
+        filteredTrees = null;
+    }
+
+    /**
+     * Returns whether this data provider caches the filtered tree.
+     *
+     * @return <code>true</code> if the filtered tree is cached,
+     *         <code>false</code> otherwise
+     * @see #setFilterCachingEnabled(boolean)
+     * @since 8.14
+     */
+    public boolean isFilterCachingEnabled() {
+        return filterCachingEnabled;
+    }
+
+    /**
+     * Sets the number of siblings from which the subtrees of the siblings are
+     * filtered in parallel using the common {@link ForkJoinPool}. Only used
+     * when {@link #setFilterCachingEnabled(boolean) filter caching} is
+     * enabled. The filters must be safe to use from several threads when
+     * parallel filtering is used.
+     *
+     * @param parallelFilterThreshold
+     *            the minimum number of siblings to filter in parallel, or 0 to
+     *            always filter sequentially
+     * @since 8.14
+     */
+    public void setParallelFilterThreshold(int parallelFilterThreshold) {
+        if (parallelFilterThreshold < 0) {
+            throw new IllegalArgumentException(
+                    "Parallel filter threshold cannot be negative");
+        }
+        this.parallelFilterThreshold = parallelFilterThreshold;
+    }
+
+    /**
+     * Returns the number of siblings from which their subtrees are filtered
+     * in parallel.
+     *
+     * @return the minimum number of siblings to filter in parallel, or 0 if
+     *         the tree is always filtered sequentially
+     * @see #setParallelFilterThreshold(int)
+     * @since 8.14
+     */
+    public int getParallelFilterThreshold() {
+        return parallelFilterThreshold;
+    }
+
     @Override
     public <C> DataProvider<T, C> withConvertedFilter(
             SerializableFunction<C, SerializablePredicate<T>> filterConverter) {
@@ -170,6 +291,57 @@ public class TreeDataProvider<T>
         };
     }
 
+    /**
+     * Gets the children of the queried parent that match the filters or have
+     * matching descendants, reusing a previously filtered tree for the same
+     * filters if there is one.
+     */
+    private List<T> getFilteredChildren(
+            HierarchicalQuery<T, SerializablePredicate<T>> query) {
+        SerializablePredicate<T> queryFilter = query.getFilter().orElse(null);
+        List<T> children = treeData.getChildren(query.getParent());
+        if (filter == null && queryFilter == null) {
+            return children;
+        }
+
+        List<FilteredTree<T>> trees = filteredTrees;
+        if (trees == null) {
+            trees = Collections.emptyList();
+        }
+        FilteredTree<T> tree = trees.stream()
+                .filter(cached -> cached.matches(filter, queryFilter))
+                .findFirst().orElse(null);
+        if (tree == null) {
+            SerializablePredicate<T> combinedFilter = filter == null
+                    ? queryFilter
+                    : queryFilter == null ? filter : filter.and(queryFilter);
+            VisibilityTask<T> task = new VisibilityTask<>(treeData,
+                    treeData.getRootItems(), combinedFilter,
+                    parallelFilterThreshold, ConcurrentHashMap.newKeySet());
+            if (parallelFilterThreshold > 0) {
+                ForkJoinPool.commonPool().invoke(task);
+            } else {
+                task.compute();
+            }
+            tree = new FilteredTree<>(filter, queryFilter, task.visibleItems);
+        }
+        if (trees.isEmpty() || trees.get(0) != tree) {
+            // Concurrent queries may drop each other's trees, which is
+            // harmless since they are only rebuilt
+            List<FilteredTree<T>> updated = new ArrayList<>(
+                    MAX_CACHED_FILTERED_TREES);
+            updated.add(tree);
+            for (FilteredTree<T> cached : trees) {
+                if (cached != tree
+                        && updated.size() < MAX_CACHED_FILTERED_TREES) {
+                    updated.add(cached);
+                }
+            }
+            filteredTrees = updated;
+        }
+        return tree.getChildren(query.getParent(), children);
+    }
+
     private Stream<T> getFilteredStream(Stream<T> stream,
             Optional<SerializablePredicate<T>> queryFilter) {
         final Optional<SerializablePredicate<T>> combinedFilter;
@@ -188,4 +360,92 @@ public class TreeDataProvider<T>
         return Stream.concat(Stream.of(element), getTreeData()
                 .getChildren(element).stream().flatMap(this::flatten));
     }
+
+    /**
+     * The items that match one combination of filters or have matching
+     * descendants.
+     */
+    private static class FilteredTree<T> implements Serializable {
+        private final SerializablePredicate<T> filter;
+        private final SerializablePredicate<T> queryFilter;
+        private final Set<T> visibleItems;
+        private final Map<T, List<T>> children = new HashMap<>();
+
+        private FilteredTree(SerializablePredicate<T> filter,
+                SerializablePredicate<T> queryFilter, Set<T> visibleItems) {
+            this.filter = filter;
+            this.queryFilter = queryFilter;
+            this.visibleItems = visibleItems;
+        }
+
+        private boolean matches(SerializablePredicate<T> filter,
+                SerializablePredicate<T> queryFilter) {
+            return Objects.equals(this.filter, filter)
+                    && Objects.equals(this.queryFilter, queryFilter);
+        }
+
+        private synchronized List<T> getChildren(T parent,
+                List<T> allChildren) {
+            return children.computeIfAbsent(parent,
+                    item -> Collections.unmodifiableList(allChildren.stream()
+                            .filter(visibleItems::contains)
+                            .collect(Collectors.toList())));
+        }
+    }
+
+    /**
+     * Collects the items of the subtrees of the given siblings that match the
+     * filter or have matching descendants. Returns whether any item matched.
+     * Large sibling lists are split and their halves are processed in
+     * parallel.
+     */
+    private static class VisibilityTask<T> extends RecursiveTask<Boolean> {
+        private final TreeData<T> treeData;
+        private final List<T> siblings;
+        private final SerializablePredicate<T> filter;
+        private final int parallelThreshold;
+        private final Set<T> visibleItems;
+
+        private VisibilityTask(TreeData<T> treeData, List<T> siblings,
+                SerializablePredicate<T> filter, int parallelThreshold,
+                Set<T> visibleItems) {
+            this.treeData = treeData;
+            this.siblings = siblings;
+            this.filter = filter;
+            this.parallelThreshold = parallelThreshold;
+            this.visibleItems = visibleItems;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (parallelThreshold > 0 && siblings.size() >= parallelThreshold
+                    && siblings.size() > 1) {
+                int middle = siblings.size() / 2;
+                VisibilityTask<T> first = createSubtask(
+                        siblings.subList(0, middle));
+                VisibilityTask<T> second = createSubtask(
+                        siblings.subList(middle, siblings.size()));
+                first.fork();
+                boolean secondMatched = second.compute();
+                return first.join() | secondMatched;
+            }
+
+            boolean anyMatched = false;
+            for (T item : siblings) {
+                // Visit the whole subtree even if the item itself matches
+                boolean matched = createSubtask(treeData.getChildren(item))
+                        .compute();
+                if (matched || filter.test(item)) {
+                    visibleItems.add(item);
+                    anyMatched = true;
+                }
+            }
+            return anyMatched;
+        }
+
+        private VisibilityTask<T> createSubtask(List<T> items) {
+            return new VisibilityTask<>(treeData, items, filter,
+                    parallelThreshold, visibleItems);
+        }
+    }
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.vaadin.server.SerializableSupplier;
+import com.vaadin.shared.Registration;
+
+/**
+ * Keeps a listener registered to the wrapped data provider of a wrapper that
+ * caches data derived from it, only for as long as the cache is in use. The
+ * listener is registered when the wrapper starts caching or gets a listener of
+ * its own, and removed when the last listener of the wrapper is removed, e.g.
+ * when the last component using the wrapper is detached. This way a wrapper
+ * that is no longer used does not stay reachable from a long-lived wrapped
+ * data provider.
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ *
+ * @param <T>
+ *            the data type
+ */
+class WrappedDataProviderListener<T> implements Serializable {
+
+    private final DataProvider<T, ?> wrappedDataProvider;
+    private final DataProviderListener<T> listener;
+
+    private Registration registration;
+    private int wrapperListenerCount;
+
+    /**
+     * Creates a new listener for the given wrapped data provider.
+     *
+     * @param wrappedDataProvider
+     *            the wrapped data provider to listen to, not
+     *            <code>null</code>
+     * @param listener
+     *            the listener to register to the wrapped data provider, not
+     *            <code>null</code>. It is also notified when it is removed,
+     *            since changes are no longer noticed after that.
+     */
+    WrappedDataProviderListener(DataProvider<T, ?> wrappedDataProvider,
+            DataProviderListener<T> listener) {
+        this.wrappedDataProvider = Objects.requireNonNull(wrappedDataProvider);
+        this.listener = Objects.requireNonNull(listener);
+    }
+
+    /**
+     * Registers the listener to the wrapped data provider unless it already
+     * is. Must be called before data is cached, so that no change can go
+     * unnoticed.
+     */
+    synchronized void ensureListening() {
+        if (registration == null) {
+            registration = wrappedDataProvider.addDataProviderListener(listener);
+        }
+    }
+
+    /**
+     * Adds a listener of the wrapper, and makes sure the listener of this
+     * object is registered before it, so that cached data has been
+     * invalidated when the listener of the wrapper is notified.
+     *
+     * @param addListener
+     *            adds the listener of the wrapper and returns its
+     *            registration, not <code>null</code>
+     * @return a registration that also removes the listener of this object
+     *         when the last listener of the wrapper is removed
+     */
+    Registration addWrapperListener(
+            SerializableSupplier<Registration> addListener) {
+        synchronized (this) {
+            ensureListening();
+            wrapperListenerCount++;
+        }
+        Registration wrapperRegistration;
+        try {
+            wrapperRegistration = addListener.get();
+        } catch (RuntimeException | Error e) {
+            wrapperListenerRemoved();
+            throw e;
+        }
+        AtomicBoolean removed = new AtomicBoolean();
+        return () -> {
+            if (removed.compareAndSet(false, true)) {
+                wrapperRegistration.remove();
+                wrapperListenerRemoved();
+            }
+        };
+    }
+
+    private void wrapperListenerRemoved() {
+        synchronized (this) {
+            if (--wrapperListenerCount > 0 || registration == null) {
+                return;
+            }
+            registration.remove();
+            registration = null;
+        }
+        // Cached data cannot be trusted once changes are no longer noticed
+        listener.onDataChange(new DataChangeEvent<>(wrappedDataProvider));
+    }
+}
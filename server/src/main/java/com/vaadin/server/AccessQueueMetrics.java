@@ -0,0 +1,141 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics about the tasks submitted using
+ * {@link VaadinSession#access(Runnable)} and
+ * {@link VaadinSession#access(Object, Runnable)} for a session. The metrics
+ * are not serialized with the session.
+ *
+ * @see VaadinSession#getAccessQueueMetrics()
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ */
+public class AccessQueueMetrics implements Serializable {
+
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private final AtomicInteger maxPendingTasks = new AtomicInteger();
+    private final LongAdder coalescedTasks = new LongAdder();
+    private final LongAdder rejectedTasks = new LongAdder();
+    private final LongAdder drains = new LongAdder();
+    private final LongAdder drainLatency = new LongAdder();
+    private final AtomicLong maxDrainLatency = new AtomicLong();
+
+    AccessQueueMetrics() {
+        // Only created by VaadinSession
+    }
+
+    /**
+     * Gets the number of tasks currently waiting in the access queue.
+     *
+     * @return the current queue depth
+     */
+    public int getPendingTaskCount() {
+        return pendingTasks.get();
+    }
+
+    /**
+     * Gets the highest number of tasks that have been waiting in the access
+     * queue at the same time.
+     *
+     * @return the maximum queue depth
+     */
+    public int getMaxPendingTaskCount() {
+        return maxPendingTasks.get();
+    }
+
+    /**
+     * Gets the number of keyed tasks that replaced a pending task with the
+     * same key instead of being added to the queue.
+     *
+     * @return the number of coalesced tasks
+     */
+    public long getCoalescedTaskCount() {
+        return coalescedTasks.sum();
+    }
+
+    /**
+     * Gets the number of tasks that were rejected or discarded because the
+     * access queue was full.
+     *
+     * @see VaadinSession#setAccessQueueCapacity(int)
+     * @return the number of rejected tasks
+     */
+    public long getRejectedTaskCount() {
+        return rejectedTasks.sum();
+    }
+
+    /**
+     * Gets the number of times the access queue has been drained.
+     *
+     * @return the number of drains
+     */
+    public long getDrainCount() {
+        return drains.sum();
+    }
+
+    /**
+     * Gets the total time the oldest task of each drained batch had been
+     * waiting in the queue when the queue was drained.
+     *
+     * @return the total drain latency in nanoseconds
+     */
+    public long getTotalDrainLatency() {
+        return drainLatency.sum();
+    }
+
+    /**
+     * Gets the longest time a task has been waiting in the queue before the
+     * queue was drained.
+     *
+     * @return the maximum drain latency in nanoseconds
+     */
+    public long getMaxDrainLatency() {
+        return maxDrainLatency.get();
+    }
+
+    int taskAdded() {
+        int pending = pendingTasks.incrementAndGet();
+        maxPendingTasks.accumulateAndGet(pending, Math::max);
+        return pending;
+    }
+
+    void taskRemoved() {
+        // Tasks might be added directly to the queue without being counted
+        pendingTasks.updateAndGet(pending -> Math.max(0, pending - 1));
+    }
+
+    void taskCoalesced() {
+        coalescedTasks.increment();
+    }
+
+    void taskRejected() {
+        rejectedTasks.increment();
+    }
+
+    void drained(long latency) {
+        drains.increment();
+        drainLatency.add(latency);
+        maxDrainLatency.accumulateAndGet(latency, Math::max);
+    }
+}
@@ -50,6 +50,18 @@ public interface Constants {
             + "in web.xml. The default of 5min will be used.\n"
             + "===========================================================";
 
+    static final String WARNING_COMPRESSION_THRESHOLD_NOT_NUMERIC = "\n"
+            + "===========================================================\n"
+            + "WARNING: compressionThreshold has been set to a non integer "
+            + "value in web.xml. Compression will be disabled.\n"
+            + "===========================================================";
+
+    static final String WARNING_MAX_MESSAGE_SIZE_NOT_NUMERIC = "\n"
+            + "===========================================================\n"
+            + "WARNING: maxMessageSize has been set to a non integer "
+            + "value in web.xml. The size of messages will not be limited.\n"
+            + "===========================================================";
+
     static final String WARNING_PUSH_MODE_NOT_RECOGNIZED = "\n"
             + "===========================================================\n"
             + "WARNING: pushMode has been set to an unrecognized value\n"
@@ -136,6 +148,8 @@ public interface Constants {
     static final String SERVLET_PARAMETER_SYNC_ID_CHECK = "syncIdCheck";
     static final String SERVLET_PARAMETER_SENDURLSASPARAMETERS = "sendUrlsAsParameters";
     static final String SERVLET_PARAMETER_PUSH_SUSPEND_TIMEOUT_LONGPOLLING = "pushLongPollingSuspendTimeout";
+    static final String SERVLET_PARAMETER_COMPRESSION_THRESHOLD = "compressionThreshold";
+    static final String SERVLET_PARAMETER_MAX_MESSAGE_SIZE = "maxMessageSize";
     /**
      * Name of system or context property to write declarative syntax with the
      * old "v-" prefix or with the new "vaadin-" prefix. The default value
@@ -55,6 +55,20 @@ public class DefaultDeploymentConfiguration
 
     public static final boolean DEFAULT_SEND_URLS_AS_PARAMETERS = true;
 
+    /**
+     * Default value for {@link #getCompressionThreshold()} = {@value} .
+     *
+     * @since 8.14
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = -1;
+
+    /**
+     * Default value for {@link #getMaxMessageSize()} = {@value} .
+     *
+     * @since 8.14
+     */
+    public static final int DEFAULT_MAX_MESSAGE_SIZE = -1;
+
     private final Properties initParameters;
     private boolean productionMode;
     private boolean xsrfProtectionEnabled;
@@ -65,6 +79,8 @@ public class DefaultDeploymentConfiguration
     private final Class<?> systemPropertyBaseClass;
     private boolean syncIdCheck;
     private boolean sendUrlsAsParameters;
+    private int compressionThreshold;
+    private int maxMessageSize;
 
     /**
      * Create a new deployment configuration instance.
@@ -89,6 +105,8 @@ public class DefaultDeploymentConfiguration
         checkPushMode();
         checkSyncIdCheck();
         checkSendUrlsAsParameters();
+        checkCompressionThreshold();
+        checkMaxMessageSize();
     }
 
     @Override
@@ -248,6 +266,26 @@ public class DefaultDeploymentConfiguration
         return sendUrlsAsParameters;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * By default, responses are not compressed.
+     */
+    @Override
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * By default, the length of messages is not limited.
+     */
+    @Override
+    public int getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -317,6 +355,30 @@ public class DefaultDeploymentConfiguration
         }
     }
 
+    private void checkCompressionThreshold() {
+        try {
+            compressionThreshold = Integer
+                    .parseInt(getApplicationOrSystemProperty(
+                            Constants.SERVLET_PARAMETER_COMPRESSION_THRESHOLD,
+                            Integer.toString(DEFAULT_COMPRESSION_THRESHOLD)));
+        } catch (NumberFormatException e) {
+            getLogger().warning(
+                    Constants.WARNING_COMPRESSION_THRESHOLD_NOT_NUMERIC);
+            compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+        }
+    }
+
+    private void checkMaxMessageSize() {
+        try {
+            maxMessageSize = Integer.parseInt(getApplicationOrSystemProperty(
+                    Constants.SERVLET_PARAMETER_MAX_MESSAGE_SIZE,
+                    Integer.toString(DEFAULT_MAX_MESSAGE_SIZE)));
+        } catch (NumberFormatException e) {
+            getLogger().warning(Constants.WARNING_MAX_MESSAGE_SIZE_NOT_NUMERIC);
+            maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
+        }
+    }
+
     private void checkCloseIdleSessions() {
         closeIdleSessions = getApplicationOrSystemProperty(
                 Constants.SERVLET_PARAMETER_CLOSE_IDLE_SESSIONS,
@@ -70,6 +70,34 @@ public interface DeploymentConfiguration extends Serializable {
      */
     public int getHeartbeatInterval();
 
+    /**
+     * Returns the size in bytes from which UIDL responses are compressed for
+     * clients that accept gzip or deflate encoded responses, or a negative
+     * number if the responses are never compressed. The default
+     * implementation returns <code>-1</code>.
+     *
+     * @return the minimum size of compressed responses, or a negative number
+     *         if compression is disabled
+     * @since 8.14
+     */
+    public default int getCompressionThreshold() {
+        return -1;
+    }
+
+    /**
+     * Returns the maximum length in characters of messages sent by the client,
+     * or a negative number if the length is not limited. Reading a message is
+     * stopped as soon as it exceeds the limit, and the client is asked to
+     * reload. The default implementation returns <code>-1</code>.
+     *
+     * @return the maximum length of client messages, or a negative number if
+     *         the length is not limited
+     * @since 8.14
+     */
+    public default int getMaxMessageSize() {
+        return -1;
+    }
+
     /**
      * Returns whether the sending of URL's as GET and POST parameters in
      * requests with content-type <code>application/x-www-form-urlencoded</code>
@@ -16,13 +16,21 @@
 
 package com.vaadin.server;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -54,6 +62,12 @@ public class DownloadStream implements Serializable {
      */
     public static final long DEFAULT_CACHETIME = 1000 * 60 * 60 * 24;
 
+    private static final Pattern ENTITY_TAG_PATTERN = Pattern
+            .compile("(W/)?\"[^\"]*\"");
+
+    private static final Pattern BYTE_RANGE_PATTERN = Pattern
+            .compile("(\\d*)-(\\d*)");
+
     private InputStream stream;
 
     private String contentType;
@@ -66,6 +80,8 @@ public class DownloadStream implements Serializable {
 
     private int bufferSize = 0;
 
+    private String eTag;
+
     /**
      * Creates a new instance of DownloadStream.
      */
@@ -228,6 +244,38 @@ public class DownloadStream implements Serializable {
         this.bufferSize = bufferSize;
     }
 
+    /**
+     * Gets the entity tag identifying the current version of the content of
+     * this stream.
+     *
+     * @return the entity tag, or <code>null</code> if no entity tag is set
+     * @since 8.14
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * Sets the entity tag identifying the current version of the content of
+     * this stream. The value is sent in the <code>ETag</code> header and is
+     * used for answering conditional requests with <code>If-None-Match</code>
+     * and <code>If-Range</code> headers. The value must be a complete entity
+     * tag including the quotes, e.g. <code>"v1"</code> for a strong tag or
+     * <code>W/"v1"</code> for a weak tag.
+     *
+     * @param eTag
+     *            the entity tag to set, or <code>null</code> to not send an
+     *            entity tag
+     * @since 8.14
+     */
+    public void setETag(String eTag) {
+        if (eTag != null && !ENTITY_TAG_PATTERN.matcher(eTag).matches()) {
+            throw new IllegalArgumentException(
+                    "Invalid entity tag: " + eTag);
+        }
+        this.eTag = eTag;
+    }
+
     /**
      * Writes this download stream to a Vaadin response. This takes care of
      * setting response headers according to what is defined in this download
@@ -238,6 +286,13 @@ public class DownloadStream implements Serializable {
      * response. If there's is a parameter named <code>Location</code>, a
      * redirect (302 Moved temporarily) is sent instead of the contents of this
      * stream.
+     * <p>
+     * If an entity tag has been set ({@link #setETag(String)}) and the request
+     * has a matching <code>If-None-Match</code> header, only a 304 (Not
+     * Modified) response is sent. If the length of the content is known from
+     * the <code>Content-Length</code> parameter, byte range requests are
+     * supported and answered with a 206 (Partial Content) response containing
+     * one range or a <code>multipart/byteranges</code> body.
      *
      * @param request
      *            the request for which the response should be written
@@ -264,57 +319,319 @@ public class DownloadStream implements Serializable {
             return;
         }
 
-        if (data != null) {
-
-            OutputStream out = null;
-            try {
-                // Sets content type
-                response.setContentType(getContentType());
-
-                // Sets cache headers
-                response.setCacheTime(getCacheTime());
-
-                // Copy download stream parameters directly
-                // to HTTP headers.
-                final Iterator<String> i = getParameterNames();
-                if (i != null) {
-                    while (i.hasNext()) {
-                        final String param = i.next();
-                        response.setHeader(param, getParameter(param));
-                    }
+        OutputStream out = null;
+        try {
+            // Sets cache headers
+            response.setCacheTime(getCacheTime());
+
+            String eTag = getETag();
+            boolean getOrHead = isGetOrHead(request);
+            if (eTag != null) {
+                response.setHeader("ETag", eTag);
+                if (getOrHead && matchesAny(
+                        request.getHeader("If-None-Match"), eTag)) {
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
                 }
+            }
+
+            // Sets content type
+            response.setContentType(getContentType());
 
-                // Content-Disposition: attachment generally forces download
-                String contentDisposition = getParameter(CONTENT_DISPOSITION);
-                if (contentDisposition == null) {
-                    contentDisposition = getContentDispositionFilename(
-                            getFileName());
+            // Copy download stream parameters directly
+            // to HTTP headers.
+            final Iterator<String> i = getParameterNames();
+            if (i != null) {
+                while (i.hasNext()) {
+                    final String param = i.next();
+                    response.setHeader(param, getParameter(param));
                 }
+            }
 
-                response.setHeader(CONTENT_DISPOSITION, contentDisposition);
+            // Content-Disposition: attachment generally forces download
+            String contentDisposition = getParameter(CONTENT_DISPOSITION);
+            if (contentDisposition == null) {
+                contentDisposition = getContentDispositionFilename(
+                        getFileName());
+            }
+
+            response.setHeader(CONTENT_DISPOSITION, contentDisposition);
 
-                int bufferSize = getBufferSize();
-                if (bufferSize <= 0 || bufferSize > Constants.MAX_BUFFER_SIZE) {
-                    bufferSize = Constants.DEFAULT_BUFFER_SIZE;
+            List<long[]> ranges = null;
+            long length = getContentLength();
+            if (length >= 0) {
+                response.setHeader("Accept-Ranges", "bytes");
+                if (getOrHead && isRangeApplicable(request, eTag)) {
+                    ranges = parseRanges(request.getHeader("Range"), length);
                 }
-                final byte[] buffer = new byte[bufferSize];
-                int bytesRead = 0;
+            }
+
+            if (ranges != null && ranges.isEmpty()) {
+                response.setStatus(
+                        HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.setHeader("Content-Length", "0");
+                return;
+            }
+
+            int bufferSize = getBufferSize();
+            if (bufferSize <= 0 || bufferSize > Constants.MAX_BUFFER_SIZE) {
+                bufferSize = Constants.DEFAULT_BUFFER_SIZE;
+            }
+            final byte[] buffer = new byte[bufferSize];
+
+            if (ranges == null) {
+                out = response.getOutputStream();
+                copy(data, out, buffer, -1);
+            } else if (ranges.size() == 1) {
+                long[] range = ranges.get(0);
+                long count = range[1] - range[0] + 1;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + range[0] + "-"
+                        + range[1] + "/" + length);
+                response.setHeader("Content-Length", String.valueOf(count));
 
                 out = response.getOutputStream();
+                skipFully(data, range[0]);
+                copy(data, out, buffer, count);
+            } else {
+                writeMultipartRanges(data, response, ranges, length, buffer);
+            }
+        } finally {
+            tryToCloseStream(out);
+            tryToCloseStream(data);
+        }
+    }
+
+    private void writeMultipartRanges(InputStream data,
+            VaadinResponse response, List<long[]> ranges, long length,
+            byte[] buffer) throws IOException {
+        String boundary = UUID.randomUUID().toString();
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (long[] range : ranges) {
+            StringBuilder header = new StringBuilder();
+            header.append("\r\n--").append(boundary).append("\r\n");
+            if (getContentType() != null) {
+                header.append("Content-Type: ").append(getContentType())
+                        .append("\r\n");
+            }
+            header.append("Content-Range: bytes ").append(range[0])
+                    .append('-').append(range[1]).append('/').append(length)
+                    .append("\r\n\r\n");
+            byte[] headerBytes = header.toString()
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            partHeaders.add(headerBytes);
+            contentLength += headerBytes.length + range[1] - range[0] + 1;
+        }
+        byte[] end = ("\r\n--" + boundary + "--\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1);
+        contentLength += end.length;
 
-                long totalWritten = 0;
-                while ((bytesRead = data.read(buffer)) > 0) {
-                    out.write(buffer, 0, bytesRead);
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setHeader("Content-Length", String.valueOf(contentLength));
 
-                    totalWritten += bytesRead;
-                    if (totalWritten >= buffer.length) {
-                        // Avoid chunked encoding for small resources
-                        out.flush();
+        OutputStream out = response.getOutputStream();
+        try {
+            long position = 0;
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                out.write(partHeaders.get(i));
+                skipFully(data, range[0] - position);
+                copy(data, out, buffer, range[1] - range[0] + 1);
+                position = range[1] + 1;
+            }
+            out.write(end);
+        } finally {
+            tryToCloseStream(out);
+        }
+    }
+
+    /**
+     * Gets the total length of the content from the
+     * <code>Content-Length</code> parameter.
+     *
+     * @return the content length, or -1 if not known
+     */
+    private long getContentLength() {
+        String value = getParameter("Content-Length");
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isGetOrHead(VaadinRequest request) {
+        String method = request.getMethod();
+        return "GET".equalsIgnoreCase(method)
+                || "HEAD".equalsIgnoreCase(method);
+    }
+
+    /**
+     * Checks whether a <code>Range</code> header should be taken into account
+     * based on the <code>If-Range</code> header of the request. Only strong
+     * entity tags are accepted as validators since dates are not tracked.
+     */
+    private static boolean isRangeApplicable(VaadinRequest request,
+            String eTag) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        return eTag != null && !eTag.startsWith("W/")
+                && ifRange.trim().equals(eTag);
+    }
+
+    /**
+     * Checks whether the given list of entity tags from an
+     * <code>If-None-Match</code> header matches the given entity tag using
+     * weak comparison.
+     */
+    private static boolean matchesAny(String header, String eTag) {
+        if (header == null) {
+            return false;
+        }
+        if ("*".equals(header.trim())) {
+            return true;
+        }
+        String opaqueTag = stripWeakPrefix(eTag);
+        Matcher matcher = ENTITY_TAG_PATTERN.matcher(header);
+        while (matcher.find()) {
+            if (stripWeakPrefix(matcher.group()).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeakPrefix(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
+
+    /**
+     * Parses the value of a <code>Range</code> header. Overlapping and
+     * adjacent ranges are coalesced and the result is sorted so that the
+     * ranges can be served by reading the content only once.
+     *
+     * @param header
+     *            the header value, may be <code>null</code>
+     * @param length
+     *            the total length of the content
+     * @return a list of inclusive <code>[first, last]</code> byte positions,
+     *         an empty list if no range is satisfiable or <code>null</code> if
+     *         the header is missing or invalid and should be ignored
+     */
+    static List<long[]> parseRanges(String header, long length) {
+        if (header == null) {
+            return null;
+        }
+        header = header.trim();
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<>();
+        for (String spec : header.substring("bytes=".length()).split(",")) {
+            Matcher matcher = BYTE_RANGE_PATTERN.matcher(spec.trim());
+            if (!matcher.matches()) {
+                return null;
+            }
+            String first = matcher.group(1);
+            String last = matcher.group(2);
+            long start;
+            long end;
+            try {
+                if (first.isEmpty()) {
+                    if (last.isEmpty()) {
+                        return null;
+                    }
+                    // Suffix range: the last N bytes
+                    long suffix = Long.parseLong(last);
+                    if (suffix == 0) {
+                        continue;
+                    }
+                    start = Math.max(0, length - suffix);
+                    end = length - 1;
+                } else {
+                    start = Long.parseLong(first);
+                    if (last.isEmpty()) {
+                        end = length - 1;
+                    } else {
+                        long lastPosition = Long.parseLong(last);
+                        if (lastPosition < start) {
+                            return null;
+                        }
+                        end = Math.min(lastPosition, length - 1);
                     }
                 }
-            } finally {
-                tryToCloseStream(out);
-                tryToCloseStream(data);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (start < length && start <= end) {
+                ranges.add(new long[] { start, end });
+            }
+        }
+        if (ranges.size() <= 1) {
+            return ranges;
+        }
+
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        List<long[]> coalesced = new ArrayList<>(ranges.size());
+        long[] current = ranges.get(0);
+        for (long[] range : ranges.subList(1, ranges.size())) {
+            if (range[0] <= current[1] + 1) {
+                current[1] = Math.max(current[1], range[1]);
+            } else {
+                coalesced.add(current);
+                current = range;
+            }
+        }
+        coalesced.add(current);
+        return coalesced;
+    }
+
+    private static void skipFully(InputStream in, long count)
+            throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                // skip is allowed to make no progress, fall back to reading
+                if (in.read() < 0) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    /**
+     * Copies the given number of bytes, or everything if count is negative,
+     * from the input stream to the output stream.
+     */
+    private static void copy(InputStream in, OutputStream out, byte[] buffer,
+            long count) throws IOException {
+        long totalWritten = 0;
+        while (count < 0 || totalWritten < count) {
+            int toRead = count < 0 ? buffer.length
+                    : (int) Math.min(buffer.length, count - totalWritten);
+            int bytesRead = in.read(buffer, 0, toRead);
+            if (bytesRead <= 0) {
+                if (count >= 0) {
+                    throw new EOFException();
+                }
+                break;
+            }
+            out.write(buffer, 0, bytesRead);
+
+            totalWritten += bytesRead;
+            if (totalWritten >= buffer.length) {
+                // Avoid chunked encoding for small resources
+                out.flush();
             }
         }
     }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A metered session lock strategy using fair locks, so that requests and
+ * background threads get the lock in the order they started waiting for it.
+ * <p>
+ * Optionally, requests give up waiting for the lock after a timeout, which
+ * makes the request fail with a {@link SessionLockTimeoutException} instead of
+ * tying up a request thread. The timeout only applies to acquiring the lock
+ * when a request is received. Locking with {@link VaadinSession#lock()} always
+ * waits until the lock is available.
+ * <p>
+ * Heartbeat and connector resource requests look up an already initialized
+ * session without locking it, since their handlers lock the session
+ * themselves for the short time they need it.
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ */
+public class FairSessionLockStrategy extends MeteredSessionLockStrategy {
+
+    private final long timeout;
+
+    /**
+     * Creates a new fair session lock strategy without a timeout.
+     */
+    public FairSessionLockStrategy() {
+        this(0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new fair session lock strategy with the given timeout for
+     * acquiring the lock when a request is received.
+     *
+     * @param timeout
+     *            the maximum time to wait for the lock, zero or negative to
+     *            wait indefinitely
+     * @param unit
+     *            the unit of the timeout, not <code>null</code>
+     */
+    public FairSessionLockStrategy(long timeout, TimeUnit unit) {
+        this.timeout = unit.toNanos(timeout);
+    }
+
+    @Override
+    public ReentrantLock createLock(WrappedSession wrappedSession) {
+        return createLock(true);
+    }
+
+    @Override
+    public void lock(ReentrantLock lock) {
+        if (timeout <= 0) {
+            lock.lock();
+            return;
+        }
+        try {
+            if (!lock.tryLock(timeout, TimeUnit.NANOSECONDS)) {
+                throw new SessionLockTimeoutException(
+                        "Timed out waiting for the session lock after "
+                                + TimeUnit.NANOSECONDS.toMillis(timeout)
+                                + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SessionLockTimeoutException(
+                    "Interrupted while waiting for the session lock");
+        }
+    }
+
+    @Override
+    public boolean isLockFreeLookupAllowed(VaadinRequest request) {
+        return ServletPortletHelper.isHeartbeatRequest(request)
+                || ServletPortletHelper.isConnectorResourceRequest(request);
+    }
+}
@@ -69,8 +69,12 @@ public class FileResource implements ConnectorResource {
             final DownloadStream ds = new DownloadStream(
                     new FileInputStream(sourceFile), getMIMEType(),
                     getFilename());
-            ds.setParameter("Content-Length",
-                    String.valueOf(sourceFile.length()));
+            long length = sourceFile.length();
+            ds.setParameter("Content-Length", String.valueOf(length));
+            // Strong, so that it can be used in If-Range for resuming
+            // downloads. A file is rewritten with a new modification time.
+            ds.setETag("\"" + Long.toHexString(length) + "-"
+                    + Long.toHexString(sourceFile.lastModified()) + "\"");
 
             ds.setBufferSize(getBufferSize());
             ds.setCacheTime(getCacheTime());
@@ -20,9 +20,13 @@ import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
@@ -36,6 +40,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -136,6 +141,10 @@ public class JsonCodec implements Serializable {
             return field.getGenericType();
         }
 
+        private MethodHandle createGetter() throws IllegalAccessException {
+            return MethodHandles.publicLookup().unreflectGetter(field);
+        }
+
         public static Collection<FieldProperty> find(Class<?> type)
                 throws IntrospectionException {
             Field[] fields = type.getFields();
@@ -198,6 +207,10 @@ public class JsonCodec implements Serializable {
             return pd.getReadMethod().getGenericReturnType();
         }
 
+        private MethodHandle createGetter() throws IllegalAccessException {
+            return MethodHandles.publicLookup().unreflect(pd.getReadMethod());
+        }
+
     }
 
     /**
@@ -208,6 +221,12 @@ public class JsonCodec implements Serializable {
      */
     private static final ConcurrentMap<Class<?>, Collection<BeanProperty>> TYPE_PROPERTY_CACHE = new ConcurrentHashMap<>();
 
+    /**
+     * Cache of precompiled encoders for bean types, e.g. shared state classes.
+     * An empty value means that the type must be encoded reflectively.
+     */
+    private static final ConcurrentMap<Class<?>, Optional<ObjectEncoder>> TYPE_ENCODER_CACHE = new ConcurrentHashMap<>();
+
     private static final Map<Class<?>, String> TYPE_TO_TRANSPORT_TYPE = new HashMap<>();
 
     /**
@@ -768,10 +787,32 @@ public class JsonCodec implements Serializable {
     }
 
     /*
-     * Loops through the fields of value and encodes them.
+     * Encodes the properties of value using a precompiled encoder for the type
+     * if possible, otherwise loops through the fields of value reflectively.
      */
     private static EncodeResult encodeObject(Object value, Class<?> valueType,
             JsonObject referenceValue, ConnectorTracker connectorTracker) {
+        Optional<ObjectEncoder> encoder = TYPE_ENCODER_CACHE.get(valueType);
+        if (encoder == null) {
+            // Doesn't matter if the same encoder is created multiple times
+            // from different threads
+            encoder = Optional.ofNullable(ObjectEncoder.create(valueType));
+            TYPE_ENCODER_CACHE.put(valueType, encoder);
+        }
+        if (encoder.isPresent()) {
+            return encoder.get().encode(value, referenceValue,
+                    connectorTracker);
+        }
+        return encodeObjectReflectively(value, valueType, referenceValue,
+                connectorTracker);
+    }
+
+    /*
+     * Loops through the fields of value and encodes them.
+     */
+    private static EncodeResult encodeObjectReflectively(Object value,
+            Class<?> valueType, JsonObject referenceValue,
+            ConnectorTracker connectorTracker) {
         JsonObject encoded = Json.createObject();
         JsonObject diff = Json.createObject();
 
@@ -1052,4 +1093,215 @@ public class JsonCodec implements Serializable {
 
     private JsonCodec() {
     }
+
+    /**
+     * Encoder for the properties of one bean type, created once per type.
+     * Property values are read through method handles and compared directly
+     * against the reference value for strings, booleans, numbers and enums.
+     * Other property types are delegated to
+     * {@link JsonCodec#encode(Object, JsonValue, Type, ConnectorTracker)}.
+     */
+    private static final class ObjectEncoder implements Serializable {
+
+        private final PropertyEncoder[] properties;
+
+        private ObjectEncoder(PropertyEncoder[] properties) {
+            this.properties = properties;
+        }
+
+        /**
+         * Creates an encoder for the given type.
+         *
+         * @param type
+         *            the bean type to encode
+         * @return an encoder for the type, or <code>null</code> if the type
+         *         must be encoded reflectively
+         */
+        private static ObjectEncoder create(Class<?> type) {
+            Collection<BeanProperty> beanProperties;
+            try {
+                beanProperties = getProperties(type);
+            } catch (IntrospectionException e) {
+                return null;
+            }
+            List<PropertyEncoder> encoders = new ArrayList<>(
+                    beanProperties.size());
+            Set<String> names = new HashSet<>();
+            for (BeanProperty property : beanProperties) {
+                MethodHandle getter;
+                try {
+                    if (property instanceof FieldProperty) {
+                        getter = ((FieldProperty) property).createGetter();
+                    } else if (property instanceof MethodProperty) {
+                        getter = ((MethodProperty) property).createGetter();
+                    } else {
+                        return null;
+                    }
+                } catch (IllegalAccessException e) {
+                    // e.g. a non-public state class
+                    return null;
+                }
+                if (!names.add(property.getName())) {
+                    // Let the reflective path report the conflict
+                    return null;
+                }
+                encoders.add(new PropertyEncoder(property.getName(),
+                        property.getType(), getter.asType(MethodType
+                                .methodType(Object.class, Object.class))));
+            }
+            return new ObjectEncoder(
+                    encoders.toArray(new PropertyEncoder[encoders.size()]));
+        }
+
+        private EncodeResult encode(Object value, JsonObject referenceValue,
+                ConnectorTracker connectorTracker) {
+            JsonObject encoded = Json.createObject();
+            JsonObject diff = Json.createObject();
+            try {
+                for (PropertyEncoder property : properties) {
+                    property.encode(value, referenceValue, encoded, diff,
+                            connectorTracker);
+                }
+            } catch (Exception e) {
+                // Wrapped like in encodeObject, so that callers see the same
+                // exceptions regardless of how the bean was encoded
+                throw new RuntimeException(e);
+            }
+            return new EncodeResult(encoded, diff);
+        }
+    }
+
+    private static final class PropertyEncoder implements Serializable {
+
+        private enum Kind {
+            STRING, BOOLEAN, NUMBER, ENUM, OTHER;
+
+            private static Kind of(Type type) {
+                if (!(type instanceof Class<?>)) {
+                    return OTHER;
+                }
+                Class<?> cls = (Class<?>) type;
+                if (cls == String.class) {
+                    return STRING;
+                } else if (cls == boolean.class || cls == Boolean.class) {
+                    return BOOLEAN;
+                } else if (cls == char.class) {
+                    return OTHER;
+                } else if (cls.isPrimitive()
+                        || Number.class.isAssignableFrom(cls)) {
+                    return NUMBER;
+                } else if (cls.isEnum()) {
+                    return ENUM;
+                }
+                return OTHER;
+            }
+        }
+
+        private final String name;
+        private final Type type;
+        private final Kind kind;
+        private final MethodHandle getter;
+
+        private PropertyEncoder(String name, Type type, MethodHandle getter) {
+            this.name = name;
+            this.type = type;
+            this.getter = getter;
+            kind = Kind.of(type);
+        }
+
+        private void encode(Object bean, JsonObject referenceValue,
+                JsonObject encoded, JsonObject diff,
+                ConnectorTracker connectorTracker) throws Exception {
+            Object fieldValue;
+            try {
+                fieldValue = (Object) getter.invokeExact(bean);
+            } catch (Throwable t) {
+                // Like reflection, which the getter handle replaces
+                throw new InvocationTargetException(t);
+            }
+
+            JsonValue fieldReference = null;
+            if (referenceValue != null) {
+                fieldReference = referenceValue.get(name);
+                if (fieldReference instanceof JsonNull) {
+                    fieldReference = null;
+                }
+            }
+
+            if (fieldValue == null) {
+                JsonValue encodedNull = ENCODE_RESULT_NULL.getEncodedValue();
+                encoded.put(name, encodedNull);
+                if (fieldReference != null) {
+                    diff.put(name, encodedNull);
+                }
+                return;
+            }
+
+            switch (kind) {
+            case STRING:
+                String string = (String) fieldValue;
+                if (fieldReference != null
+                        && fieldReference.getType() == JsonType.STRING
+                        && string.equals(fieldReference.asString())) {
+                    unchanged(fieldReference, encoded);
+                } else {
+                    changed(Json.create(string), encoded, diff);
+                }
+                return;
+            case BOOLEAN:
+                boolean bool = (Boolean) fieldValue;
+                if (fieldReference != null
+                        && fieldReference.getType() == JsonType.BOOLEAN
+                        && bool == fieldReference.asBoolean()) {
+                    unchanged(fieldReference, encoded);
+                } else {
+                    changed(Json.create(bool), encoded, diff);
+                }
+                return;
+            case NUMBER:
+                double number = ((Number) fieldValue).doubleValue();
+                if (fieldReference != null
+                        && fieldReference.getType() == JsonType.NUMBER
+                        && number == fieldReference.asNumber()) {
+                    unchanged(fieldReference, encoded);
+                } else {
+                    changed(Json.create(number), encoded, diff);
+                }
+                return;
+            case ENUM:
+                if (!CUSTOM_SERIALIZERS.containsKey(fieldValue.getClass())) {
+                    String enumName = ((Enum<?>) fieldValue).name();
+                    if (fieldReference != null
+                            && fieldReference.getType() == JsonType.STRING
+                            && enumName.equals(fieldReference.asString())) {
+                        unchanged(fieldReference, encoded);
+                    } else {
+                        changed(Json.create(enumName), encoded, diff);
+                    }
+                    return;
+                }
+                break;
+            default:
+                break;
+            }
+
+            EncodeResult encodeResult = JsonCodec.encode(fieldValue,
+                    fieldReference, type, connectorTracker);
+            encoded.put(name, encodeResult.getEncodedValue());
+            if (valueChanged(encodeResult.getEncodedValue(), fieldReference)) {
+                diff.put(name, encodeResult.getDiffOrValue());
+            }
+        }
+
+        private void unchanged(JsonValue reference, JsonObject encoded) {
+            // Primitive JSON values are immutable and can be shared
+            encoded.put(name, reference);
+        }
+
+        private void changed(JsonValue value, JsonObject encoded,
+                JsonObject diff) {
+            encoded.put(name, value);
+            diff.put(name, value);
+        }
+    }
 }
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The default session lock strategy. Creates non-fair reentrant locks that
+ * record how long threads wait for and hold the lock, grouped by the type of
+ * the current request.
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ */
+public class MeteredSessionLockStrategy
+        implements SessionLockStrategy, SessionLockMetrics {
+
+    private static class Counters implements Serializable {
+        private final LongAdder acquisitions = new LongAdder();
+        private final LongAdder contendedAcquisitions = new LongAdder();
+        private final LongAdder waitTime = new LongAdder();
+        private final AtomicLong maxWaitTime = new AtomicLong();
+        private final LongAdder holdTime = new LongAdder();
+        private final AtomicLong maxHoldTime = new AtomicLong();
+    }
+
+    /**
+     * A session lock reporting to a metered strategy. The reference to the
+     * strategy is not serialized, so a deserialized lock looks up the strategy
+     * of the current service the next time it is acquired.
+     */
+    private static class MeteredLock extends ReentrantLock {
+
+        private transient volatile MeteredSessionLockStrategy strategy;
+
+        // Only accessed by the thread holding the lock
+        private RequestType holderType;
+        private long acquiredAt;
+
+        private MeteredLock(MeteredSessionLockStrategy strategy,
+                boolean fair) {
+            super(fair);
+            this.strategy = strategy;
+        }
+
+        @Override
+        public void lock() {
+            long start = startWaiting();
+            super.lock();
+            acquired(start);
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            long start = startWaiting();
+            super.lockInterruptibly();
+            acquired(start);
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (super.tryLock()) {
+                acquired(0);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            long start = startWaiting();
+            if (super.tryLock(timeout, unit)) {
+                acquired(start);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void unlock() {
+            // Only set if the strategy was known when the lock was acquired
+            if (holderType != null && getHoldCount() == 1) {
+                getStrategy().released(holderType,
+                        System.nanoTime() - acquiredAt);
+                holderType = null;
+            }
+            super.unlock();
+        }
+
+        private MeteredSessionLockStrategy getStrategy() {
+            MeteredSessionLockStrategy current = strategy;
+            if (current == null) {
+                VaadinService service = VaadinService.getCurrent();
+                if (service != null && service
+                        .getSessionLockStrategy() instanceof MeteredSessionLockStrategy) {
+                    current = (MeteredSessionLockStrategy) service
+                            .getSessionLockStrategy();
+                    strategy = current;
+                }
+            }
+            return current;
+        }
+
+        /**
+         * Returns the time waiting started if the lock is currently held by
+         * another thread, 0 otherwise. This is only an estimate, but checking
+         * instead of first trying to barge in keeps fair locks fair.
+         */
+        private long startWaiting() {
+            if (getStrategy() != null && isLocked()
+                    && !isHeldByCurrentThread()) {
+                return System.nanoTime();
+            }
+            return 0;
+        }
+
+        private void acquired(long waitStart) {
+            MeteredSessionLockStrategy current = getStrategy();
+            if (current == null || getHoldCount() != 1) {
+                return;
+            }
+            acquiredAt = System.nanoTime();
+            holderType = current
+                    .getRequestType(VaadinService.getCurrentRequest());
+            current.acquired(holderType,
+                    waitStart == 0 ? -1 : acquiredAt - waitStart);
+        }
+    }
+
+    private final Map<RequestType, Counters> counters = new EnumMap<>(
+            RequestType.class);
+
+    /**
+     * Creates a new metered session lock strategy.
+     */
+    public MeteredSessionLockStrategy() {
+        for (RequestType type : RequestType.values()) {
+            counters.put(type, new Counters());
+        }
+    }
+
+    @Override
+    public ReentrantLock createLock(WrappedSession wrappedSession) {
+        return createLock(false);
+    }
+
+    /**
+     * Creates a lock that reports to this strategy.
+     *
+     * @param fair
+     *            <code>true</code> to create a fair lock, <code>false</code>
+     *            to create a non-fair lock
+     * @return the new lock, not <code>null</code>
+     */
+    protected ReentrantLock createLock(boolean fair) {
+        return new MeteredLock(this, fair);
+    }
+
+    @Override
+    public Optional<SessionLockMetrics> getMetrics() {
+        return Optional.of(this);
+    }
+
+    /**
+     * Gets the type of the given request for grouping the metrics.
+     *
+     * @param request
+     *            the current request, or <code>null</code> if the lock is
+     *            acquired outside of a request
+     * @return the request type, not <code>null</code>
+     */
+    protected RequestType getRequestType(VaadinRequest request) {
+        if (request == null) {
+            return RequestType.BACKGROUND;
+        } else if (ServletPortletHelper.isUIDLRequest(request)) {
+            return RequestType.UIDL;
+        } else if (ServletPortletHelper.isHeartbeatRequest(request)) {
+            return RequestType.HEARTBEAT;
+        } else if (ServletPortletHelper.isPushRequest(request)) {
+            return RequestType.PUSH;
+        } else if (ServletPortletHelper.isConnectorResourceRequest(request)) {
+            return RequestType.CONNECTOR_RESOURCE;
+        } else if (ServletPortletHelper.isFileUploadRequest(request)) {
+            return RequestType.FILE_UPLOAD;
+        } else {
+            return RequestType.OTHER;
+        }
+    }
+
+    private void acquired(RequestType type, long waitTime) {
+        Counters typeCounters = counters.get(type);
+        typeCounters.acquisitions.increment();
+        if (waitTime >= 0) {
+            typeCounters.contendedAcquisitions.increment();
+            typeCounters.waitTime.add(waitTime);
+            typeCounters.maxWaitTime.accumulateAndGet(waitTime, Math::max);
+        }
+    }
+
+    private void released(RequestType type, long holdTime) {
+        Counters typeCounters = counters.get(type);
+        typeCounters.holdTime.add(holdTime);
+        typeCounters.maxHoldTime.accumulateAndGet(holdTime, Math::max);
+    }
+
+    @Override
+    public long getAcquisitionCount(RequestType type) {
+        return counters.get(type).acquisitions.sum();
+    }
+
+    @Override
+    public long getContendedAcquisitionCount(RequestType type) {
+        return counters.get(type).contendedAcquisitions.sum();
+    }
+
+    @Override
+    public long getTotalWaitTime(RequestType type) {
+        return counters.get(type).waitTime.sum();
+    }
+
+    @Override
+    public long getMaxWaitTime(RequestType type) {
+        return counters.get(type).maxWaitTime.get();
+    }
+
+    @Override
+    public long getTotalHoldTime(RequestType type) {
+        return counters.get(type).holdTime.sum();
+    }
+
+    @Override
+    public long getMaxHoldTime(RequestType type) {
+        return counters.get(type).maxHoldTime.get();
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.vaadin.ui.ConnectorTracker;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+
+/**
+ * Invokes one method of a server RPC interface. The invokers of all the
+ * methods of an interface are created at once when the interface is first
+ * used, so finding the invoker for a received invocation is a lookup by the
+ * interface and the method name, without building any signature strings.
+ * <p>
+ * Methods are invoked through a {@link MethodHandle} when one can be created,
+ * and otherwise through reflection. The decoder of each parameter is also
+ * resolved once, so that strings and primitive values are decoded without
+ * going through the type checks of {@link JsonCodec}.
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ */
+class ServerRpcInvoker implements Serializable {
+
+    private static final ServerRpcInvoker[] NO_INVOKERS = new ServerRpcInvoker[0];
+
+    /*
+     * Wrapper types of numeric primitives in the order of widening primitive
+     * conversions, used for checking arguments like reflection does.
+     */
+    private static final List<Class<?>> NUMERIC_WRAPPERS = Arrays.asList(
+            Byte.class, Short.class, Integer.class, Long.class, Float.class,
+            Double.class);
+    private static final List<Class<?>> NUMERIC_PRIMITIVES = Arrays.asList(
+            byte.class, short.class, int.class, long.class, float.class,
+            double.class);
+
+    /*
+     * Invokers by interface and method name, indexed by the parameter count.
+     * The inner maps are not modified after they have been created.
+     */
+    private static final Map<Class<?>, Map<String, ServerRpcInvoker[]>> INVOKERS = new ConcurrentHashMap<>(
+            128, 0.75f, 1);
+
+    private final transient Method method;
+    private final transient Type[] parameterTypes;
+    private final transient Class<?>[] parameterClasses;
+    private final transient MethodHandle handle;
+    private final transient ParameterDecoder[] decoders;
+
+    /**
+     * Decodes a parameter value received from the client.
+     */
+    @FunctionalInterface
+    private interface ParameterDecoder extends Serializable {
+        Object decode(JsonValue value, ConnectorTracker connectorTracker);
+    }
+
+    private ServerRpcInvoker(Method method) {
+        this.method = method;
+        parameterTypes = method.getGenericParameterTypes();
+        parameterClasses = method.getParameterTypes();
+        handle = createHandle(method);
+        decoders = new ParameterDecoder[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            decoders[i] = createDecoder(parameterTypes[i]);
+        }
+    }
+
+    /**
+     * Gets the invoker for a method of the given RPC interface. If the
+     * interface has several methods with the same name and parameter count,
+     * the first one returned by {@link Class#getMethods()} is used.
+     *
+     * @param rpcInterface
+     *            the RPC interface
+     * @param methodName
+     *            the name of the method
+     * @param parameterCount
+     *            the number of parameters of the method
+     * @return the invoker, or <code>null</code> if there is no such method
+     */
+    static ServerRpcInvoker get(Class<?> rpcInterface, String methodName,
+            int parameterCount) {
+        Map<String, ServerRpcInvoker[]> methods = INVOKERS.get(rpcInterface);
+        if (methods == null) {
+            methods = INVOKERS.computeIfAbsent(rpcInterface,
+                    ServerRpcInvoker::createInvokers);
+        }
+        ServerRpcInvoker[] invokers = methods.getOrDefault(methodName,
+                NO_INVOKERS);
+        if (parameterCount < 0 || parameterCount >= invokers.length) {
+            return null;
+        }
+        return invokers[parameterCount];
+    }
+
+    private static Map<String, ServerRpcInvoker[]> createInvokers(
+            Class<?> rpcInterface) {
+        Map<String, ServerRpcInvoker[]> methods = new HashMap<>();
+        for (Method method : rpcInterface.getMethods()) {
+            int parameterCount = method.getParameterCount();
+            ServerRpcInvoker[] invokers = methods.getOrDefault(
+                    method.getName(), NO_INVOKERS);
+            if (invokers.length <= parameterCount) {
+                invokers = Arrays.copyOf(invokers, parameterCount + 1);
+                methods.put(method.getName(), invokers);
+            }
+            if (invokers[parameterCount] == null) {
+                invokers[parameterCount] = new ServerRpcInvoker(method);
+            }
+        }
+        return methods;
+    }
+
+    /**
+     * Creates a method handle that takes the target and an array of arguments,
+     * or returns <code>null</code> if the method is not accessible.
+     */
+    private static MethodHandle createHandle(Method method) {
+        try {
+            MethodHandle handle;
+            try {
+                handle = MethodHandles.publicLookup().unreflect(method);
+            } catch (IllegalAccessException e) {
+                // E.g. a public interface that is not public itself
+                method.setAccessible(true);
+                handle = MethodHandles.lookup().unreflect(method);
+            }
+            return handle
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(MethodType.methodType(void.class, Object.class,
+                            Object[].class));
+        } catch (IllegalAccessException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a decoder for the given parameter type. Decodes the types that
+     * are most common in RPC calls like
+     * {@link JsonCodec#decodeInternalOrCustomType(Type, JsonValue, ConnectorTracker)}
+     * does, and uses that method for other types.
+     */
+    private static ParameterDecoder createDecoder(Type type) {
+        if (type == String.class) {
+            return (value, tracker) -> isNull(value) ? null : value.asString();
+        } else if (type == boolean.class || type == Boolean.class) {
+            return (value, tracker) -> isNull(value) ? null
+                    : value.asBoolean();
+        } else if (type == int.class || type == Integer.class) {
+            return (value, tracker) -> isNull(value) ? null
+                    : (int) value.asNumber();
+        } else if (type == long.class || type == Long.class) {
+            return (value, tracker) -> isNull(value) ? null
+                    : (long) value.asNumber();
+        } else if (type == float.class || type == Float.class) {
+            return (value, tracker) -> isNull(value) ? null
+                    : (float) value.asNumber();
+        } else if (type == double.class || type == Double.class) {
+            return (value, tracker) -> isNull(value) ? null
+                    : value.asNumber();
+        }
+        return (value, tracker) -> JsonCodec.decodeInternalOrCustomType(type,
+                value, tracker);
+    }
+
+    private static boolean isNull(JsonValue value) {
+        return value.getType() == JsonType.NULL;
+    }
+
+    /**
+     * Decodes the arguments of an invocation of the method.
+     *
+     * @param parametersJson
+     *            the encoded arguments, one for each parameter of the method
+     * @param connectorTracker
+     *            the connector tracker of the UI receiving the invocation
+     * @return the decoded arguments
+     */
+    Object[] decodeArguments(JsonArray parametersJson,
+            ConnectorTracker connectorTracker) {
+        Object[] arguments = new Object[parametersJson.length()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = decoders[i].decode(parametersJson.get(i),
+                    connectorTracker);
+        }
+        return arguments;
+    }
+
+    /**
+     * Gets the method invoked by this invoker.
+     *
+     * @return the method, not <code>null</code>
+     */
+    Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Gets the generic parameter types of the method, used for decoding the
+     * parameters of received invocations. The returned array must not be
+     * modified.
+     *
+     * @return the generic parameter types of the method
+     */
+    Type[] getParameterTypes() {
+        return parameterTypes;
+    }
+
+    /**
+     * Invokes the method.
+     *
+     * @param target
+     *            the object to invoke the method on
+     * @param arguments
+     *            the arguments of the method
+     * @throws InvocationTargetException
+     *             if the invoked method throws an exception, like with
+     *             {@link Method#invoke(Object, Object...)}
+     * @throws IllegalAccessException
+     *             if the method is not accessible
+     * @throws IllegalArgumentException
+     *             if the target is <code>null</code> or the arguments do not
+     *             match the parameters, like with
+     *             {@link Method#invoke(Object, Object...)}
+     */
+    void invoke(Object target, Object[] arguments)
+            throws InvocationTargetException, IllegalAccessException {
+        if (handle == null) {
+            method.invoke(target, arguments);
+            return;
+        }
+        if (target == null) {
+            throw new IllegalArgumentException(
+                    "Cannot invoke " + method + " on null");
+        }
+        /*
+         * Checked first since the conversions of the handle would throw
+         * exceptions that could not be told apart from ones thrown by the
+         * method itself.
+         */
+        checkArguments(arguments);
+        try {
+            handle.invokeExact(target, arguments);
+        } catch (Throwable t) {
+            // Wrapped like reflection does so that error handlers work alike
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    private void checkArguments(Object[] arguments) {
+        int count = arguments == null ? 0 : arguments.length;
+        if (count != parameterClasses.length) {
+            throw new IllegalArgumentException("Wrong number of arguments for "
+                    + method + ": " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            if (!isAssignable(parameterClasses[i], arguments[i])) {
+                throw new IllegalArgumentException("Argument " + i + " of "
+                        + method + " has the wrong type: "
+                        + (arguments[i] == null ? "null"
+                                : arguments[i].getClass().getName()));
+            }
+        }
+    }
+
+    /**
+     * Checks whether the argument can be passed to a parameter of the given
+     * type, allowing unboxing followed by a widening primitive conversion.
+     */
+    private static boolean isAssignable(Class<?> parameterClass,
+            Object argument) {
+        if (!parameterClass.isPrimitive()) {
+            return argument == null || parameterClass.isInstance(argument);
+        } else if (argument == null) {
+            return false;
+        }
+        Class<?> argumentClass = argument.getClass();
+        if (parameterClass == boolean.class) {
+            return argumentClass == Boolean.class;
+        } else if (parameterClass == char.class) {
+            return argumentClass == Character.class;
+        }
+        int parameterRank = NUMERIC_PRIMITIVES.indexOf(parameterClass);
+        if (argumentClass == Character.class) {
+            return parameterRank >= NUMERIC_PRIMITIVES.indexOf(int.class);
+        }
+        int argumentRank = NUMERIC_WRAPPERS.indexOf(argumentClass);
+        return argumentRank >= 0 && argumentRank <= parameterRank;
+    }
+}
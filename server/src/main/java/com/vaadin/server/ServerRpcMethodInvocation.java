@@ -16,19 +16,20 @@
 package com.vaadin.server;
 
 import java.lang.reflect.Method;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.lang.reflect.Type;
 
 import com.vaadin.shared.communication.MethodInvocation;
 import com.vaadin.shared.communication.ServerRpc;
+import com.vaadin.ui.ConnectorTracker;
 
-public class ServerRpcMethodInvocation extends MethodInvocation {
+import elemental.json.JsonArray;
 
-    private static final Map<String, Method> INVOCATION_METHOD_CACHE = new ConcurrentHashMap<>(
-            128, 0.75f, 1);
+public class ServerRpcMethodInvocation extends MethodInvocation {
 
     private final Method method;
 
+    private final ServerRpcInvoker invoker;
+
     private final Class<? extends ServerRpc> interfaceClass;
 
     public ServerRpcMethodInvocation(String connectorId,
@@ -39,8 +40,8 @@ public class ServerRpcMethodInvocation extends MethodInvocation {
         assert ServerRpc.class.isAssignableFrom(interfaceClass);
         this.interfaceClass = interfaceClass;
 
-        method = findInvocationMethod(interfaceClass, methodName,
-                parameterCount);
+        invoker = findInvoker(interfaceClass, methodName, parameterCount);
+        method = invoker.getMethod();
     }
 
     public Class<? extends ServerRpc> getInterfaceClass() {
@@ -52,61 +53,64 @@ public class ServerRpcMethodInvocation extends MethodInvocation {
     }
 
     /**
-     * Tries to find the method from the cache or alternatively by invoking
-     * {@link #doFindInvocationMethod(Class, String, int)} and updating the
-     * cache.
+     * Gets the generic parameter types of the invoked method.
      *
-     * @param targetType
-     * @param methodName
-     * @param parameterCount
-     * @return
+     * @return a new array with the generic parameter types of the method
+     * @since 8.14
      */
-    private Method findInvocationMethod(Class<?> targetType, String methodName,
-            int parameterCount) {
-        // TODO currently only using method name and number of parameters as the
-        // signature
-        String signature = targetType.getName() + "." + methodName + "("
-                + parameterCount;
-        Method invocationMethod = INVOCATION_METHOD_CACHE.get(signature);
-
-        if (invocationMethod == null) {
-            invocationMethod = doFindInvocationMethod(targetType, methodName,
-                    parameterCount);
-
-            if (invocationMethod != null) {
-                INVOCATION_METHOD_CACHE.put(signature, invocationMethod);
-            }
-        }
+    public Type[] getParameterTypes() {
+        // The array of the invoker is shared by all invocations
+        return invoker.getParameterTypes().clone();
+    }
 
-        if (invocationMethod == null) {
-            throw new IllegalStateException("Can't find method " + methodName
-                    + " with " + parameterCount + " parameters in "
-                    + targetType.getName());
-        }
+    /**
+     * Decodes the parameters of this invocation and sets them as the
+     * parameters of this invocation. The decoders of the parameters are
+     * resolved once for each RPC method, and the parameter types of the
+     * method are not copied.
+     *
+     * @param parametersJson
+     *            the encoded parameters, one for each parameter of the method
+     * @param connectorTracker
+     *            the connector tracker of the UI receiving the invocation
+     * @since 8.14
+     */
+    public void decodeParameters(JsonArray parametersJson,
+            ConnectorTracker connectorTracker) {
+        setParameters(
+                invoker.decodeArguments(parametersJson, connectorTracker));
+    }
 
-        return invocationMethod;
+    /**
+     * Gets the invoker for the method.
+     */
+    ServerRpcInvoker getInvoker() {
+        return invoker;
     }
 
     /**
-     * Tries to find the method from the class by looping through available
-     * methods.
+     * Finds the invoker for the method from the invokers of the RPC
+     * interface.
      *
      * @param targetType
      * @param methodName
      * @param parameterCount
      * @return
      */
-    private Method doFindInvocationMethod(Class<?> targetType,
+    private ServerRpcInvoker findInvoker(Class<?> targetType,
             String methodName, int parameterCount) {
-        Method[] methods = targetType.getMethods();
-        for (Method method : methods) {
-            Class<?>[] parameterTypes = method.getParameterTypes();
-            if (method.getName().equals(methodName)
-                    && parameterTypes.length == parameterCount) {
-                return method;
-            }
+        // TODO currently only using method name and number of parameters as the
+        // signature
+        ServerRpcInvoker invoker = ServerRpcInvoker.get(targetType,
+                methodName, parameterCount);
+
+        if (invoker == null) {
+            throw new IllegalStateException("Can't find method " + methodName
+                    + " with " + parameterCount + " parameters in "
+                    + targetType.getName());
         }
-        return null;
+
+        return invoker;
     }
 
 }
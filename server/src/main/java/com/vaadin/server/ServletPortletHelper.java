@@ -153,6 +153,19 @@ public class ServletPortletHelper implements Serializable {
         return isPathInfo(request, ApplicationConstants.PUSH_PATH);
     }
 
+    /**
+     * Checks whether the given request is for a connector resource.
+     *
+     * @param request
+     *            the request to check
+     * @return <code>true</code> if the request is for a connector resource
+     * @since 8.14
+     */
+    public static boolean isConnectorResourceRequest(VaadinRequest request) {
+        return hasPathPrefix(request, ApplicationConstants.APP_PATH + '/'
+                + ConnectorResource.CONNECTOR_PATH + '/');
+    }
+
     public static void initDefaultUIProvider(VaadinSession session,
             VaadinService vaadinService) throws ServiceException {
         String uiProperty = vaadinService.getDeploymentConfiguration()
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+
+/**
+ * Statistics about waiting for and holding session locks, grouped by the type
+ * of request for which the lock was acquired. Only the outermost acquisition
+ * of a reentrant lock is counted. All times are in nanoseconds.
+ *
+ * @see SessionLockStrategy#getMetrics()
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ */
+public interface SessionLockMetrics extends Serializable {
+
+    /**
+     * The type of request for which a session lock is acquired.
+     */
+    enum RequestType {
+        /** A request containing server RPC from the client. */
+        UIDL,
+        /** A heartbeat request. */
+        HEARTBEAT,
+        /** A push connection request or message. */
+        PUSH,
+        /** A request for a connector resource. */
+        CONNECTOR_RESOURCE,
+        /** A file upload request. */
+        FILE_UPLOAD,
+        /** Any other request, e.g. a bootstrap request. */
+        OTHER,
+        /** Locking outside of a request, e.g. from a background thread. */
+        BACKGROUND;
+    }
+
+    /**
+     * Gets the number of times the lock has been acquired.
+     *
+     * @param type
+     *            the request type, not <code>null</code>
+     * @return the number of acquisitions
+     */
+    long getAcquisitionCount(RequestType type);
+
+    /**
+     * Gets the number of times the lock has been acquired after having to
+     * wait for another thread to release it.
+     *
+     * @param type
+     *            the request type, not <code>null</code>
+     * @return the number of contended acquisitions
+     */
+    long getContendedAcquisitionCount(RequestType type);
+
+    /**
+     * Gets the total time spent waiting for the lock.
+     *
+     * @param type
+     *            the request type, not <code>null</code>
+     * @return the total wait time in nanoseconds
+     */
+    long getTotalWaitTime(RequestType type);
+
+    /**
+     * Gets the longest time spent waiting for the lock.
+     *
+     * @param type
+     *            the request type, not <code>null</code>
+     * @return the maximum wait time in nanoseconds
+     */
+    long getMaxWaitTime(RequestType type);
+
+    /**
+     * Gets the total time the lock has been held.
+     *
+     * @param type
+     *            the request type, not <code>null</code>
+     * @return the total hold time in nanoseconds
+     */
+    long getTotalHoldTime(RequestType type);
+
+    /**
+     * Gets the longest time the lock has been held at once.
+     *
+     * @param type
+     *            the request type, not <code>null</code>
+     * @return the maximum hold time in nanoseconds
+     */
+    long getMaxHoldTime(RequestType type);
+}
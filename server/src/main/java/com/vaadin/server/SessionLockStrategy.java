@@ -0,0 +1,88 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Strategy for creating and acquiring the locks that protect access to
+ * {@link VaadinSession} instances. The strategy used by a service is created
+ * using {@link VaadinService#createSessionLockStrategy()}.
+ * <p>
+ * The framework uses {@link ReentrantLock#isHeldByCurrentThread()} to verify
+ * that the session is locked, so all session locks must be reentrant locks.
+ *
+ * @see MeteredSessionLockStrategy
+ * @see FairSessionLockStrategy
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ */
+public interface SessionLockStrategy extends Serializable {
+
+    /**
+     * Creates the lock to use for the given session. This is called once for
+     * each session, before the Vaadin session has been created.
+     *
+     * @param wrappedSession
+     *            the wrapped session to create a lock for, not
+     *            <code>null</code>
+     * @return the new lock, not <code>null</code>
+     */
+    ReentrantLock createLock(WrappedSession wrappedSession);
+
+    /**
+     * Acquires the given session lock when a request for the session is
+     * received. The default implementation waits until the lock is available.
+     *
+     * @param lock
+     *            the session lock to acquire, not <code>null</code>
+     * @throws SessionLockTimeoutException
+     *             if the strategy gives up waiting for the lock
+     */
+    default void lock(ReentrantLock lock) {
+        lock.lock();
+    }
+
+    /**
+     * Checks whether an existing session for the given request may be looked
+     * up without locking the session. This is only safe for requests whose
+     * handlers lock the session themselves before accessing any session state.
+     * The session is still looked up with the lock held if it has not yet been
+     * initialized for this service. The default implementation returns
+     * <code>false</code>.
+     *
+     * @param request
+     *            the request being handled, not <code>null</code>
+     * @return <code>true</code> if the session may be looked up without the
+     *         lock, <code>false</code> otherwise
+     */
+    default boolean isLockFreeLookupAllowed(VaadinRequest request) {
+        return false;
+    }
+
+    /**
+     * Gets the metrics collected for the locks created by this strategy.
+     *
+     * @return an optional with the lock metrics, or an empty optional if this
+     *         strategy does not collect metrics
+     */
+    default Optional<SessionLockMetrics> getMetrics() {
+        return Optional.empty();
+    }
+}
@@ -58,6 +58,11 @@ public class StreamResource implements ConnectorResource {
      */
     private long cacheTime = DownloadStream.DEFAULT_CACHETIME;
 
+    /**
+     * Version of the content, used as the entity tag.
+     */
+    private String version = null;
+
     /**
      * Creates a new stream resource for downloading from stream.
      *
@@ -144,6 +149,9 @@ public class StreamResource implements ConnectorResource {
                 getMIMEType(), getFilename());
         ds.setBufferSize(getBufferSize());
         ds.setCacheTime(getCacheTime());
+        if (version != null) {
+            ds.setETag("\"" + version + "\"");
+        }
         return ds;
     }
 
@@ -216,6 +224,36 @@ public class StreamResource implements ConnectorResource {
         this.cacheTime = cacheTime;
     }
 
+    /**
+     * Gets the version of the content of this resource.
+     *
+     * @return the version, or <code>null</code> if no version is set
+     * @since 8.14
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of the content of this resource. The version is sent
+     * to the client as a strong entity tag, which allows the browser to
+     * revalidate a cached copy without downloading the content again. The
+     * version must be changed whenever the stream source starts returning
+     * different content.
+     *
+     * @param version
+     *            the version to set, or <code>null</code> to not send an
+     *            entity tag
+     * @since 8.14
+     */
+    public void setVersion(String version) {
+        if (version != null && version.indexOf('"') >= 0) {
+            throw new IllegalArgumentException(
+                    "Version cannot contain quotes");
+        }
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
@@ -226,7 +264,8 @@ public class StreamResource implements ConnectorResource {
                     && SharedUtil.equals(mimeType, that.mimeType)
                     && SharedUtil.equals(getFilename(), that.getFilename())
                     && getBufferSize() == that.getBufferSize()
-                    && getCacheTime() == that.getCacheTime();
+                    && getCacheTime() == that.getCacheTime()
+                    && SharedUtil.equals(version, that.version);
         } else {
             return false;
         }
@@ -235,7 +274,7 @@ public class StreamResource implements ConnectorResource {
     @Override
     public int hashCode() {
         return Arrays.hashCode(new Object[] { getStreamSource(), mimeType,
-                getFilename(), getBufferSize(), getCacheTime() });
+                getFilename(), getBufferSize(), getCacheTime(), version });
     }
 
 }
@@ -38,13 +38,20 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
@@ -57,6 +64,7 @@ import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletResponse;
 
 import com.vaadin.annotations.PreserveOnRefresh;
+import com.vaadin.server.VaadinSession.CoalescedAccess;
 import com.vaadin.server.VaadinSession.FutureAccess;
 import com.vaadin.server.VaadinSession.State;
 import com.vaadin.server.communication.AtmospherePushConnection;
@@ -146,6 +154,19 @@ public abstract class VaadinService implements Serializable {
     private Iterable<RequestHandler> requestHandlers;
     private Iterable<DependencyFilter> dependencyFilters;
     private ConnectorIdGenerator connectorIdGenerator;
+    private SessionLockStrategy sessionLockStrategy;
+
+    /**
+     * Runs delayed tasks such as purges of access queues with batched access
+     * tasks and throttled pushes, created when first needed.
+     */
+    private transient volatile ScheduledExecutorService taskScheduler;
+
+    /**
+     * Purges access queues of sessions with batched access tasks when the
+     * batch latency has passed, created when first needed.
+     */
+    private transient volatile ExecutorService accessQueuePurger;
 
     private Boolean atmosphereAvailable = null;
 
@@ -238,6 +259,8 @@ public abstract class VaadinService implements Serializable {
                 event.getAddedConnectorIdGenerators());
         assert connectorIdGenerator != null;
 
+        sessionLockStrategy = createSessionLockStrategy();
+
         initialized = true;
     }
 
@@ -283,6 +306,30 @@ public abstract class VaadinService implements Serializable {
         return handlers;
     }
 
+    /**
+     * Called during initialization to create the strategy used for creating
+     * and acquiring session locks. The default implementation returns a
+     * {@link MeteredSessionLockStrategy}.
+     *
+     * @see #getSessionLockStrategy()
+     * @return the session lock strategy to use, not <code>null</code>
+     * @since 8.14
+     */
+    protected SessionLockStrategy createSessionLockStrategy() {
+        return new MeteredSessionLockStrategy();
+    }
+
+    /**
+     * Gets the strategy used for creating and acquiring session locks.
+     *
+     * @return the session lock strategy, or <code>null</code> if this service
+     *         has not been initialized
+     * @since 8.14
+     */
+    public SessionLockStrategy getSessionLockStrategy() {
+        return sessionLockStrategy;
+    }
+
     /**
      * Return the URL from where static files, e.g. the widgetset and the theme,
      * are served. In a standard configuration the VAADIN folder inside the
@@ -678,6 +725,9 @@ public abstract class VaadinService implements Serializable {
      * Locks the given session for this service instance. Typically you want to
      * call {@link VaadinSession#lock()} instead of this method.
      * <p>
+     * The lock is created and acquired using the
+     * {@link #getSessionLockStrategy() session lock strategy}.
+     * <p>
      * Note: The method and its signature has been changed to return lock 
      * instance in Vaadin 8.14.0. If you have overriden this method, you need
      * to update your implementation.
@@ -706,12 +756,18 @@ public abstract class VaadinService implements Serializable {
             synchronized (VaadinService.class) {
                 lock = getSessionLock(wrappedSession);
                 if (lock == null) {
-                    lock = new ReentrantLock();
+                    lock = sessionLockStrategy != null
+                            ? sessionLockStrategy.createLock(wrappedSession)
+                            : new ReentrantLock();
                     setSessionLock(wrappedSession, lock);
                 }
             }
         }
-        lock.lock();
+        if (sessionLockStrategy != null && lock instanceof ReentrantLock) {
+            sessionLockStrategy.lock((ReentrantLock) lock);
+        } else {
+            lock.lock();
+        }
 
         try {
             // Someone might have invalidated the session between fetching the
@@ -755,11 +811,22 @@ public abstract class VaadinService implements Serializable {
         WrappedSession wrappedSession = getWrappedSession(request,
                 requestCanCreateSession);
 
+        if (sessionLockStrategy != null
+                && sessionLockStrategy.isLockFreeLookupAllowed(request)) {
+            VaadinSession session = findInitializedSessionWithoutLock(request,
+                    wrappedSession);
+            if (session != null) {
+                return session;
+            }
+        }
+
         final Lock lock;
         try {
             lock = lockSession(wrappedSession);
         } catch (IllegalStateException e) {
             throw new SessionExpiredException();
+        } catch (SessionLockTimeoutException e) {
+            throw new ServiceException(e);
         }
 
         try {
@@ -771,6 +838,30 @@ public abstract class VaadinService implements Serializable {
 
     }
 
+    /**
+     * Finds an existing Vaadin session that has already been initialized for
+     * this service without locking the session. Returns <code>null</code> if
+     * the session must be looked up with the lock held.
+     */
+    private VaadinSession findInitializedSessionWithoutLock(
+            VaadinRequest request, WrappedSession wrappedSession) {
+        if (hasParameter(request, URL_PARAMETER_RESTART_APPLICATION)
+                || hasParameter(request, URL_PARAMETER_CLOSE_APPLICATION)) {
+            return null;
+        }
+        try {
+            VaadinSession session = readFromHttpSession(wrappedSession);
+            // Transient fields may only be refreshed with the lock held
+            if (session != null && session.getService() == this
+                    && session.getLockInstance() != null) {
+                return session;
+            }
+        } catch (IllegalStateException e) {
+            // Invalidated, let the locked lookup deal with it
+        }
+        return null;
+    }
+
     /**
      * Finds or creates a Vaadin session. Assumes necessary synchronization has
      * been done by the caller to ensure this is not called simultaneously by
@@ -2021,11 +2112,205 @@ public abstract class VaadinService implements Serializable {
     public Future<Void> accessSession(VaadinSession session,
             Runnable runnable) {
         FutureAccess future = new FutureAccess(session, runnable);
+        enqueueAccess(session, future);
+        return future;
+    }
+
+    /**
+     * Implementation for {@link VaadinSession#access(Object, Runnable)}. This
+     * method is implemented here instead of in {@link VaadinSession} to enable
+     * overriding the implementation without using a custom subclass of
+     * VaadinSession.
+     *
+     * @since 8.14
+     * @see VaadinSession#access(Object, Runnable)
+     *
+     * @param session
+     *            the vaadin session to access
+     * @param key
+     *            the key identifying tasks that replace each other, not
+     *            <code>null</code>
+     * @param runnable
+     *            the runnable to run with the session locked
+     *
+     * @return a future that can be used to check for task completion and to
+     *         cancel the task
+     */
+    public Future<Void> accessSession(VaadinSession session, Object key,
+            Runnable runnable) {
+        Objects.requireNonNull(key, "The key cannot be null");
+        AtomicBoolean created = new AtomicBoolean();
+        CoalescedAccess access = session.getCoalescedAccesses().compute(key,
+                (k, pending) -> {
+                    if (pending != null && pending.replace(runnable)) {
+                        return pending;
+                    }
+                    created.set(true);
+                    return new CoalescedAccess(session, k, runnable);
+                });
+
+        if (created.get()) {
+            try {
+                enqueueAccess(session, access.getFuture());
+            } catch (RejectedExecutionException e) {
+                // Later tasks with the same key must not replace this one
+                session.getCoalescedAccesses().remove(key, access);
+                access.getFuture().cancel(false);
+                throw e;
+            }
+        } else {
+            session.getAccessQueueMetrics().taskCoalesced();
+        }
+        return access.getFuture();
+    }
+
+    private void enqueueAccess(VaadinSession session, FutureAccess future) {
+        AccessQueueMetrics metrics = session.getAccessQueueMetrics();
+        int capacity = session.getAccessQueueCapacity();
+        boolean overflow = false;
+        if (capacity > 0 && metrics.getPendingTaskCount() >= capacity
+                && !session.hasLock()) {
+            switch (session.getAccessQueueOverflowPolicy()) {
+            case REJECT:
+                metrics.taskRejected();
+                throw new RejectedExecutionException(
+                        "The access queue of the session is full");
+            case DISCARD_OLDEST:
+                FutureAccess oldest = session.getPendingAccessQueue().poll();
+                if (oldest != null) {
+                    metrics.taskRemoved();
+                    metrics.taskRejected();
+                    oldest.cancel(false);
+                }
+                break;
+            case CALLER_RUNS:
+                overflow = true;
+                break;
+            }
+        }
+
         session.getPendingAccessQueue().add(future);
+        metrics.taskAdded();
 
-        ensureAccessQueuePurged(session);
+        if (overflow) {
+            // Block until the lock is available and purge the queue right away
+            verifyNoOtherSessionLocked(session);
+            session.lock();
+            session.unlock();
+            return;
+        }
 
-        return future;
+        long latency = session.getAccessBatchLatency();
+        if (latency > 0 && !session.hasLock()) {
+            scheduleAccessQueuePurge(session, latency);
+        } else {
+            ensureAccessQueuePurged(session);
+        }
+    }
+
+    /**
+     * Purges the access queue of the session after the given delay, unless a
+     * purge has already been scheduled.
+     */
+    private void scheduleAccessQueuePurge(VaadinSession session,
+            long latency) {
+        AtomicBoolean scheduled = session.getAccessDrainScheduled();
+        if (scheduled.compareAndSet(false, true)) {
+            // Purging runs the tasks, which must not delay other scheduled
+            // tasks
+            scheduleInBackground(() -> {
+                scheduled.set(false);
+                ensureAccessQueuePurged(session);
+            }, latency, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private ExecutorService getAccessQueuePurger() {
+        ExecutorService executor = accessQueuePurger;
+        if (executor == null) {
+            synchronized (this) {
+                executor = accessQueuePurger;
+                if (executor == null) {
+                    executor = Executors.newCachedThreadPool(runnable -> {
+                        Thread thread = new Thread(runnable,
+                                "Vaadin access queue purger");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    accessQueuePurger = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Runs the given task once after the given delay using a background thread
+     * shared by all sessions of this service. The task is run without holding
+     * any session lock and it should not block, since that would delay all
+     * other scheduled tasks. Tasks that have not yet been run when the service
+     * is destroyed are discarded.
+     * <p>
+     * FOR INTERNAL USE ONLY. May get renamed or removed.
+     *
+     * @param task
+     *            the task to run, not <code>null</code>
+     * @param delay
+     *            the delay after which to run the task
+     * @param unit
+     *            the unit of the delay, not <code>null</code>
+     * @return a future representing the scheduled task
+     * @since 8.14
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delay,
+            TimeUnit unit) {
+        return getTaskScheduler().schedule(task, delay, unit);
+    }
+
+    /**
+     * Runs the given task once after the given delay in a background thread
+     * that may block, e.g. to lock a session or to access it. The thread
+     * shared by all sessions only hands the task off when the delay has
+     * passed, so that a session that is locked or busy does not delay the
+     * scheduled tasks of other sessions. Tasks that have not yet been run when
+     * the service is destroyed are discarded.
+     * <p>
+     * FOR INTERNAL USE ONLY. May get renamed or removed.
+     *
+     * @param task
+     *            the task to run, not <code>null</code>
+     * @param delay
+     *            the delay after which to run the task
+     * @param unit
+     *            the unit of the delay, not <code>null</code>
+     * @return a future representing the scheduled hand-off of the task
+     * @since 8.14
+     */
+    public ScheduledFuture<?> scheduleInBackground(Runnable task, long delay,
+            TimeUnit unit) {
+        Objects.requireNonNull(task, "The task cannot be null");
+        return getTaskScheduler().schedule(
+                () -> getAccessQueuePurger().execute(task), delay, unit);
+    }
+
+    private ScheduledExecutorService getTaskScheduler() {
+        ScheduledExecutorService scheduler = taskScheduler;
+        if (scheduler == null) {
+            synchronized (this) {
+                scheduler = taskScheduler;
+                if (scheduler == null) {
+                    scheduler = Executors.newSingleThreadScheduledExecutor(
+                            runnable -> {
+                                Thread thread = new Thread(runnable,
+                                        "Vaadin task scheduler");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+                    taskScheduler = scheduler;
+                }
+            }
+        }
+        return scheduler;
     }
 
     /**
@@ -2082,6 +2367,12 @@ public abstract class VaadinService implements Serializable {
             return;
         }
 
+        FutureAccess oldestAccess = session.getPendingAccessQueue().peek();
+        if (oldestAccess != null) {
+            session.getAccessQueueMetrics().drained(
+                    System.nanoTime() - oldestAccess.getCreationTime());
+        }
+
         FutureAccess pendingAccess;
 
         // Dump all current instances, not only the ones dumped by setCurrent
@@ -2091,6 +2382,7 @@ public abstract class VaadinService implements Serializable {
         try {
             while ((pendingAccess = session.getPendingAccessQueue()
                     .poll()) != null) {
+                session.getAccessQueueMetrics().taskRemoved();
                 if (!pendingAccess.isCancelled()) {
                     pendingAccess.run();
 
@@ -2167,6 +2459,15 @@ public abstract class VaadinService implements Serializable {
         ServiceDestroyEvent event = new ServiceDestroyEvent(this);
         serviceDestroyListeners
                 .forEach(listener -> listener.serviceDestroy(event));
+
+        ScheduledExecutorService scheduler = taskScheduler;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        ExecutorService purger = accessQueuePurger;
+        if (purger != null) {
+            purger.shutdownNow();
+        }
     }
 
     /**
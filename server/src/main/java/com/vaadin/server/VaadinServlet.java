@@ -18,6 +18,7 @@ package com.vaadin.server;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -36,6 +37,9 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
@@ -44,6 +48,7 @@ import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -54,6 +59,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -73,6 +80,7 @@ import com.vaadin.shared.ApplicationConstants;
 import com.vaadin.shared.JsonConstants;
 import com.vaadin.shared.Version;
 import com.vaadin.ui.UI;
+import com.vaadin.util.AcceptEncodingUtil;
 import com.vaadin.util.CurrentInstance;
 
 import elemental.json.Json;
@@ -196,6 +204,107 @@ public class VaadinServlet extends HttpServlet implements Constants {
 
     }
 
+    /**
+     * A static resource, or a precompressed variant of one, that has been
+     * resolved once and is served from memory or directly from the file
+     * system on subsequent requests. Resources that are too large to keep in
+     * memory only have their modification timestamp cached, and are streamed
+     * from their URL.
+     */
+    private static class StaticResourceCacheEntry implements Serializable {
+
+        private final boolean exists;
+        private final byte[] content;
+        private final File file;
+        private final long contentLength;
+        private final long lastModified;
+
+        private StaticResourceCacheEntry(boolean exists, byte[] content,
+                File file, long contentLength, long lastModified) {
+            this.exists = exists;
+            this.content = content;
+            this.file = file;
+            this.contentLength = contentLength;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Creates an entry recording that a resource does not exist.
+         */
+        static StaticResourceCacheEntry missing() {
+            return new StaticResourceCacheEntry(false, null, null, -1, 0);
+        }
+
+        /**
+         * Creates an entry recording that a resource exists but is too large
+         * to keep in memory.
+         */
+        static StaticResourceCacheEntry uncached(long lastModified) {
+            return new StaticResourceCacheEntry(true, null, null, -1,
+                    lastModified);
+        }
+
+        boolean exists() {
+            return exists;
+        }
+
+        /**
+         * Checks whether the content of the resource can be written from this
+         * entry using {@link #write(HttpServletResponse)}.
+         */
+        boolean isCached() {
+            return content != null || file != null;
+        }
+
+        long getLastModified() {
+            return lastModified;
+        }
+
+        void write(HttpServletResponse response) throws IOException {
+            if (contentLength <= Integer.MAX_VALUE) {
+                response.setContentLength((int) contentLength);
+            } else {
+                response.setHeader("Content-Length",
+                        String.valueOf(contentLength));
+            }
+
+            OutputStream os = response.getOutputStream();
+            if (content != null) {
+                os.write(content);
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(os);
+                long position = 0;
+                while (position < contentLength) {
+                    long transferred = channel.transferTo(position,
+                            contentLength - position, target);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                }
+            }
+        }
+    }
+
+    /**
+     * Resources larger than this are not kept in memory by the static resource
+     * cache unless they can be served directly from the file system.
+     */
+    private static final int MAX_IN_MEMORY_STATIC_RESOURCE_SIZE = 4 * 1024
+            * 1024;
+
+    /**
+     * Cache of static resources and their precompressed variants, keyed by the
+     * resolved resource URL. Only used in production mode, where the resources
+     * are not expected to change while the application is running. Also
+     * contains entries for variants that do not exist, so that they are not
+     * looked up again.
+     */
+    private final ConcurrentMap<String, StaticResourceCacheEntry> staticResourceCache = new ConcurrentHashMap<>();
+
     private VaadinServletService servletService;
 
     /**
@@ -885,8 +994,14 @@ public class VaadinServlet extends HttpServlet implements Constants {
         long lastModifiedTime = 0;
         URLConnection connection = null;
         try {
-            connection = resourceUrl.openConnection();
-            lastModifiedTime = connection.getLastModified();
+            StaticResourceCacheEntry cacheEntry = getCachedStaticResource(
+                    resourceUrl);
+            if (cacheEntry != null && cacheEntry.exists()) {
+                lastModifiedTime = cacheEntry.getLastModified();
+            } else {
+                connection = resourceUrl.openConnection();
+                lastModifiedTime = connection.getLastModified();
+            }
             // Remove milliseconds to avoid comparison problems (milliseconds
             // are not returned by the browser in the "If-Modified-Since"
             // header).
@@ -907,9 +1022,11 @@ public class VaadinServlet extends HttpServlet implements Constants {
                 // Explicitly close the input stream to prevent it
                 // from remaining hanging
                 // http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=4257700
-                InputStream is = connection.getInputStream();
-                if (is != null) {
-                    is.close();
+                if (connection != null) {
+                    InputStream is = connection.getInputStream();
+                    if (is != null) {
+                        is.close();
+                    }
                 }
             } catch (FileNotFoundException e) {
                 // Not logging when the file does not exist.
@@ -971,6 +1088,11 @@ public class VaadinServlet extends HttpServlet implements Constants {
      * implementation which is used for setting the content length relies on
      * {@link URLConnection#getContentLength()} method which returns incorrect
      * values for directories.
+     * <p>
+     * In production mode, the resource and its precompressed variants are
+     * cached after the first request. Small resources are then served from
+     * memory and resources on the file system are transferred directly from
+     * the file.
      *
      * @param request
      *            The request for the resource
@@ -988,20 +1110,33 @@ public class VaadinServlet extends HttpServlet implements Constants {
         InputStream is = null;
         String urlStr = resourceUrl.toExternalForm();
 
+        if (writeCachedStaticResourceResponse(request, response,
+                resourceUrl)) {
+            return;
+        }
+
         if (allowServePrecompressedResource(request, urlStr)) {
             // try to serve a precompressed version if available
-            try {
-                connection = new URL(urlStr + ".gz").openConnection();
-                is = connection.getInputStream();
-                // set gzip headers
-                response.setHeader("Content-Encoding", "gzip");
-            } catch (IOException e) {
-                // NOP: will be still tried with non gzipped version
-            } catch (Exception e) {
-                getLogger().log(Level.FINE,
-                        "Unexpected exception looking for gzipped version of resource "
-                                + urlStr,
-                        e);
+            boolean brotliAllowed = getService().getDeploymentConfiguration()
+                    .isProductionMode();
+            for (String encoding : getPrecompressedEncodings(request,
+                    brotliAllowed)) {
+                try {
+                    connection = new URL(
+                            urlStr + getPrecompressedSuffix(encoding))
+                                    .openConnection();
+                    is = connection.getInputStream();
+                    // set compression headers
+                    response.setHeader("Content-Encoding", encoding);
+                    break;
+                } catch (IOException e) {
+                    // NOP: will be still tried with non compressed version
+                } catch (Exception e) {
+                    getLogger().log(Level.FINE,
+                            "Unexpected exception looking for compressed version of resource "
+                                    + urlStr,
+                            e);
+                }
             }
         }
         if (is == null) {
@@ -1034,13 +1169,157 @@ public class VaadinServlet extends HttpServlet implements Constants {
         }
     }
 
+    /**
+     * Writes a static resource using the static resource cache, preferring a
+     * precompressed variant that the client accepts.
+     *
+     * @return <code>true</code> if the response was written,
+     *         <code>false</code> if the resource is not cacheable and should
+     *         be streamed from the URL instead
+     */
+    private boolean writeCachedStaticResourceResponse(
+            HttpServletRequest request, HttpServletResponse response,
+            URL resourceUrl) throws IOException {
+        if (!getService().getDeploymentConfiguration().isProductionMode()) {
+            return false;
+        }
+        String urlStr = resourceUrl.toExternalForm();
+        if (allowServePrecompressedResource(request, urlStr)) {
+            for (String encoding : getPrecompressedEncodings(request, true)) {
+                String variantUrl = urlStr + getPrecompressedSuffix(encoding);
+                StaticResourceCacheEntry entry;
+                try {
+                    // Resolved with the same URL handler as the resource
+                    entry = getCachedStaticResource(
+                            new URL(resourceUrl, variantUrl));
+                } catch (IOException e) {
+                    // Some URL handlers report a missing resource with other
+                    // exceptions than FileNotFoundException, so handle it
+                    // like the uncached path and use the non compressed
+                    // version
+                    entry = StaticResourceCacheEntry.missing();
+                    staticResourceCache.putIfAbsent(variantUrl, entry);
+                }
+                if (entry.exists()) {
+                    if (!entry.isCached()) {
+                        return false;
+                    }
+                    response.setHeader("Content-Encoding", encoding);
+                    entry.write(response);
+                    return true;
+                }
+            }
+        }
+
+        StaticResourceCacheEntry entry = getCachedStaticResource(resourceUrl);
+        if (!entry.exists()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return true;
+        }
+        if (!entry.isCached()) {
+            return false;
+        }
+        entry.write(response);
+        return true;
+    }
+
+    /**
+     * Gets the static resource cache entry for the given URL, loading it if
+     * it has not been requested before.
+     *
+     * @return the cache entry, or <code>null</code> if not in production mode
+     */
+    private StaticResourceCacheEntry getCachedStaticResource(URL url)
+            throws IOException {
+        if (!getService().getDeploymentConfiguration().isProductionMode()) {
+            return null;
+        }
+        String key = url.toExternalForm();
+        StaticResourceCacheEntry entry = staticResourceCache.get(key);
+        if (entry == null) {
+            entry = loadStaticResource(url);
+            staticResourceCache.putIfAbsent(key, entry);
+        }
+        return entry;
+    }
+
+    private static StaticResourceCacheEntry loadStaticResource(URL url)
+            throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                File file = new File(url.toURI());
+                if (!file.isFile()) {
+                    return StaticResourceCacheEntry.missing();
+                }
+                return new StaticResourceCacheEntry(true, null, file,
+                        file.length(), file.lastModified());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // Not a plain file, read through the URL connection instead
+            }
+        }
+
+        URLConnection connection = url.openConnection();
+        try (InputStream is = connection.getInputStream()) {
+            long lastModified = connection.getLastModified();
+            if (connection
+                    .getContentLength() > MAX_IN_MEMORY_STATIC_RESOURCE_SIZE) {
+                return StaticResourceCacheEntry.uncached(lastModified);
+            }
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+            int bytes;
+            while ((bytes = is.read(buffer)) >= 0) {
+                content.write(buffer, 0, bytes);
+                if (content.size() > MAX_IN_MEMORY_STATIC_RESOURCE_SIZE) {
+                    // Length not known in advance, only read once
+                    return StaticResourceCacheEntry.uncached(lastModified);
+                }
+            }
+            return new StaticResourceCacheEntry(true, content.toByteArray(),
+                    null, content.size(), lastModified);
+        } catch (FileNotFoundException e) {
+            return StaticResourceCacheEntry.missing();
+        }
+    }
+
+    /**
+     * Gets the content encodings of precompressed resources to try, in order
+     * of preference. The gzip variant is always included since
+     * {@link #allowServePrecompressedResource(HttpServletRequest, String)}
+     * decides whether it may be served. The brotli variant is included if
+     * allowed and accepted by the client, before gzip unless the client
+     * prefers gzip.
+     */
+    private static List<String> getPrecompressedEncodings(
+            HttpServletRequest request, boolean brotliAllowed) {
+        List<String> encodings = new ArrayList<>(2);
+        encodings.add("gzip");
+        if (brotliAllowed) {
+            String accept = request.getHeader("Accept-Encoding");
+            double brotliQuality = AcceptEncodingUtil.getQuality(accept, "br");
+            if (brotliQuality > 0) {
+                if (brotliQuality >= AcceptEncodingUtil.getQuality(accept,
+                        "gzip")) {
+                    encodings.add(0, "br");
+                } else {
+                    encodings.add("br");
+                }
+            }
+        }
+        return encodings;
+    }
+
+    private static String getPrecompressedSuffix(String encoding) {
+        return "br".equals(encoding) ? ".br" : ".gz";
+    }
+
     /**
      * Returns whether this servlet should attempt to serve a precompressed
      * version of the given static resource. If this method returns true, the
      * suffix {@code .gz} is appended to the URL and the corresponding resource
-     * is served if it exists. It is assumed that the compression method used is
-     * gzip. If this method returns false or a compressed version is not found,
-     * the original URL is used.
+     * is served if it exists. In production mode, a {@code .br} variant is
+     * tried as well if the client accepts brotli. If this method returns false
+     * or a compressed version is not found, the original URL is used.
      *
      * The base implementation of this method returns true if and only if the
      * request indicates that the client accepts gzip compressed responses and
@@ -1058,8 +1337,9 @@ public class VaadinServlet extends HttpServlet implements Constants {
     protected boolean allowServePrecompressedResource(
             HttpServletRequest request, String url) {
         String accept = request.getHeader("Accept-Encoding");
-        return accept != null && accept.contains("gzip") && (url.endsWith(".js")
-                || url.endsWith(".css") || url.endsWith(".html"));
+        return AcceptEncodingUtil.isAccepted(accept, "gzip")
+                && (url.endsWith(".js") || url.endsWith(".css")
+                        || url.endsWith(".html"));
     }
 
     private void streamContent(HttpServletResponse response, InputStream is)
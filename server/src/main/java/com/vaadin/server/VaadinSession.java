@@ -33,10 +33,14 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
@@ -81,6 +85,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
     public static class FutureAccess extends FutureTask<Void> {
         private final VaadinSession session;
         private final Runnable runnable;
+        private final long creationTime = System.nanoTime();
 
         /**
          * Creates an instance for the given runnable.
@@ -142,6 +147,117 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
                 getLogger().log(Level.SEVERE, e.getMessage(), e);
             }
         }
+
+        long getCreationTime() {
+            return creationTime;
+        }
+
+        @Override
+        protected void done() {
+            if (runnable instanceof CoalescedAccess) {
+                // Also when cancelled, so that the key does not keep the task
+                // and anything it refers to in the session
+                ((CoalescedAccess) runnable).forget();
+            }
+        }
+    }
+
+    /**
+     * The runnable of a task submitted using
+     * {@link VaadinSession#access(Object, Runnable)}. Runs the latest runnable
+     * submitted with the same key before the task was started.
+     */
+    static class CoalescedAccess implements ErrorHandlingRunnable {
+        private final VaadinSession session;
+        private final Object key;
+        private final AtomicReference<Runnable> latest;
+        private final FutureAccess future;
+        private Runnable current;
+
+        CoalescedAccess(VaadinSession session, Object key, Runnable runnable) {
+            this.session = session;
+            this.key = key;
+            latest = new AtomicReference<>(runnable);
+            future = new FutureAccess(session, this);
+        }
+
+        /**
+         * Replaces the runnable to run if this task has not yet been started.
+         *
+         * @return <code>true</code> if the runnable was replaced,
+         *         <code>false</code> if the task has already been started or
+         *         cancelled
+         */
+        boolean replace(Runnable runnable) {
+            if (future.isDone()) {
+                return false;
+            }
+            Runnable previous;
+            do {
+                previous = latest.get();
+                if (previous == null) {
+                    return false;
+                }
+            } while (!latest.compareAndSet(previous, runnable));
+            return true;
+        }
+
+        FutureAccess getFuture() {
+            return future;
+        }
+
+        /**
+         * Removes this task from the pending tasks of its key, so that later
+         * tasks with the same key do not replace this one anymore.
+         */
+        void forget() {
+            session.coalescedAccesses.remove(key, this);
+        }
+
+        @Override
+        public void run() {
+            forget();
+            current = latest.getAndSet(null);
+            if (current != null) {
+                current.run();
+            }
+        }
+
+        @Override
+        public void handleError(Exception exception) {
+            Exception remaining = ErrorHandlingRunnable.processException(
+                    current, exception);
+            if (remaining instanceof RuntimeException) {
+                throw (RuntimeException) remaining;
+            } else if (remaining != null) {
+                throw new RuntimeException(remaining);
+            }
+        }
+    }
+
+    /**
+     * Defines what happens when a task is submitted using
+     * {@link VaadinSession#access(Runnable)} while the access queue is full.
+     *
+     * @see VaadinSession#setAccessQueueCapacity(int)
+     * @since 8.14
+     */
+    public enum AccessQueueOverflowPolicy {
+        /**
+         * The task is rejected with a
+         * {@link java.util.concurrent.RejectedExecutionException}.
+         */
+        REJECT,
+        /**
+         * The oldest pending task is cancelled and removed from the queue to
+         * make room for the new task.
+         */
+        DISCARD_OLDEST,
+        /**
+         * The submitting thread waits for the session lock and runs the queued
+         * tasks itself, which slows down the producer of the tasks.
+         */
+        CALLER_RUNS;
     }
 
     /**
@@ -250,6 +366,18 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     private transient ConcurrentLinkedQueue<FutureAccess> pendingAccessQueue = new ConcurrentLinkedQueue<>();
 
+    private transient ConcurrentMap<Object, CoalescedAccess> coalescedAccesses = new ConcurrentHashMap<>();
+
+    private transient AccessQueueMetrics accessQueueMetrics = new AccessQueueMetrics();
+
+    private transient AtomicBoolean accessDrainScheduled = new AtomicBoolean();
+
+    private volatile int accessQueueCapacity = 0;
+
+    private volatile AccessQueueOverflowPolicy accessQueueOverflowPolicy = AccessQueueOverflowPolicy.CALLER_RUNS;
+
+    private volatile long accessBatchLatency = 0;
+
     /**
      * Creates a new VaadinSession tied to a VaadinService.
      *
@@ -1421,6 +1549,150 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         return getService().accessSession(this, runnable);
     }
 
+    /**
+     * Provides exclusive access to this session from outside a request handling
+     * thread, coalescing tasks with the same key.
+     * <p>
+     * Works like {@link #access(Runnable)}, except that if a task submitted
+     * with an equal key has not yet been started, its runnable is replaced by
+     * the given runnable instead of adding a new task to the queue. Only the
+     * latest runnable submitted for a key is run. This is useful for tasks that
+     * replace the previously shown state, such as showing the latest value of
+     * a frequently updated data feed.
+     * <p>
+     * The returned future is shared by all coalesced submissions and completes
+     * when the latest runnable has been run. Cancelling it cancels the
+     * coalesced task.
+     *
+     * @see #access(Runnable)
+     * @see UI#access(Object, Runnable)
+     *
+     * @since 8.14
+     *
+     * @param key
+     *            the key identifying tasks that replace each other, not
+     *            <code>null</code>
+     * @param runnable
+     *            the runnable which accesses the session
+     * @return a future that can be used to check for task completion and to
+     *         cancel the task
+     */
+    public Future<Void> access(Object key, Runnable runnable) {
+        return getService().accessSession(this, key, runnable);
+    }
+
+    /**
+     * Sets the maximum number of tasks submitted using
+     * {@link #access(Runnable)} that may be waiting in the access queue. When
+     * the queue is full, new tasks are handled according to the
+     * {@link #setAccessQueueOverflowPolicy(AccessQueueOverflowPolicy)
+     * overflow policy}. The capacity is not enforced for tasks submitted by the
+     * thread holding the session lock, since the queue is purged when that
+     * thread releases the lock.
+     * <p>
+     * The default capacity is 0, which means that the queue is unbounded.
+     *
+     * @since 8.14
+     * @param capacity
+     *            the maximum number of pending tasks, or 0 for no limit
+     */
+    public void setAccessQueueCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException(
+                    "Capacity cannot be negative");
+        }
+        accessQueueCapacity = capacity;
+    }
+
+    /**
+     * Gets the maximum number of tasks that may be waiting in the access
+     * queue.
+     *
+     * @since 8.14
+     * @return the maximum number of pending tasks, or 0 if there is no limit
+     */
+    public int getAccessQueueCapacity() {
+        return accessQueueCapacity;
+    }
+
+    /**
+     * Sets what happens to new tasks when the access queue is full. The
+     * default is {@link AccessQueueOverflowPolicy#CALLER_RUNS}.
+     *
+     * @since 8.14
+     * @param policy
+     *            the overflow policy, not <code>null</code>
+     */
+    public void setAccessQueueOverflowPolicy(AccessQueueOverflowPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Policy cannot be null");
+        }
+        accessQueueOverflowPolicy = policy;
+    }
+
+    /**
+     * Gets what happens to new tasks when the access queue is full.
+     *
+     * @since 8.14
+     * @return the overflow policy, not <code>null</code>
+     */
+    public AccessQueueOverflowPolicy getAccessQueueOverflowPolicy() {
+        return accessQueueOverflowPolicy;
+    }
+
+    /**
+     * Sets the maximum time a task submitted using {@link #access(Runnable)}
+     * may wait in the queue before the queue is purged. With a positive value,
+     * the queue is not purged right away when a task is submitted, but tasks
+     * submitted within the given time are collected and run in one batch,
+     * followed by a single push for UIs using automatic push mode. The queue is
+     * still purged right away whenever the session lock is released.
+     * <p>
+     * The default is 0, which purges the queue right away.
+     *
+     * @since 8.14
+     * @param latency
+     *            the maximum latency in milliseconds, or 0 to not batch tasks
+     */
+    public void setAccessBatchLatency(long latency) {
+        if (latency < 0) {
+            throw new IllegalArgumentException("Latency cannot be negative");
+        }
+        accessBatchLatency = latency;
+    }
+
+    /**
+     * Gets the maximum time a task may wait in the access queue before the
+     * queue is purged.
+     *
+     * @since 8.14
+     * @return the maximum latency in milliseconds, or 0 if tasks are not
+     *         batched
+     */
+    public long getAccessBatchLatency() {
+        return accessBatchLatency;
+    }
+
+    /**
+     * Gets the metrics for tasks submitted to this session using
+     * {@link #access(Runnable)}. It is safe to call this method without
+     * holding the {@link #lock() session lock}.
+     *
+     * @since 8.14
+     * @return the access queue metrics, not <code>null</code>
+     */
+    public AccessQueueMetrics getAccessQueueMetrics() {
+        return accessQueueMetrics;
+    }
+
+    ConcurrentMap<Object, CoalescedAccess> getCoalescedAccesses() {
+        return coalescedAccesses;
+    }
+
+    AtomicBoolean getAccessDrainScheduled() {
+        return accessDrainScheduled;
+    }
+
     /**
      * Gets the queue of tasks submitted using {@link #access(Runnable)}. It is
      * safe to call this method and access the returned queue without holding
@@ -1469,6 +1741,9 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         try {
             stream.defaultReadObject();
             pendingAccessQueue = new ConcurrentLinkedQueue<>();
+            coalescedAccesses = new ConcurrentHashMap<>();
+            accessQueueMetrics = new AccessQueueMetrics();
+            accessDrainScheduled = new AtomicBoolean();
         } finally {
             CurrentInstance.restoreInstances(old);
         }
@@ -22,7 +22,8 @@ import java.io.Reader;
 import java.io.Serializable;
 import java.io.StringReader;
 import java.io.StringWriter;
-import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -35,8 +36,10 @@ import org.atmosphere.cpr.AtmosphereResource;
 import org.atmosphere.cpr.AtmosphereResource.TRANSPORT;
 import org.atmosphere.util.Version;
 
+import com.vaadin.server.VaadinSession;
 import com.vaadin.shared.communication.PushConstants;
 import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
 
 /**
  * A {@link PushConnection} implementation using the Atmosphere push support
@@ -61,23 +64,32 @@ public class AtmospherePushConnection implements PushConnection {
      * Represents a message that can arrive as multiple fragments.
      */
     protected static class FragmentedMessage implements Serializable {
-        private final StringBuilder message = new StringBuilder();
+        /*
+         * Upper limit for reserving space up front based on the length
+         * announced by the client, larger messages grow as fragments arrive.
+         */
+        private static final int MAX_PREALLOCATED_LENGTH = 64 * 1024;
+
+        private final StringBuilder message;
         private final int messageLength;
+        private transient char[] buffer;
 
         public FragmentedMessage(Reader reader) throws IOException {
             // Messages are prefixed by the total message length plus a
             // delimiter
-            String length = "";
+            StringBuilder length = new StringBuilder();
             int c;
             while ((c = reader.read()) != -1
                     && c != PushConstants.MESSAGE_DELIMITER) {
-                length += (char) c;
+                length.append((char) c);
             }
             try {
-                messageLength = Integer.parseInt(length);
+                messageLength = Integer.parseInt(length.toString());
             } catch (NumberFormatException e) {
                 throw new IOException("Invalid message length " + length, e);
             }
+            message = new StringBuilder(Math.max(0,
+                    Math.min(messageLength, MAX_PREALLOCATED_LENGTH)));
         }
 
         /**
@@ -90,7 +102,9 @@ public class AtmospherePushConnection implements PushConnection {
          * @throws IOException
          */
         public boolean append(Reader reader) throws IOException {
-            char[] buffer = new char[PushConstants.WEBSOCKET_BUFFER_SIZE];
+            if (buffer == null) {
+                buffer = new char[PushConstants.WEBSOCKET_BUFFER_SIZE];
+            }
             int read;
             while ((read = reader.read(buffer)) != -1) {
                 message.append(buffer, 0, read);
@@ -100,8 +114,68 @@ public class AtmospherePushConnection implements PushConnection {
             return message.length() == messageLength;
         }
 
+        /**
+         * Returns a reader for the received message. The reader reads directly
+         * from the buffered fragments without copying them.
+         *
+         * @return a reader for the message, not <code>null</code>
+         */
         public Reader getReader() {
-            return new StringReader(message.toString());
+            return new CharSequenceReader(message);
+        }
+
+        /**
+         * Returns the number of characters received so far.
+         *
+         * @return the length of the received part of the message
+         * @since 8.14
+         */
+        public int getLength() {
+            return message.length();
+        }
+    }
+
+    /**
+     * A reader for a character sequence which, unlike {@link StringReader},
+     * does not need the characters to first be copied into a string.
+     */
+    private static class CharSequenceReader extends Reader {
+        private final CharSequence chars;
+        private int position = 0;
+
+        private CharSequenceReader(CharSequence chars) {
+            this.chars = chars;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (position >= chars.length()) {
+                return -1;
+            }
+            int count = Math.min(len, chars.length() - position);
+            if (chars instanceof StringBuilder) {
+                ((StringBuilder) chars).getChars(position, position + count,
+                        cbuf, off);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    cbuf[off + i] = chars.charAt(position + i);
+                }
+            }
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int read() {
+            if (position >= chars.length()) {
+                return -1;
+            }
+            return chars.charAt(position++);
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release
         }
     }
 
@@ -131,11 +205,34 @@ public class AtmospherePushConnection implements PushConnection {
         CONNECTED;
     }
 
+    /*
+     * Serialization buffers shared by all connections. Each push is written
+     * into a buffer taken from the pool and only the final message is copied
+     * into a string, after which the buffer is returned to the pool unless it
+     * has grown very large.
+     */
+    private static final int MESSAGE_BUFFER_POOL_SIZE = 16;
+    private static final int MAX_POOLED_MESSAGE_BUFFER_SIZE = 256 * 1024;
+    private static final BlockingQueue<StringWriter> MESSAGE_BUFFER_POOL = new ArrayBlockingQueue<>(
+            MESSAGE_BUFFER_POOL_SIZE);
+
     private final UI ui;
     private transient State state = State.DISCONNECTED;
     private transient AtmosphereResource resource;
     private transient FragmentedMessage incomingMessage;
     private transient Future<Object> outgoingMessage;
+    private transient long lastMessageTime;
+    // Reset by the deferred push or if it cannot be run
+    private transient volatile boolean deferredPushScheduled;
+    private transient volatile Future<Void> deferredPushAccess;
+    // Only updated with the session locked, but may be read by any thread
+    private transient volatile long sentMessageCount;
+    private transient volatile long coalescedPushCount;
+    private transient volatile long totalSentMessageLength;
+    private transient volatile int maxSentMessageLength;
+    private transient volatile long receivedMessageCount;
+    private transient volatile long totalReceivedMessageLength;
+    private transient volatile int maxReceivedMessageLength;
 
     public AtmospherePushConnection(UI ui) {
         this.ui = ui;
@@ -162,17 +259,192 @@ public class AtmospherePushConnection implements PushConnection {
             } else {
                 state = State.RESPONSE_PENDING;
             }
+        } else if (async && deferIfThrottled()) {
+            coalescedPushCount++;
         } else {
+            StringWriter writer = MESSAGE_BUFFER_POOL.poll();
+            if (writer == null) {
+                writer = new StringWriter(
+                        PushConstants.WEBSOCKET_BUFFER_SIZE);
+            }
             try {
-                Writer writer = new StringWriter();
+                writer.write("for(;;);[{");
                 new UidlWriter().write(getUI(), writer, async);
-                sendMessage("for(;;);[{" + writer + "}]");
+                writer.write("}]");
+                String message = writer.toString();
+                sendMessage(message);
+                messageSent(message.length());
             } catch (Exception e) {
                 throw new RuntimeException("Push failed", e);
+            } finally {
+                StringBuffer buffer = writer.getBuffer();
+                if (buffer.capacity() <= MAX_POOLED_MESSAGE_BUFFER_SIZE) {
+                    buffer.setLength(0);
+                    MESSAGE_BUFFER_POOL.offer(writer);
+                }
+            }
+        }
+    }
+
+    private void messageSent(int length) {
+        lastMessageTime = System.nanoTime();
+        sentMessageCount++;
+        totalSentMessageLength += length;
+        maxSentMessageLength = Math.max(maxSentMessageLength, length);
+    }
+
+    /**
+     * Checks whether a push should be deferred because of the minimum push
+     * interval and schedules a deferred push if needed.
+     *
+     * @return <code>true</code> if the push was deferred, <code>false</code>
+     *         if it should be sent right away
+     */
+    private boolean deferIfThrottled() {
+        long minInterval = TimeUnit.MILLISECONDS
+                .toNanos(getUI().getPushConfiguration().getMinPushInterval());
+        if (minInterval <= 0 || sentMessageCount == 0) {
+            return false;
+        }
+        long delay = lastMessageTime + minInterval - System.nanoTime();
+        if (delay <= 0) {
+            if (outgoingMessage == null || outgoingMessage.isDone()) {
+                return false;
+            }
+            // Previous message still being written, check again later
+            delay = minInterval;
+        }
+        if (!deferredPushScheduled || isDeferredPushCancelled()) {
+            VaadinSession session = getUI().getSession();
+            if (session == null) {
+                return false;
+            }
+            deferredPushScheduled = true;
+            deferredPushAccess = null;
+            // Accessing the UI may lock the session and push, which must not
+            // happen on the scheduler thread shared by all sessions
+            session.getService().scheduleInBackground(this::pushDeferred,
+                    delay, TimeUnit.NANOSECONDS);
+        }
+        return true;
+    }
+
+    private void pushDeferred() {
+        boolean queued = false;
+        try {
+            deferredPushAccess = getUI().access(() -> {
+                deferredPushScheduled = false;
+                if (getUI().getPushConnection() == this && isConnected()
+                        && getUI().getConnectorTracker().hasDirtyConnectors()) {
+                    push(true);
+                }
+            });
+            queued = true;
+        } catch (UIDetachedException e) {
+            // Nothing to push to
+        } finally {
+            if (!queued) {
+                // E.g. rejected by a full access queue, so the next push must
+                // schedule a new deferred push
+                deferredPushScheduled = false;
             }
         }
     }
 
+    /**
+     * Checks whether the access task of the scheduled deferred push has been
+     * cancelled, e.g. discarded from a full access queue, so that it will
+     * never reset {@link #deferredPushScheduled}.
+     */
+    private boolean isDeferredPushCancelled() {
+        Future<Void> access = deferredPushAccess;
+        return access != null && access.isCancelled();
+    }
+
+    /**
+     * Returns the number of messages sent through this connection, including
+     * both asynchronous pushes and responses to client requests.
+     *
+     * @return the number of sent messages
+     * @since 8.14
+     */
+    public long getSentMessageCount() {
+        return sentMessageCount;
+    }
+
+    /**
+     * Returns the number of asynchronous pushes that were deferred because of
+     * the {@link com.vaadin.ui.PushConfiguration#setMinPushInterval(int)
+     * minimum push interval} and merged into a later message instead of being
+     * sent separately.
+     *
+     * @return the number of coalesced pushes
+     * @since 8.14
+     */
+    public long getCoalescedPushCount() {
+        return coalescedPushCount;
+    }
+
+    /**
+     * Returns the total length, in characters, of all messages sent through
+     * this connection. Together with {@link #getSentMessageCount()}, this
+     * gives the average size of the messages. The length is measured before
+     * any websocket compression done by the servlet container.
+     *
+     * @return the total length of sent messages
+     * @since 8.14
+     */
+    public long getTotalSentMessageLength() {
+        return totalSentMessageLength;
+    }
+
+    /**
+     * Returns the length, in characters, of the largest message sent through
+     * this connection.
+     *
+     * @return the length of the largest sent message
+     * @since 8.14
+     */
+    public int getMaxSentMessageLength() {
+        return maxSentMessageLength;
+    }
+
+    /**
+     * Returns the number of complete messages received through this
+     * connection. Only messages received over a websocket are counted, since
+     * other transports use a separate request for each message.
+     *
+     * @return the number of received messages
+     * @since 8.14
+     */
+    public long getReceivedMessageCount() {
+        return receivedMessageCount;
+    }
+
+    /**
+     * Returns the total length, in characters, of all messages received
+     * through this connection.
+     *
+     * @return the total length of received messages
+     * @see #getReceivedMessageCount()
+     * @since 8.14
+     */
+    public long getTotalReceivedMessageLength() {
+        return totalReceivedMessageLength;
+    }
+
+    /**
+     * Returns the length, in characters, of the largest message received
+     * through this connection.
+     *
+     * @return the length of the largest received message
+     * @see #getReceivedMessageCount()
+     * @since 8.14
+     */
+    public int getMaxReceivedMessageLength() {
+        return maxReceivedMessageLength;
+    }
+
     /**
      * Sends the given message to the current client. Cannot be called if
      * {@isConnected()} is false.
@@ -213,6 +485,11 @@ public class AtmospherePushConnection implements PushConnection {
         if (incomingMessage.append(reader)) {
             // Message is complete
             Reader completeReader = incomingMessage.getReader();
+            int length = incomingMessage.getLength();
+            receivedMessageCount++;
+            totalReceivedMessageLength += length;
+            maxReceivedMessageLength = Math.max(maxReceivedMessageLength,
+                    length);
             incomingMessage = null;
             return completeReader;
         } else {
@@ -19,7 +19,10 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import com.vaadin.server.AbstractClientConnector;
@@ -30,11 +33,7 @@ import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
 import com.vaadin.ui.UI;
 
-import elemental.json.Json;
-import elemental.json.JsonArray;
 import elemental.json.JsonException;
-import elemental.json.JsonObject;
-import elemental.json.impl.JsonUtil;
 
 /**
  * Serializes a connector hierarchy to JSON.
@@ -63,24 +62,31 @@ public class ConnectorHierarchyWriter implements Serializable {
         Collection<ClientConnector> dirtyVisibleConnectors = ui
                 .getConnectorTracker().getDirtyVisibleConnectors();
 
-        JsonObject hierarchyInfo = Json.createObject();
+        Set<String> hierarchyInfo = new HashSet<>();
+        JsonStreamWriter json = new JsonStreamWriter(writer);
+        json.beginObject();
+        List<String> children = new ArrayList<>();
         for (ClientConnector connector : dirtyVisibleConnectors) {
             String connectorId = connector.getConnectorId();
-            JsonArray children = Json.createArray();
+            children.clear();
 
             for (ClientConnector child : AbstractClientConnector
                     .getAllChildrenIterable(connector)) {
                 if (LegacyCommunicationManager
                         .isConnectorVisibleToClient(child)) {
-                    children.set(children.length(), child.getConnectorId());
+                    children.add(child.getConnectorId());
                 }
             }
 
             // Omit for leaf nodes with state changes
-            if (children.length() > 0
+            if (!children.isEmpty()
                     || !stateUpdateConnectors.contains(connectorId)) {
                 try {
-                    hierarchyInfo.put(connectorId, children);
+                    json.name(connectorId).beginArray();
+                    for (String childId : children) {
+                        json.value(childId);
+                    }
+                    json.endArray();
                 } catch (JsonException e) {
                     throw new PaintException(
                             "Failed to send hierarchy information about "
@@ -88,16 +94,17 @@ public class ConnectorHierarchyWriter implements Serializable {
                                     + e.getMessage(),
                             e);
                 }
+                hierarchyInfo.add(connectorId);
             }
         }
+        json.endObject();
+
         // Dummy assert just for conditionally storing away data that will be
         // used by the real assert later on
         assert storeSentHierarchy(hierarchyInfo, stateUpdateConnectors);
-
-        writer.write(JsonUtil.stringify(hierarchyInfo));
     }
 
-    private boolean storeSentHierarchy(JsonObject hierarchyInfo,
+    private boolean storeSentHierarchy(Set<String> hierarchyInfo,
             Set<String> stateUpdateConnectors) {
         VaadinRequest request = VaadinService.getCurrentRequest();
         if (request != null) {
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.vaadin.server.ClientConnector;
+
+import elemental.json.Json;
+
+/**
+ * Information about a connector class that is needed when the class is sent to
+ * the client for the first time. The information only depends on the class,
+ * so it is computed once and shared by all sessions, while the type tags are
+ * assigned by each session.
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ */
+class ConnectorTypeMetadata implements Serializable {
+
+    private static final Map<Class<?>, ConnectorTypeMetadata> METADATA = new ConcurrentHashMap<>();
+
+    private final String mappingKey;
+    private final Class<? extends ClientConnector> connectorSuperclass;
+    private final int hierarchyDepth;
+
+    @SuppressWarnings("unchecked")
+    private ConnectorTypeMetadata(Class<?> type) {
+        String name = type.getCanonicalName();
+        if (name == null) {
+            // Local and anonymous classes have no canonical name
+            name = type.getName();
+        }
+        mappingKey = Json.create(name).toJson() + " : ";
+
+        Class<?> superclass = type.getSuperclass();
+        if (superclass != null
+                && ClientConnector.class.isAssignableFrom(superclass)) {
+            connectorSuperclass = (Class<? extends ClientConnector>) superclass;
+        } else {
+            connectorSuperclass = null;
+        }
+
+        int depth = 0;
+        for (Class<?> c = type; c != null && c != Object.class; c = c
+                .getSuperclass()) {
+            depth++;
+        }
+        hierarchyDepth = depth;
+    }
+
+    /**
+     * Gets the metadata of the given connector class.
+     *
+     * @param type
+     *            the connector class, not <code>null</code>
+     * @return the metadata of the class, not <code>null</code>
+     */
+    static ConnectorTypeMetadata get(Class<? extends ClientConnector> type) {
+        ConnectorTypeMetadata metadata = METADATA.get(type);
+        if (metadata == null) {
+            metadata = METADATA.computeIfAbsent(type,
+                    ConnectorTypeMetadata::new);
+        }
+        return metadata;
+    }
+
+    /**
+     * Gets the JSON key of the class in the type mappings, i.e. the quoted
+     * canonical name of the class followed by a colon. The binary name is used
+     * for classes that have no canonical name.
+     *
+     * @return the JSON fragment preceding the tag of the class
+     */
+    String getMappingKey() {
+        return mappingKey;
+    }
+
+    /**
+     * Gets the superclass of the class if it is a connector class.
+     *
+     * @return the superclass, or <code>null</code> if the superclass is not a
+     *         connector class
+     */
+    Class<? extends ClientConnector> getConnectorSuperclass() {
+        return connectorSuperclass;
+    }
+
+    /**
+     * Gets the number of classes in the class hierarchy of the class, not
+     * counting {@link Object}. Used for ordering super classes before sub
+     * classes.
+     *
+     * @return the depth of the class in the class hierarchy
+     */
+    int getHierarchyDepth() {
+        return hierarchyDepth;
+    }
+}
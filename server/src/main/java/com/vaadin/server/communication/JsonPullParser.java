@@ -0,0 +1,381 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Serializable;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonException;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/**
+ * Reads JSON incrementally from a {@link Reader}, so that a large message can
+ * be processed one value at a time instead of first reading it into a string
+ * and parsing all of it. Values that are needed as a whole are returned as
+ * {@link JsonValue} instances and values that are not needed can be skipped
+ * without creating any objects.
+ * <p>
+ * Malformed JSON and messages longer than the given maximum length are
+ * reported by throwing a {@link JsonException}.
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ */
+class JsonPullParser implements Serializable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final transient Reader reader;
+    private final int maxLength;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long charactersRead;
+
+    // Whether a comma is needed before the next value or member
+    private boolean commaNeeded;
+
+    /**
+     * Creates a parser reading from the given reader.
+     *
+     * @param reader
+     *            the reader to read JSON from, not <code>null</code>
+     * @param maxLength
+     *            the maximum number of characters to read, or a negative
+     *            number to read any number of characters
+     */
+    JsonPullParser(Reader reader, int maxLength) {
+        this.reader = reader;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Checks whether there is nothing but whitespace left to read.
+     *
+     * @return <code>true</code> if the end of the input has been reached,
+     *         <code>false</code> otherwise
+     * @throws IOException
+     *             if reading fails
+     */
+    boolean isAtEnd() throws IOException {
+        skipWhitespace();
+        return peek() == -1;
+    }
+
+    /**
+     * Consumes the start of an object. Its members are read with
+     * {@link #hasNext()} and {@link #nextName()} followed by reading the
+     * value.
+     *
+     * @throws IOException
+     *             if reading fails
+     */
+    void beginObject() throws IOException {
+        beginValue();
+        expect('{');
+        commaNeeded = false;
+    }
+
+    /**
+     * Consumes the end of an object.
+     *
+     * @throws IOException
+     *             if reading fails
+     */
+    void endObject() throws IOException {
+        skipWhitespace();
+        expect('}');
+        commaNeeded = true;
+    }
+
+    /**
+     * Consumes the start of an array. Its elements are read with
+     * {@link #hasNext()} followed by reading the value.
+     *
+     * @throws IOException
+     *             if reading fails
+     */
+    void beginArray() throws IOException {
+        beginValue();
+        expect('[');
+        commaNeeded = false;
+    }
+
+    /**
+     * Consumes the end of an array.
+     *
+     * @throws IOException
+     *             if reading fails
+     */
+    void endArray() throws IOException {
+        skipWhitespace();
+        expect(']');
+        commaNeeded = true;
+    }
+
+    /**
+     * Checks whether the current object or array has more members or
+     * elements.
+     *
+     * @return <code>true</code> if there is another member or element,
+     *         <code>false</code> if the end of the object or array is next
+     * @throws IOException
+     *             if reading fails
+     */
+    boolean hasNext() throws IOException {
+        skipWhitespace();
+        int c = peek();
+        return c != '}' && c != ']' && c != -1;
+    }
+
+    /**
+     * Reads the name of the next member of the current object.
+     *
+     * @return the member name
+     * @throws IOException
+     *             if reading fails
+     */
+    String nextName() throws IOException {
+        beginValue();
+        expect('"');
+        String name = readString();
+        skipWhitespace();
+        expect(':');
+        commaNeeded = false;
+        return name;
+    }
+
+    /**
+     * Reads the next value, including everything contained in it.
+     *
+     * @return the value
+     * @throws IOException
+     *             if reading fails
+     */
+    JsonValue nextValue() throws IOException {
+        int c = beginValue();
+        switch (c) {
+        case '{':
+            JsonObject object = Json.createObject();
+            beginObject();
+            while (hasNext()) {
+                String name = nextName();
+                object.put(name, nextValue());
+            }
+            endObject();
+            return object;
+        case '[':
+            JsonArray array = Json.createArray();
+            beginArray();
+            while (hasNext()) {
+                array.set(array.length(), nextValue());
+            }
+            endArray();
+            return array;
+        case '"':
+            read();
+            String string = readString();
+            commaNeeded = true;
+            return Json.create(string);
+        case 't':
+            readLiteral("true");
+            return Json.create(true);
+        case 'f':
+            readLiteral("false");
+            return Json.create(false);
+        case 'n':
+            readLiteral("null");
+            return Json.createNull();
+        default:
+            return Json.create(readNumber());
+        }
+    }
+
+    /**
+     * Skips the next value, including everything contained in it.
+     *
+     * @throws IOException
+     *             if reading fails
+     */
+    void skipValue() throws IOException {
+        int c = beginValue();
+        switch (c) {
+        case '{':
+            beginObject();
+            while (hasNext()) {
+                nextName();
+                skipValue();
+            }
+            endObject();
+            break;
+        case '[':
+            beginArray();
+            while (hasNext()) {
+                skipValue();
+            }
+            endArray();
+            break;
+        default:
+            // Scalars are small, no need to avoid creating them
+            nextValue();
+        }
+    }
+
+    /**
+     * Skips whitespace and a separating comma if one is needed, and returns
+     * the first character of the next value without consuming it.
+     */
+    private int beginValue() throws IOException {
+        skipWhitespace();
+        if (commaNeeded) {
+            expect(',');
+            skipWhitespace();
+            commaNeeded = false;
+        }
+        int c = peek();
+        if (c == -1) {
+            throw new JsonException("Unexpected end of JSON");
+        }
+        return c;
+    }
+
+    private String readString() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return builder.toString();
+            } else if (c == '\\') {
+                builder.append(readEscape());
+            } else if (c == -1) {
+                throw new JsonException("Unterminated string in JSON");
+            } else {
+                builder.append((char) c);
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+        case '"':
+        case '\\':
+        case '/':
+            return (char) c;
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case 'u':
+            int code = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(read(), 16);
+                if (digit == -1) {
+                    throw new JsonException("Invalid unicode escape in JSON");
+                }
+                code = code * 16 + digit;
+            }
+            return (char) code;
+        default:
+            throw new JsonException("Invalid escape in JSON: \\" + (char) c);
+        }
+    }
+
+    private double readNumber() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        int c = peek();
+        while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E'
+                || (c >= '0' && c <= '9')) {
+            builder.append((char) read());
+            c = peek();
+        }
+        commaNeeded = true;
+        try {
+            return Double.parseDouble(builder.toString());
+        } catch (NumberFormatException e) {
+            throw new JsonException("Invalid value in JSON: " + builder
+                    + (c == -1 ? "" : String.valueOf((char) c)));
+        }
+    }
+
+    private void readLiteral(String literal) throws IOException {
+        for (int i = 0; i < literal.length(); i++) {
+            expect(literal.charAt(i));
+        }
+        commaNeeded = true;
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = read();
+        if (c != expected) {
+            throw new JsonException("Expected '" + expected + "' in JSON but "
+                    + (c == -1 ? "reached the end" : "got '" + (char) c + "'"));
+        }
+    }
+
+    private void skipWhitespace() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+            position++;
+            c = peek();
+        }
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        int length = BUFFER_SIZE;
+        if (maxLength >= 0) {
+            // Read at most one character past the limit
+            length = (int) Math.min(length, maxLength - charactersRead + 1);
+        }
+        int read = reader.read(buffer, 0, length);
+        if (read <= 0) {
+            return false;
+        }
+        charactersRead += read;
+        if (maxLength >= 0 && charactersRead > maxLength) {
+            throw new JsonException(
+                    "Message exceeds the maximum size of " + maxLength
+                            + " characters");
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
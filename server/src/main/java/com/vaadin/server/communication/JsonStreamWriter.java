@@ -0,0 +1,259 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+/**
+ * Incrementally emits JSON to a {@link Writer} without first building a
+ * complete {@link JsonValue} tree. Used by {@link UidlWriter} and its sub
+ * writers to write potentially large sections of the response, such as shared
+ * state and RPC invocations, directly to the response.
+ * <p>
+ * The writer keeps track of nesting and automatically inserts the separators
+ * between members and elements. It does not validate that the produced
+ * output is well-formed beyond that.
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ */
+public class JsonStreamWriter implements Serializable {
+
+    private final Writer writer;
+
+    /*
+     * One entry per open object or array, true if no member or element has
+     * been written to it yet.
+     */
+    private final Deque<Boolean> first = new ArrayDeque<>();
+
+    private boolean expectingValue = false;
+
+    /**
+     * Creates a new JSON stream writer that writes to the given writer.
+     *
+     * @param writer
+     *            the writer to emit JSON to, not <code>null</code>
+     */
+    public JsonStreamWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Starts a new JSON object.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter beginObject() throws IOException {
+        beforeValue();
+        writer.write('{');
+        first.push(Boolean.TRUE);
+        return this;
+    }
+
+    /**
+     * Ends the currently open JSON object.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter endObject() throws IOException {
+        first.pop();
+        writer.write('}');
+        return this;
+    }
+
+    /**
+     * Starts a new JSON array.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter beginArray() throws IOException {
+        beforeValue();
+        writer.write('[');
+        first.push(Boolean.TRUE);
+        return this;
+    }
+
+    /**
+     * Ends the currently open JSON array.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter endArray() throws IOException {
+        first.pop();
+        writer.write(']');
+        return this;
+    }
+
+    /**
+     * Writes the name of the next member of the currently open object. Must
+     * be followed by exactly one value.
+     *
+     * @param name
+     *            the member name, not <code>null</code>
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter name(String name) throws IOException {
+        separate();
+        writer.write(JsonUtil.quote(name));
+        writer.write(':');
+        expectingValue = true;
+        return this;
+    }
+
+    /**
+     * Writes a string value.
+     *
+     * @param value
+     *            the string to write, or <code>null</code> to write a JSON
+     *            null
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(String value) throws IOException {
+        beforeValue();
+        writer.write(value == null ? "null" : JsonUtil.quote(value));
+        return this;
+    }
+
+    /**
+     * Writes an integer value.
+     *
+     * @param value
+     *            the number to write
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(long value) throws IOException {
+        beforeValue();
+        writer.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param value
+     *            the boolean to write
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(boolean value) throws IOException {
+        beforeValue();
+        writer.write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes a JSON value. Objects and arrays are written member by member
+     * instead of first being stringified as a whole.
+     *
+     * @param value
+     *            the value to write, or <code>null</code> to write a JSON
+     *            null
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(JsonValue value) throws IOException {
+        if (value == null) {
+            beforeValue();
+            writer.write("null");
+            return this;
+        }
+        switch (value.getType()) {
+        case OBJECT:
+            JsonObject object = (JsonObject) value;
+            beginObject();
+            for (String key : object.keys()) {
+                name(key);
+                value((JsonValue) object.get(key));
+            }
+            endObject();
+            break;
+        case ARRAY:
+            JsonArray array = (JsonArray) value;
+            beginArray();
+            for (int i = 0; i < array.length(); i++) {
+                value((JsonValue) array.get(i));
+            }
+            endArray();
+            break;
+        default:
+            beforeValue();
+            writer.write(value.toJson());
+        }
+        return this;
+    }
+
+    /**
+     * Writes pre-serialized JSON as the next value without any validation.
+     *
+     * @param json
+     *            the serialized JSON value, not <code>null</code>
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter rawValue(String json) throws IOException {
+        beforeValue();
+        writer.write(json);
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        if (expectingValue) {
+            expectingValue = false;
+        } else {
+            separate();
+        }
+    }
+
+    private void separate() throws IOException {
+        if (first.isEmpty()) {
+            return;
+        }
+        if (first.peek()) {
+            first.pop();
+            first.push(Boolean.FALSE);
+        } else {
+            writer.write(',');
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.vaadin.server.DeploymentConfiguration;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinService;
+import com.vaadin.util.AcceptEncodingUtil;
+
+/**
+ * Helpers for compressing UIDL responses according to
+ * {@link DeploymentConfiguration#getCompressionThreshold()} and the encodings
+ * accepted by the client. Browsers decompress such responses transparently.
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ */
+class ResponseCompression implements Serializable {
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private ResponseCompression() {
+        // Only static helpers
+    }
+
+    /**
+     * Gets the content encoding to use for a response of the given size.
+     *
+     * @param request
+     *            the request to respond to
+     * @param length
+     *            the length of the uncompressed response in bytes
+     * @return {@value #GZIP} or {@value #DEFLATE}, or <code>null</code> if the
+     *         response should not be compressed
+     */
+    static String getContentEncoding(VaadinRequest request, int length) {
+        VaadinService service = request.getService();
+        if (service == null || service.getDeploymentConfiguration() == null) {
+            return null;
+        }
+        int threshold = service.getDeploymentConfiguration()
+                .getCompressionThreshold();
+        if (threshold < 0 || length < threshold) {
+            return null;
+        }
+        String accept = request.getHeader("Accept-Encoding");
+        double gzipQuality = AcceptEncodingUtil.getQuality(accept, GZIP);
+        double deflateQuality = AcceptEncodingUtil.getQuality(accept, DEFLATE);
+        if (gzipQuality <= 0 && deflateQuality <= 0) {
+            return null;
+        }
+        // gzip unless the client prefers deflate
+        return deflateQuality > gzipQuality ? DEFLATE : GZIP;
+    }
+
+    /**
+     * Creates a stream that compresses everything written to it with the
+     * given encoding into the given stream. The returned stream must be
+     * closed to write out all the compressed data.
+     *
+     * @param encoding
+     *            {@value #GZIP} or {@value #DEFLATE}
+     * @param out
+     *            the stream to write compressed data to
+     * @return a compressing output stream
+     * @throws IOException
+     *             if writing the header of the compressed data fails
+     */
+    static OutputStream createCompressingStream(String encoding,
+            OutputStream out) throws IOException {
+        if (GZIP.equals(encoding)) {
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        return new DeflaterOutputStream(out);
+    }
+
+    /**
+     * Sets the headers of a compressed response.
+     *
+     * @param response
+     *            the response
+     * @param encoding
+     *            the encoding of the response content
+     */
+    static void setCompressionHeaders(VaadinResponse response,
+            String encoding) {
+        response.setHeader("Content-Encoding", encoding);
+        response.setHeader("Vary", "Accept-Encoding");
+    }
+}
@@ -19,7 +19,6 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Serializable;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -30,6 +29,7 @@ import java.util.logging.Logger;
 
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.Constants;
+import com.vaadin.server.DeploymentConfiguration;
 import com.vaadin.server.JsonCodec;
 import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyException;
 import com.vaadin.server.ServerRpcManager;
@@ -50,9 +50,11 @@ import com.vaadin.ui.Component;
 import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.UI;
 
+import elemental.json.Json;
 import elemental.json.JsonArray;
 import elemental.json.JsonException;
 import elemental.json.JsonObject;
+import elemental.json.JsonType;
 import elemental.json.JsonValue;
 import elemental.json.impl.JsonUtil;
 
@@ -84,7 +86,15 @@ public class ServerRpcHandler implements Serializable {
         private String widgetsetVersion = null;
 
         public RpcRequest(String jsonString, VaadinRequest request) {
-            json = JsonUtil.parse(jsonString);
+            this(JsonUtil.<JsonObject> parse(jsonString), request);
+        }
+
+        /**
+         * Creates a request from an already parsed message. The invocations
+         * data is <code>null</code> if the message does not contain it.
+         */
+        RpcRequest(JsonObject json, VaadinRequest request) {
+            this.json = json;
 
             JsonValue token = json.get(ApplicationConstants.CSRF_TOKEN);
             if (token == null) {
@@ -111,7 +121,9 @@ public class ServerRpcHandler implements Serializable {
             } else {
                 resynchronize = false;
             }
-            if (json.hasKey(ApplicationConstants.WIDGETSET_VERSION_ID)) {
+            JsonValue version = json
+                    .get(ApplicationConstants.WIDGETSET_VERSION_ID);
+            if (version != null && version.getType() != JsonType.NULL) {
                 widgetsetVersion = json
                         .getString(ApplicationConstants.WIDGETSET_VERSION_ID);
             }
@@ -124,7 +136,9 @@ public class ServerRpcHandler implements Serializable {
                         .warning("Server message without client id received");
                 clientToServerMessageId = -1;
             }
-            invocations = json.getArray(ApplicationConstants.RPC_INVOCATIONS);
+            invocations = json.hasKey(ApplicationConstants.RPC_INVOCATIONS)
+                    ? json.getArray(ApplicationConstants.RPC_INVOCATIONS)
+                    : null;
         }
 
         /**
@@ -203,9 +217,37 @@ public class ServerRpcHandler implements Serializable {
 
     private static final int MAX_BUFFER_SIZE = 64 * 1024;
 
+    /**
+     * Whether a subclass overrides {@link #handleInvocations(UI, int,
+     * JsonArray)}, in which case all invocations are passed to it as JSON
+     * instead of decoding them while the message is read.
+     */
+    private final boolean jsonInvocationsHandled = isOverridden(getClass(),
+            "handleInvocations", UI.class, int.class, JsonArray.class);
+
+    /**
+     * Whether a subclass overrides {@link #getMessage(Reader)}, in which case
+     * the whole message is read with it and parsed at once instead of reading
+     * it incrementally.
+     */
+    private final boolean messageReadOverridden = isOverridden(getClass(),
+            "getMessage", Reader.class);
+
     /**
      * Reads JSON containing zero or more serialized RPC calls (including legacy
      * variable changes) and executes the calls.
+     * <p>
+     * The message is read incrementally from the reader. The security key and
+     * the message id are checked before any invocations are decoded, provided
+     * that they precede the invocations in the message, and the invocations
+     * are then decoded one at a time. Invocations of messages that fail the
+     * message id check are skipped without decoding them. If a subclass
+     * overrides {@link #handleInvocations(UI, int, JsonArray)}, the invocations
+     * are instead always read as JSON and passed to it. If a subclass
+     * overrides {@link #getMessage(Reader)}, the whole message is read with it
+     * before it is handled. Reading is stopped
+     * if the message exceeds {@link DeploymentConfiguration#getMaxMessageSize()
+     * the maximum size}.
      *
      * @param ui
      *            The {@link UI} receiving the calls. Cannot be null.
@@ -223,15 +265,137 @@ public class ServerRpcHandler implements Serializable {
             throws IOException, InvalidUIDLSecurityKeyException {
         ui.getSession().setLastRequestTimestamp(System.currentTimeMillis());
 
-        String changeMessage = getMessage(reader);
+        if (messageReadOverridden) {
+            handleMessage(ui, getMessage(reader), request);
+            return;
+        }
+
+        JsonPullParser parser = new JsonPullParser(reader,
+                request.getService().getDeploymentConfiguration()
+                        .getMaxMessageSize());
 
-        if (changeMessage == null || changeMessage.isEmpty()) {
+        if (parser.isAtEnd()) {
             // The client sometimes sends empty messages, this is probably a bug
             return;
         }
 
-        RpcRequest rpcRequest = new RpcRequest(changeMessage, request);
+        // All members except streamed invocations
+        JsonObject json = Json.createObject();
+        RpcRequest rpcRequest = null;
+        boolean messageIdValid = false;
+        List<MethodInvocation> invocations = null;
+
+        parser.beginObject();
+        while (parser.hasNext()) {
+            String name = parser.nextName();
+            if (!ApplicationConstants.RPC_INVOCATIONS.equals(name)) {
+                json.put(name, parser.nextValue());
+            } else if (jsonInvocationsHandled || rpcRequest == null
+                    && !hasMessageHeader(json, request)) {
+                // Cannot check the message yet, keep the invocations as JSON
+                json.put(name, parser.nextValue());
+            } else {
+                if (rpcRequest == null) {
+                    rpcRequest = new RpcRequest(json, request);
+                    messageIdValid = checkMessage(ui, rpcRequest);
+                }
+                if (messageIdValid) {
+                    invocations = readInvocations(ui.getConnectorTracker(),
+                            parser);
+                } else {
+                    parser.skipValue();
+                }
+            }
+        }
+        parser.endObject();
+        if (!parser.isAtEnd()) {
+            throw new JsonException("Unexpected content after the message");
+        }
 
+        if (rpcRequest == null) {
+            rpcRequest = new RpcRequest(json, request);
+            messageIdValid = checkMessage(ui, rpcRequest);
+        }
+        if (messageIdValid) {
+            if (invocations != null) {
+                handleInvocations(ui, rpcRequest.getSyncId(), invocations);
+            } else if (rpcRequest.getRpcInvocationsData() != null) {
+                handleInvocations(ui, rpcRequest.getSyncId(),
+                        rpcRequest.getRpcInvocationsData());
+            }
+        }
+
+        if (json.hasKey(ApplicationConstants.RESYNCHRONIZE_ID)
+                && json.getBoolean(ApplicationConstants.RESYNCHRONIZE_ID)) {
+            ui.getSession().getCommunicationManager().repaintAll(ui);
+        }
+
+    }
+
+    /**
+     * Handles a message that has been read as a whole with an overridden
+     * {@link #getMessage(Reader)}.
+     */
+    private void handleMessage(UI ui, String message, VaadinRequest request)
+            throws InvalidUIDLSecurityKeyException {
+        if (message == null || message.isEmpty()) {
+            // The client sometimes sends empty messages, this is probably a bug
+            return;
+        }
+
+        RpcRequest rpcRequest = new RpcRequest(message, request);
+        if (checkMessage(ui, rpcRequest)
+                && rpcRequest.getRpcInvocationsData() != null) {
+            handleInvocations(ui, rpcRequest.getSyncId(),
+                    rpcRequest.getRpcInvocationsData());
+        }
+
+        if (rpcRequest.isResynchronize()) {
+            ui.getSession().getCommunicationManager().repaintAll(ui);
+        }
+    }
+
+    private static boolean isOverridden(Class<?> type, String methodName,
+            Class<?>... parameterTypes) {
+        for (Class<?> c = type; c != ServerRpcHandler.class; c = c
+                .getSuperclass()) {
+            try {
+                c.getDeclaredMethod(methodName, parameterTypes);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // Not overridden in this class
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether all the members that are read by {@link RpcRequest} have
+     * been read, so that the message can be checked and the invocations
+     * following them can be handled while they are read.
+     */
+    private static boolean hasMessageHeader(JsonObject json,
+            VaadinRequest request) {
+        if (!json.hasKey(ApplicationConstants.CSRF_TOKEN)
+                || !json.hasKey(ApplicationConstants.WIDGETSET_VERSION_ID)
+                || !json.hasKey(ApplicationConstants.CLIENT_TO_SERVER_ID)) {
+            return false;
+        }
+        return json.hasKey(ApplicationConstants.SERVER_SYNC_ID)
+                || !request.getService().getDeploymentConfiguration()
+                        .isSyncIdCheckEnabled();
+    }
+
+    /**
+     * Checks the security key, the widget set version and the message id of
+     * the given message.
+     *
+     * @return <code>true</code> if the invocations of the message should be
+     *         handled, <code>false</code> if the message id is not the
+     *         expected one
+     */
+    private boolean checkMessage(UI ui, RpcRequest rpcRequest)
+            throws InvalidUIDLSecurityKeyException {
         // Security: double cookie submission pattern unless disabled by
         // property
         if (!VaadinService.isCsrfTokenValid(ui.getSession(),
@@ -269,17 +433,11 @@ public class ServerRpcHandler implements Serializable {
                                 + expectedId + ", got: "
                                 + rpcRequest.getClientToServerId());
             }
-        } else {
-            // Message id ok, process RPCs
-            ui.setLastProcessedClientToServerId(expectedId);
-            handleInvocations(ui, rpcRequest.getSyncId(),
-                    rpcRequest.getRpcInvocationsData());
+            return false;
         }
-
-        if (rpcRequest.isResynchronize()) {
-            ui.getSession().getCommunicationManager().repaintAll(ui);
-        }
-
+        // Message id ok, process RPCs
+        ui.setLastProcessedClientToServerId(expectedId);
+        return true;
     }
 
     /**
@@ -322,18 +480,49 @@ public class ServerRpcHandler implements Serializable {
      * @param invocationsData
      *            JSON containing all information needed to execute all
      *            requested RPC calls.
+     * <p>
+     * {@link #handleRpc(UI, Reader, VaadinRequest)} only calls this method for
+     * invocations that could not be decoded while the message was read,
+     * unless this method is overridden, in which case it is called for all
+     * invocations. Override {@link #handleInvocations(UI, int, List)} instead
+     * to handle all invocations without reading them as JSON first.
+     *
      * @since 7.7
      */
     protected void handleInvocations(UI ui, int lastSyncIdSeenByClient,
             JsonArray invocationsData) {
+        handleInvocations(ui, lastSyncIdSeenByClient,
+                parseInvocations(ui.getConnectorTracker(), invocationsData));
+    }
+
+    /**
+     * Processes invocations received from the client.
+     * <p>
+     * Invocations are only performed for connectors that are enabled when the
+     * processing starts, with the exception of data requests.
+     * <p>
+     * All invocations handled by
+     * {@link #handleRpc(UI, Reader, VaadinRequest)} are passed to this method,
+     * either directly or through
+     * {@link #handleInvocations(UI, int, JsonArray)}.
+     *
+     * @param ui
+     *            the UI receiving the invocations
+     * @param lastSyncIdSeenByClient
+     *            the most recent sync id the client has seen at the time the
+     *            request was sent
+     * @param invocations
+     *            the decoded invocations, in the order they were sent
+     * @since 8.14
+     */
+    protected void handleInvocations(UI ui, int lastSyncIdSeenByClient,
+            List<MethodInvocation> invocations) {
 
         try {
             ConnectorTracker connectorTracker = ui.getConnectorTracker();
 
             Set<Connector> enabledConnectors = new HashSet<>();
 
-            List<MethodInvocation> invocations = parseInvocations(
-                    ui.getConnectorTracker(), invocationsData);
             for (MethodInvocation invocation : invocations) {
                 final ClientConnector connector = connectorTracker
                         .getConnector(invocation.getConnectorId());
@@ -496,23 +685,59 @@ public class ServerRpcHandler implements Serializable {
         int invocationCount = invocationsJson.length();
         List<MethodInvocation> invocations = new ArrayList<>(invocationCount);
 
-        MethodInvocation previousInvocation = null;
         // parse JSON to MethodInvocations
         for (int i = 0; i < invocationCount; ++i) {
+            addInvocation(invocations, invocationsJson.get(i),
+                    connectorTracker);
+        }
+        return invocations;
+    }
 
-            JsonArray invocationJson = invocationsJson.getArray(i);
+    /**
+     * Reads an array of invocations from the parser, decoding each invocation
+     * before the next one is read.
+     *
+     * @param connectorTracker
+     *            The ConnectorTracker used to lookup connectors
+     * @param parser
+     *            the parser positioned at the invocations array
+     * @return list of MethodInvocation to perform
+     */
+    private List<MethodInvocation> readInvocations(
+            ConnectorTracker connectorTracker, JsonPullParser parser)
+            throws IOException {
+        List<MethodInvocation> invocations = new ArrayList<>();
+        parser.beginArray();
+        while (parser.hasNext()) {
+            addInvocation(invocations, parser.nextValue(), connectorTracker);
+        }
+        parser.endArray();
+        return invocations;
+    }
 
-            MethodInvocation invocation = parseInvocation(invocationJson,
-                    previousInvocation, connectorTracker);
+    private void addInvocation(List<MethodInvocation> invocations,
+            JsonValue invocationJson, ConnectorTracker connectorTracker) {
+        MethodInvocation previousInvocation = invocations.isEmpty() ? null
+                : invocations.get(invocations.size() - 1);
+        try {
+            if (invocationJson.getType() != JsonType.ARRAY) {
+                throw new JsonException(
+                        "Invalid invocation: " + invocationJson.toJson());
+            }
+            MethodInvocation invocation = parseInvocation(
+                    (JsonArray) invocationJson, previousInvocation,
+                    connectorTracker);
             if (invocation != null) {
                 // Can be null if the invocation was a legacy invocation and it
                 // was merged with the previous one or if the invocation was
                 // rejected because of an error.
                 invocations.add(invocation);
-                previousInvocation = invocation;
             }
+        } catch (JsonException e) {
+            getLogger().warning("Unable to parse RPC call from the client: "
+                    + e.getMessage());
+            throw new RuntimeException(e);
         }
-        return invocations;
     }
 
     private MethodInvocation parseInvocation(JsonArray invocationJson,
@@ -597,17 +822,7 @@ public class ServerRpcHandler implements Serializable {
         ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
                 connectorId, rpcInterface, methodName, parametersJson.length());
 
-        Object[] parameters = new Object[parametersJson.length()];
-        Type[] declaredRpcMethodParameterTypes = invocation.getMethod()
-                .getGenericParameterTypes();
-
-        for (int j = 0; j < parametersJson.length(); ++j) {
-            JsonValue parameterValue = parametersJson.get(j);
-            Type parameterType = declaredRpcMethodParameterTypes[j];
-            parameters[j] = JsonCodec.decodeInternalOrCustomType(parameterType,
-                    parameterValue, connectorTracker);
-        }
-        invocation.setParameters(parameters);
+        invocation.decodeParameters(parametersJson, connectorTracker);
         return invocation;
     }
 
@@ -616,6 +831,19 @@ public class ServerRpcHandler implements Serializable {
         owner.changeVariables(source, m);
     }
 
+    /**
+     * Reads the whole message from the given reader.
+     *
+     * @param reader
+     *            the reader to read from
+     * @return the message
+     * @throws IOException
+     *             if reading fails
+     * @deprecated As of 8.14, {@link #handleRpc(UI, Reader, VaadinRequest)}
+     *             reads messages incrementally and only uses this method if
+     *             it is overridden
+     */
+    @Deprecated
     protected String getMessage(Reader reader) throws IOException {
 
         StringBuilder sb = new StringBuilder(MAX_BUFFER_SIZE);
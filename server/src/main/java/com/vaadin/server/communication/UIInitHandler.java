@@ -18,6 +18,7 @@ package com.vaadin.server.communication;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.StringWriter;
@@ -114,6 +115,18 @@ public abstract class UIInitHandler extends SynchronizedRequestHandler {
         response.setNoCacheHeaders();
 
         byte[] b = json.getBytes(UTF_8);
+        String encoding = ResponseCompression.getContentEncoding(request,
+                b.length);
+        if (encoding != null) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(
+                    b.length / 4);
+            try (OutputStream stream = ResponseCompression
+                    .createCompressingStream(encoding, compressed)) {
+                stream.write(b);
+            }
+            b = compressed.toByteArray();
+            ResponseCompression.setCompressionHeaders(response, encoding);
+        }
         response.setContentLength(b.length);
 
         OutputStream outputStream = response.getOutputStream();
@@ -16,12 +16,20 @@
 
 package com.vaadin.server.communication;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.vaadin.server.DeploymentConfiguration;
 import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyException;
 import com.vaadin.server.ServletPortletHelper;
 import com.vaadin.server.SessionExpiredHandler;
@@ -42,6 +50,11 @@ import elemental.json.JsonException;
  * Uses {@link ServerRpcHandler} to execute client-to-server RPC invocations and
  * {@link UidlWriter} to write state changes and client RPC calls back to the
  * client.
+ * <p>
+ * The response is encoded into a memory buffer while the session is locked.
+ * The buffer is written to the client only after the session has been
+ * unlocked, so that slow clients do not keep other requests to the same
+ * session waiting.
  *
  * @author Vaadin Ltd
  * @since 7.1
@@ -52,8 +65,32 @@ public class UidlRequestHandler extends SynchronizedRequestHandler
 
     public static final String UIDL_PATH = "UIDL/";
 
+    /*
+     * Request attribute through which the encoded response is passed from the
+     * locked part of the request handling to the unlocked part.
+     */
+    private static final String DEFERRED_RESPONSE_ATTRIBUTE = UidlRequestHandler.class
+            .getName() + ".deferredResponse";
+
+    /*
+     * Encoding buffers shared by all sessions. Buffers that have grown very
+     * large are not returned to the pool.
+     */
+    private static final int RESPONSE_BUFFER_POOL_SIZE = 16;
+    private static final int MAX_POOLED_RESPONSE_BUFFER_SIZE = 256 * 1024;
+    private static final BlockingQueue<ByteArrayOutputStream> RESPONSE_BUFFER_POOL = new ArrayBlockingQueue<>(
+            RESPONSE_BUFFER_POOL_SIZE);
+
     private final ServerRpcHandler rpcHandler;
 
+    private final AtomicLong responseCount = new AtomicLong();
+    private final AtomicLong totalResponseBytes = new AtomicLong();
+    private final AtomicLong maxResponseBytes = new AtomicLong();
+    private final AtomicLong totalResponseWriteTime = new AtomicLong();
+    private final AtomicLong compressedResponseCount = new AtomicLong();
+    private final AtomicLong totalUncompressedResponseBytes = new AtomicLong();
+    private final AtomicLong totalCompressionTime = new AtomicLong();
+
     public UidlRequestHandler() {
         rpcHandler = createRpcHandler();
     }
@@ -73,6 +110,38 @@ public class UidlRequestHandler extends SynchronizedRequestHandler
         return ServletPortletHelper.isUIDLRequest(request);
     }
 
+    @Override
+    public boolean handleRequest(VaadinSession session, VaadinRequest request,
+            VaadinResponse response) throws IOException {
+        if (!canHandleRequest(request)) {
+            return false;
+        }
+
+        request.setAttribute(DEFERRED_RESPONSE_ATTRIBUTE, Boolean.TRUE);
+        boolean handled = false;
+        ByteArrayOutputStream deferredResponse = null;
+        try {
+            handled = super.handleRequest(session, request, response);
+        } finally {
+            Object attribute = request
+                    .getAttribute(DEFERRED_RESPONSE_ATTRIBUTE);
+            request.setAttribute(DEFERRED_RESPONSE_ATTRIBUTE, null);
+            if (attribute instanceof ByteArrayOutputStream) {
+                deferredResponse = (ByteArrayOutputStream) attribute;
+                if (!handled) {
+                    // Handling failed after the response was encoded
+                    releaseResponseBuffer(deferredResponse);
+                }
+            }
+        }
+
+        // The session is no longer locked
+        if (deferredResponse != null) {
+            writeResponse(request, response, deferredResponse);
+        }
+        return handled;
+    }
+
     @Override
     public boolean synchronizedHandleRequest(VaadinSession session,
             VaadinRequest request, VaadinResponse response) throws IOException {
@@ -85,30 +154,194 @@ public class UidlRequestHandler extends SynchronizedRequestHandler
             return true;
         }
 
-        StringWriter stringWriter = new StringWriter();
-
+        ByteArrayOutputStream buffer = acquireResponseBuffer();
+        boolean bufferPassedOn = false;
         try {
+            Writer writer = new OutputStreamWriter(buffer, UTF_8);
             rpcHandler.handleRpc(uI, request.getReader(), request);
 
-            writeUidl(response, uI, stringWriter);
+            writeUidl(response, uI, writer);
+            writer.flush();
+
+            bufferPassedOn = true;
+            if (Boolean.TRUE.equals(
+                    request.getAttribute(DEFERRED_RESPONSE_ATTRIBUTE))) {
+                // Written by handleRequest once the session is unlocked
+                request.setAttribute(DEFERRED_RESPONSE_ATTRIBUTE, buffer);
+            } else {
+                writeResponse(request, response, buffer);
+            }
         } catch (JsonException e) {
             getLogger().log(Level.SEVERE, "Error writing JSON to response", e);
             // Refresh on client side
             writeRefresh(request, response);
-            return true;
         } catch (InvalidUIDLSecurityKeyException e) {
             getLogger().log(Level.WARNING,
                     "Invalid security key received from {0}",
                     request.getRemoteHost());
             // Refresh on client side
             writeRefresh(request, response);
-            return true;
         } finally {
-            stringWriter.close();
+            if (!bufferPassedOn) {
+                releaseResponseBuffer(buffer);
+            }
         }
+        return true;
+    }
+
+    /**
+     * Writes an encoded response to the client, compressing it if configured
+     * so, and returns the buffer to the pool.
+     */
+    private void writeResponse(VaadinRequest request, VaadinResponse response,
+            ByteArrayOutputStream buffer) throws IOException {
+        long start = System.nanoTime();
+        int uncompressedSize = buffer.size();
+        ByteArrayOutputStream content = buffer;
+        try {
+            response.setContentType(JsonConstants.JSON_CONTENT_TYPE);
+            // Response might contain sensitive information, so prevent all
+            // forms of caching
+            response.setNoCacheHeaders();
 
-        return UIInitHandler.commitJsonResponse(request, response,
-                stringWriter.toString());
+            String encoding = ResponseCompression.getContentEncoding(request,
+                    uncompressedSize);
+            if (encoding != null) {
+                content = compress(buffer, encoding);
+                ResponseCompression.setCompressionHeaders(response, encoding);
+            }
+            response.setContentLength(content.size());
+
+            OutputStream outputStream = response.getOutputStream();
+            content.writeTo(outputStream);
+            // NOTE GateIn requires the buffers to be flushed to work
+            outputStream.flush();
+        } finally {
+            responseCount.incrementAndGet();
+            totalResponseBytes.addAndGet(content.size());
+            maxResponseBytes.accumulateAndGet(content.size(), Math::max);
+            totalUncompressedResponseBytes.addAndGet(uncompressedSize);
+            totalResponseWriteTime.addAndGet(System.nanoTime() - start);
+            if (content != buffer) {
+                releaseResponseBuffer(content);
+            }
+            releaseResponseBuffer(buffer);
+        }
+    }
+
+    private ByteArrayOutputStream compress(ByteArrayOutputStream buffer,
+            String encoding) throws IOException {
+        long start = System.nanoTime();
+        ByteArrayOutputStream compressed = acquireResponseBuffer();
+        try (OutputStream stream = ResponseCompression
+                .createCompressingStream(encoding, compressed)) {
+            buffer.writeTo(stream);
+        } catch (IOException | RuntimeException e) {
+            releaseResponseBuffer(compressed);
+            throw e;
+        }
+        compressedResponseCount.incrementAndGet();
+        totalCompressionTime.addAndGet(System.nanoTime() - start);
+        return compressed;
+    }
+
+    private static ByteArrayOutputStream acquireResponseBuffer() {
+        ByteArrayOutputStream buffer = RESPONSE_BUFFER_POOL.poll();
+        if (buffer == null) {
+            buffer = new ByteArrayOutputStream(8192);
+        }
+        return buffer;
+    }
+
+    private static void releaseResponseBuffer(ByteArrayOutputStream buffer) {
+        if (buffer.size() <= MAX_POOLED_RESPONSE_BUFFER_SIZE) {
+            buffer.reset();
+            RESPONSE_BUFFER_POOL.offer(buffer);
+        }
+    }
+
+    /**
+     * Returns the number of UIDL responses written by this handler.
+     *
+     * @return the number of responses
+     * @since 8.14
+     */
+    public long getResponseCount() {
+        return responseCount.get();
+    }
+
+    /**
+     * Returns the total size, in bytes, of the UIDL responses written by this
+     * handler, after compression. Together with {@link #getResponseCount()},
+     * this gives the average size of the responses.
+     *
+     * @return the total size of the responses
+     * @since 8.14
+     */
+    public long getTotalResponseBytes() {
+        return totalResponseBytes.get();
+    }
+
+    /**
+     * Returns the size, in bytes, of the largest UIDL response written by this
+     * handler, after compression.
+     *
+     * @return the size of the largest response
+     * @since 8.14
+     */
+    public long getMaxResponseBytes() {
+        return maxResponseBytes.get();
+    }
+
+    /**
+     * Returns the total time spent writing UIDL responses to the clients, in
+     * nanoseconds. The responses are written after the session has been
+     * unlocked, so this time is not included in the session lock hold times
+     * reported by {@link com.vaadin.server.SessionLockMetrics}.
+     *
+     * @return the total write time in nanoseconds
+     * @since 8.14
+     */
+    public long getTotalResponseWriteTime() {
+        return totalResponseWriteTime.get();
+    }
+
+    /**
+     * Returns the total size, in bytes, of the UIDL responses written by this
+     * handler before compression. Compared to {@link #getTotalResponseBytes()}
+     * this gives the overall compression ratio. Messages sent through push
+     * are not included, see
+     * {@link AtmospherePushConnection#getTotalSentMessageLength()}.
+     *
+     * @return the total uncompressed size of the responses
+     * @see DeploymentConfiguration#getCompressionThreshold()
+     * @since 8.14
+     */
+    public long getTotalUncompressedResponseBytes() {
+        return totalUncompressedResponseBytes.get();
+    }
+
+    /**
+     * Returns the number of UIDL responses that have been compressed.
+     *
+     * @return the number of compressed responses
+     * @see DeploymentConfiguration#getCompressionThreshold()
+     * @since 8.14
+     */
+    public long getCompressedResponseCount() {
+        return compressedResponseCount.get();
+    }
+
+    /**
+     * Returns the total time spent compressing UIDL responses, in
+     * nanoseconds. This is included in {@link #getTotalResponseWriteTime()}.
+     *
+     * @return the total compression time in nanoseconds
+     * @see DeploymentConfiguration#getCompressionThreshold()
+     * @since 8.14
+     */
+    public long getTotalCompressionTime() {
+        return totalCompressionTime.get();
     }
 
     private void writeRefresh(VaadinRequest request, VaadinResponse response)
@@ -42,11 +42,6 @@ import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.Dependency;
 import com.vaadin.ui.UI;
 
-import elemental.json.Json;
-import elemental.json.JsonArray;
-import elemental.json.JsonObject;
-import elemental.json.impl.JsonUtil;
-
 /**
  * Serializes pending server-side changes to UI state to JSON. This includes
  * shared state, client RPC invocations, connector hierarchy changes, connector
@@ -238,10 +233,8 @@ public class UidlWriter implements Serializable {
                     } else {
                         writer.write(" , ");
                     }
-                    String canonicalName = class1.getCanonicalName();
-                    writer.write("\"");
-                    writer.write(canonicalName);
-                    writer.write("\" : ");
+                    writer.write(
+                            ConnectorTypeMetadata.get(class1).getMappingKey());
                     writer.write(manager.getTagForType(class1));
                 }
             }
@@ -254,8 +247,9 @@ public class UidlWriter implements Serializable {
             if (typeMappingsOpen) {
                 // send the whole type inheritance map if any new mappings
                 for (Class<? extends ClientConnector> class1 : usedClientConnectors) {
-                    if (!ClientConnector.class
-                            .isAssignableFrom(class1.getSuperclass())) {
+                    Class<? extends ClientConnector> superclass = ConnectorTypeMetadata
+                            .get(class1).getConnectorSuperclass();
+                    if (superclass == null) {
                         continue;
                     }
                     if (!typeInheritanceMapOpen) {
@@ -267,9 +261,7 @@ public class UidlWriter implements Serializable {
                     writer.write("\"");
                     writer.write(manager.getTagForType(class1));
                     writer.write("\" : ");
-                    writer.write(manager.getTagForType(
-                            (Class<? extends ClientConnector>) class1
-                                    .getSuperclass()));
+                    writer.write(manager.getTagForType(superclass));
                 }
                 if (typeInheritanceMapOpen) {
                     writer.write(" }");
@@ -283,21 +275,8 @@ public class UidlWriter implements Serializable {
              *
              * @JavaScript defined by super class is already loaded.
              */
-            Collections.sort(newConnectorTypes, new Comparator<Class<?>>() {
-                @Override
-                public int compare(Class<?> o1, Class<?> o2) {
-                    // TODO optimize using Class.isAssignableFrom?
-                    return hierarchyDepth(o1) - hierarchyDepth(o2);
-                }
-
-                private int hierarchyDepth(Class<?> type) {
-                    if (type == Object.class) {
-                        return 0;
-                    } else {
-                        return hierarchyDepth(type.getSuperclass()) + 1;
-                    }
-                }
-            });
+            newConnectorTypes.sort(Comparator.comparingInt(
+                    type -> ConnectorTypeMetadata.get(type).getHierarchyDepth()));
 
             List<Dependency> dependencies = new ArrayList<>();
             dependencies.addAll(ui.getPage().getPendingDependencies());
@@ -306,8 +285,8 @@ public class UidlWriter implements Serializable {
 
             // Include dependencies in output if there are any
             if (!dependencies.isEmpty()) {
-                writer.write(", \"dependencies\": "
-                        + JsonUtil.stringify(toJsonArray(dependencies)));
+                writer.write(", \"dependencies\": ");
+                writeDependencies(dependencies, new JsonStreamWriter(writer));
             }
 
             session.getDragAndDropService().printJSONResponse(writer);
@@ -326,17 +305,16 @@ public class UidlWriter implements Serializable {
         }
     }
 
-    private JsonArray toJsonArray(List<Dependency> list) {
-        JsonArray result = Json.createArray();
-        for (int i = 0; i < list.size(); i++) {
-            JsonObject dep = Json.createObject();
-            Dependency dependency = list.get(i);
-            dep.put("type", dependency.getType().name());
-            dep.put("url", dependency.getUrl());
-            result.set(i, dep);
+    private void writeDependencies(List<Dependency> list,
+            JsonStreamWriter json) throws IOException {
+        json.beginArray();
+        for (Dependency dependency : list) {
+            json.beginObject();
+            json.name("type").value(dependency.getType().name());
+            json.name("url").value(dependency.getUrl());
+            json.endObject();
         }
-
-        return result;
+        json.endArray();
     }
 
     /**
@@ -15,7 +15,6 @@
  */
 package com.vaadin.ui;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -33,6 +32,7 @@ import com.vaadin.data.SelectionModel;
 import com.vaadin.data.SelectionModel.Multi;
 import com.vaadin.data.provider.DataGenerator;
 import com.vaadin.data.provider.DataProvider;
+import com.vaadin.data.provider.IdentifiedItemSet;
 import com.vaadin.event.selection.MultiSelectionEvent;
 import com.vaadin.event.selection.MultiSelectionListener;
 import com.vaadin.server.Resource;
@@ -61,7 +61,14 @@ import elemental.json.JsonObject;
 public abstract class AbstractMultiSelect<T> extends AbstractListing<T>
         implements MultiSelect<T> {
 
-    private List<T> selection = new ArrayList<>();
+    private final IdentifiedItemSet<T> selection = new IdentifiedItemSet<>(
+            this::internalGetDataProvider);
+
+    /*
+     * Unmodifiable copy of the selection returned by getSelectedItems(), reset
+     * whenever the selection changes.
+     */
+    private Set<T> selectedItems;
 
     private class MultiSelectServerRpcImpl implements MultiSelectServerRpc {
         @Override
@@ -324,11 +331,15 @@ public abstract class AbstractMultiSelect<T> extends AbstractListing<T>
         // if there are duplicates, some item is both added & removed, just
         // discard that and leave things as was before
         DataProvider<T, ?> dataProvider = internalGetDataProvider();
-        addedItems.removeIf(item -> {
-            Object addedId = dataProvider.getId(item);
-            return removedItems.stream().map(dataProvider::getId).anyMatch(
-                    addedId::equals) ? removedItems.remove(item) : false;
-        });
+        if (!addedItems.isEmpty() && !removedItems.isEmpty()) {
+            Set<Object> removedIds = new HashSet<>();
+            removedItems
+                    .forEach(item -> removedIds.add(dataProvider.getId(item)));
+            addedItems.removeIf(
+                    item -> removedIds.contains(dataProvider.getId(item))
+                            ? removedItems.remove(item)
+                            : false);
+        }
 
         if (isAllSelected(addedItems) && isNoneSelected(removedItems)) {
             return;
@@ -336,19 +347,18 @@ public abstract class AbstractMultiSelect<T> extends AbstractListing<T>
 
         updateSelection(set -> {
             // order of add / remove does not matter since no duplicates
-            set.removeIf(item -> {
-                Object itemId = dataProvider.getId(item);
-
-                return removedItems.stream().map(dataProvider::getId)
-                        .anyMatch(itemId::equals);
-            });
+            removedItems.forEach(set::remove);
             set.addAll(addedItems);
         }, userOriginated);
     }
 
     @Override
     public Set<T> getSelectedItems() {
-        return Collections.unmodifiableSet(new LinkedHashSet<>(selection));
+        if (selectedItems == null) {
+            selectedItems = Collections
+                    .unmodifiableSet(new LinkedHashSet<>(selection));
+        }
+        return selectedItems;
     }
 
     @Override
@@ -362,10 +372,7 @@ public abstract class AbstractMultiSelect<T> extends AbstractListing<T>
 
     @Override
     public boolean isSelected(T item) {
-        DataProvider<T, ?> dataProvider = internalGetDataProvider();
-        Object id = dataProvider.getId(item);
-        return selection.stream().map(dataProvider::getId).anyMatch(id::equals);
-
+        return selection.contains(item);
     }
 
     private boolean isAllSelected(Collection<T> items) {
@@ -420,7 +427,7 @@ public abstract class AbstractMultiSelect<T> extends AbstractListing<T>
             return;
         }
 
-        updateSelection(set -> set.removeAll(items), userOriginated);
+        updateSelection(set -> items.forEach(set::remove), userOriginated);
     }
 
     /**
@@ -505,8 +512,9 @@ public abstract class AbstractMultiSelect<T> extends AbstractListing<T>
 
     private void updateSelection(SerializableConsumer<Collection<T>> handler,
             boolean userOriginated) {
-        LinkedHashSet<T> oldSelection = new LinkedHashSet<>(selection);
+        Set<T> oldSelection = getSelectedItems();
         handler.accept(selection);
+        selectedItems = null;
 
         fireEvent(new MultiSelectionEvent<>(AbstractMultiSelect.this,
                 oldSelection, userOriginated));
@@ -515,13 +523,8 @@ public abstract class AbstractMultiSelect<T> extends AbstractListing<T>
     }
 
     private final void refreshSelectedItem(T item) {
-        DataProvider<T, ?> dataProvider = internalGetDataProvider();
-        Object id = dataProvider.getId(item);
-        for (int i = 0; i < selection.size(); ++i) {
-            if (id.equals(dataProvider.getId(selection.get(i)))) {
-                selection.set(i, item);
-                return;
-            }
+        if (selection.replace(item)) {
+            selectedItems = null;
         }
     }
 }
@@ -29,12 +29,14 @@ import java.util.logging.Logger;
 import java.util.stream.Stream;
 
 import com.vaadin.data.provider.CallbackDataProvider;
+import com.vaadin.data.provider.CaptionIndexDataProvider;
 import com.vaadin.data.provider.DataChangeEvent;
 import com.vaadin.data.provider.DataCommunicator;
 import com.vaadin.data.provider.DataGenerator;
 import com.vaadin.data.provider.DataKeyMapper;
 import com.vaadin.data.provider.DataProvider;
 import com.vaadin.data.provider.InMemoryDataProvider;
+import com.vaadin.data.provider.IntKeyMapper;
 import com.vaadin.data.provider.ListDataProvider;
 import org.jsoup.nodes.Element;
 
@@ -48,7 +50,6 @@ import com.vaadin.event.FieldEvents.FocusAndBlurServerRpcDecorator;
 import com.vaadin.event.FieldEvents.FocusEvent;
 import com.vaadin.event.FieldEvents.FocusListener;
 import com.vaadin.server.ConnectorResource;
-import com.vaadin.server.KeyMapper;
 import com.vaadin.server.Resource;
 import com.vaadin.server.ResourceReference;
 import com.vaadin.server.SerializableBiPredicate;
@@ -247,6 +248,8 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
 
     private Registration dataProviderListener = null;
 
+    private boolean indexedFilteringEnabled = false;
+
     /**
      * Constructs an empty combo box without a caption. The content of the combo
      * box can be set with {@link #setDataProvider(DataProvider)} or
@@ -257,7 +260,7 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
             @Override
             protected DataKeyMapper<T> createKeyMapper(
                     ValueProvider<T, Object> identifierGetter) {
-                return new KeyMapper<T>(identifierGetter) {
+                return new IntKeyMapper<T>(identifierGetter) {
                     @Override
                     public void remove(T removeobj) {
                         // never remove keys from ComboBox to support selection
@@ -423,6 +426,16 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
      * @since 8.0
      */
     public void setDataProvider(ListDataProvider<T> listDataProvider) {
+        if (indexedFilteringEnabled) {
+            Objects.requireNonNull(listDataProvider,
+                    "List data provider cannot be null");
+            setDataProvider(
+                    new CaptionIndexDataProvider<>(listDataProvider,
+                            this::getItemCaptionOfItem, this::getLocale),
+                    SerializableFunction.identity());
+            return;
+        }
+
         // Cannot use the case insensitive contains shorthand from
         // ListDataProvider since it wouldn't react to locale changes
         CaptionFilter defaultCaptionFilter = (itemText, filterText) -> itemText
@@ -432,6 +445,43 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
         setDataProvider(defaultCaptionFilter, listDataProvider);
     }
 
+    /**
+     * Sets whether the default filtering of in-memory items uses a prebuilt
+     * index of the item captions. When enabled, subsequent calls to
+     * {@link #setItems(Collection)} and
+     * {@link #setDataProvider(ListDataProvider)} wrap the list data provider
+     * in a {@link CaptionIndexDataProvider}. Filtering still shows all items
+     * where the filter text is a case insensitive substring of the caption,
+     * but without converting and checking the caption of every item on each
+     * keystroke. This is useful for combo boxes with a large number of items.
+     * <p>
+     * The index is kept up to date when the data provider is refreshed and
+     * when the item caption generator or locale changes. Filtering with a
+     * custom {@link CaptionFilter} is not affected by this setting. Indexed
+     * filtering is disabled by default.
+     *
+     * @param indexedFilteringEnabled
+     *            <code>true</code> to filter in-memory items using a caption
+     *            index, <code>false</code> to check every item
+     * @since 8.14
+     */
+    public void setIndexedFilteringEnabled(boolean indexedFilteringEnabled) {
+        this.indexedFilteringEnabled = indexedFilteringEnabled;
+    }
+
+    /**
+     * Returns whether the default filtering of in-memory items uses a prebuilt
+     * index of the item captions.
+     *
+     * @return <code>true</code> if in-memory items are filtered using a
+     *         caption index, <code>false</code> otherwise
+     * @see #setIndexedFilteringEnabled(boolean)
+     * @since 8.14
+     */
+    public boolean isIndexedFilteringEnabled() {
+        return indexedFilteringEnabled;
+    }
+
     /**
      * Sets the data items of this listing and a simple string filter with which
      * the item string and the text the user has input are compared.
@@ -715,6 +765,10 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
     public void setItemCaptionGenerator(
             ItemCaptionGenerator<T> itemCaptionGenerator) {
         super.setItemCaptionGenerator(itemCaptionGenerator);
+        if (getDataProvider() instanceof CaptionIndexDataProvider) {
+            ((CaptionIndexDataProvider<T>) getDataProvider())
+                    .invalidateIndex();
+        }
     }
 
     /**
@@ -1000,7 +1054,8 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
         // dropdown
         // is opened. Only done for in-memory data providers for performance
         // reasons.
-        if (dataProvider instanceof InMemoryDataProvider) {
+        if (dataProvider instanceof InMemoryDataProvider
+                || dataProvider instanceof CaptionIndexDataProvider) {
             if (dataProviderListener != null) {
                 dataProviderListener.remove();
             }
@@ -94,6 +94,23 @@ public class ConnectorTracker implements Serializable {
      */
     private final Set<ClientConnector> unregisteredConnectors = new HashSet<>();
 
+    /**
+     * Connectors that have been registered or marked as dirty since the last
+     * time {@link #cleanConnectorMap(boolean)} was invoked. Only these and
+     * their children can have become invisible to the client since then.
+     */
+    private final Set<ClientConnector> changedConnectors = new HashSet<>();
+
+    /**
+     * The number of incremental cleanups after which all connectors are
+     * checked, to also clean the ones whose visibility changed without them or
+     * their parent being marked as dirty.
+     */
+    private static final int FULL_CLEANUP_INTERVAL = 64;
+
+    private int cleanupsSinceFullCleanup = 0;
+    private boolean fullCleanupNeeded = false;
+
     private boolean writingResponse = false;
 
     private final UI uI;
@@ -162,6 +179,7 @@ public class ConnectorTracker implements Serializable {
                             connectorId });
         }
         dirtyConnectors.add(connector);
+        changedConnectors.add(connector);
     }
 
     /**
@@ -191,6 +209,7 @@ public class ConnectorTracker implements Serializable {
         }
 
         dirtyConnectors.remove(connector);
+        changedConnectors.remove(connector);
 
         if (!isClientSideInitialized(connector)) {
             // Client side has never known about this connector so there is no
@@ -313,48 +332,155 @@ public class ConnectorTracker implements Serializable {
                 + "and that all custom component containers call child.setParent(this) when a child is added and child.setParent(null) when the child is no longer used. "
                 + "See previous log messages for details.";
 
-        Iterator<ClientConnector> iterator = connectorIdToConnector.values()
-                .iterator();
         GlobalResourceHandler globalResourceHandler = uI.getSession()
                 .getGlobalResourceHandler(false);
-        while (iterator.hasNext()) {
-            ClientConnector connector = iterator.next();
-            assert connector != null;
-            if (connector.getUI() != uI) {
-                // If connector is no longer part of this uI,
-                // remove it from the map. If it is re-attached to the
-                // application at some point it will be re-added through
-                // registerConnector(connector)
-                // This code should never be called as cleanup should take place
-                // in detach()
-                getLogger().log(Level.WARNING,
-                        "cleanConnectorMap unregistered connector {0}. This should have been done when the connector was detached.",
-                        getConnectorAndParentInfo(connector));
-                if (globalResourceHandler != null) {
-                    globalResourceHandler.unregisterConnector(connector);
+
+        // Visibility can only have changed for connectors that have been
+        // changed since the previous cleanup, or for their children
+        Set<ClientConnector> checked = new HashSet<>();
+        for (ClientConnector connector : changedConnectors) {
+            if (!LegacyCommunicationManager
+                    .isConnectorVisibleToClient(connector)) {
+                cleanConnectorsRecursively(connector, checked,
+                        globalResourceHandler);
+            } else {
+                for (ClientConnector child : AbstractClientConnector
+                        .getAllChildrenIterable(connector)) {
+                    if (!LegacyCommunicationManager
+                            .isConnectorVisibleToClient(child)) {
+                        cleanConnectorsRecursively(child, checked,
+                                globalResourceHandler);
+                    }
                 }
-                uninitializedConnectors.remove(connector);
-                diffStates.remove(connector);
-                iterator.remove();
-            } else if (!uninitializedConnectors.contains(connector)
+            }
+        }
+        changedConnectors.clear();
+
+        if (fullCleanupNeeded
+                || ++cleanupsSinceFullCleanup >= FULL_CLEANUP_INTERVAL) {
+            fullCleanupNeeded = false;
+            cleanupsSinceFullCleanup = 0;
+            cleanAllConnectors(globalResourceHandler);
+        } else {
+            // Check after every cleanup only with assertions enabled
+            assert isInvisibleConnectorsCleaned() : "Connectors that are no longer visible to the client were not cleaned. "
+                            + "Check that components mark themselves or their parent as dirty when their visibility changes.";
+        }
+    }
+
+    /**
+     * Cleans the given connector and all its descendants, which must all be
+     * invisible to the client.
+     */
+    private void cleanConnectorsRecursively(ClientConnector connector,
+            Set<ClientConnector> checked,
+            GlobalResourceHandler globalResourceHandler) {
+        if (!checked.add(connector)) {
+            return;
+        }
+        cleanConnector(connector, globalResourceHandler);
+        for (ClientConnector child : AbstractClientConnector
+                .getAllChildrenIterable(connector)) {
+            cleanConnectorsRecursively(child, checked, globalResourceHandler);
+        }
+    }
+
+    /**
+     * Goes through all registered connectors and cleans the ones that are no
+     * longer attached to the UI or visible to the client. Done periodically
+     * and after all connectors have been marked as dirty to catch what the
+     * incremental cleanup has missed.
+     */
+    private void cleanAllConnectors(
+            GlobalResourceHandler globalResourceHandler) {
+        for (ClientConnector connector : new ArrayList<>(
+                connectorIdToConnector.values())) {
+            if (cleanConnector(connector, globalResourceHandler)) {
+                logMissedConnector(connector, Level.FINE);
+            }
+        }
+    }
+
+    /**
+     * Checks that the incremental cleanup has cleaned all registered
+     * connectors that are no longer visible to the client. Used after every
+     * cleanup with assertions enabled. Does not change any state, so that the
+     * cleanup behaves the same way with and without assertions.
+     *
+     * @return <code>true</code> if no initialized connector that is invisible
+     *         to the client was found, <code>false</code> otherwise
+     */
+    private boolean isInvisibleConnectorsCleaned() {
+        boolean clean = true;
+        for (ClientConnector connector : connectorIdToConnector.values()) {
+            if (connector.getUI() == uI
+                    && !uninitializedConnectors.contains(connector)
                     && !LegacyCommunicationManager
                             .isConnectorVisibleToClient(connector)) {
-                // Connector was visible to the client but is no longer (e.g.
-                // setVisible(false) has been called or SelectiveRenderer tells
-                // it's no longer shown) -> make sure that the full state is
-                // sent again when/if made visible
-                uninitializedConnectors.add(connector);
-                diffStates.remove(connector);
-                assert isRemovalSentToClient(connector) : "Connector "
-                        + connector + " (id = " + connector.getConnectorId()
-                        + ") is no longer visible to the client, but no corresponding hierarchy change was sent.";
-                if (fineLogging) {
-                    getLogger().log(Level.FINE,
-                            "cleanConnectorMap removed state for {0} as it is not visible",
-                            getConnectorAndParentInfo(connector));
-                }
+                logMissedConnector(connector, Level.WARNING);
+                clean = false;
             }
         }
+        return clean;
+    }
+
+    private void logMissedConnector(ClientConnector connector, Level level) {
+        getLogger().log(level,
+                "{0} was not visible to the client, but was not cleaned as it or its parent was not marked as dirty",
+                getConnectorAndParentInfo(connector));
+    }
+
+    /**
+     * Removes the given connector if it is no longer attached to the UI, or
+     * marks it as uninitialized if it is not visible to the client.
+     *
+     * @return <code>true</code> if the connector was marked as uninitialized,
+     *         <code>false</code> otherwise
+     */
+    private boolean cleanConnector(ClientConnector connector,
+            GlobalResourceHandler globalResourceHandler) {
+        assert connector != null;
+        if (connectorIdToConnector
+                .get(connector.getConnectorId()) != connector) {
+            // Not registered (anymore)
+            return false;
+        }
+        if (connector.getUI() != uI) {
+            // If connector is no longer part of this uI,
+            // remove it from the map. If it is re-attached to the
+            // application at some point it will be re-added through
+            // registerConnector(connector)
+            // This code should never be called as cleanup should take place
+            // in detach()
+            getLogger().log(Level.WARNING,
+                    "cleanConnectorMap unregistered connector {0}. This should have been done when the connector was detached.",
+                    getConnectorAndParentInfo(connector));
+            if (globalResourceHandler != null) {
+                globalResourceHandler.unregisterConnector(connector);
+            }
+            uninitializedConnectors.remove(connector);
+            diffStates.remove(connector);
+            connectorIdToConnector.remove(connector.getConnectorId());
+        } else if (!uninitializedConnectors.contains(connector)
+                && !LegacyCommunicationManager
+                        .isConnectorVisibleToClient(connector)) {
+            // Connector was visible to the client but is no longer (e.g.
+            // setVisible(false) has been called or SelectiveRenderer tells
+            // it's no longer shown) -> make sure that the full state is
+            // sent again when/if made visible
+            uninitializedConnectors.add(connector);
+            diffStates.remove(connector);
+            assert isRemovalSentToClient(connector) : "Connector "
+                    + connector + " (id = " + connector.getConnectorId()
+                    + ") is no longer visible to the client, but no corresponding hierarchy change was sent.";
+            if (fineLogging) {
+                getLogger().log(Level.FINE,
+                        "cleanConnectorMap removed state for {0} as it is not visible",
+                        getConnectorAndParentInfo(connector));
+            }
+            return true;
+        }
+        return false;
     }
 
     private boolean isRemovalSentToClient(ClientConnector connector) {
@@ -367,8 +493,8 @@ public class ConnectorTracker implements Serializable {
         String attributeName = ConnectorHierarchyWriter.class.getName()
                 + ".hierarchyInfo";
         Object hierarchyInfoObj = request.getAttribute(attributeName);
-        if (hierarchyInfoObj instanceof JsonObject) {
-            JsonObject hierachyInfo = (JsonObject) hierarchyInfoObj;
+        if (hierarchyInfoObj instanceof Set<?>) {
+            Set<?> hierachyInfo = (Set<?>) hierarchyInfoObj;
 
             ClientConnector firstVisibleParent = findFirstVisibleParent(
                     connector);
@@ -377,7 +503,7 @@ public class ConnectorTracker implements Serializable {
                 return true;
             }
 
-            if (!hierachyInfo.hasKey(firstVisibleParent.getConnectorId())) {
+            if (!hierachyInfo.contains(firstVisibleParent.getConnectorId())) {
                 /*
                  * No hierarchy change about to be sent, but this might be
                  * because of an optimization that omits explicit hierarchy
@@ -408,7 +534,7 @@ public class ConnectorTracker implements Serializable {
             }
         } else {
             getLogger().warning("Request attribute " + attributeName
-                    + " is not a JsonObject");
+                    + " is not a Set");
         }
 
         return true;
@@ -543,6 +669,7 @@ public class ConnectorTracker implements Serializable {
         }
 
         dirtyConnectors.add(connector);
+        changedConnectors.add(connector);
     }
 
     /**
@@ -606,6 +733,8 @@ public class ConnectorTracker implements Serializable {
      */
     public void markAllConnectorsDirty() {
         markConnectorsDirtyRecursively(uI);
+        // Everything is sent again, so make sure nothing stale is kept
+        fullCleanupNeeded = true;
         if (fineLogging) {
             getLogger().fine("All connectors are now dirty");
         }
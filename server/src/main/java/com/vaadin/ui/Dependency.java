@@ -18,7 +18,10 @@ package com.vaadin.ui;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.vaadin.annotations.HtmlImport;
 import com.vaadin.annotations.JavaScript;
@@ -51,6 +54,12 @@ public class Dependency implements Serializable {
         }
     }
 
+    /*
+     * The dependencies declared by each class, shared by all sessions. The
+     * URLs are registered separately for each session.
+     */
+    private static final Map<Class<?>, List<Dependency>> DECLARED_DEPENDENCIES = new ConcurrentHashMap<>();
+
     private final Type type;
     private final String url;
 
@@ -93,27 +102,44 @@ public class Dependency implements Serializable {
         return type;
     }
 
+    /**
+     * Gets the dependencies defined for the given class using annotations. The
+     * URLs of the returned dependencies have not been registered. The
+     * annotations of each class are only scanned once.
+     *
+     * @param cls
+     *            the class to scan
+     * @return an unmodifiable list of the declared JavaScript, HTML import and
+     *         stylesheet dependencies, in that order and otherwise in the order
+     *         defined by the annotations
+     */
+    private static List<Dependency> getDeclaredDependencies(Class<?> cls) {
+        List<Dependency> dependencies = DECLARED_DEPENDENCIES.get(cls);
+        if (dependencies == null) {
+            dependencies = DECLARED_DEPENDENCIES.computeIfAbsent(cls, c -> {
+                List<Dependency> declared = new ArrayList<>();
+                findResources(Type.JAVASCRIPT, c, declared);
+                findResources(Type.HTMLIMPORT, c, declared);
+                findResources(Type.STYLESHEET, c, declared);
+                return Collections.unmodifiableList(declared);
+            });
+        }
+        return dependencies;
+    }
+
     /**
      * Finds all the URLs defined for the given class using annotations for the
-     * given type, registers the URLs to the communication manager and adds the
-     * registered dependencies to the given list.
+     * given type and adds them as dependencies to the given list.
      *
      * @param type
      *            the type of dependencies to look for
      * @param cls
      *            the class to scan
-     * @param manager
-     *            a reference to the communication manager which tracks
-     *            dependencies
      * @param dependencies
-     *            the list to add registered dependencies to
-     *
-     * @return a stream of resource URLs in the order defined by the annotations
+     *            the list to add found dependencies to
      */
-    @SuppressWarnings("deprecation")
-    private static void findAndRegisterResources(Type type,
-            Class<? extends ClientConnector> cls,
-            LegacyCommunicationManager manager, List<Dependency> dependencies) {
+    private static void findResources(Type type, Class<?> cls,
+            List<Dependency> dependencies) {
         Annotation[] annotations = cls
                 .getAnnotationsByType(type.annotationType);
         if (annotations != null) {
@@ -132,8 +158,7 @@ public class Dependency implements Serializable {
                 }
 
                 for (String resource : resources) {
-                    String url = manager.registerDependency(resource, cls);
-                    dependencies.add(new Dependency(type, url));
+                    dependencies.add(new Dependency(type, resource));
                 }
             }
         }
@@ -164,12 +189,16 @@ public class Dependency implements Serializable {
         List<Dependency> dependencies = new ArrayList<>();
 
         for (Class<? extends ClientConnector> connectorType : connectorTypes) {
-            findAndRegisterResources(Type.JAVASCRIPT, connectorType, manager,
-                    dependencies);
-            findAndRegisterResources(Type.HTMLIMPORT, connectorType, manager,
-                    dependencies);
-            findAndRegisterResources(Type.STYLESHEET, connectorType, manager,
-                    dependencies);
+            for (Dependency declared : getDeclaredDependencies(
+                    connectorType)) {
+                String url = manager.registerDependency(declared.getUrl(),
+                        connectorType);
+                if (url.equals(declared.getUrl())) {
+                    dependencies.add(declared);
+                } else {
+                    dependencies.add(new Dependency(declared.getType(), url));
+                }
+            }
         }
 
         return dependencies;
@@ -108,6 +108,32 @@ public interface MultiSelect<T> extends HasValue<Set<T>> {
      */
     public Set<T> getSelectedItems();
 
+    /**
+     * Returns a stream of the currently selected items, in the same order as
+     * {@link #getSelectedItems()}. Implementations that do not keep all
+     * selected items in memory, for instance after selecting all items, may
+     * fetch the items lazily while the stream is consumed instead of first
+     * collecting them into a set.
+     *
+     * @return a stream of the selected items, not null
+     * @since 8.14
+     */
+    public default Stream<T> streamSelectedItems() {
+        return getSelectedItems().stream();
+    }
+
+    /**
+     * Returns the number of currently selected items. Implementations that do
+     * not keep all selected items in memory may answer this without fetching
+     * the selected items.
+     *
+     * @return the number of selected items
+     * @since 8.14
+     */
+    public default int getSelectedItemCount() {
+        return getSelectedItems().size();
+    }
+
     /**
      * Deselects all currently selected items.
      */
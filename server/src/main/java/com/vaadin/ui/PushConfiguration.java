@@ -162,10 +162,58 @@ public interface PushConfiguration extends Serializable {
      */
     public String getPushUrl();
 
+    /**
+     * Sets the minimum interval between two asynchronous push messages sent to
+     * the client. Pushes that happen sooner than this after the previous
+     * message, or while the previous message is still being sent, are
+     * deferred: the changes are left pending and are sent as a single message
+     * when the interval has passed. This limits the rate of messages for UIs
+     * that are updated very frequently from background threads, e.g. a
+     * minimum interval of 100 ms allows at most ten messages per second.
+     * <p>
+     * Responses to client requests are never deferred. The default value is 0,
+     * which disables throttling.
+     *
+     * @since 8.14
+     * @param minPushInterval
+     *            the minimum interval in milliseconds, or 0 to send every push
+     *            immediately
+     * @throws IllegalArgumentException
+     *             if the interval is negative
+     * @throws UnsupportedOperationException
+     *             if the interval is not 0 and the implementation does not
+     *             support throttling, which is the default
+     */
+    public default void setMinPushInterval(int minPushInterval) {
+        if (minPushInterval < 0) {
+            throw new IllegalArgumentException(
+                    "Minimum push interval cannot be negative");
+        }
+        if (minPushInterval != 0) {
+            throw new UnsupportedOperationException(
+                    "Push throttling is not supported by "
+                            + getClass().getName());
+        }
+    }
+
+    /**
+     * Returns the minimum interval between two asynchronous push messages sent
+     * to the client.
+     *
+     * @since 8.14
+     * @return the minimum interval in milliseconds, 0 if pushes are not
+     *         throttled, which is the default
+     * @see #setMinPushInterval(int)
+     */
+    public default int getMinPushInterval() {
+        return 0;
+    }
+
 }
 
 class PushConfigurationImpl implements PushConfiguration {
     private final UI ui;
+    private int minPushInterval = 0;
 
     public PushConfigurationImpl(UI ui) {
         this.ui = ui;
@@ -232,6 +280,20 @@ class PushConfigurationImpl implements PushConfiguration {
         return getState(false).pushUrl;
     }
 
+    @Override
+    public void setMinPushInterval(int minPushInterval) {
+        if (minPushInterval < 0) {
+            throw new IllegalArgumentException(
+                    "Minimum push interval cannot be negative");
+        }
+        this.minPushInterval = minPushInterval;
+    }
+
+    @Override
+    public int getMinPushInterval() {
+        return minPushInterval;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -22,6 +22,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.net.URI;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -1569,7 +1570,50 @@ public abstract class UI extends AbstractSingleComponentContainer
             throw new UIDetachedException();
         }
 
-        return session.access(new ErrorHandlingRunnable() {
+        return session.access(createAccessTask(session, runnable));
+    }
+
+    /**
+     * Provides exclusive access to this UI from outside a request handling
+     * thread, coalescing tasks with the same key.
+     * <p>
+     * Works like {@link #access(Runnable)}, except that if a task submitted for
+     * this UI with an equal key has not yet been started, its runnable is
+     * replaced by the given runnable instead of adding a new task to the
+     * queue. Keys are only compared to keys of other tasks submitted for this
+     * UI.
+     *
+     * @see #access(Runnable)
+     * @see VaadinSession#access(Object, Runnable)
+     *
+     * @since 8.14
+     *
+     * @param key
+     *            the key identifying tasks that replace each other, not
+     *            <code>null</code>
+     * @param runnable
+     *            the runnable which accesses the UI
+     * @throws UIDetachedException
+     *             if the UI is not attached to a session (and locking can
+     *             therefore not be done)
+     * @return a future that can be used to check for task completion and to
+     *         cancel the task
+     */
+    public Future<Void> access(Object key, Runnable runnable) {
+        Objects.requireNonNull(key, "The key cannot be null");
+        VaadinSession session = getSession();
+
+        if (session == null) {
+            throw new UIDetachedException();
+        }
+
+        return session.access(new SimpleImmutableEntry<>(this, key),
+                createAccessTask(session, runnable));
+    }
+
+    private ErrorHandlingRunnable createAccessTask(VaadinSession session,
+            Runnable runnable) {
+        return new ErrorHandlingRunnable() {
             @Override
             public void run() {
                 accessSynchronously(runnable);
@@ -1628,7 +1672,7 @@ public abstract class UI extends AbstractSingleComponentContainer
                     getLogger().log(Level.SEVERE, e.getMessage(), e);
                 }
             }
-        });
+        };
     }
 
     /**
@@ -15,12 +15,18 @@
  */
 package com.vaadin.ui.components.grid;
 
-import java.util.ArrayList;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -32,6 +38,7 @@ import com.vaadin.data.provider.DataCommunicator;
 import com.vaadin.data.provider.DataProvider;
 import com.vaadin.data.provider.HierarchicalDataProvider;
 import com.vaadin.data.provider.HierarchicalQuery;
+import com.vaadin.data.provider.IdentifiedItemSet;
 import com.vaadin.data.provider.Query;
 import com.vaadin.event.selection.MultiSelectionEvent;
 import com.vaadin.event.selection.MultiSelectionListener;
@@ -92,7 +99,33 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
         }
     }
 
-    private List<T> selection = new ArrayList<>();
+    /*
+     * The selected items, or the items excluded from the selection when
+     * allItemsSelected is true.
+     */
+    private final IdentifiedItemSet<T> selection = new IdentifiedItemSet<>(
+            () -> getGrid().getDataProvider());
+
+    /*
+     * True if all items were selected without fetching them, which is only
+     * done when virtual select all is enabled.
+     */
+    private boolean allItemsSelected = false;
+
+    private boolean virtualSelectAllEnabled = false;
+
+    /*
+     * Unmodifiable copy of the selection returned by getSelectedItems(), reset
+     * whenever the selection changes, and also whenever the data changes while
+     * all items are selected.
+     */
+    private Set<T> selectedItems;
+
+    /*
+     * Listener resetting selectedItems when the data changes, registered while
+     * selectedItems contains items fetched from the data provider.
+     */
+    private Registration dataChangeRegistration;
 
     private SelectAllCheckBoxVisibility selectAllCheckBoxVisibility = SelectAllCheckBoxVisibility.DEFAULT;
 
@@ -149,9 +182,62 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
      * @return {@code true} if id is selected, {@code false} if not
      */
     protected boolean selectionContainsId(Object id) {
-        DataProvider<T, ?> dataProvider = getGrid().getDataProvider();
-        return selection.stream().map(dataProvider::getId)
-                .anyMatch(i -> id.equals(i));
+        if (allItemsSelected) {
+            return !selection.containsId(id);
+        }
+        return selection.containsId(id);
+    }
+
+    /**
+     * Sets whether selecting all items is done without fetching the items.
+     * <p>
+     * By default, {@link #selectAll()} and the select all checkbox fetch all
+     * items from the data provider and add them to the selection, which is not
+     * feasible for large back end data sets. When virtual select all is
+     * enabled, selecting all items is instead recorded as "all items except
+     * the ones deselected afterwards". Items are then only fetched when the
+     * application asks for them, e.g. by iterating
+     * {@link #streamSelectedItems()} or {@link #getSelectedItems()}. The
+     * selection then consists of all the items that the data provider of the
+     * grid returns at that time, including any filter configured for the data
+     * provider, minus the deselected items. The fetched items are fetched again
+     * after the data provider reports a change, e.g. when it is refreshed or
+     * its filter is changed.
+     * <p>
+     * {@link #getSelectedItemCount()} asks the data provider for its size in
+     * this case instead of fetching the items, except for hierarchical and
+     * in-memory data providers. For other data providers, the count is the size
+     * minus the number of deselected items, and it is too low if some of the
+     * deselected items are no longer returned by the data provider, e.g.
+     * because of a filter.
+     *
+     * @param virtualSelectAllEnabled
+     *            <code>true</code> to select all items without fetching them,
+     *            <code>false</code> to fetch all items when selecting all
+     * @since 8.14
+     */
+    public void setVirtualSelectAllEnabled(boolean virtualSelectAllEnabled) {
+        this.virtualSelectAllEnabled = virtualSelectAllEnabled;
+        if (!virtualSelectAllEnabled && allItemsSelected) {
+            // Keep the same selection, but as actual items
+            Set<T> items = new LinkedHashSet<>(getSelectedItems());
+            allItemsSelected = false;
+            selection.clear();
+            selection.addAll(items);
+            resetSelectedItems();
+        }
+    }
+
+    /**
+     * Returns whether selecting all items is done without fetching the items.
+     *
+     * @return <code>true</code> if selecting all items does not fetch them,
+     *         <code>false</code> otherwise
+     * @see #setVirtualSelectAllEnabled(boolean)
+     * @since 8.14
+     */
+    public boolean isVirtualSelectAllEnabled() {
+        return virtualSelectAllEnabled;
     }
 
     @Override
@@ -160,6 +246,13 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
         updateCanSelectAll();
     }
 
+    @Override
+    public void detach() {
+        // Not listening to the data provider while detached
+        resetSelectedItems();
+        super.detach();
+    }
+
     /**
      * Controls whether the select all checkbox is visible in the grid default
      * header, or not.
@@ -195,7 +288,56 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
 
     @Override
     public Set<T> getSelectedItems() {
-        return Collections.unmodifiableSet(new LinkedHashSet<>(selection));
+        if (selectedItems == null) {
+            if (allItemsSelected) {
+                DataProvider<T, ?> dataProvider = getGrid().getDataProvider();
+                selectedItems = new AllItemsExcept<>(dataProvider, selection);
+                dataChangeRegistration = dataProvider
+                        .addDataProviderListener(
+                                event -> resetSelectedItems());
+            } else {
+                selectedItems = Collections
+                        .unmodifiableSet(new LinkedHashSet<>(selection));
+            }
+        }
+        return selectedItems;
+    }
+
+    @Override
+    public Stream<T> streamSelectedItems() {
+        Set<T> items = getSelectedItems();
+        if (items instanceof AllItemsExcept) {
+            return ((AllItemsExcept<T>) items).streamLazily();
+        }
+        return items.stream();
+    }
+
+    @Override
+    public int getSelectedItemCount() {
+        if (!allItemsSelected) {
+            return selection.size();
+        }
+        DataProvider<T, ?> dataProvider = getGrid().getDataProvider();
+        if (dataProvider instanceof HierarchicalDataProvider
+                || (dataProvider.isInMemory() && !selection.isEmpty())) {
+            // Only counts the deselected items that are still present
+            return (int) streamSelectedItems().count();
+        }
+        // Too low if some deselected items are no longer present
+        return Math.max(0, dataProvider.size(new Query<>()) - selection.size());
+    }
+
+    private void resetSelectedItems() {
+        selectedItems = null;
+        if (dataChangeRegistration != null) {
+            dataChangeRegistration.remove();
+            dataChangeRegistration = null;
+        }
+    }
+
+    @Override
+    public Optional<T> getFirstSelectedItem() {
+        return streamSelectedItems().findFirst();
     }
 
     @Override
@@ -280,6 +422,16 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
                 return MultiSelectionModelImpl.this.getSelectedItems();
             }
 
+            @Override
+            public Stream<T> streamSelectedItems() {
+                return MultiSelectionModelImpl.this.streamSelectedItems();
+            }
+
+            @Override
+            public int getSelectedItemCount() {
+                return MultiSelectionModelImpl.this.getSelectedItemCount();
+            }
+
             @Override
             public Registration addSelectionListener(
                     MultiSelectionListener<T> listener) {
@@ -306,6 +458,18 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
             getState().allSelected = true;
         }
 
+        if (virtualSelectAllEnabled) {
+            if (allItemsSelected && selection.isEmpty()) {
+                return;
+            }
+            doUpdateSelection(set -> {
+                allItemsSelected = true;
+                set.clear();
+                getGrid().getDataCommunicator().reset();
+            }, userOriginated);
+            return;
+        }
+
         Stream<T> allItemsStream;
         DataProvider<T, ?> dataProvider = getGrid().getDataProvider();
         // this will fetch everything from backend
@@ -344,7 +508,7 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
      *            the data provider to fetch from
      * @return the stream of all descendant items
      */
-    private Stream<T> fetchAllDescendants(T parent,
+    private static <T> Stream<T> fetchAllDescendants(T parent,
             HierarchicalDataProvider<T, ?> dataProvider) {
         List<T> children = dataProvider
                 .fetchChildren(new HierarchicalQuery<>(null, parent))
@@ -386,6 +550,15 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
             getState().allSelected = false;
         }
 
+        if (allItemsSelected) {
+            doUpdateSelection(set -> {
+                allItemsSelected = false;
+                set.clear();
+                getGrid().getDataCommunicator().reset();
+            }, userOriginated);
+            return;
+        }
+
         updateSelection(Collections.emptySet(), new LinkedHashSet<>(selection),
                 userOriginated);
     }
@@ -423,13 +596,22 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
 
         DataProvider<T, ?> dataProvider = getGrid().getDataProvider();
 
-        addedItems.removeIf(item -> {
-            Object id = dataProvider.getId(item);
-            Optional<T> toRemove = removedItems.stream()
-                    .filter(i -> dataProvider.getId(i).equals(id)).findFirst();
-            toRemove.ifPresent(i -> removedItems.remove(i));
-            return toRemove.isPresent();
-        });
+        if (!addedItems.isEmpty() && !removedItems.isEmpty()) {
+            // each added item cancels out one removed item with the same id
+            Map<Object, Deque<T>> removedById = new HashMap<>();
+            removedItems.forEach(item -> removedById
+                    .computeIfAbsent(dataProvider.getId(item),
+                            id -> new ArrayDeque<>())
+                    .add(item));
+            addedItems.removeIf(item -> {
+                Deque<T> sameId = removedById.get(dataProvider.getId(item));
+                if (sameId == null || sameId.isEmpty()) {
+                    return false;
+                }
+                removedItems.remove(sameId.poll());
+                return true;
+            });
+        }
 
         if (addedItems.stream().map(dataProvider::getId)
                 .allMatch(this::selectionContainsId)
@@ -446,13 +628,14 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
 
         doUpdateSelection(set -> {
             // order of add / remove does not matter since no duplicates
-            Set<Object> removedItemIds = removedItems.stream()
-                    .map(dataProvider::getId).collect(Collectors.toSet());
-            set.removeIf(
-                    item -> removedItemIds.contains(dataProvider.getId(item)));
-            addedItems.stream().filter(
-                    item -> !selectionContainsId(dataProvider.getId(item)))
-                    .forEach(set::add);
+            if (allItemsSelected) {
+                // the set contains the items excluded from the selection
+                removedItems.forEach(set::add);
+                addedItems.forEach(set::remove);
+            } else {
+                removedItems.forEach(set::remove);
+                addedItems.forEach(set::add);
+            }
 
             // refresh method is NOOP for items that are not present client side
             DataCommunicator<T> dataCommunicator = getGrid()
@@ -469,8 +652,9 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
                     "Trying to update selection for grid selection model that has been detached from the grid.");
         }
 
-        LinkedHashSet<T> oldSelection = new LinkedHashSet<>(selection);
+        Set<T> oldSelection = getSelectedItems();
         handler.accept(selection);
+        resetSelectedItems();
 
         fireEvent(new MultiSelectionEvent<>(getGrid(), asMultiSelect(),
                 oldSelection, userOriginated));
@@ -478,13 +662,65 @@ public class MultiSelectionModelImpl<T> extends AbstractSelectionModel<T>
 
     @Override
     public void refreshData(T item) {
-        DataProvider<T, ?> dataProvider = getGrid().getDataProvider();
-        Object refreshId = dataProvider.getId(item);
-        for (int i = 0; i < selection.size(); ++i) {
-            if (dataProvider.getId(selection.get(i)).equals(refreshId)) {
-                selection.set(i, item);
-                return;
+        if (selection.replace(item)) {
+            resetSelectedItems();
+        }
+    }
+
+    /**
+     * The selection when all items have been selected without fetching them:
+     * all the items of a data provider except the excluded ones. The items
+     * are fetched the first time they are needed.
+     */
+    private static class AllItemsExcept<T> extends AbstractSet<T>
+            implements Serializable {
+        private final DataProvider<T, ?> dataProvider;
+        private final IdentifiedItemSet<T> excluded;
+        private Set<T> items;
+
+        private AllItemsExcept(DataProvider<T, ?> dataProvider,
+                Collection<T> excluded) {
+            this.dataProvider = dataProvider;
+            this.excluded = new IdentifiedItemSet<>(() -> dataProvider);
+            this.excluded.addAll(excluded);
+        }
+
+        private Stream<T> streamLazily() {
+            if (items != null) {
+                return items.stream();
+            }
+            Stream<T> all;
+            if (dataProvider instanceof HierarchicalDataProvider) {
+                all = fetchAllDescendants(null,
+                        (HierarchicalDataProvider<T, ?>) dataProvider);
+            } else {
+                all = dataProvider.fetch(new Query<>());
+            }
+            return all.filter(item -> !excluded.contains(item));
+        }
+
+        private Set<T> getItems() {
+            if (items == null) {
+                Set<T> fetched = streamLazily().collect(
+                        Collectors.toCollection(LinkedHashSet::new));
+                items = Collections.unmodifiableSet(fetched);
             }
+            return items;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return getItems().iterator();
+        }
+
+        @Override
+        public int size() {
+            return getItems().size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return getItems().contains(o);
         }
     }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.util;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * Utilities for reading the <code>Accept-Encoding</code> HTTP request header
+ * as defined in RFC 7231. The header is a comma separated list of content
+ * codings, each with an optional quality value such as <code>gzip;q=0.5</code>.
+ * A coding with the quality value 0 is not acceptable, and <code>*</code>
+ * matches any coding not listed explicitly.
+ *
+ * @author Vaadin Ltd
+ * @since 8.14
+ */
+public final class AcceptEncodingUtil implements Serializable {
+
+    private AcceptEncodingUtil() {
+        // Static utils only
+    }
+
+    /**
+     * Gets the quality value that the given <code>Accept-Encoding</code>
+     * header assigns to a content coding.
+     *
+     * @param acceptEncoding
+     *            the value of the header, or <code>null</code> if the header
+     *            is missing
+     * @param coding
+     *            the content coding, e.g. <code>"gzip"</code>, not
+     *            <code>null</code>
+     * @return the quality value between 0 and 1, where 0 means that the
+     *         coding is not acceptable
+     */
+    public static double getQuality(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return 0;
+        }
+        double quality = -1;
+        double wildcardQuality = 0;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if ("x-gzip".equals(name)) {
+                // Equivalent to gzip according to RFC 7230
+                name = "gzip";
+            }
+            if (name.equals(coding)) {
+                quality = Math.max(quality, parseQuality(parts));
+            } else if ("*".equals(name)) {
+                wildcardQuality = parseQuality(parts);
+            }
+        }
+        return quality >= 0 ? quality : wildcardQuality;
+    }
+
+    /**
+     * Checks whether the given <code>Accept-Encoding</code> header accepts a
+     * content coding, i.e. whether its quality value is above 0.
+     *
+     * @param acceptEncoding
+     *            the value of the header, or <code>null</code> if the header
+     *            is missing
+     * @param coding
+     *            the content coding, e.g. <code>"gzip"</code>, not
+     *            <code>null</code>
+     * @return <code>true</code> if the coding is acceptable,
+     *         <code>false</code> otherwise
+     */
+    public static boolean isAccepted(String acceptEncoding, String coding) {
+        return getQuality(acceptEncoding, coding) > 0;
+    }
+
+    private static double parseQuality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            int equals = parameter.indexOf('=');
+            if (equals > 0 && "q".equalsIgnoreCase(
+                    parameter.substring(0, equals).trim())) {
+                try {
+                    double quality = Double
+                            .parseDouble(parameter.substring(equals + 1).trim());
+                    return Math.min(Math.max(quality, 0), 1);
+                } catch (NumberFormatException e) {
+                    // A malformed weight does not make the coding acceptable
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,119 @@
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaadin.server.communication.JsonStreamWriter;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.impl.JsonUtil;
+
+/*
+ * Compares the heap allocated per UIDL "state" section when all connector
+ * states are first collected into one JsonObject and stringified (the old
+ * SharedStateWriter approach) with streaming each state directly to the
+ * response writer using JsonStreamWriter.
+ *
+ * Allocation is measured with com.sun.management.ThreadMXBean, so run on a
+ * HotSpot based JVM. Your results will vary.
+ */
+public class UidlWriterAllocationTester {
+
+    private static final int CONNECTORS = 10000;
+    private static final int ROUNDS = 50;
+
+    public static void main(String[] args) throws IOException {
+        List<JsonObject> states = createStates();
+
+        // warmup
+        for (int i = 0; i < ROUNDS; i++) {
+            writeTree(states, new NullWriter());
+            writeStream(states, new NullWriter());
+        }
+
+        long tree = measure(states, true);
+        long stream = measure(states, false);
+
+        System.out.println(CONNECTORS + " connector states per response");
+        System.out.println("build-then-stringify: " + tree / ROUNDS
+                + " bytes allocated per response");
+        System.out.println("streaming:            " + stream / ROUNDS
+                + " bytes allocated per response");
+    }
+
+    private static long measure(List<JsonObject> states, boolean tree)
+            throws IOException {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ROUNDS; i++) {
+            if (tree) {
+                writeTree(states, new NullWriter());
+            } else {
+                writeStream(states, new NullWriter());
+            }
+        }
+        return bean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private static void writeTree(List<JsonObject> states, Writer writer)
+            throws IOException {
+        JsonObject sharedStates = Json.createObject();
+        for (int i = 0; i < states.size(); i++) {
+            sharedStates.put(String.valueOf(i), states.get(i));
+        }
+        writer.write(JsonUtil.stringify(sharedStates));
+    }
+
+    private static void writeStream(List<JsonObject> states, Writer writer)
+            throws IOException {
+        JsonStreamWriter json = new JsonStreamWriter(writer);
+        json.beginObject();
+        for (int i = 0; i < states.size(); i++) {
+            json.name(String.valueOf(i)).value(states.get(i));
+        }
+        json.endObject();
+    }
+
+    private static List<JsonObject> createStates() {
+        List<JsonObject> states = new ArrayList<>();
+        for (int i = 0; i < CONNECTORS; i++) {
+            JsonObject state = Json.createObject();
+            state.put("caption", "Caption for connector " + i);
+            state.put("width", "100%");
+            state.put("enabled", i % 2 == 0);
+            JsonArray styles = Json.createArray();
+            styles.set(0, "v-label");
+            styles.set(1, "style-" + i);
+            state.put("styles", styles);
+            states.add(state);
+        }
+        return states;
+    }
+
+    private static class NullWriter extends Writer {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            // discard
+        }
+
+        @Override
+        public void write(String str) {
+            // discard
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
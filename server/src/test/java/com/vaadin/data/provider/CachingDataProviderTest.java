@@ -0,0 +1,153 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.shared.Registration;
+
+public class CachingDataProviderTest {
+
+    private final List<String> items = Arrays.asList("a", "b", "c", "d",
+            "e");
+    private final AtomicInteger fetchCount = new AtomicInteger();
+    private final AtomicInteger sizeCount = new AtomicInteger();
+    private CallbackDataProvider<String, String> backend;
+    private CachingDataProvider<String, String> dataProvider;
+
+    @Before
+    public void setUp() {
+        backend = new CallbackDataProvider<>(query -> {
+            fetchCount.incrementAndGet();
+            return items.stream()
+                    .filter(item -> item
+                            .compareTo(query.getFilter().orElse("")) >= 0)
+                    .skip(query.getOffset()).limit(query.getLimit());
+        }, query -> {
+            sizeCount.incrementAndGet();
+            return (int) items.stream()
+                    .filter(item -> item
+                            .compareTo(query.getFilter().orElse("")) >= 0)
+                    .count();
+        });
+        dataProvider = new CachingDataProvider<>(backend);
+    }
+
+    @Test
+    public void repeatedQueries_backendQueriedOnce() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Arrays.asList("b", "c"),
+                    fetch(new Query<>(0, 2, null, null, "b")));
+            assertEquals(4, dataProvider.size(new Query<>("b")));
+        }
+        assertEquals(1, fetchCount.get());
+        assertEquals(1, sizeCount.get());
+        assertEquals(4, dataProvider.getHitCount());
+        assertEquals(2, dataProvider.getMissCount());
+
+        // Different paging, filter or sorting is a different result
+        fetch(new Query<>(1, 2, null, null, "b"));
+        fetch(new Query<>(0, 2, null, null, "c"));
+        fetch(new Query<>(0, 2,
+                QuerySortOrder.asc("name").build(), null, "b"));
+        fetch(new Query<>(0, 2,
+                QuerySortOrder.asc("name").build(), null, "b"));
+        assertEquals(4, fetchCount.get());
+
+        // Size does not depend on paging or sorting
+        dataProvider.size(new Query<>(0, 10,
+                QuerySortOrder.desc("name").build(), null, "b"));
+        assertEquals(1, sizeCount.get());
+    }
+
+    @Test
+    public void refresh_cacheInvalidated() {
+        fetch(new Query<>());
+        dataProvider.refreshAll();
+        fetch(new Query<>());
+        assertEquals(2, fetchCount.get());
+
+        // Also when the wrapped data provider is refreshed
+        backend.refreshItem("a");
+        fetch(new Query<>());
+        assertEquals(3, fetchCount.get());
+        assertEquals(1, dataProvider.getEntryCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedEvicted() {
+        dataProvider.setMaximumEntries(2);
+        fetch(new Query<>("a"));
+        fetch(new Query<>("b"));
+        fetch(new Query<>("a"));
+        fetch(new Query<>("c"));
+        assertEquals(3, fetchCount.get());
+
+        fetch(new Query<>("a"));
+        assertEquals(3, fetchCount.get());
+        fetch(new Query<>("b"));
+        assertEquals(4, fetchCount.get());
+        assertEquals(2, dataProvider.getEntryCount());
+    }
+
+    @Test
+    public void timeToLive_expiredResultsFetchedAgain()
+            throws InterruptedException {
+        dataProvider.setTimeToLive(Duration.ofMillis(1));
+        fetch(new Query<>());
+        Thread.sleep(5);
+        fetch(new Query<>());
+        assertEquals(2, fetchCount.get());
+
+        dataProvider.setTimeToLive(null);
+        fetch(new Query<>());
+        Thread.sleep(5);
+        fetch(new Query<>());
+        assertEquals(2, fetchCount.get());
+    }
+
+    @Test
+    public void lastListenerRemoved_cacheClearedAndBackendNotListenedTo() {
+        AtomicInteger listenerCount = new AtomicInteger();
+        CallbackDataProvider<String, String> countingBackend = new CallbackDataProvider<String, String>(
+                query -> items.stream().skip(query.getOffset())
+                        .limit(query.getLimit()),
+                query -> items.size()) {
+            @Override
+            public Registration addDataProviderListener(
+                    DataProviderListener<String> listener) {
+                listenerCount.incrementAndGet();
+                Registration registration = super.addDataProviderListener(
+                        listener);
+                return () -> {
+                    listenerCount.decrementAndGet();
+                    registration.remove();
+                };
+            }
+        };
+        dataProvider = new CachingDataProvider<>(countingBackend);
+        assertEquals(0, listenerCount.get());
+
+        Registration registration = dataProvider
+                .addDataProviderListener(event -> {
+                });
+        fetch(new Query<>());
+        assertEquals(2, listenerCount.get());
+        assertEquals(1, dataProvider.getEntryCount());
+
+        registration.remove();
+        assertEquals(0, listenerCount.get());
+        assertEquals(0, dataProvider.getEntryCount());
+    }
+
+    private List<String> fetch(Query<String, String> query) {
+        return dataProvider.fetch(query).collect(Collectors.toList());
+    }
+}
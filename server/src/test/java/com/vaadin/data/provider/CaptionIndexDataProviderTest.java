@@ -0,0 +1,120 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.shared.Registration;
+
+public class CaptionIndexDataProviderTest {
+
+    private List<StrBean> data;
+    private ListDataProvider<StrBean> listDataProvider;
+    private CaptionIndexDataProvider<StrBean> dataProvider;
+
+    @Before
+    public void setUp() {
+        data = new ArrayList<>();
+        String[] words = { "Foo", "Bar", "Baz", "foobar", "BARBAZ", "Ünicode",
+                "aaaa", "", "fofoo" };
+        for (int i = 0; i < 100; i++) {
+            data.add(new StrBean(words[i % words.length] + (i % 7), i, 0));
+        }
+        listDataProvider = new ListDataProvider<>(data);
+        dataProvider = new CaptionIndexDataProvider<>(listDataProvider,
+                StrBean::getValue, () -> Locale.ENGLISH);
+    }
+
+    @Test
+    public void fetchAndSize_matchCaseInsensitiveSubstring() {
+        for (String filter : new String[] { "f", "O", "ba", "bAr", "oob",
+                "foobar", "rbaz", "aaa", "aaaa3", "fofo", "ünic", "3", "xyz",
+                "oofo" }) {
+            List<StrBean> expected = data.stream()
+                    .filter(bean -> bean.getValue().toLowerCase(Locale.ENGLISH)
+                            .contains(filter.toLowerCase(Locale.ENGLISH)))
+                    .collect(Collectors.toList());
+            assertEquals(filter, expected, dataProvider
+                    .fetch(new Query<>(filter)).collect(Collectors.toList()));
+            assertEquals(filter, expected.size(),
+                    dataProvider.size(new Query<>(filter)));
+        }
+        assertEquals(data.size(), dataProvider.size(new Query<>()));
+    }
+
+    @Test
+    public void paging_andListDataProviderFilterAndSortApplied() {
+        listDataProvider.setFilter(bean -> bean.getId() % 2 == 0);
+        listDataProvider.setSortOrder(StrBean::getId,
+                com.vaadin.shared.data.sort.SortDirection.DESCENDING);
+
+        List<Integer> expected = data.stream()
+                .filter(bean -> bean.getId() % 2 == 0)
+                .filter(bean -> bean.getValue().toLowerCase().contains("ba"))
+                .map(StrBean::getId).sorted((a, b) -> b - a).skip(2).limit(3)
+                .collect(Collectors.toList());
+
+        assertEquals(expected,
+                dataProvider.fetch(new Query<>(2, 3, null, null, "BA"))
+                        .map(StrBean::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void refreshAll_indexRebuilt() {
+        assertEquals(0, dataProvider.size(new Query<>("new item")));
+
+        data.add(new StrBean("New item", 1000, 0));
+        assertEquals(0, dataProvider.size(new Query<>("new item")));
+
+        listDataProvider.refreshAll();
+        assertEquals(1, dataProvider.size(new Query<>("new item")));
+    }
+
+    @Test
+    public void lastListenerRemoved_wrappedDataProviderNoLongerListenedTo() {
+        AtomicInteger listenerCount = new AtomicInteger();
+        ListDataProvider<StrBean> countingProvider = new ListDataProvider<StrBean>(
+                data) {
+            @Override
+            public Registration addDataProviderListener(
+                    DataProviderListener<StrBean> listener) {
+                listenerCount.incrementAndGet();
+                Registration registration = super.addDataProviderListener(
+                        listener);
+                return () -> {
+                    listenerCount.decrementAndGet();
+                    registration.remove();
+                };
+            }
+        };
+        CaptionIndexDataProvider<StrBean> wrapper = new CaptionIndexDataProvider<>(
+                countingProvider, StrBean::getValue, () -> Locale.ENGLISH);
+        assertEquals(0, listenerCount.get());
+
+        List<Integer> sizesOnChange = new ArrayList<>();
+        Registration registration = wrapper.addDataProviderListener(
+                event -> sizesOnChange.add(
+                        wrapper.size(new Query<>("new item"))));
+        assertEquals(0, wrapper.size(new Query<>("new item")));
+        data.add(new StrBean("New item", 1000, 0));
+        countingProvider.refreshAll();
+        // The index is invalidated before the listeners of the wrapper run
+        assertEquals(Arrays.asList(1), sizesOnChange);
+
+        registration.remove();
+        registration.remove();
+        assertEquals(0, listenerCount.get());
+
+        // Changes while not listening are seen when used again
+        data.add(new StrBean("Another new item", 1001, 0));
+        assertEquals(2, wrapper.size(new Query<>("new item")));
+    }
+}
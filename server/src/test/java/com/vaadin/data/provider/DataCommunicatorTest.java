@@ -6,13 +6,20 @@ import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.vaadin.data.ValueProvider;
 import com.vaadin.data.provider.DataCommunicator.ActiveDataHandler;
 import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.AbstractClientConnector;
+import com.vaadin.server.ClientMethodInvocation;
 import com.vaadin.server.SerializableConsumer;
 import com.vaadin.server.SerializablePredicate;
 import com.vaadin.server.VaadinRequest;
@@ -20,6 +27,7 @@ import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinSession;
 import com.vaadin.shared.Range;
 import com.vaadin.shared.Registration;
+import com.vaadin.shared.data.DataCommunicatorConstants;
 import com.vaadin.ui.UI;
 
 import elemental.json.Json;
@@ -200,6 +208,121 @@ public class DataCommunicatorTest {
                 generator.generated);
     }
 
+    @Test
+    public void refresh_rowDiffsEnabled_onlyChangedValuesSent() {
+        session.lock();
+
+        UI ui = new TestUI(session);
+
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.setRowDiffsEnabled(true);
+        communicator.extend(ui);
+
+        int[] price = { 1 };
+        TestDataProvider dataProvider = new TestDataProvider();
+        communicator.setDataProvider(dataProvider, null);
+        communicator.addDataGenerator((item, jsonObject) -> {
+            JsonObject data = Json.createObject();
+            data.put("name", "Stock");
+            data.put("price", price[0]);
+            jsonObject.put(DataCommunicatorConstants.DATA, data);
+            if (price[0] == 1) {
+                jsonObject.put("initial", true);
+            }
+        });
+
+        communicator.beforeClientResponse(true);
+        communicator.retrievePendingRpcCalls();
+
+        price[0] = 2;
+        dataProvider.refreshItem(TEST_OBJECT);
+        communicator.beforeClientResponse(false);
+
+        List<ClientMethodInvocation> calls = communicator
+                .retrievePendingRpcCalls();
+        assertEquals(1, calls.size());
+        assertEquals("updateRowDiffs", calls.get(0).getMethodName());
+        JsonObject diff = ((JsonArray) calls.get(0).getParameters()[0])
+                .getObject(0);
+        assertEquals(communicator.getKeyMapper().key(TEST_OBJECT),
+                diff.getString(DataCommunicatorConstants.KEY));
+        assertFalse(diff.hasKey(DataCommunicatorConstants.DIFF_UPDATED));
+        assertEquals("[\"initial\",\"s\"]", diff
+                .getArray(DataCommunicatorConstants.DIFF_REMOVED).toJson());
+        assertEquals("{\"d\":{\"u\":{\"price\":2}}}", diff
+                .getObject(DataCommunicatorConstants.DIFF_NESTED).toJson());
+
+        // Nothing but the selection state is sent if nothing changed
+        dataProvider.refreshItem(TEST_OBJECT);
+        communicator.beforeClientResponse(false);
+
+        diff = ((JsonArray) communicator.retrievePendingRpcCalls().get(0)
+                .getParameters()[0]).getObject(0);
+        assertEquals(2, diff.keys().length);
+        assertEquals("[\"s\"]", diff
+                .getArray(DataCommunicatorConstants.DIFF_REMOVED).toJson());
+    }
+
+    @Test
+    public void prefetchPolicy_scrollingForward_fewerQueriesSameRows() {
+        session.lock();
+        UI ui = new TestUI(session);
+
+        List<Integer> items = IntStream.range(0, 1000).boxed()
+                .collect(Collectors.toList());
+        AtomicInteger fetchCount = new AtomicInteger();
+        DataProvider<Integer, Void> dataProvider = DataProvider
+                .fromCallbacks(query -> {
+                    fetchCount.incrementAndGet();
+                    return items.stream().skip(query.getOffset())
+                            .limit(query.getLimit());
+                }, query -> items.size());
+
+        List<Integer> pushed = new ArrayList<>();
+        class RecordingDataCommunicator extends DataCommunicator<Integer> {
+            @Override
+            protected void extend(AbstractClientConnector target) {
+                super.extend(target);
+            }
+
+            @Override
+            protected void pushData(int firstIndex, List<Integer> data) {
+                assertEquals(firstIndex, data.isEmpty() ? firstIndex
+                        : data.get(0).intValue());
+                pushed.addAll(data);
+                super.pushData(firstIndex, data);
+            }
+        }
+        RecordingDataCommunicator communicator = new RecordingDataCommunicator();
+        AdaptivePrefetchPolicy policy = new AdaptivePrefetchPolicy(120);
+        communicator.setPrefetchPolicy(policy);
+        communicator.setDataProvider(dataProvider, null);
+        communicator.extend(ui);
+        communicator.beforeClientResponse(true);
+        fetchCount.set(0);
+        pushed.clear();
+        policy.resetStatistics();
+
+        for (int start = 40; start < 1000; start += 20) {
+            communicator.onRequestRows(start, 20, 0, 0);
+            communicator.beforeClientResponse(false);
+        }
+
+        assertEquals(IntStream.range(40, 1000).boxed()
+                .collect(Collectors.toList()), pushed);
+        assertEquals(48, policy.getRequestCount());
+        assertEquals(policy.getFetchCount(), fetchCount.get());
+        assertTrue("Expected most requests to be served from the buffer",
+                policy.getHitRate() > 0.7);
+
+        // Changing the data drops the buffer
+        fetchCount.set(0);
+        dataProvider.refreshAll();
+        communicator.onRequestRows(980, 20, 0, 0);
+        communicator.beforeClientResponse(false);
+        assertEquals(1, fetchCount.get());
+    }
+
     @Test
     public void refreshDataProviderRemovesOldObjectsFromActiveDataHandler() {
         session.lock();
@@ -273,6 +396,62 @@ public class DataCommunicatorTest {
                 communicator.getKeyMapper().has(TEST_OBJECT));
     }
 
+    @Test
+    public void pushData_keyStringsOnlyCreatedForRows() {
+        session.lock();
+        UI ui = new TestUI(session);
+        class CountingDataCommunicator extends DataCommunicator<Integer> {
+            @Override
+            protected void extend(AbstractClientConnector target) {
+                super.extend(target);
+            }
+
+            @Override
+            protected DataKeyMapper<Integer> createKeyMapper(
+                    ValueProvider<Integer, Object> identifierGetter) {
+                return new CountingKeyMapper(identifierGetter);
+            }
+        }
+        CountingDataCommunicator communicator = new CountingDataCommunicator();
+        communicator.extend(ui);
+        CountingKeyMapper keyMapper = (CountingKeyMapper) communicator
+                .getKeyMapper();
+        List<Integer> items = IntStream.range(0, 100).boxed()
+                .collect(Collectors.toList());
+
+        communicator.pushData(0, items);
+        assertEquals("One key string per row", 100, keyMapper.keyStrings);
+        assertEquals(100, communicator.getActiveDataHandler().getActiveData()
+                .size());
+
+        JsonArray dropped = Json.createArray();
+        for (int i = 0; i < 50; i++) {
+            dropped.set(i, keyMapper.key(items.get(i)));
+        }
+        communicator.onDropRows(dropped);
+        keyMapper.keyStrings = 0;
+        communicator.pushData(50, items.subList(50, 100));
+        assertEquals("One key string per row", 50, keyMapper.keyStrings);
+        assertEquals(50, keyMapper.size());
+        assertEquals(50, communicator.getActiveDataHandler().getActiveData()
+                .size());
+    }
+
+    private static class CountingKeyMapper extends IntKeyMapper<Integer> {
+        private int keyStrings;
+
+        private CountingKeyMapper(
+                ValueProvider<Integer, Object> identifierGetter) {
+            super(identifierGetter);
+        }
+
+        @Override
+        public String key(Integer dataObject) {
+            keyStrings++;
+            return super.key(dataObject);
+        }
+    }
+
     @Test
     public void testFilteringLock() {
         session.lock();
@@ -0,0 +1,68 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+public class IdentifiedItemSetTest {
+
+    private final DataProvider<StrBean, ?> byId = new CallbackDataProvider<>(
+            query -> Stream.empty(), query -> 0, StrBean::getId);
+
+    @Test
+    public void itemsIdentifiedByIdInInsertionOrder() {
+        IdentifiedItemSet<StrBean> set = new IdentifiedItemSet<>(() -> byId);
+        StrBean first = new StrBean("first", 2, 0);
+        StrBean second = new StrBean("second", 1, 0);
+
+        assertTrue(set.add(first));
+        assertTrue(set.add(second));
+        assertFalse(set.add(new StrBean("first again", 2, 0)));
+
+        assertEquals(Arrays.asList(first, second), new ArrayList<>(set));
+        assertTrue(set.containsId(1));
+        assertTrue(set.contains(new StrBean("other instance", 1, 0)));
+
+        assertTrue(set.remove(new StrBean("other instance", 2, 0)));
+        assertEquals(Arrays.asList(second), new ArrayList<>(set));
+    }
+
+    @Test
+    public void replace_keepsPosition() {
+        IdentifiedItemSet<StrBean> set = new IdentifiedItemSet<>(() -> byId);
+        set.add(new StrBean("a", 1, 0));
+        set.add(new StrBean("b", 2, 0));
+
+        StrBean updated = new StrBean("updated", 1, 0);
+        assertTrue(set.replace(updated));
+        assertFalse(set.replace(new StrBean("c", 3, 0)));
+
+        assertSame(updated, set.iterator().next());
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void dataProviderChanged_itemsReindexed() {
+        AtomicReference<DataProvider<StrBean, ?>> dataProvider = new AtomicReference<>(
+                byId);
+        IdentifiedItemSet<StrBean> set = new IdentifiedItemSet<>(
+                dataProvider::get);
+        StrBean item = new StrBean("a", 1, 0);
+        set.add(item);
+        assertTrue(set.containsId(1));
+
+        dataProvider.set(new CallbackDataProvider<>(query -> Stream.empty(),
+                query -> 0, StrBean::getValue));
+
+        assertFalse(set.containsId(1));
+        assertTrue(set.containsId("a"));
+    }
+}
@@ -0,0 +1,170 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class IntKeyMapperTest {
+
+    @Test
+    public void keyGetRemove_sameAsHashMaps() {
+        IntKeyMapper<StrBean> mapper = new IntKeyMapper<>(StrBean::getId);
+        Map<Integer, String> keysById = new HashMap<>();
+        Set<String> removedKeys = new HashSet<>();
+        Random random = new Random(42);
+
+        for (int round = 0; round < 20000; round++) {
+            int id = random.nextInt(500);
+            StrBean bean = new StrBean("Bean " + id, id, 0);
+            if (random.nextInt(3) == 0) {
+                mapper.remove(bean);
+                String removed = keysById.remove(id);
+                if (removed != null) {
+                    removedKeys.add(removed);
+                    assertNull(mapper.get(removed));
+                }
+            } else {
+                String key = mapper.key(bean);
+                String previous = keysById.putIfAbsent(id, key);
+                if (previous != null) {
+                    assertEquals(previous, key);
+                } else {
+                    assertFalse("Key reused", removedKeys.contains(key));
+                }
+                assertEquals(bean.getId(), mapper.get(key).getId());
+            }
+            assertEquals(keysById.size(), mapper.size());
+        }
+
+        keysById.forEach((id, key) -> {
+            assertEquals(id.intValue(), mapper.get(key).getId());
+            assertEquals(key, String.valueOf(
+                    mapper.intKey(new StrBean("", id, 0))));
+        });
+    }
+
+    @Test
+    public void refreshAndIdentifierGetter_mappingsUpdated() {
+        IntKeyMapper<StrBean> mapper = new IntKeyMapper<>(StrBean::getId);
+        StrBean bean = new StrBean("Old", 1, 0);
+        String key = mapper.key(bean);
+
+        StrBean updated = new StrBean("New", 1, 0);
+        mapper.refresh(updated);
+        assertSame(updated, mapper.get(key));
+
+        mapper.setIdentifierGetter(StrBean::getValue);
+        assertTrue(mapper.has(new StrBean("New", 2, 0)));
+        assertFalse(mapper.has(new StrBean("Old", 1, 0)));
+        assertEquals(key, mapper.key(new StrBean("New", 3, 0)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void serialization_identityHashIds_tablesRebuilt()
+            throws Exception {
+        IntKeyMapper<Item> mapper = new IntKeyMapper<>(item -> item.id);
+        List<Item> items = new ArrayList<>();
+        items.add(new Item(null));
+        for (int i = 0; i < 100; i++) {
+            items.add(new Item(new Object[0]));
+        }
+        List<String> keys = new ArrayList<>();
+        items.forEach(item -> keys.add(mapper.key(item)));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(mapper);
+            out.writeObject(items);
+        }
+        IntKeyMapper<Item> restored;
+        List<Item> restoredItems;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (IntKeyMapper<Item>) in.readObject();
+            restoredItems = (List<Item>) in.readObject();
+        }
+
+        assertEquals(items.size(), restored.size());
+        for (int i = 0; i < restoredItems.size(); i++) {
+            Item item = restoredItems.get(i);
+            assertTrue(restored.has(item));
+            assertEquals(keys.get(i), restored.key(item));
+            assertSame(item, restored.get(keys.get(i)));
+        }
+
+        for (int i = 0; i < restoredItems.size(); i += 2) {
+            restored.remove(restoredItems.get(i));
+        }
+        assertEquals(items.size() / 2, restored.size());
+        for (int i = 1; i < restoredItems.size(); i += 2) {
+            assertEquals(keys.get(i), restored.key(restoredItems.get(i)));
+        }
+        assertFalse(keys.contains(restored.key(new Item(new Object[0]))));
+    }
+
+    @Test
+    public void get_invalidKeys_returnNull() {
+        IntKeyMapper<Object> mapper = new IntKeyMapper<>();
+        mapper.key("foo");
+        for (String key : new String[] { null, "", "0", "01", "-1", "a",
+                "99999999999", "null" }) {
+            assertNull(key, mapper.get(key));
+        }
+        assertEquals("null", mapper.key(null));
+        assertEquals("foo", mapper.get("1"));
+    }
+
+    @Test
+    public void keySet_intAndOtherKeys() {
+        KeySet keys = new KeySet();
+        List<String> added = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            added.add(String.valueOf(i));
+        }
+        added.add("custom");
+        added.add("007");
+        keys.addAll(added);
+
+        assertEquals(added.size(), keys.size());
+        assertEquals(new HashSet<>(added), new HashSet<>(keys));
+        assertFalse(keys.add("42"));
+
+        keys.removeAll(added.subList(0, 50));
+        assertEquals(added.size() - 50, keys.size());
+        assertFalse(keys.contains("1"));
+        assertTrue(keys.contains("51"));
+        assertTrue(keys.contains("custom"));
+        assertTrue(keys.contains("007"));
+
+        keys.clear();
+        assertTrue(keys.isEmpty());
+        assertFalse(keys.iterator().hasNext());
+    }
+
+    private static class Item implements Serializable {
+        // Identity hash code, may be null
+        private final Object[] id;
+
+        private Item(Object[] id) {
+            this.id = id;
+        }
+    }
+}
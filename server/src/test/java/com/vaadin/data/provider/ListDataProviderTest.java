@@ -5,15 +5,18 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.vaadin.server.SerializableComparator;
+import com.vaadin.server.SerializablePredicate;
 import com.vaadin.shared.data.sort.SortDirection;
 
 public class ListDataProviderTest
@@ -233,6 +236,64 @@ public class ListDataProviderTest
         assertSizeWithFilter(0, filteringBy, "oo");
     }
 
+    @Test
+    public void viewCaching_pagesReuseSortedView() {
+        ListDataProvider<StrBean> dataProvider = getDataProvider();
+        dataProvider.setViewCachingEnabled(true);
+        AtomicInteger comparisons = new AtomicInteger();
+        dataProvider.setSortComparator((a, b) -> {
+            comparisons.incrementAndGet();
+            return Integer.compare(a.getId(), b.getId());
+        });
+
+        List<StrBean> expected = data.stream()
+                .filter(gt5Filter)
+                .sorted(Comparator.comparing(StrBean::getId))
+                .collect(Collectors.toList());
+
+        Query<StrBean, SerializablePredicate<StrBean>> sizeQuery = new Query<>(
+                gt5Filter);
+        assertEquals(expected.size(), dataProvider.size(sizeQuery));
+        int comparisonsAfterFirstQuery = comparisons.get();
+
+        List<StrBean> fetched = new ArrayList<>();
+        for (int offset = 0; offset < expected.size(); offset += 10) {
+            dataProvider.fetch(new Query<>(offset, 10,
+                    Collections.emptyList(), null, gt5Filter))
+                    .forEach(fetched::add);
+        }
+        assertEquals(expected, fetched);
+        assertEquals(comparisonsAfterFirstQuery, comparisons.get());
+    }
+
+    @Test
+    public void viewCaching_refreshAllShowsBackendChanges() {
+        ListDataProvider<StrBean> dataProvider = getDataProvider();
+        dataProvider.setViewCachingEnabled(true);
+        int size = dataProvider.size(new Query<>());
+
+        data.add(new StrBean("Added", -1, 0));
+        assertEquals(size, dataProvider.size(new Query<>()));
+
+        dataProvider.refreshAll();
+        assertEquals(size + 1, dataProvider.size(new Query<>()));
+    }
+
+    @Test
+    public void viewCaching_parallelSortProducesSameOrder() {
+        ListDataProvider<StrBean> dataProvider = getDataProvider();
+        dataProvider.setViewCachingEnabled(true);
+        dataProvider.setParallelSortThreshold(1);
+        dataProvider.setSortOrder(StrBean::getValue,
+                SortDirection.DESCENDING);
+
+        List<StrBean> expected = data.stream()
+                .sorted(Comparator.comparing(StrBean::getValue).reversed())
+                .collect(Collectors.toList());
+        assertEquals(expected, dataProvider.fetch(new Query<>())
+                .collect(Collectors.toList()));
+    }
+
     @Override
     protected void setSortOrder(List<QuerySortOrder> sortOrder,
             Comparator<StrBean> comp) {
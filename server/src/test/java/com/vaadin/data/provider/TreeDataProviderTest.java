@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -275,6 +276,100 @@ public class TreeDataProviderTest
         assertEquals(8, sizeWithUnfilteredQuery());
     }
 
+    @Test
+    public void filterCaching_sameChildrenAsWithoutCaching() {
+        TreeDataProvider<StrBean> uncached = new TreeDataProvider<>(data);
+        TreeDataProvider<StrBean> cached = new TreeDataProvider<>(data);
+        cached.setFilterCachingEnabled(true);
+        TreeDataProvider<StrBean> parallel = new TreeDataProvider<>(data);
+        parallel.setFilterCachingEnabled(true);
+        parallel.setParallelFilterThreshold(2);
+
+        SerializablePredicate<StrBean> queryFilter = item -> item.getId() > 8;
+        for (TreeDataProvider<StrBean> provider : Arrays.asList(uncached,
+                cached, parallel)) {
+            provider.setFilter(item -> !item.getValue().equals("Foo"));
+        }
+
+        List<StrBean> parents = new ArrayList<>(flattenedData);
+        parents.add(null);
+        for (StrBean parent : parents) {
+            HierarchicalQuery<StrBean, SerializablePredicate<StrBean>> query = new HierarchicalQuery<>(
+                    queryFilter, parent);
+            List<StrBean> expected = uncached.fetchChildren(query)
+                    .collect(Collectors.toList());
+            assertEquals(expected, cached.fetchChildren(query)
+                    .collect(Collectors.toList()));
+            assertEquals(expected, parallel.fetchChildren(query)
+                    .collect(Collectors.toList()));
+            assertEquals(expected.size(), cached.getChildCount(query));
+            assertEquals(expected.size(), parallel.getChildCount(query));
+        }
+    }
+
+    @Test
+    public void filterCaching_filterEvaluatedOncePerItem() {
+        TreeDataProvider<StrBean> provider = getDataProvider();
+        provider.setFilterCachingEnabled(true);
+        AtomicInteger evaluations = new AtomicInteger();
+        provider.setFilter(item -> {
+            evaluations.incrementAndGet();
+            return item.getId() % 2 == 0;
+        });
+
+        provider.getChildCount(new HierarchicalQuery<>(null, null));
+        int evaluationsForWholeTree = evaluations.get();
+        assertTrue(evaluationsForWholeTree <= flattenedData.size());
+
+        for (StrBean parent : flattenedData) {
+            provider.getChildCount(new HierarchicalQuery<>(null, parent));
+            provider.fetchChildren(new HierarchicalQuery<>(null, parent))
+                    .count();
+        }
+        assertEquals(evaluationsForWholeTree, evaluations.get());
+    }
+
+    @Test
+    public void filterCaching_alternatingQueryFiltersReuseCachedTrees() {
+        TreeDataProvider<StrBean> provider = getDataProvider();
+        provider.setFilterCachingEnabled(true);
+        AtomicInteger evaluations = new AtomicInteger();
+        SerializablePredicate<StrBean> even = item -> {
+            evaluations.incrementAndGet();
+            return item.getId() % 2 == 0;
+        };
+        SerializablePredicate<StrBean> odd = item -> {
+            evaluations.incrementAndGet();
+            return item.getId() % 2 != 0;
+        };
+
+        provider.getChildCount(new HierarchicalQuery<>(even, null));
+        provider.getChildCount(new HierarchicalQuery<>(odd, null));
+        int evaluationsForBothTrees = evaluations.get();
+
+        for (int i = 0; i < 3; i++) {
+            provider.getChildCount(new HierarchicalQuery<>(even, null));
+            provider.getChildCount(new HierarchicalQuery<>(odd, null));
+        }
+        assertEquals(evaluationsForBothTrees, evaluations.get());
+    }
+
+    @Test
+    public void filterCaching_refreshAllShowsTreeDataChanges() {
+        TreeDataProvider<StrBean> provider = getDataProvider();
+        provider.setFilterCachingEnabled(true);
+        provider.setFilter(item -> item.getValue().equals("Added"));
+        HierarchicalQuery<StrBean, SerializablePredicate<StrBean>> query = new HierarchicalQuery<>(
+                null, null);
+        assertEquals(0, provider.getChildCount(query));
+
+        data.addItem(rootData.get(1), new StrBean("Added", -1, 0));
+        assertEquals(0, provider.getChildCount(query));
+
+        provider.refreshAll();
+        assertEquals(1, provider.getChildCount(query));
+    }
+
     @Override
     public void filteringListDataProvider_convertFilter() {
         DataProvider<StrBean, String> strFilterDataProvider = getDataProvider()
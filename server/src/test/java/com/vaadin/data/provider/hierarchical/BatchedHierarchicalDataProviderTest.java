@@ -0,0 +1,172 @@
+package com.vaadin.data.provider.hierarchical;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.data.provider.AbstractBatchedBackEndHierarchicalDataProvider;
+import com.vaadin.data.provider.DataCommunicatorTest;
+import com.vaadin.data.provider.HierarchicalDataCommunicator;
+import com.vaadin.data.provider.HierarchicalQuery;
+import com.vaadin.data.provider.HierarchyMapper;
+import com.vaadin.data.provider.Query;
+import com.vaadin.server.AbstractClientConnector;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.shared.Range;
+import com.vaadin.ui.UI;
+
+public class BatchedHierarchicalDataProviderTest {
+
+    private BatchedProvider provider;
+
+    @Before
+    public void setup() {
+        // Items are named by their path, e.g. "1/2/0"
+        Map<String, String> parents = new LinkedHashMap<>();
+        for (int i = 0; i < 5; i++) {
+            String root = String.valueOf(i);
+            parents.put(root, null);
+            for (int j = 0; j < 4; j++) {
+                String child = root + "/" + j;
+                parents.put(child, root);
+                for (int k = 0; k < 2; k++) {
+                    parents.put(child + "/" + k, child);
+                }
+            }
+        }
+        provider = new BatchedProvider(parents);
+    }
+
+    @Test
+    public void rebuildHierarchy_childrenFetchedOncePerLevel() {
+        HierarchyMapper<String, Void> mapper = new HierarchyMapper<>(
+                provider);
+        for (int i = 0; i < 5; i++) {
+            mapper.expand(String.valueOf(i), null);
+            for (int j = 0; j < 4; j++) {
+                mapper.expand(i + "/" + j, null);
+            }
+        }
+        assertEquals(5 + 20 + 40, mapper.getTreeSize());
+
+        mapper.invalidateHierarchy();
+        provider.batchedFetches = 0;
+        provider.singleFetches = 0;
+
+        assertEquals(5 + 20 + 40, mapper.getTreeSize());
+        assertEquals("Expected one query per level", 3,
+                provider.batchedFetches);
+        assertEquals(0, provider.singleFetches);
+
+        List<String> items = mapper.fetchItems(Range.withLength(0, 6))
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList("0", "0/0", "0/0/0", "0/0/1", "0/1",
+                "0/1/0"), items);
+    }
+
+    @Test
+    public void pushData_hasChildrenCheckedWithOneQuery() {
+        VaadinSession session = new MockVaadinSession(
+                Mockito.mock(VaadinService.class));
+        session.lock();
+        UI ui = new DataCommunicatorTest.TestUI(session);
+        TestHierarchicalDataCommunicator<String> communicator = new TestHierarchicalDataCommunicator<>();
+        communicator.extend(ui);
+        communicator.setDataProvider(provider, null);
+        communicator.attach();
+        communicator.expand("0");
+        provider.batchedHasChildren = 0;
+        provider.singleHasChildren = 0;
+
+        communicator.pushData(0,
+                Arrays.asList("0", "0/0", "0/1", "0/2", "0/3", "1"));
+
+        assertEquals(1, provider.batchedHasChildren);
+        assertEquals(0, provider.singleHasChildren);
+    }
+
+    private static class BatchedProvider
+            extends AbstractBatchedBackEndHierarchicalDataProvider<String, Void> {
+        private final Map<String, String> parents;
+        private int batchedFetches;
+        private int singleFetches;
+        private int batchedHasChildren;
+        private int singleHasChildren;
+
+        private BatchedProvider(Map<String, String> parents) {
+            this.parents = parents;
+        }
+
+        private Stream<String> childrenOf(String parent) {
+            return parents.keySet().stream()
+                    .filter(item -> Objects.equals(parents.get(item), parent));
+        }
+
+        @Override
+        protected Stream<String> fetchChildrenFromBackEnd(
+                HierarchicalQuery<String, Void> query) {
+            singleFetches++;
+            return childrenOf(query.getParent()).skip(query.getOffset())
+                    .limit(query.getLimit());
+        }
+
+        @Override
+        public int getChildCount(HierarchicalQuery<String, Void> query) {
+            return (int) childrenOf(query.getParent()).count();
+        }
+
+        @Override
+        public boolean hasChildren(String item) {
+            singleHasChildren++;
+            return parents.containsValue(item);
+        }
+
+        @Override
+        protected Stream<String> fetchChildrenOfManyFromBackEnd(
+                List<String> parentItems, Query<String, Void> query) {
+            batchedFetches++;
+            return parentItems.stream().flatMap(this::childrenOf);
+        }
+
+        @Override
+        protected Object getParentId(String item) {
+            return parents.get(item);
+        }
+
+        @Override
+        protected Collection<Object> fetchParentIdsFromBackEnd(
+                List<String> items) {
+            batchedHasChildren++;
+            return new ArrayList<>(items.stream()
+                    .filter(parents::containsValue)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    private static class TestHierarchicalDataCommunicator<T>
+            extends HierarchicalDataCommunicator<T> {
+        @Override
+        public void extend(AbstractClientConnector target) {
+            super.extend(target);
+        }
+
+        @Override
+        public void pushData(int firstIndex, List<T> data) {
+            super.pushData(firstIndex, data);
+        }
+    }
+}
@@ -97,6 +97,46 @@ public class HierarchicalCommunicatorTest {
         assertEquals(-1, communicator.getParentIndex(FOLDER).longValue());
     }
 
+    @Test
+    public void refreshAll_hierarchyFetchedBeforeResponse() {
+        communicator.expand(ROOT);
+        assertEquals(Arrays.asList(ROOT, FOLDER),
+                communicator.fetchItemsWithRange(0, 10));
+
+        treeData.addItem(ROOT, "NEW");
+        dataProvider.refreshAll();
+        assertEquals(Arrays.asList(ROOT, FOLDER, "NEW"),
+                communicator.fetchItemsWithRange(0, 10));
+        assertEquals(0, communicator.getParentIndex("NEW").longValue());
+    }
+
+    @Test
+    public void reset_hierarchyFetchedAgain() {
+        communicator.expand(ROOT);
+        assertEquals(Arrays.asList(ROOT, FOLDER),
+                communicator.fetchItemsWithRange(0, 10));
+
+        treeData.addItem(ROOT, "NEW");
+        communicator.reset();
+        assertEquals(Arrays.asList(ROOT, FOLDER, "NEW"),
+                communicator.fetchItemsWithRange(0, 10));
+    }
+
+    @Test
+    public void attach_changesWhileDetachedFetched() {
+        communicator.expand(ROOT);
+        assertEquals(Arrays.asList(ROOT, FOLDER),
+                communicator.fetchItemsWithRange(0, 10));
+
+        communicator.detach();
+        treeData.addItem(ROOT, "NEW");
+        dataProvider.refreshAll();
+        communicator.attach();
+        assertEquals(Arrays.asList(ROOT, FOLDER, "NEW"),
+                communicator.fetchItemsWithRange(0, 10));
+        assertEquals(0, communicator.getParentIndex("NEW").longValue());
+    }
+
     private static class TestHierarchicalDataCommunicator<T>
             extends HierarchicalDataCommunicator<T> {
         @Override
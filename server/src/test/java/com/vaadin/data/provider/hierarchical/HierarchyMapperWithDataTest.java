@@ -1,12 +1,18 @@
 package com.vaadin.data.provider.hierarchical;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -16,6 +22,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.vaadin.data.TreeData;
+import com.vaadin.data.provider.HierarchicalQuery;
 import com.vaadin.data.provider.HierarchyMapper;
 import com.vaadin.data.provider.TreeDataProvider;
 import com.vaadin.server.SerializablePredicate;
@@ -210,6 +217,117 @@ public class HierarchyMapperWithDataTest {
         verifyFetchIsCorrect(expectedResult, range);
     }
 
+    @Test
+    public void indexOfMatchesFlattenedHierarchy() {
+        Set<Node> expanded = new HashSet<>();
+        for (Node node : Arrays.asList(testData.get(0), testData.get(1),
+                roots.get(2), testData.get(2 + LEAF_COUNT))) {
+            expand(node);
+            expanded.add(node);
+        }
+        collapse(testData.get(0));
+        expanded.remove(testData.get(0));
+        checkMapSize();
+
+        List<Node> expectedResult = new ArrayList<>();
+        flatten(null, expanded, expectedResult);
+        assertEquals(expectedResult.size(), mapper.getTreeSize());
+        verifyFetchIsCorrect(expectedResult,
+                Range.between(0, expectedResult.size()));
+        for (int i = 0; i < expectedResult.size(); i++) {
+            assertEquals(Optional.of(i),
+                    mapper.getIndexOf(expectedResult.get(i)));
+        }
+
+        // Hidden nodes have no index
+        assertEquals(Optional.empty(), mapper.getIndexOf(testData.get(1)));
+
+        expand(testData.get(0));
+        expanded.add(testData.get(0));
+        expectedResult.clear();
+        flatten(null, expanded, expectedResult);
+        verifyFetchIsCorrect(expectedResult, Range.between(1, 9));
+        assertEquals(Integer.valueOf(1),
+                mapper.getParentIndex(testData.get(2)));
+        checkMapSize();
+    }
+
+    @Test
+    public void fetchFromIndex_noDataProviderQueries() {
+        AtomicInteger queries = new AtomicInteger();
+        provider = new TreeDataProvider<Node>(data) {
+            @Override
+            public Stream<Node> fetchChildren(
+                    HierarchicalQuery<Node, SerializablePredicate<Node>> query) {
+                queries.incrementAndGet();
+                return super.fetchChildren(query);
+            }
+        };
+        mapper = new HierarchyMapper<>(provider);
+        expand(testData.get(0));
+        int size = mapper.getTreeSize();
+
+        queries.set(0);
+        assertEquals(size - 2,
+                mapper.fetchItems(Range.between(2, size)).count());
+        assertEquals(Optional.of(size - 1),
+                mapper.getIndexOf(roots.get(roots.size() - 1)));
+        assertEquals(size, mapper.getTreeSize());
+        assertEquals("Index should be used instead of the data provider", 0,
+                queries.get());
+
+        mapper.invalidateHierarchy();
+        assertEquals(size, mapper.getTreeSize());
+        assertTrue("Hierarchy should be fetched again", queries.get() > 0);
+    }
+
+    @Test
+    public void invalidateHierarchy_changedDataFetched() {
+        TreeData<String> treeData = new TreeData<>();
+        treeData.addItems(null, "a", "b");
+        treeData.addItems("a", "a1");
+        HierarchyMapper<String, SerializablePredicate<String>> stringMapper = new HierarchyMapper<>(
+                new TreeDataProvider<>(treeData));
+        assertEquals(Range.withLength(1, 1), stringMapper.expand("a", 0));
+        assertEquals(3, stringMapper.getTreeSize());
+
+        treeData.addItem("a", "a2");
+        stringMapper.invalidateHierarchy();
+        assertEquals(Arrays.asList("a", "a1", "a2", "b"),
+                stringMapper.fetchItems(Range.between(0, 4))
+                        .collect(Collectors.toList()));
+        assertEquals(Optional.of(3), stringMapper.getIndexOf("b"));
+    }
+
+    @Test
+    public void refreshCollapsedItem_refreshedInstanceFetched() {
+        TreeData<Item> treeData = new TreeData<>();
+        treeData.addItems(null, new Item(1, "a"), new Item(2, "b"),
+                new Item(3, "c"));
+        treeData.addItems(new Item(2, "b"), new Item(4, "b1"));
+        HierarchyMapper<Item, SerializablePredicate<Item>> itemMapper = new HierarchyMapper<>(
+                new TreeDataProvider<>(treeData));
+        assertEquals(3, itemMapper.getTreeSize());
+
+        Item refreshed = new Item(2, "b refreshed");
+        itemMapper.refreshData(refreshed);
+        List<Item> items = itemMapper.fetchItems(Range.between(0, 3))
+                .collect(Collectors.toList());
+        assertSame("Refreshed instance should be fetched", refreshed,
+                items.get(1));
+        assertEquals(3, itemMapper.getTreeSize());
+    }
+
+    private static void flatten(Node parent, Set<Node> expanded,
+            List<Node> result) {
+        for (Node child : data.getChildren(parent)) {
+            result.add(child);
+            if (expanded.contains(child)) {
+                flatten(child, expanded, result);
+            }
+        }
+    }
+
     private void expand(Node node) {
         insertRows(mapper.expand(node, mapper.getIndexOf(node).orElse(null)));
     }
@@ -263,4 +381,29 @@ public class HierarchyMapperWithDataTest {
                 0 <= range.getStart() && range.getStart() <= mapSize);
         mapSize += range.length();
     }
+
+    private static class Item {
+        private final int id;
+        private final String name;
+
+        private Item(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Item && ((Item) obj).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
 }
@@ -1,12 +1,24 @@
 package com.vaadin.server;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.contains;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -36,4 +48,141 @@ public class DownloadStreamTest {
                 contains(
                         String.format("filename*=utf-8''%s", encodedFileName)));
     }
+
+    @Test
+    public void ifNoneMatch_matchingETag_notModified() throws IOException {
+        stream.setETag("W/\"v1\"");
+        VaadinRequest request = mockGet();
+        when(request.getHeader("If-None-Match"))
+                .thenReturn("\"v0\", \"v1\"");
+        VaadinResponse response = mock(VaadinResponse.class);
+
+        stream.writeResponse(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response).setHeader("ETag", "W/\"v1\"");
+        verify(response, never()).getOutputStream();
+    }
+
+    @Test
+    public void ifNoneMatch_differentETag_fullContent() throws IOException {
+        DownloadStream stream = createStream("0123456789");
+        stream.setETag("\"v2\"");
+        VaadinRequest request = mockGet();
+        when(request.getHeader("If-None-Match")).thenReturn("\"v1\"");
+        VaadinResponse response = mock(VaadinResponse.class);
+        ByteArrayOutputStream out = mockOutput(response);
+
+        stream.writeResponse(request, response);
+
+        verify(response, never())
+                .setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response).setHeader("Accept-Ranges", "bytes");
+        assertEquals("0123456789", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void singleRange_partialContent() throws IOException {
+        DownloadStream stream = createStream("0123456789");
+        VaadinRequest request = mockGet();
+        when(request.getHeader("Range")).thenReturn("bytes=2-4");
+        VaadinResponse response = mock(VaadinResponse.class);
+        ByteArrayOutputStream out = mockOutput(response);
+
+        stream.writeResponse(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response).setHeader("Content-Range", "bytes 2-4/10");
+        verify(response).setHeader("Content-Length", "3");
+        assertEquals("234", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void multipleRanges_multipartContent() throws IOException {
+        DownloadStream stream = createStream("0123456789");
+        VaadinRequest request = mockGet();
+        when(request.getHeader("Range")).thenReturn("bytes=7-,0-1");
+        VaadinResponse response = mock(VaadinResponse.class);
+        ByteArrayOutputStream out = mockOutput(response);
+
+        stream.writeResponse(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response).setContentType(contains("multipart/byteranges"));
+        String body = out.toString("UTF-8");
+        int first = body
+                .indexOf("Content-Range: bytes 0-1/10\r\n\r\n01\r\n");
+        int second = body
+                .indexOf("Content-Range: bytes 7-9/10\r\n\r\n789\r\n");
+        assertTrue(first >= 0 && second > first);
+        verify(response).setHeader("Content-Length",
+                String.valueOf(out.size()));
+    }
+
+    @Test
+    public void unsatisfiableRange_rangeNotSatisfiable() throws IOException {
+        DownloadStream stream = createStream("0123456789");
+        VaadinRequest request = mockGet();
+        when(request.getHeader("Range")).thenReturn("bytes=20-30");
+        VaadinResponse response = mock(VaadinResponse.class);
+
+        stream.writeResponse(request, response);
+
+        verify(response).setStatus(
+                HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        verify(response).setHeader("Content-Range", "bytes */10");
+        verify(response, never()).getOutputStream();
+    }
+
+    @Test
+    public void ifRange_changedETag_fullContent() throws IOException {
+        DownloadStream stream = createStream("0123456789");
+        stream.setETag("\"v2\"");
+        VaadinRequest request = mockGet();
+        when(request.getHeader("Range")).thenReturn("bytes=2-4");
+        when(request.getHeader("If-Range")).thenReturn("\"v1\"");
+        VaadinResponse response = mock(VaadinResponse.class);
+        ByteArrayOutputStream out = mockOutput(response);
+
+        stream.writeResponse(request, response);
+
+        verify(response, never())
+                .setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertEquals("0123456789", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void parseRanges() {
+        assertNull(DownloadStream.parseRanges("items=0-1", 10));
+        assertNull(DownloadStream.parseRanges("bytes=5-2", 10));
+
+        List<long[]> ranges = DownloadStream.parseRanges("bytes=-3,0-2,2-4",
+                10);
+        assertEquals(2, ranges.size());
+        assertArrayEquals(new long[] { 0, 4 }, ranges.get(0));
+        assertArrayEquals(new long[] { 7, 9 }, ranges.get(1));
+
+        assertEquals(0, DownloadStream.parseRanges("bytes=10-", 10).size());
+    }
+
+    private static DownloadStream createStream(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        DownloadStream stream = new DownloadStream(
+                new ByteArrayInputStream(bytes), "text/plain", "file.txt");
+        stream.setParameter("Content-Length", String.valueOf(bytes.length));
+        return stream;
+    }
+
+    private static VaadinRequest mockGet() {
+        VaadinRequest request = mock(VaadinRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        return request;
+    }
+
+    private static ByteArrayOutputStream mockOutput(VaadinResponse response)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(out);
+        return out;
+    }
 }
@@ -1,22 +1,32 @@
 package com.vaadin.server;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.Test;
 
 import com.vaadin.server.JsonCodec.BeanProperty;
 import com.vaadin.shared.communication.UidlValue;
+import com.vaadin.shared.ui.ContentMode;
 import com.vaadin.shared.ui.splitpanel.AbstractSplitPanelState;
 
 import elemental.json.Json;
 import elemental.json.JsonArray;
 import elemental.json.JsonException;
+import elemental.json.JsonNull;
+import elemental.json.JsonObject;
 import elemental.json.JsonValue;
 
 /**
@@ -30,6 +40,34 @@ public class JSONSerializerTest {
     Map<String, AbstractSplitPanelState> stringToStateMap;
     Map<AbstractSplitPanelState, String> stateToStringMap;
 
+    public static class EncodedBean {
+        public String string = "foo";
+        public boolean bool = true;
+        public int integer = 1;
+        public Double boxed = 2.5;
+        public ContentMode mode = ContentMode.TEXT;
+        public List<String> list = Arrays.asList("a", "b");
+        public String nullString;
+        private long property = 3;
+
+        public long getProperty() {
+            return property;
+        }
+
+        public void setProperty(long property) {
+            this.property = property;
+        }
+    }
+
+    public static class FailingBean {
+        public String getValue() {
+            throw new IllegalStateException("getter failed");
+        }
+
+        public void setValue(String value) {
+        }
+    }
+
     @Test
     public void testStringToBeanMapSerialization() throws Exception {
         Type mapType = getClass().getDeclaredField("stringToStateMap")
@@ -89,6 +127,72 @@ public class JSONSerializerTest {
                 .decodeInternalType(UidlValue.class, true, inputArray, null);
     }
 
+    @Test
+    public void encodeBean_noReference_allPropertiesInDiff() {
+        EncodeResult result = JsonCodec.encode(new EncodedBean(), null,
+                EncodedBean.class, null);
+        JsonObject encoded = (JsonObject) result.getEncodedValue();
+        JsonObject diff = (JsonObject) result.getDiff();
+
+        assertEquals("foo", encoded.getString("string"));
+        assertTrue(encoded.getBoolean("bool"));
+        assertEquals(1, encoded.getNumber("integer"), 0);
+        assertEquals(2.5, encoded.getNumber("boxed"), 0);
+        assertEquals("TEXT", encoded.getString("mode"));
+        assertEquals(2, encoded.getArray("list").length());
+        assertEquals(3, encoded.getNumber("property"), 0);
+        assertTrue(encoded.get("nullString") instanceof JsonNull);
+
+        assertTrue(JsonCodec.jsonEquals(encoded.get("string"),
+                diff.get("string")));
+        assertFalse("Null without reference should not be in the diff",
+                diff.hasKey("nullString"));
+        assertEquals(encoded.keys().length - 1, diff.keys().length);
+    }
+
+    @Test
+    public void encodeBean_withReference_onlyChangedPropertiesInDiff() {
+        EncodedBean bean = new EncodedBean();
+        JsonObject reference = (JsonObject) JsonCodec
+                .encode(bean, null, EncodedBean.class, null)
+                .getEncodedValue();
+
+        bean.integer = 5;
+        bean.mode = ContentMode.HTML;
+        bean.string = null;
+        bean.setProperty(4);
+        EncodeResult result = JsonCodec.encode(bean, reference,
+                EncodedBean.class, null);
+
+        JsonObject diff = (JsonObject) result.getDiff();
+        String[] keys = diff.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(
+                new String[] { "integer", "mode", "property", "string" },
+                keys);
+        assertEquals(5, diff.getNumber("integer"), 0);
+        assertEquals("HTML", diff.getString("mode"));
+        assertEquals(4, diff.getNumber("property"), 0);
+        assertTrue(diff.get("string") instanceof JsonNull);
+
+        JsonObject encoded = (JsonObject) result.getEncodedValue();
+        assertEquals(reference.keys().length, encoded.keys().length);
+        assertTrue(encoded.getBoolean("bool"));
+    }
+
+    @Test
+    public void encodeBean_getterThrows_wrappedLikeReflection() {
+        try {
+            JsonCodec.encode(new FailingBean(), null, FailingBean.class, null);
+            fail("Exception should have been thrown");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof InvocationTargetException);
+            Throwable cause = e.getCause().getCause();
+            assertTrue(cause instanceof IllegalStateException);
+            assertEquals("getter failed", cause.getMessage());
+        }
+    }
+
     private void ensureDecodedCorrectly(Object original, JsonValue encoded,
             Type type) throws Exception {
         Object serverSideDecoded = JsonCodec.decodeInternalOrCustomType(type,
@@ -0,0 +1,154 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.SessionLockMetrics.RequestType;
+import com.vaadin.util.CurrentInstance;
+
+public class MeteredSessionLockStrategyTest {
+
+    private final MeteredSessionLockStrategy strategy = new MeteredSessionLockStrategy();
+
+    @After
+    public void clearCurrentInstances() {
+        CurrentInstance.clearAll();
+    }
+
+    @Test
+    public void lockDuringRequest_countedForRequestType() {
+        CurrentInstance.set(VaadinRequest.class,
+                createRequest("/HEARTBEAT/1"));
+        ReentrantLock lock = strategy.createLock(null);
+
+        lock.lock();
+        // Reentrant acquisitions are not counted separately
+        lock.lock();
+        lock.unlock();
+        lock.unlock();
+
+        assertEquals(1, strategy.getAcquisitionCount(RequestType.HEARTBEAT));
+        assertEquals(0,
+                strategy.getContendedAcquisitionCount(RequestType.HEARTBEAT));
+        assertEquals(0, strategy.getAcquisitionCount(RequestType.UIDL));
+        assertTrue(strategy.getTotalHoldTime(RequestType.HEARTBEAT) >= 0);
+        assertEquals(strategy.getTotalHoldTime(RequestType.HEARTBEAT),
+                strategy.getMaxHoldTime(RequestType.HEARTBEAT));
+    }
+
+    @Test
+    public void deserializedLock_reportsToStrategyOfCurrentService()
+            throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(strategy.createLock(null));
+        }
+        ReentrantLock lock;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            lock = (ReentrantLock) in.readObject();
+        }
+
+        // Not known without a current service
+        lock.lock();
+        lock.unlock();
+        assertEquals(0, strategy.getAcquisitionCount(RequestType.BACKGROUND));
+
+        VaadinService service = Mockito.mock(VaadinService.class);
+        Mockito.when(service.getSessionLockStrategy()).thenReturn(strategy);
+        CurrentInstance.set(VaadinService.class, service);
+        lock.lock();
+        lock.unlock();
+        CurrentInstance.clearAll();
+        lock.lock();
+        lock.unlock();
+
+        assertEquals(2, strategy.getAcquisitionCount(RequestType.BACKGROUND));
+    }
+
+    @Test
+    public void lockHeldByOtherThread_contendedAcquisitionCounted()
+            throws InterruptedException {
+        ReentrantLock lock = strategy.createLock(null);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            lock.lock();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        });
+        holder.start();
+        locked.await();
+
+        Thread waiter = new Thread(() -> {
+            lock.lock();
+            lock.unlock();
+        });
+        waiter.start();
+        while (!lock.hasQueuedThread(waiter)) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        holder.join();
+        waiter.join();
+
+        assertEquals(2, strategy.getAcquisitionCount(RequestType.BACKGROUND));
+        assertEquals(1,
+                strategy.getContendedAcquisitionCount(RequestType.BACKGROUND));
+        assertTrue(strategy.getTotalWaitTime(RequestType.BACKGROUND) > 0);
+    }
+
+    @Test(expected = SessionLockTimeoutException.class)
+    public void fairStrategy_lockHeldByOtherThread_timesOut()
+            throws InterruptedException {
+        FairSessionLockStrategy fairStrategy = new FairSessionLockStrategy(10,
+                TimeUnit.MILLISECONDS);
+        ReentrantLock lock = fairStrategy.createLock(null);
+        assertTrue(lock.isFair());
+
+        Thread holder = new Thread(lock::lock);
+        holder.start();
+        holder.join();
+
+        fairStrategy.lock(lock);
+    }
+
+    @Test
+    public void fairStrategy_lockFreeLookupOnlyForReadOnlyRequests() {
+        FairSessionLockStrategy fairStrategy = new FairSessionLockStrategy();
+
+        assertTrue(fairStrategy
+                .isLockFreeLookupAllowed(createRequest("/HEARTBEAT/1")));
+        assertTrue(fairStrategy.isLockFreeLookupAllowed(
+                createRequest("/APP/connector/0/1/file.png")));
+        assertFalse(fairStrategy
+                .isLockFreeLookupAllowed(createRequest("/UIDL/")));
+        assertFalse(new MeteredSessionLockStrategy()
+                .isLockFreeLookupAllowed(createRequest("/HEARTBEAT/1")));
+    }
+
+    private static VaadinRequest createRequest(String pathInfo) {
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getPathInfo()).thenReturn(pathInfo);
+        return request;
+    }
+}
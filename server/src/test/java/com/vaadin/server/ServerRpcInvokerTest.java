@@ -0,0 +1,183 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.vaadin.server.ServerRpcManager.RpcInvocationException;
+import com.vaadin.shared.communication.ServerRpc;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+public class ServerRpcInvokerTest {
+
+    public interface TestRpc extends ServerRpc {
+        void values(List<String> strings, int number);
+
+        void fail(String message);
+    }
+
+    public interface DecodedRpc extends ServerRpc {
+        void call(String string, int primitive, Long boxed, boolean flag,
+                Double decimal, float single, List<String> strings);
+    }
+
+    // Not public, so only accessible after setAccessible
+    interface PackagePrivateRpc extends ServerRpc {
+        void call(boolean value);
+    }
+
+    private final List<Object> calls = new ArrayList<>();
+
+    private final TestRpc testRpc = new TestRpc() {
+        @Override
+        public void values(List<String> strings, int number) {
+            calls.add(strings);
+            calls.add(number);
+        }
+
+        @Override
+        public void fail(String message) {
+            throw new IllegalStateException(message);
+        }
+    };
+
+    @Test
+    public void applyInvocation_argumentsPassedToImplementation()
+            throws Exception {
+        ServerRpcManager<TestRpc> manager = new ServerRpcManager<>(testRpc,
+                TestRpc.class);
+        ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
+                "1", TestRpc.class, "values", 2);
+        invocation.setParameters(new Object[] { Arrays.asList("a", "b"), 5 });
+
+        manager.applyInvocation(invocation);
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), 5), calls);
+    }
+
+    @Test
+    public void applyInvocation_exceptionWrappedLikeReflection() {
+        ServerRpcManager<TestRpc> manager = new ServerRpcManager<>(testRpc,
+                TestRpc.class);
+        ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
+                "1", TestRpc.class, "fail", 1);
+        invocation.setParameters(new Object[] { "message" });
+
+        try {
+            manager.applyInvocation(invocation);
+            fail("Exception should have been thrown");
+        } catch (RpcInvocationException e) {
+            assertTrue(e.getCause() instanceof InvocationTargetException);
+            Throwable cause = e.getCause().getCause();
+            assertTrue(cause instanceof IllegalStateException);
+            assertEquals("message", cause.getMessage());
+        }
+    }
+
+    @Test
+    public void applyInvocation_nonPublicInterface() throws Exception {
+        List<Boolean> values = new ArrayList<>();
+        ServerRpcManager<PackagePrivateRpc> manager = new ServerRpcManager<>(
+                values::add, PackagePrivateRpc.class);
+        ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
+                "1", PackagePrivateRpc.class, "call", 1);
+        invocation.setParameters(new Object[] { true });
+
+        manager.applyInvocation(invocation);
+
+        assertEquals(Arrays.asList(true), values);
+    }
+
+    @Test
+    public void get_invokersAndParameterTypesResolvedOnce() throws Exception {
+        ServerRpcInvoker invoker = ServerRpcInvoker.get(TestRpc.class,
+                "values", 2);
+        assertSame(invoker, ServerRpcInvoker.get(TestRpc.class, "values", 2));
+
+        Type[] expected = TestRpc.class
+                .getMethod("values", List.class, int.class)
+                .getGenericParameterTypes();
+        assertArrayEquals(expected, invoker.getParameterTypes());
+
+        // The shared array is not exposed to be modified
+        Type[] copy = new ServerRpcMethodInvocation("1", TestRpc.class,
+                "values", 2).getParameterTypes();
+        assertNotSame(invoker.getParameterTypes(), copy);
+        copy[0] = String.class;
+        assertArrayEquals(expected, invoker.getParameterTypes());
+    }
+
+    @Test
+    public void decodeParameters_sameAsJsonCodec() throws Exception {
+        Type[] types = DecodedRpc.class.getMethods()[0]
+                .getGenericParameterTypes();
+        for (String json : Arrays.asList(
+                "[\"a\", 1, 2, true, 1.5, 2.5, [\"b\"]]",
+                "[null, 1, null, false, null, 0, null]")) {
+            JsonArray parametersJson = Json.parse("{\"p\":" + json + "}")
+                    .getArray("p");
+            ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
+                    "1", DecodedRpc.class, "call", types.length);
+
+            invocation.decodeParameters(parametersJson, null);
+
+            Object[] expected = new Object[types.length];
+            for (int i = 0; i < types.length; i++) {
+                expected[i] = JsonCodec.decodeInternalOrCustomType(types[i],
+                        parametersJson.get(i), null);
+            }
+            assertArrayEquals(expected, invocation.getParameters());
+        }
+    }
+
+    @Test
+    public void invoke_argumentMismatch_illegalArgumentLikeReflection()
+            throws Exception {
+        ServerRpcInvoker invoker = ServerRpcInvoker.get(TestRpc.class,
+                "values", 2);
+        for (Object[] arguments : Arrays.asList(
+                new Object[] { Arrays.asList("a"), null },
+                new Object[] { Arrays.asList("a"), "5" },
+                new Object[] { Arrays.asList("a"), 5L },
+                new Object[] { "not a list", 5 },
+                new Object[] { Arrays.asList("a") })) {
+            try {
+                invoker.invoke(testRpc, arguments);
+                fail("Should not accept " + Arrays.toString(arguments));
+            } catch (IllegalArgumentException expected) {
+                // Same as Method.invoke
+            }
+            try {
+                invoker.getMethod().invoke(testRpc, arguments);
+                fail("Reflection should not accept "
+                        + Arrays.toString(arguments));
+            } catch (IllegalArgumentException expected) {
+                // Expected
+            }
+        }
+        assertEquals(new ArrayList<>(), calls);
+
+        // Widening conversions are allowed like with reflection
+        invoker.invoke(testRpc, new Object[] { null, (short) 5 });
+        invoker.invoke(testRpc, new Object[] { null, 'a' });
+        assertEquals(Arrays.asList(null, 5, null, 97), calls);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unknownMethod_throws() {
+        new ServerRpcMethodInvocation("1", TestRpc.class, "values", 3);
+    }
+}
@@ -3,17 +3,31 @@ package com.vaadin.server;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpSessionBindingEvent;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.easymock.EasyMock;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.vaadin.server.VaadinSession.AccessQueueOverflowPolicy;
 import com.vaadin.shared.Registration;
 import com.vaadin.util.CurrentInstance;
 
@@ -152,6 +166,200 @@ public class VaadinServiceTest {
                 "Original value", CurrentInstance.get(String.class));
     }
 
+    @Test
+    public void accessWithKey_pendingTaskReplaced() throws Exception {
+        VaadinService service = createService();
+        MockVaadinSession session = new MockVaadinSession(service);
+        List<String> runs = new ArrayList<>();
+
+        session.lock();
+        Future<Void> first = session.access("key", () -> runs.add("first"));
+        Future<Void> second = session.access("key", () -> runs.add("second"));
+        session.access("other", () -> runs.add("other"));
+
+        assertSame(first, second);
+        assertEquals(2, session.getAccessQueueMetrics().getPendingTaskCount());
+        assertEquals(1, session.getAccessQueueMetrics().getCoalescedTaskCount());
+        session.unlock();
+
+        assertEquals(Arrays.asList("second", "other"), runs);
+        assertTrue(first.isDone());
+        assertEquals(0, session.getAccessQueueMetrics().getPendingTaskCount());
+
+        // A new task is queued once the previous one has been run
+        session.lock();
+        session.access("key", () -> runs.add("third"));
+        session.unlock();
+        assertEquals(Arrays.asList("second", "other", "third"), runs);
+    }
+
+    @Test
+    public void accessQueueFull_rejectPolicy_taskRejected() throws Exception {
+        VaadinService service = createService();
+        MockVaadinSession session = new MockVaadinSession(service);
+        session.setAccessQueueCapacity(1);
+        session.setAccessQueueOverflowPolicy(AccessQueueOverflowPolicy.REJECT);
+
+        runWithLockHeldByOtherThread(session, () -> {
+            session.access(() -> {
+            });
+            try {
+                session.access(() -> {
+                });
+                fail("Task should have been rejected");
+            } catch (RejectedExecutionException expected) {
+                // expected
+            }
+        });
+
+        assertEquals(1, session.getAccessQueueMetrics().getRejectedTaskCount());
+        assertEquals(0, session.getAccessQueueMetrics().getPendingTaskCount());
+    }
+
+    @Test
+    public void accessQueueFull_discardOldestPolicy_oldestTaskCancelled()
+            throws Exception {
+        VaadinService service = createService();
+        MockVaadinSession session = new MockVaadinSession(service);
+        session.setAccessQueueCapacity(1);
+        session.setAccessQueueOverflowPolicy(
+                AccessQueueOverflowPolicy.DISCARD_OLDEST);
+        AtomicReference<Future<Void>> oldest = new AtomicReference<>();
+        AtomicReference<Future<Void>> newest = new AtomicReference<>();
+
+        runWithLockHeldByOtherThread(session, () -> {
+            oldest.set(session.access(() -> {
+            }));
+            newest.set(session.access(() -> {
+            }));
+        });
+
+        assertTrue(oldest.get().isCancelled());
+        assertTrue(newest.get().isDone());
+        assertFalse(newest.get().isCancelled());
+    }
+
+    @Test
+    public void accessWithKey_rejected_laterTaskWithKeyRun() throws Exception {
+        VaadinService service = createService();
+        MockVaadinSession session = new MockVaadinSession(service);
+        session.setAccessQueueCapacity(1);
+        session.setAccessQueueOverflowPolicy(AccessQueueOverflowPolicy.REJECT);
+        List<String> runs = new ArrayList<>();
+
+        runWithLockHeldByOtherThread(session, () -> {
+            session.access(() -> {
+            });
+            try {
+                session.access("key", () -> runs.add("rejected"));
+                fail("Task should have been rejected");
+            } catch (RejectedExecutionException expected) {
+                // expected
+            }
+            assertFalse(session.getCoalescedAccesses().containsKey("key"));
+        });
+
+        session.access("key", () -> runs.add("later")).get(5,
+                TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("later"), runs);
+    }
+
+    @Test
+    public void accessWithKey_cancelledOrDiscarded_keyReleased()
+            throws Exception {
+        VaadinService service = createService();
+        MockVaadinSession session = new MockVaadinSession(service);
+        session.setAccessQueueCapacity(1);
+        session.setAccessQueueOverflowPolicy(
+                AccessQueueOverflowPolicy.DISCARD_OLDEST);
+
+        runWithLockHeldByOtherThread(session, () -> {
+            session.access("cancelled", () -> {
+            }).cancel(false);
+            assertFalse(
+                    session.getCoalescedAccesses().containsKey("cancelled"));
+
+            Future<Void> discarded = session.access("discarded", () -> {
+            });
+            session.access(() -> {
+            });
+            assertTrue(discarded.isCancelled());
+            assertFalse(
+                    session.getCoalescedAccesses().containsKey("discarded"));
+        });
+    }
+
+    @Test
+    public void accessBatchLatency_tasksRunInOneBatch() throws Exception {
+        VaadinService service = createService();
+        MockVaadinSession session = new MockVaadinSession(service);
+        session.setAccessBatchLatency(50);
+        AtomicInteger runs = new AtomicInteger();
+
+        Future<Void> first = session.access(runs::incrementAndGet);
+        Future<Void> last = session.access(runs::incrementAndGet);
+        assertEquals(0, runs.get());
+
+        last.get(5, TimeUnit.SECONDS);
+        assertTrue(first.isDone());
+        assertEquals(2, runs.get());
+        assertEquals(1, session.getAccessQueueMetrics().getDrainCount());
+        service.destroy();
+    }
+
+    @Test
+    public void accessBatchLatency_runningTasksDoNotDelayScheduledTasks()
+            throws Exception {
+        VaadinService service = createService();
+        MockVaadinSession session = new MockVaadinSession(service);
+        session.setAccessBatchLatency(10);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Void> blocking = session.access(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CountDownLatch scheduled = new CountDownLatch(1);
+        service.schedule(scheduled::countDown, 50, TimeUnit.MILLISECONDS);
+
+        try {
+            assertTrue("Scheduled task should run while the batch is running",
+                    scheduled.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+        blocking.get(5, TimeUnit.SECONDS);
+        service.destroy();
+    }
+
+    private static void runWithLockHeldByOtherThread(VaadinSession session,
+            Runnable command) throws InterruptedException {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            session.lock();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                session.unlock();
+            }
+        });
+        holder.start();
+        locked.await();
+        try {
+            command.run();
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+
     private static VaadinService createService() {
         ServletConfig servletConfig = new MockServletConfig();
         VaadinServlet servlet = new VaadinServlet();
@@ -1,15 +1,21 @@
 package com.vaadin.server;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.FileSystems;
@@ -18,18 +24,23 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -460,6 +471,285 @@ public class VaadinServletTest {
         }
     }
 
+    @Test
+    public void productionMode_staticResourceCached_missingVariantNotLookedUpAgain()
+            throws Exception {
+        TemporaryFolder folder = TemporaryFolder.builder().build();
+        folder.create();
+        try {
+            File vaadinFolder = folder.newFolder("VAADIN");
+            File script = new File(vaadinFolder, "script.js");
+            Files.write(script.toPath(), "plain".getBytes(UTF_8));
+            URL scriptUrl = script.toURI().toURL();
+
+            VaadinServlet servlet = createProductionModeServlet();
+
+            assertEquals("plain", writeStaticResource(servlet, scriptUrl,
+                    "gzip, br", null));
+
+            // Variants are not looked up again once found to be missing
+            Files.write(new File(vaadinFolder, "script.js.gz").toPath(),
+                    "gzipped".getBytes(UTF_8));
+            assertEquals("plain", writeStaticResource(servlet, scriptUrl,
+                    "gzip, br", null));
+        } finally {
+            folder.delete();
+        }
+    }
+
+    @Test
+    public void productionMode_precompressedStaticResource_preferredVariantServed()
+            throws Exception {
+        TemporaryFolder folder = TemporaryFolder.builder().build();
+        folder.create();
+        try {
+            File vaadinFolder = folder.newFolder("VAADIN");
+            File script = new File(vaadinFolder, "script.js");
+            Files.write(script.toPath(), "plain".getBytes(UTF_8));
+            Files.write(new File(vaadinFolder, "script.js.gz").toPath(),
+                    "gzipped".getBytes(UTF_8));
+            Files.write(new File(vaadinFolder, "script.js.br").toPath(),
+                    "brotli".getBytes(UTF_8));
+            URL scriptUrl = script.toURI().toURL();
+
+            VaadinServlet servlet = createProductionModeServlet();
+
+            assertEquals("brotli", writeStaticResource(servlet, scriptUrl,
+                    "gzip, deflate, br", "br"));
+            assertEquals("gzipped", writeStaticResource(servlet, scriptUrl,
+                    "gzip", "gzip"));
+            assertEquals("plain",
+                    writeStaticResource(servlet, scriptUrl, null, null));
+        } finally {
+            folder.delete();
+        }
+    }
+
+    @Test
+    public void precompressedStaticResource_acceptEncodingParsed()
+            throws Exception {
+        TemporaryFolder folder = TemporaryFolder.builder().build();
+        folder.create();
+        try {
+            URL scriptUrl = createPrecompressedScript(folder);
+
+            VaadinServlet servlet = createProductionModeServlet();
+
+            assertEquals("gzipped", writeStaticResource(servlet, scriptUrl,
+                    "br;q=0, gzip", "gzip"));
+            assertEquals("gzipped", writeStaticResource(servlet, scriptUrl,
+                    "gzip, brotli", "gzip"));
+            assertEquals("gzipped", writeStaticResource(servlet, scriptUrl,
+                    "br;q=0.5, gzip", "gzip"));
+            assertEquals("plain", writeStaticResource(servlet, scriptUrl,
+                    "gzip;q=0, br", null));
+        } finally {
+            folder.delete();
+        }
+    }
+
+    @Test
+    public void precompressedStaticResource_overrideDecidesGzip()
+            throws Exception {
+        TemporaryFolder folder = TemporaryFolder.builder().build();
+        folder.create();
+        try {
+            URL scriptUrl = createPrecompressedScript(folder);
+
+            VaadinServlet servlet = new VaadinServlet() {
+                @Override
+                protected boolean allowServePrecompressedResource(
+                        HttpServletRequest request, String url) {
+                    return true;
+                }
+            };
+            servlet.init(new MockServletConfig(new Properties()));
+
+            assertEquals("gzipped",
+                    writeStaticResource(servlet, scriptUrl, null, "gzip"));
+        } finally {
+            folder.delete();
+        }
+    }
+
+    @Test
+    public void developmentMode_brotliVariantNotServed() throws Exception {
+        TemporaryFolder folder = TemporaryFolder.builder().build();
+        folder.create();
+        try {
+            URL scriptUrl = createPrecompressedScript(folder);
+
+            VaadinServlet servlet = new VaadinServlet();
+            servlet.init(new MockServletConfig(new Properties()));
+
+            assertEquals("gzipped", writeStaticResource(servlet, scriptUrl,
+                    "gzip, br", "gzip"));
+        } finally {
+            folder.delete();
+        }
+    }
+
+    @Test
+    public void productionMode_largeStaticResource_onlyReadOnceForCache()
+            throws Exception {
+        int size = 5 * 1024 * 1024;
+        AtomicInteger connections = new AtomicInteger();
+        AtomicLong bytesRead = new AtomicLong();
+        URL resourceUrl = new URL(null, "test:/VAADIN/large.js",
+                new URLStreamHandler() {
+                    @Override
+                    protected URLConnection openConnection(URL url) {
+                        connections.incrementAndGet();
+                        return new URLConnection(url) {
+                            @Override
+                            public void connect() {
+                            }
+
+                            @Override
+                            public InputStream getInputStream() {
+                                return new InputStream() {
+                                    private int remaining = size;
+
+                                    @Override
+                                    public int read() {
+                                        if (remaining == 0) {
+                                            return -1;
+                                        }
+                                        remaining--;
+                                        bytesRead.incrementAndGet();
+                                        return 'a';
+                                    }
+                                };
+                            }
+
+                            @Override
+                            public long getLastModified() {
+                                return 1000;
+                            }
+                        };
+                    }
+                });
+        VaadinServlet servlet = createProductionModeServlet();
+
+        for (int i = 0; i < 2; i++) {
+            HttpServletResponse response = Mockito
+                    .mock(HttpServletResponse.class);
+            CountingOutputStream out = new CountingOutputStream();
+            Mockito.when(response.getOutputStream()).thenReturn(out);
+
+            servlet.writeStaticResourceResponse(
+                    Mockito.mock(HttpServletRequest.class), response,
+                    resourceUrl);
+
+            assertEquals(size, out.count);
+        }
+
+        // Read up to the in-memory limit once, then streamed for each request
+        assertEquals(3, connections.get());
+        assertTrue(bytesRead.get() < 3L * size);
+    }
+
+    @Test
+    public void productionMode_variantLookupFailsWithIOException_nonCompressedServed()
+            throws Exception {
+        AtomicInteger variantLookups = new AtomicInteger();
+        URL resourceUrl = new URL(null, "test:/VAADIN/script.js",
+                new URLStreamHandler() {
+                    @Override
+                    protected URLConnection openConnection(URL url) {
+                        boolean variant = !url.getPath().endsWith(".js");
+                        return new URLConnection(url) {
+                            @Override
+                            public void connect() {
+                            }
+
+                            @Override
+                            public InputStream getInputStream()
+                                    throws IOException {
+                                if (variant) {
+                                    variantLookups.incrementAndGet();
+                                    // Not a FileNotFoundException
+                                    throw new IOException("No such entry");
+                                }
+                                return new ByteArrayInputStream(
+                                        "plain".getBytes(UTF_8));
+                            }
+                        };
+                    }
+                });
+        VaadinServlet servlet = createProductionModeServlet();
+
+        assertEquals("plain", writeStaticResource(servlet, resourceUrl,
+                "gzip, br", null));
+        assertEquals(2, variantLookups.get());
+
+        // Missing variants are not looked up again
+        assertEquals("plain", writeStaticResource(servlet, resourceUrl,
+                "gzip, br", null));
+        assertEquals(2, variantLookups.get());
+    }
+
+    private static class CountingOutputStream extends ServletOutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+    }
+
+    private URL createPrecompressedScript(TemporaryFolder folder)
+            throws IOException {
+        File vaadinFolder = folder.newFolder("VAADIN");
+        File script = new File(vaadinFolder, "script.js");
+        Files.write(script.toPath(), "plain".getBytes(UTF_8));
+        Files.write(new File(vaadinFolder, "script.js.gz").toPath(),
+                "gzipped".getBytes(UTF_8));
+        Files.write(new File(vaadinFolder, "script.js.br").toPath(),
+                "brotli".getBytes(UTF_8));
+        return script.toURI().toURL();
+    }
+
+    private VaadinServlet createProductionModeServlet()
+            throws ServletException {
+        Properties initParameters = new Properties();
+        initParameters.setProperty(
+                Constants.SERVLET_PARAMETER_PRODUCTION_MODE, "true");
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig(initParameters));
+        return servlet;
+    }
+
+    private String writeStaticResource(VaadinServlet servlet, URL resourceUrl,
+            String acceptEncoding, String expectedEncoding)
+            throws IOException {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn(acceptEncoding);
+        HttpServletResponse response = Mockito
+                .mock(HttpServletResponse.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Mockito.when(response.getOutputStream())
+                .thenReturn(new ServletOutputStream() {
+                    @Override
+                    public void write(int b) {
+                        out.write(b);
+                    }
+                });
+
+        servlet.writeStaticResourceResponse(request, response, resourceUrl);
+
+        if (expectedEncoding == null) {
+            Mockito.verify(response, Mockito.never()).setHeader(
+                    Mockito.eq("Content-Encoding"), Mockito.anyString());
+        } else {
+            Mockito.verify(response).setHeader("Content-Encoding",
+                    expectedEncoding);
+        }
+        Mockito.verify(response).setContentLength(out.size());
+        return new String(out.toByteArray(), UTF_8);
+    }
+
     private HttpServletRequest createServletRequest(String servletPath,
             String pathInfo) {
         HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
@@ -1,17 +1,41 @@
 package com.vaadin.server.communication;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.io.IOUtils;
 import org.atmosphere.cpr.AtmosphereResource;
+import org.atmosphere.cpr.AtmosphereResource.TRANSPORT;
 import org.easymock.EasyMock;
 import org.junit.Test;
+import org.mockito.Mockito;
 
+import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockServletConfig;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.VaadinSession.AccessQueueOverflowPolicy;
 import com.vaadin.server.communication.AtmospherePushConnection.State;
+import com.vaadin.shared.communication.PushConstants;
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.ui.Label;
 import com.vaadin.ui.UI;
 
 public class AtmospherePushConnectionTest {
@@ -36,4 +60,275 @@ public class AtmospherePushConnectionTest {
 
         assertEquals(State.DISCONNECTED, connection.getState());
     }
+
+    @Test
+    public void minPushInterval_pushesCoalescedIntoDeferredMessage()
+            throws Exception {
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        MockVaadinSession session = new MockVaadinSession(
+                new VaadinServletService(servlet,
+                        new DefaultDeploymentConfiguration(UI.class,
+                                new Properties())));
+
+        List<String> messages = new CopyOnWriteArrayList<>();
+        AtmospherePushConnection connection = new AtmospherePushConnection(
+                ui) {
+            @Override
+            protected void sendMessage(String message) {
+                messages.add(message);
+            }
+        };
+
+        session.lock();
+        try {
+            session.setCommunicationManager(
+                    new LegacyCommunicationManager(session));
+            ui.setSession(session);
+            ui.doInit(Mockito.mock(VaadinRequest.class), 1, "foo");
+            session.addUI(ui);
+            ui.getPushConfiguration().setPushMode(PushMode.MANUAL);
+            ui.getPushConfiguration().setMinPushInterval(200);
+            ui.setPushConnection(connection);
+            connection.connect(
+                    EasyMock.createNiceMock(AtmosphereResource.class));
+
+            ui.setContent(new Label("first"));
+            ui.push();
+            assertEquals(1, messages.size());
+
+            ui.setContent(new Label("second"));
+            ui.push();
+            ((Label) ui.getContent()).setValue("third");
+            ui.push();
+            assertEquals(1, messages.size());
+            assertEquals(2, connection.getCoalescedPushCount());
+        } finally {
+            session.unlock();
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (messages.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, messages.size());
+        assertTrue(messages.get(1).contains("third"));
+        assertEquals(2, connection.getSentMessageCount());
+        assertEquals(messages.get(0).length() + messages.get(1).length(),
+                connection.getTotalSentMessageLength());
+        assertEquals(
+                Math.max(messages.get(0).length(), messages.get(1).length()),
+                connection.getMaxSentMessageLength());
+    }
+
+    @Test
+    public void minPushInterval_deferredPushRejected_nextPushDeferredAgain()
+            throws Exception {
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        MockVaadinSession session = new MockVaadinSession(
+                new VaadinServletService(servlet,
+                        new DefaultDeploymentConfiguration(UI.class,
+                                new Properties())));
+        session.setAccessQueueCapacity(1);
+        session.setAccessQueueOverflowPolicy(AccessQueueOverflowPolicy.REJECT);
+
+        List<String> messages = new CopyOnWriteArrayList<>();
+        AtmospherePushConnection connection = new AtmospherePushConnection(
+                ui) {
+            @Override
+            protected void sendMessage(String message) {
+                messages.add(message);
+            }
+        };
+
+        session.lock();
+        try {
+            session.setCommunicationManager(
+                    new LegacyCommunicationManager(session));
+            ui.setSession(session);
+            ui.doInit(Mockito.mock(VaadinRequest.class), 1, "foo");
+            session.addUI(ui);
+            ui.getPushConfiguration().setPushMode(PushMode.MANUAL);
+            ui.getPushConfiguration().setMinPushInterval(100);
+            ui.setPushConnection(connection);
+            connection.connect(
+                    EasyMock.createNiceMock(AtmosphereResource.class));
+
+            ui.setContent(new Label("first"));
+            ui.push();
+            ui.setContent(new Label("second"));
+            ui.push();
+            assertEquals(1, messages.size());
+
+            // Fill the queue so that the deferred push is rejected
+            session.access(() -> {
+            });
+            long deadline = System.currentTimeMillis() + 5000;
+            while (session.getAccessQueueMetrics().getRejectedTaskCount() == 0
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1,
+                    session.getAccessQueueMetrics().getRejectedTaskCount());
+        } finally {
+            session.unlock();
+        }
+
+        session.lock();
+        try {
+            ((Label) ui.getContent()).setValue("third");
+            ui.push();
+            ((Label) ui.getContent()).setValue("fourth");
+            ui.push();
+            assertEquals(2, messages.size());
+        } finally {
+            session.unlock();
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (messages.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, messages.size());
+        assertTrue(messages.get(2).contains("fourth"));
+    }
+
+    @Test
+    public void minPushInterval_blockedSession_otherDeferredPushesSent()
+            throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        VaadinServletService service = new VaadinServletService(servlet,
+                new DefaultDeploymentConfiguration(UI.class,
+                        new Properties()));
+
+        MockVaadinSession blockedSession = new MockVaadinSession(service);
+        blockedSession.setAccessQueueCapacity(1);
+        blockedSession.setAccessQueueOverflowPolicy(
+                AccessQueueOverflowPolicy.CALLER_RUNS);
+        List<String> blockedMessages = new CopyOnWriteArrayList<>();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            blockedSession.lock();
+            try {
+                UI ui = connectUI(blockedSession, blockedMessages, 50);
+                // Fill the queue so that accessing the session for the
+                // deferred push waits for the lock
+                blockedSession.access(() -> {
+                });
+                ui.setContent(new Label("first"));
+                ui.push();
+                ui.setContent(new Label("second"));
+                ui.push();
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                blockedSession.unlock();
+            }
+        });
+        holder.start();
+
+        try {
+            assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+            MockVaadinSession session = new MockVaadinSession(service);
+            List<String> messages = new CopyOnWriteArrayList<>();
+            session.lock();
+            try {
+                UI ui = connectUI(session, messages, 100);
+                ui.setContent(new Label("first"));
+                ui.push();
+                ui.setContent(new Label("second"));
+                ui.push();
+                assertEquals(1, messages.size());
+            } finally {
+                session.unlock();
+            }
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (messages.size() < 2
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("Deferred push should not wait for the blocked session",
+                    2, messages.size());
+            assertEquals(1, blockedMessages.size());
+        } finally {
+            release.countDown();
+            holder.join(5000);
+            service.destroy();
+        }
+    }
+
+    /**
+     * Initializes a UI in the given locked session with a push connection
+     * collecting the sent messages.
+     */
+    private static UI connectUI(MockVaadinSession session,
+            List<String> messages, int minPushInterval) {
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        AtmospherePushConnection connection = new AtmospherePushConnection(
+                ui) {
+            @Override
+            protected void sendMessage(String message) {
+                messages.add(message);
+            }
+        };
+        session.setCommunicationManager(
+                new LegacyCommunicationManager(session));
+        ui.setSession(session);
+        ui.doInit(Mockito.mock(VaadinRequest.class), 1, "foo");
+        session.addUI(ui);
+        ui.getPushConfiguration().setPushMode(PushMode.MANUAL);
+        ui.getPushConfiguration().setMinPushInterval(minPushInterval);
+        ui.setPushConnection(connection);
+        connection.connect(EasyMock.createNiceMock(AtmosphereResource.class));
+        return ui;
+    }
+
+    @Test
+    public void receiveMessage_fragmentsReassembledAndMeasured()
+            throws Exception {
+        UI ui = EasyMock.createNiceMock(UI.class);
+        AtmosphereResource resource = Mockito.mock(AtmosphereResource.class);
+        Mockito.when(resource.transport()).thenReturn(TRANSPORT.WEBSOCKET);
+
+        AtmospherePushConnection connection = new AtmospherePushConnection(ui);
+        connection.connect(resource);
+
+        String message = "[\"rpc\", 42]";
+        String data = message.length() + "" + PushConstants.MESSAGE_DELIMITER
+                + message;
+
+        assertNull(connection
+                .receiveMessage(new StringReader(data.substring(0, 6))));
+        Reader reader = connection
+                .receiveMessage(new StringReader(data.substring(6)));
+        assertNotNull(reader);
+        assertEquals(message, IOUtils.toString(reader));
+
+        assertEquals(1, connection.getReceivedMessageCount());
+        assertEquals(message.length(),
+                connection.getMaxReceivedMessageLength());
+        assertEquals(message.length(),
+                connection.getTotalReceivedMessageLength());
+    }
 }
@@ -0,0 +1,36 @@
+package com.vaadin.server.communication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.vaadin.ui.AbstractComponent;
+import com.vaadin.ui.Label;
+
+public class ConnectorTypeMetadataTest {
+
+    @Test
+    public void memberClass_canonicalNameUsed() {
+        ConnectorTypeMetadata metadata = ConnectorTypeMetadata
+                .get(Label.class);
+
+        assertEquals("\"com.vaadin.ui.Label\" : ", metadata.getMappingKey());
+        assertSame(AbstractComponent.class,
+                metadata.getConnectorSuperclass());
+        assertSame(metadata, ConnectorTypeMetadata.get(Label.class));
+    }
+
+    @Test
+    public void localClass_binaryNameUsed() {
+        class LocalLabel extends Label {
+        }
+
+        ConnectorTypeMetadata metadata = ConnectorTypeMetadata
+                .get(LocalLabel.class);
+
+        assertEquals("\"" + LocalLabel.class.getName() + "\" : ",
+                metadata.getMappingKey());
+        assertSame(Label.class, metadata.getConnectorSuperclass());
+    }
+}
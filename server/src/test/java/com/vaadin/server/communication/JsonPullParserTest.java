@@ -0,0 +1,86 @@
+package com.vaadin.server.communication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonException;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+public class JsonPullParserTest {
+
+    private static final String JSON = "{ \"string\" : \"a\\\"b\\\\c\\u00e4\\n\","
+            + "\"numbers\":[1, -2.5, 3e2],\n\"literals\":[true,false,null],"
+            + "\"nested\":{\"empty\":{},\"array\":[[]]}}";
+
+    @Test
+    public void nextValue_sameAsParsingString() throws IOException {
+        JsonPullParser parser = parser(JSON);
+
+        JsonValue value = parser.nextValue();
+
+        assertTrue(parser.isAtEnd());
+        assertEquals(JsonUtil.stringify(JsonUtil.parse(JSON)),
+                JsonUtil.stringify(value));
+    }
+
+    @Test
+    public void members_readAndSkipped() throws IOException {
+        JsonPullParser parser = parser(JSON);
+
+        parser.beginObject();
+        assertTrue(parser.hasNext());
+        assertEquals("string", parser.nextName());
+        assertEquals("a\"b\\cä\n", parser.nextValue().asString());
+        assertEquals("numbers", parser.nextName());
+        parser.skipValue();
+        assertEquals("literals", parser.nextName());
+        parser.beginArray();
+        assertTrue(parser.nextValue().asBoolean());
+        parser.skipValue();
+        parser.skipValue();
+        assertFalse(parser.hasNext());
+        parser.endArray();
+        assertEquals("nested", parser.nextName());
+        parser.skipValue();
+        assertFalse(parser.hasNext());
+        parser.endObject();
+        assertTrue(parser.isAtEnd());
+    }
+
+    @Test(expected = JsonException.class)
+    public void missingComma_throws() throws IOException {
+        parser("[1 2]").nextValue();
+    }
+
+    @Test(expected = JsonException.class)
+    public void unterminated_throws() throws IOException {
+        parser("{\"a\":[1,").nextValue();
+    }
+
+    @Test(expected = JsonException.class)
+    public void maxLengthExceeded_throws() throws IOException {
+        parser("[1,2,3]", 6).nextValue();
+    }
+
+    @Test
+    public void maxLengthNotExceeded() throws IOException {
+        JsonArray array = (JsonArray) parser("[1,2,3]", 7).nextValue();
+        assertEquals(3, array.length());
+    }
+
+    private static JsonPullParser parser(String json) {
+        return parser(json, -1);
+    }
+
+    private static JsonPullParser parser(String json, int maxLength) {
+        return new JsonPullParser(new StringReader(json), maxLength);
+    }
+}
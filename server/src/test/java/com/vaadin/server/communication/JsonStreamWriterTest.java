@@ -0,0 +1,68 @@
+package com.vaadin.server.communication;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.impl.JsonUtil;
+
+public class JsonStreamWriterTest {
+
+    private final StringWriter writer = new StringWriter();
+    private final JsonStreamWriter json = new JsonStreamWriter(writer);
+
+    @Test
+    public void emptyObjectAndArray() throws IOException {
+        json.beginArray().beginObject().endObject().beginArray().endArray()
+                .endArray();
+        assertEquals("[{},[]]", writer.toString());
+    }
+
+    @Test
+    public void membersAndElementsAreSeparated() throws IOException {
+        json.beginObject();
+        json.name("a").value("x\"y");
+        json.name("b").value(42);
+        json.name("c").value(true);
+        json.name("d").beginArray().value("1").value((String) null)
+                .endArray();
+        json.endObject();
+        assertEquals("{\"a\":\"x\\\"y\",\"b\":42,\"c\":true,\"d\":[\"1\",null]}",
+                writer.toString());
+    }
+
+    @Test
+    public void jsonValueMatchesStringify() throws IOException {
+        JsonObject object = Json.createObject();
+        object.put("string", "foo\nbar");
+        object.put("int", 1);
+        object.put("double", 1.5);
+        object.put("null", Json.createNull());
+        JsonArray array = Json.createArray();
+        array.set(0, Json.createObject());
+        array.set(1, "baz");
+        JsonObject nested = Json.createObject();
+        nested.put("bool", false);
+        array.set(2, nested);
+        object.put("array", array);
+
+        json.value(object);
+        assertEquals(JsonUtil.stringify(object), writer.toString());
+    }
+
+    @Test
+    public void nestedJsonValueInsideStream() throws IOException {
+        JsonObject state = Json.createObject();
+        state.put("caption", "c");
+        json.beginObject().name("1").value(state).name("2").value(state)
+                .endObject();
+        assertEquals("{\"1\":{\"caption\":\"c\"},\"2\":{\"caption\":\"c\"}}",
+                writer.toString());
+    }
+}
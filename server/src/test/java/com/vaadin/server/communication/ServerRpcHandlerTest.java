@@ -1,15 +1,35 @@
 package com.vaadin.server.communication;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.vaadin.server.DeploymentConfiguration;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyException;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
+import com.vaadin.shared.communication.MethodInvocation;
+import com.vaadin.shared.communication.ServerRpc;
 import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.AbstractComponent;
 import com.vaadin.ui.UI;
 
 import elemental.json.Json;
 import elemental.json.JsonArray;
+import elemental.json.JsonException;
 
 public class ServerRpcHandlerTest {
 
@@ -22,6 +42,47 @@ public class ServerRpcHandlerTest {
 
     }
 
+    public interface TestRpc extends ServerRpc {
+        void call(String value);
+    }
+
+    public static class RpcComponent extends AbstractComponent {
+        private final List<String> calls = new ArrayList<>();
+
+        public RpcComponent() {
+            registerRpc((TestRpc) calls::add);
+        }
+    }
+
+    private final ServerRpcHandler rpcHandler = new ServerRpcHandler();
+    private DeploymentConfiguration configuration;
+    private AlwaysLockedVaadinSession session;
+    private VaadinRequest request;
+    private TestUI ui;
+    private RpcComponent component;
+
+    @Before
+    public void setup() {
+        configuration = Mockito.mock(DeploymentConfiguration.class);
+        Mockito.when(configuration.isXsrfProtectionEnabled()).thenReturn(true);
+        Mockito.when(configuration.getMaxMessageSize()).thenReturn(-1);
+        VaadinService service = Mockito.mock(VaadinService.class);
+        Mockito.when(service.getDeploymentConfiguration())
+                .thenReturn(configuration);
+        request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getService()).thenReturn(service);
+
+        session = new AlwaysLockedVaadinSession(service);
+        session.setCommunicationManager(
+                new LegacyCommunicationManager(session));
+        ui = new TestUI();
+        ui.doInit(Mockito.mock(VaadinRequest.class), 1, null);
+        ui.setSession(session);
+        session.addUI(ui);
+        component = new RpcComponent();
+        ui.setContent(component);
+    }
+
     @Test
     public void handleUnknownConnector() {
         ServerRpcHandler rpcHandler = new ServerRpcHandler();
@@ -46,4 +107,201 @@ public class ServerRpcHandlerTest {
         // This only tests that an invocation for a non-existant connector does
         // not cause any exceptions
     }
+
+    @Test
+    public void handleRpc_invocationsPerformed() throws Exception {
+        handleRpc("{\"csrfToken\":\"" + session.getCsrfToken()
+                + "\",\"syncId\":1,\"wsver\":null,\"clientId\":0,\"rpc\":["
+                + invocation("a")
+                + "," + invocation("b") + "]}");
+
+        assertEquals(Arrays.asList("a", "b"), component.calls);
+        assertEquals(0, ui.getLastProcessedClientToServerId());
+    }
+
+    @Test
+    public void handleRpc_invalidCsrfToken_invocationsNotRead()
+            throws Exception {
+        try {
+            // The invocations are malformed, but should never be read
+            handleRpc("{\"csrfToken\":\"invalid\",\"syncId\":1,"
+                    + "\"wsver\":null,\"clientId\":0,\"rpc\":[[not json");
+            fail("Invalid token should have been rejected");
+        } catch (InvalidUIDLSecurityKeyException expected) {
+            assertEquals(Collections.emptyList(), component.calls);
+        }
+    }
+
+    @Test
+    public void handleRpc_unexpectedMessageId_invocationsSkipped()
+            throws Exception {
+        handleRpc("{\"csrfToken\":\"" + session.getCsrfToken()
+                + "\",\"syncId\":1,\"wsver\":null,\"clientId\":5,\"rpc\":["
+                + invocation("a") + "]}");
+
+        assertEquals(Collections.emptyList(), component.calls);
+        assertEquals(-1, ui.getLastProcessedClientToServerId());
+    }
+
+    @Test
+    public void handleRpc_invocationsBeforeMessageId_invocationsPerformed()
+            throws Exception {
+        handleRpc("{\"csrfToken\":\"" + session.getCsrfToken() + "\",\"rpc\":["
+                + invocation("a") + "],\"syncId\":1,\"clientId\":0}");
+
+        assertEquals(Arrays.asList("a"), component.calls);
+        assertEquals(0, ui.getLastProcessedClientToServerId());
+    }
+
+    @Test(expected = InvalidUIDLSecurityKeyException.class)
+    public void handleRpc_invocationsBeforeMessageId_csrfTokenChecked()
+            throws Exception {
+        handleRpc("{\"csrfToken\":\"invalid\",\"rpc\":[" + invocation("a")
+                + "],\"syncId\":1,\"clientId\":0}");
+    }
+
+    @Test
+    public void handleRpc_csrfTokenAfterInvocations_invocationsPerformed()
+            throws Exception {
+        handleRpc("{\"syncId\":1,\"wsver\":null,\"clientId\":0,\"rpc\":["
+                + invocation("a") + "],\"csrfToken\":\""
+                + session.getCsrfToken() + "\"}");
+
+        assertEquals(Arrays.asList("a"), component.calls);
+        assertEquals(0, ui.getLastProcessedClientToServerId());
+    }
+
+    @Test
+    public void handleRpc_syncIdAfterInvocations_syncIdPassedToHook()
+            throws Exception {
+        Mockito.when(configuration.isSyncIdCheckEnabled()).thenReturn(true);
+        List<Integer> syncIds = new ArrayList<>();
+        ServerRpcHandler rpcHandler = new ServerRpcHandler() {
+            @Override
+            protected void handleInvocations(UI ui, int lastSyncIdSeenByClient,
+                    List<MethodInvocation> invocations) {
+                syncIds.add(lastSyncIdSeenByClient);
+                super.handleInvocations(ui, lastSyncIdSeenByClient,
+                        invocations);
+            }
+        };
+
+        rpcHandler.handleRpc(ui,
+                new StringReader("{\"csrfToken\":\"" + session.getCsrfToken()
+                        + "\",\"wsver\":null,\"clientId\":0,\"rpc\":["
+                        + invocation("a") + "],\"syncId\":7}"),
+                request);
+        rpcHandler.handleRpc(ui,
+                new StringReader("{\"csrfToken\":\"" + session.getCsrfToken()
+                        + "\",\"syncId\":8,\"wsver\":null,\"clientId\":1,"
+                        + "\"rpc\":[" + invocation("b") + "]}"),
+                request);
+
+        assertEquals(Arrays.asList(7, 8), syncIds);
+        assertEquals(Arrays.asList("a", "b"), component.calls);
+    }
+
+    @Test
+    public void handleRpc_jsonInvocationsHookOverridden_hookCalled()
+            throws Exception {
+        List<Integer> invocationCounts = new ArrayList<>();
+        ServerRpcHandler rpcHandler = new ServerRpcHandler() {
+            @Override
+            protected void handleInvocations(UI ui, int lastSyncIdSeenByClient,
+                    JsonArray invocationsData) {
+                invocationCounts.add(invocationsData.length());
+                super.handleInvocations(ui, lastSyncIdSeenByClient,
+                        invocationsData);
+            }
+        };
+
+        rpcHandler.handleRpc(ui,
+                new StringReader("{\"csrfToken\":\"" + session.getCsrfToken()
+                        + "\",\"syncId\":1,\"wsver\":null,\"clientId\":0,"
+                        + "\"rpc\":[" + invocation("a") + ","
+                        + invocation("b") + "]}"),
+                request);
+
+        assertEquals(Arrays.asList(2), invocationCounts);
+        assertEquals(Arrays.asList("a", "b"), component.calls);
+    }
+
+    @Test
+    public void handleRpc_getMessageOverridden_overrideUsed()
+            throws Exception {
+        List<String> messages = new ArrayList<>();
+        ServerRpcHandler rpcHandler = new ServerRpcHandler() {
+            @Override
+            protected String getMessage(Reader reader) throws IOException {
+                String message = super.getMessage(reader);
+                messages.add(message);
+                return message;
+            }
+        };
+
+        String message = "{\"csrfToken\":\"" + session.getCsrfToken()
+                + "\",\"syncId\":1,\"wsver\":null,\"clientId\":0,\"rpc\":["
+                + invocation("a") + "," + invocation("b") + "]}";
+        rpcHandler.handleRpc(ui, new StringReader(message), request);
+
+        assertEquals(Arrays.asList(message), messages);
+        assertEquals(Arrays.asList("a", "b"), component.calls);
+        assertEquals(0, ui.getLastProcessedClientToServerId());
+    }
+
+    @Test
+    public void handleRpc_emptyMessage_ignored() throws Exception {
+        handleRpc(" ");
+
+        assertEquals(-1, ui.getLastProcessedClientToServerId());
+    }
+
+    @Test
+    public void handleRpc_messageTooLarge_readingStopped() throws Exception {
+        Mockito.when(configuration.getMaxMessageSize()).thenReturn(1000);
+        StringBuilder message = new StringBuilder("{\"csrfToken\":\""
+                + session.getCsrfToken() + "\",\"wsver\":null,\"clientId\":0,"
+                + "\"rpc\":[");
+        for (int i = 0; i < 10000; i++) {
+            message.append(invocation("value" + i)).append(',');
+        }
+        message.append(invocation("last")).append("]}");
+        CountingReader reader = new CountingReader(message.toString());
+
+        try {
+            rpcHandler.handleRpc(ui, reader, request);
+            fail("Too large message should have been rejected");
+        } catch (JsonException expected) {
+            assertTrue("Should stop reading after the limit",
+                    reader.charactersRead <= 1001);
+            assertEquals(Collections.emptyList(), component.calls);
+        }
+    }
+
+    private void handleRpc(String message)
+            throws IOException, InvalidUIDLSecurityKeyException {
+        rpcHandler.handleRpc(ui, new StringReader(message), request);
+    }
+
+    private String invocation(String value) {
+        return "[\"" + component.getConnectorId() + "\",\""
+                + TestRpc.class.getName() + "\",\"call\",[\"" + value + "\"]]";
+    }
+
+    private static class CountingReader extends StringReader {
+        private int charactersRead;
+
+        public CountingReader(String s) {
+            super(s);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            int read = super.read(cbuf, off, len);
+            if (read > 0) {
+                charactersRead += read;
+            }
+            return read;
+        }
+    }
 }
@@ -0,0 +1,306 @@
+package com.vaadin.server.communication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.annotations.JavaScript;
+import com.vaadin.annotations.StyleSheet;
+import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockServletConfig;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+public class UidlRequestHandlerTest {
+
+    private VaadinSession session;
+    private VaadinRequest request;
+    private VaadinResponse response;
+    private ByteArrayOutputStream output;
+    private boolean lockedWhileWriting;
+
+    private final UidlRequestHandler handler = new UidlRequestHandler() {
+        @Override
+        protected ServerRpcHandler createRpcHandler() {
+            return new NoRpcHandler();
+        }
+    };
+
+    @JavaScript({ "script.js", "http://example.com/external.js" })
+    @StyleSheet("style.css")
+    public static class LabelWithDependencies extends Label {
+    }
+
+    private static class NoRpcHandler extends ServerRpcHandler {
+        @Override
+        public void handleRpc(UI ui, Reader reader, VaadinRequest request) {
+            // No invocations in these requests
+        }
+    }
+
+    @Before
+    public void setup() throws Exception {
+        setup(new Properties());
+    }
+
+    private void setup(Properties initParameters) throws Exception {
+        setup(initParameters, new Label("content"));
+    }
+
+    private void setup(Properties initParameters, Label content)
+            throws Exception {
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        VaadinService service = new VaadinServletService(servlet,
+                new DefaultDeploymentConfiguration(UI.class,
+                        initParameters)) {
+            @Override
+            public UI findUI(VaadinRequest request) {
+                return ui;
+            }
+        };
+        session = new MockVaadinSession(service);
+        session.lock();
+        try {
+            session.setCommunicationManager(
+                    new LegacyCommunicationManager(session));
+            ui.setSession(session);
+            ui.doInit(Mockito.mock(VaadinRequest.class), 1, "foo");
+            session.addUI(ui);
+            ui.setContent(content);
+        } finally {
+            session.unlock();
+        }
+
+        Map<String, Object> attributes = new HashMap<>();
+        request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getPathInfo()).thenReturn("/UIDL/");
+        Mockito.when(request.getService()).thenReturn(service);
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn("gzip, deflate");
+        Mockito.when(request.getReader()).thenReturn(
+                new BufferedReader(new StringReader("")));
+        Mockito.doAnswer(invocation -> attributes
+                .get(invocation.getArguments()[0])).when(request)
+                .getAttribute(Mockito.anyString());
+        Mockito.doAnswer(invocation -> attributes.put(
+                (String) invocation.getArguments()[0],
+                invocation.getArguments()[1])).when(request)
+                .setAttribute(Mockito.anyString(), Mockito.any());
+
+        output = new ByteArrayOutputStream() {
+            @Override
+            public void write(byte[] b, int off, int len) {
+                lockedWhileWriting |= session.hasLock();
+                super.write(b, off, len);
+            }
+        };
+        response = Mockito.mock(VaadinResponse.class);
+        Mockito.when(response.getOutputStream()).thenReturn(output);
+    }
+
+    @Test
+    public void handleRequest_responseWrittenAfterUnlocking() throws Exception {
+        assertTrue(handler.handleRequest(session, request, response));
+
+        String json = new String(output.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(json, json.startsWith("for(;;);[{"));
+        assertTrue(json, json.endsWith("}]"));
+        assertTrue(json, json.contains("content"));
+        assertFalse("Response should be written without holding the lock",
+                lockedWhileWriting);
+        assertFalse(session.hasLock());
+        Mockito.verify(response).setContentLength(output.size());
+    }
+
+    @Test
+    public void synchronizedHandleRequest_responseWrittenImmediately()
+            throws Exception {
+        session.lock();
+        try {
+            handler.synchronizedHandleRequest(session, request, response);
+            assertTrue(output.size() > 0);
+            assertTrue(lockedWhileWriting);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void handleRequest_responseSizesReported() throws Exception {
+        handler.handleRequest(session, request, response);
+        int firstSize = output.size();
+        handler.handleRequest(session, request, response);
+
+        assertEquals(2, handler.getResponseCount());
+        assertEquals(output.size(), handler.getTotalResponseBytes());
+        assertEquals(firstSize, handler.getMaxResponseBytes());
+        assertTrue(handler.getTotalResponseWriteTime() > 0);
+    }
+
+    @Test
+    public void handleRequest_compressionDisabledByDefault() throws Exception {
+        handler.handleRequest(session, request, response);
+
+        Mockito.verify(response, Mockito.never())
+                .setHeader(Mockito.eq("Content-Encoding"), Mockito.anyString());
+        assertEquals(0, handler.getCompressedResponseCount());
+        assertEquals(handler.getTotalUncompressedResponseBytes(),
+                handler.getTotalResponseBytes());
+    }
+
+    @Test
+    public void handleRequest_largeResponseCompressed() throws Exception {
+        Properties initParameters = new Properties();
+        initParameters.setProperty("compressionThreshold", "10");
+        setup(initParameters);
+
+        handler.handleRequest(session, request, response);
+
+        Mockito.verify(response).setHeader("Content-Encoding", "gzip");
+        Mockito.verify(response).setContentLength(output.size());
+        String json;
+        try (InputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(output.toByteArray()))) {
+            ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                decompressed.write(b);
+            }
+            json = new String(decompressed.toByteArray(),
+                    StandardCharsets.UTF_8);
+        }
+        assertTrue(json, json.startsWith("for(;;);[{"));
+        assertTrue(json, json.contains("content"));
+
+        assertEquals(1, handler.getCompressedResponseCount());
+        assertEquals(output.size(), handler.getTotalResponseBytes());
+        assertEquals(json.getBytes(StandardCharsets.UTF_8).length,
+                handler.getTotalUncompressedResponseBytes());
+        assertTrue(handler.getTotalCompressionTime() > 0);
+    }
+
+    @Test
+    public void handleRequest_responseBelowThresholdNotCompressed()
+            throws Exception {
+        Properties initParameters = new Properties();
+        initParameters.setProperty("compressionThreshold", "100000");
+        setup(initParameters);
+
+        handler.handleRequest(session, request, response);
+
+        Mockito.verify(response, Mockito.never())
+                .setHeader(Mockito.eq("Content-Encoding"), Mockito.anyString());
+        assertEquals(0, handler.getCompressedResponseCount());
+    }
+
+    @Test
+    public void handleRequest_gzipNotAcceptable_deflateUsed()
+            throws Exception {
+        Properties initParameters = new Properties();
+        initParameters.setProperty("compressionThreshold", "10");
+        setup(initParameters);
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn("gzip;q=0, deflate");
+
+        handler.handleRequest(session, request, response);
+
+        Mockito.verify(response).setHeader("Content-Encoding", "deflate");
+    }
+
+    @Test
+    public void handleRequest_noAcceptableEncoding_notCompressed()
+            throws Exception {
+        Properties initParameters = new Properties();
+        initParameters.setProperty("compressionThreshold", "10");
+        setup(initParameters);
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn("x-nogzip, deflate;q=0");
+
+        handler.handleRequest(session, request, response);
+
+        Mockito.verify(response, Mockito.never())
+                .setHeader(Mockito.eq("Content-Encoding"), Mockito.anyString());
+    }
+
+    @Test
+    public void handleRequest_typesAndDependenciesSentForEachSession()
+            throws Exception {
+        for (int i = 0; i < 2; i++) {
+            setup(new Properties(), new LabelWithDependencies());
+            output.reset();
+
+            handler.handleRequest(session, request, response);
+
+            String json = new String(output.toByteArray(),
+                    StandardCharsets.UTF_8);
+            session.lock();
+            LegacyCommunicationManager manager;
+            try {
+                manager = session.getCommunicationManager();
+            } finally {
+                session.unlock();
+            }
+            String labelTag = manager
+                    .getTagForType(LabelWithDependencies.class);
+            String superTag = manager.getTagForType(Label.class);
+            assertTrue(json, json.contains("\"" + LabelWithDependencies.class
+                    .getCanonicalName() + "\" : " + labelTag));
+            assertTrue(json, json.contains(
+                    "\"" + labelTag + "\" : " + superTag));
+            assertTrue(json, json.contains("\"dependencies\": [{"
+                    + "\"type\":\"JAVASCRIPT\",\"url\":\"published:///script.js\"},"
+                    + "{\"type\":\"JAVASCRIPT\",\"url\":\"http://example.com/external.js\"},"
+                    + "{\"type\":\"STYLESHEET\",\"url\":\"published:///style.css\"}]"));
+            // Published files are registered for each session
+            assertEquals(LabelWithDependencies.class,
+                    manager.getDependencies().get("script.js"));
+        }
+    }
+
+    @Test
+    public void handleRequest_localConnectorClass_responseWritten()
+            throws Exception {
+        // Has no canonical name, which used to be written as null
+        class LocalLabel extends Label {
+        }
+        setup(new Properties(), new LocalLabel());
+
+        handler.handleRequest(session, request, response);
+
+        String json = new String(output.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(json, json.startsWith("for(;;);[{"));
+        assertTrue(json, json.endsWith("}]"));
+        assertTrue(json, json.contains(
+                "\"" + LocalLabel.class.getName() + "\" : "));
+    }
+}
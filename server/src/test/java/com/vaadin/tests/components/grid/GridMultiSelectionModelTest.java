@@ -28,6 +28,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.vaadin.data.provider.DataProvider;
+import com.vaadin.data.provider.ListDataProvider;
 import com.vaadin.data.provider.bov.Person;
 import com.vaadin.event.selection.MultiSelectionEvent;
 import com.vaadin.event.selection.MultiSelectionListener;
@@ -707,4 +708,86 @@ public class GridMultiSelectionModelTest {
         assertEquals(SelectAllCheckBoxVisibility.DEFAULT,
                 model.getSelectAllCheckBoxVisibility());
     }
+
+    @Test
+    public void virtualSelectAll_itemsNotFetchedUntilIterated() {
+        AtomicInteger fetches = new AtomicInteger();
+        Grid<Person> lazyGrid = new Grid<>(new CallbackDataProvider<>(query -> {
+            fetches.incrementAndGet();
+            return IntStream.range(0, 1000).mapToObj(i -> new Person("" + i, i))
+                    .skip(query.getOffset()).limit(query.getLimit());
+        }, query -> 1000, Person::getBorn));
+        MultiSelectionModelImpl<Person> model = (MultiSelectionModelImpl<Person>) lazyGrid
+                .setSelectionMode(SelectionMode.MULTI);
+        model.setVirtualSelectAllEnabled(true);
+        AtomicInteger eventCount = new AtomicInteger();
+        model.addMultiSelectionListener(
+                event -> eventCount.incrementAndGet());
+
+        model.selectAll();
+        assertEquals(0, fetches.get());
+        assertEquals(1, eventCount.get());
+        assertTrue(model.isSelected(new Person("5", 5)));
+
+        model.deselect(new Person("5", 5));
+        assertEquals(2, eventCount.get());
+        assertFalse(model.isSelected(new Person("5", 5)));
+        assertTrue(model.isSelected(new Person("6", 6)));
+        assertEquals(999, model.getSelectedItemCount());
+        assertEquals(0, fetches.get());
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 6),
+                model.streamSelectedItems().limit(6)
+                        .map(Person::getBorn).collect(Collectors.toList()));
+        assertEquals(999, model.getSelectedItems().size());
+
+        model.deselectAll();
+        assertEquals(3, eventCount.get());
+        assertEquals(0, model.getSelectedItemCount());
+        assertFalse(model.isSelected(new Person("6", 6)));
+    }
+
+    @Test
+    public void virtualSelectAll_dataChanged_selectedItemsFetchedAgain() {
+        List<Person> items = new ArrayList<>(
+                Arrays.asList(PERSON_A, PERSON_B, PERSON_C));
+        ListDataProvider<Person> dataProvider = DataProvider
+                .ofCollection(items);
+        grid.setDataProvider(dataProvider);
+        selectionModel.setVirtualSelectAllEnabled(true);
+        selectionModel.selectAll();
+        selectionModel.deselect(PERSON_B);
+        assertEquals(Arrays.asList(PERSON_A, PERSON_C),
+                new ArrayList<>(selectionModel.getSelectedItems()));
+
+        Person personD = new Person("D", 2000);
+        items.add(personD);
+        dataProvider.refreshAll();
+        assertEquals(Arrays.asList(PERSON_A, PERSON_C, personD),
+                new ArrayList<>(selectionModel.getSelectedItems()));
+        assertEquals(3, selectionModel.getSelectedItemCount());
+
+        // The deselected item is no longer present
+        dataProvider.setFilter(person -> person != PERSON_B);
+        assertEquals(3, selectionModel.getSelectedItemCount());
+        dataProvider.setFilter(person -> person != personD);
+        assertEquals(Arrays.asList(PERSON_A, PERSON_C),
+                selectionModel.streamSelectedItems()
+                        .collect(Collectors.toList()));
+        assertEquals(2, selectionModel.getSelectedItemCount());
+    }
+
+    @Test
+    public void virtualSelectAll_disabled_selectionMaterialized() {
+        selectionModel.setVirtualSelectAllEnabled(true);
+        selectionModel.selectAll();
+        selectionModel.deselect(PERSON_B);
+
+        selectionModel.setVirtualSelectAllEnabled(false);
+
+        assertEquals(Arrays.asList(PERSON_A, PERSON_C),
+                new ArrayList<>(selectionModel.getSelectedItems()));
+        selectionModel.select(PERSON_B);
+        assertEquals(3, selectionModel.getSelectedItemCount());
+    }
 }
@@ -1,14 +1,23 @@
 package com.vaadin.tests.server;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Test;
+import org.mockito.Mockito;
 
 import com.vaadin.server.DownloadStream;
 import com.vaadin.server.FileResource;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
 
 public class FileResourceTest {
 
@@ -42,4 +51,33 @@ public class FileResourceTest {
                 "DownloadStream cache time must be same as resource cache time",
                 resource.getCacheTime(), downloadStream.getCacheTime());
     }
+
+    @Test
+    public void ifRange_sameETag_partialContent() throws Exception {
+        File file = File.createTempFile("FileResourceTest", ".txt");
+        try {
+            Files.write(file.toPath(),
+                    "0123456789".getBytes(StandardCharsets.UTF_8));
+            FileResource resource = new FileResource(file);
+            String eTag = resource.getStream().getETag();
+            assertFalse("ETag should be strong for If-Range",
+                    eTag.startsWith("W/"));
+
+            VaadinRequest request = Mockito.mock(VaadinRequest.class);
+            Mockito.when(request.getMethod()).thenReturn("GET");
+            Mockito.when(request.getHeader("Range")).thenReturn("bytes=2-4");
+            Mockito.when(request.getHeader("If-Range")).thenReturn(eTag);
+            VaadinResponse response = Mockito.mock(VaadinResponse.class);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Mockito.when(response.getOutputStream()).thenReturn(out);
+
+            resource.getStream().writeResponse(request, response);
+
+            Mockito.verify(response)
+                    .setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            assertEquals("234", out.toString("UTF-8"));
+        } finally {
+            file.delete();
+        }
+    }
 }
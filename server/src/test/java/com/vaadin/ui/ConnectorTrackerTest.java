@@ -0,0 +1,98 @@
+package com.vaadin.ui;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.tests.util.MockUI;
+
+public class ConnectorTrackerTest {
+
+    private UI ui;
+    private ConnectorTracker tracker;
+    private TabSheet tabSheet;
+    private VerticalLayout layout;
+    private Label label;
+    private Label otherTab;
+
+    @Before
+    public void setup() {
+        ui = new MockUI();
+        tracker = ui.getConnectorTracker();
+
+        label = new Label("label");
+        layout = new VerticalLayout(label);
+        otherTab = new Label("other tab");
+        tabSheet = new TabSheet(layout, otherTab);
+        ui.setContent(new VerticalLayout(tabSheet));
+
+        simulateResponse();
+    }
+
+    @Test
+    public void cleanConnectorMap_unchangedConnectorsKeepState() {
+        tracker.cleanConnectorMap(true);
+
+        assertTrue(tracker.isClientSideInitialized(layout));
+        assertTrue(tracker.isClientSideInitialized(label));
+    }
+
+    @Test
+    public void cleanConnectorMap_hiddenSubtreeMarkedUninitialized() {
+        layout.setVisible(false);
+        simulateResponse();
+
+        assertFalse(tracker.isClientSideInitialized(layout));
+        assertFalse(tracker.isClientSideInitialized(label));
+        assertTrue(tracker.isClientSideInitialized(tabSheet));
+    }
+
+    @Test
+    public void cleanConnectorMap_unselectedTabMarkedUninitialized() {
+        tabSheet.setSelectedTab(otherTab);
+        simulateResponse();
+
+        assertFalse(tracker.isClientSideInitialized(layout));
+        assertFalse(tracker.isClientSideInitialized(label));
+        assertTrue(tracker.isClientSideInitialized(otherTab));
+    }
+
+    @Test
+    public void markAllConnectorsDirty_visibilityChangeWithoutDirtyCleaned() {
+        HidingLayout hidingLayout = new HidingLayout();
+        Label hidden = new Label("hidden");
+        hidingLayout.addComponent(hidden);
+        ui.setContent(hidingLayout);
+        simulateResponse();
+        assertTrue(tracker.isClientSideInitialized(hidden));
+
+        // Not marked as dirty, so only found by a full cleanup
+        hidingLayout.rendered = false;
+        tracker.markAllConnectorsDirty();
+        simulateResponse();
+
+        assertFalse(tracker.isClientSideInitialized(hidden));
+        assertTrue(tracker.isClientSideInitialized(hidingLayout));
+    }
+
+    private static class HidingLayout extends CssLayout
+            implements SelectiveRenderer {
+        private boolean rendered = true;
+
+        @Override
+        public boolean isRendered(Component childComponent) {
+            return rendered;
+        }
+    }
+
+    private void simulateResponse() {
+        for (ClientConnector connector : tracker.getDirtyVisibleConnectors()) {
+            tracker.markClientSideInitialized(connector);
+        }
+        tracker.markAllConnectorsClean();
+        tracker.cleanConnectorMap(true);
+    }
+}
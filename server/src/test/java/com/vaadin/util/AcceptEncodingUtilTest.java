@@ -0,0 +1,48 @@
+package com.vaadin.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AcceptEncodingUtilTest {
+
+    @Test
+    public void listedCodings_accepted() {
+        assertTrue(AcceptEncodingUtil.isAccepted("gzip, deflate, br", "br"));
+        assertTrue(AcceptEncodingUtil.isAccepted("deflate,GZIP", "gzip"));
+        assertTrue(AcceptEncodingUtil.isAccepted("x-gzip", "gzip"));
+        assertEquals(0.5,
+                AcceptEncodingUtil.getQuality("br;q=0.5, gzip", "br"), 0);
+        assertEquals(1, AcceptEncodingUtil.getQuality("br ; Q = 1", "br"), 0);
+    }
+
+    @Test
+    public void missingOrUnlisted_notAccepted() {
+        assertFalse(AcceptEncodingUtil.isAccepted(null, "gzip"));
+        assertFalse(AcceptEncodingUtil.isAccepted("", "gzip"));
+        assertFalse(AcceptEncodingUtil.isAccepted("identity", "gzip"));
+    }
+
+    @Test
+    public void substring_notAccepted() {
+        assertFalse(AcceptEncodingUtil.isAccepted("brotli", "br"));
+        assertFalse(AcceptEncodingUtil.isAccepted("nogzip", "gzip"));
+    }
+
+    @Test
+    public void zeroQuality_notAccepted() {
+        assertFalse(AcceptEncodingUtil.isAccepted("gzip;q=0", "gzip"));
+        assertFalse(AcceptEncodingUtil.isAccepted("gzip;q=0.000, br", "gzip"));
+        assertFalse(AcceptEncodingUtil.isAccepted("gzip;q=abc", "gzip"));
+    }
+
+    @Test
+    public void wildcard_appliesToUnlistedCodings() {
+        assertTrue(AcceptEncodingUtil.isAccepted("*", "br"));
+        assertFalse(AcceptEncodingUtil.isAccepted("br;q=0, *", "br"));
+        assertTrue(AcceptEncodingUtil.isAccepted("gzip;q=0.2, *;q=0", "gzip"));
+        assertFalse(AcceptEncodingUtil.isAccepted("gzip, *;q=0", "br"));
+    }
+}
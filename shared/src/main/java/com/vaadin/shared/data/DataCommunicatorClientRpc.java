@@ -56,6 +56,21 @@ public interface DataCommunicatorClientRpc extends ClientRpc {
      */
     void updateData(JsonArray data);
 
+    /**
+     * Updates an array of objects based on their identifying key by applying
+     * only the changes since the data last sent for each of them. Each diff
+     * contains the key of the object, the added and changed values in
+     * {@link DataCommunicatorConstants#DIFF_UPDATED}, the names of the
+     * removed values in {@link DataCommunicatorConstants#DIFF_REMOVED} and
+     * the diffs of changed nested objects in
+     * {@link DataCommunicatorConstants#DIFF_NESTED}.
+     *
+     * @param diffs
+     *            array of row diffs
+     * @since 8.14
+     */
+    void updateRowDiffs(JsonArray diffs);
+
     /**
      * Informs that new data has been inserted from the server.
      *
@@ -28,4 +28,25 @@ public final class DataCommunicatorConstants implements Serializable {
     public static final String SELECTED = "s";
     public static final String NAME = "n";
     public static final String DATA = "d";
+
+    /**
+     * Key of the object holding the added and changed values in a row diff.
+     *
+     * @since 8.14
+     */
+    public static final String DIFF_UPDATED = "u";
+
+    /**
+     * Key of the array holding the names of removed values in a row diff.
+     *
+     * @since 8.14
+     */
+    public static final String DIFF_REMOVED = "r";
+
+    /**
+     * Key of the object holding the diffs of nested objects in a row diff.
+     *
+     * @since 8.14
+     */
+    public static final String DIFF_NESTED = "m";
 }